@@ -27,12 +27,12 @@ function Home() {
        // --- ^^^ END REMOVAL ^^^ ---
 
        try {
-         console.log("[Home] Making API Call: GET /properties?status=AVAILABLE");
-         // Fetch AVAILABLE properties - Endpoint is public
-         const response = await apiClient.get('/properties', { params: { status: 'AVAILABLE' } });
+         console.log("[Home] Making API Call: GET /properties?limit=3");
+         // Fetch the 3 newest AVAILABLE properties - Endpoint is public and only returns AVAILABLE listings
+         const response = await apiClient.get('/properties', { params: { limit: 3, sort: 'createdAt,desc' } });
          console.log("[Home] Featured properties API Response Status:", response.status);
          console.log("[Home] Featured properties API Response Data:", response.data);
-         const properties = Array.isArray(response.data) ? response.data : [];
+         const properties = Array.isArray(response.data?.items) ? response.data.items : [];
          setFeaturedProperties(properties.slice(0, 3));
          console.log("[Home] Featured properties state set.");
        } catch (err) {
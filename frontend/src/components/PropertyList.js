@@ -7,12 +7,15 @@ import './Form.css'; // For filter styles if needed
 
 function PropertyList() {
   const [properties, setProperties] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null); // Keyset cursor for the next page (null = no more results)
+  const [loadingMore, setLoadingMore] = useState(false);
+  const [facets, setFacets] = useState(null); // Counts per filter value (optional; the list works without them)
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState('');
   const navigate = useNavigate();
   const userRole = localStorage.getItem('userRole');
   const [filters, setFilters] = useState({
-    city: '', type: '', minPrice: '', maxPrice: '', minBedrooms: '', minBathrooms: ''
+    q: '', city: '', type: '', minPrice: '', maxPrice: '', minBedrooms: '', minBathrooms: ''
   });
 
   // --- Image Handling Logic (similar to PropertyCard) ---
@@ -30,30 +33,57 @@ function PropertyList() {
   // --- End Image Handling ---
 
 
-  // Callback function for fetching properties
-  const fetchProperties = useCallback(async () => {
-    setError('');
-    setLoading(true);
-    try {
-      console.log("[PropertyList] Fetching properties with filters:", filters);
+  // Builds query params from the non-empty filters
+  const buildParams = useCallback(() => {
       const params = {};
       for (const key in filters) {
           if (filters[key] !== null && filters[key] !== '') {
               params[key] = filters[key];
           }
       }
-      const response = await apiClient.get('/properties', { params }); // Use relative path
+      return params;
+  }, [filters]);
+
+  // Callback function for fetching the first page of properties
+  const fetchProperties = useCallback(async () => {
+    setError('');
+    setLoading(true);
+    try {
+      console.log("[PropertyList] Fetching properties with filters:", filters);
+      const response = await apiClient.get('/properties', { params: buildParams() }); // Use relative path
       console.log("[PropertyList] Properties fetched successfully:", response.data);
-      setProperties(Array.isArray(response.data) ? response.data : []);
+      setProperties(Array.isArray(response.data?.items) ? response.data.items : []);
+      setNextCursor(response.data?.nextCursor || null);
+      apiClient.get('/properties/facets', { params: buildParams() })
+        .then(facetResponse => setFacets(facetResponse.data))
+        .catch(facetErr => { console.warn("[PropertyList] Facet counts unavailable:", facetErr); setFacets(null); });
     } catch (err) {
       console.error("[PropertyList] Failed to fetch properties:", err);
       // ... (error handling logic) ...
       let errMsg = 'Failed to load properties.'; /* ... */ setError(errMsg);
       setProperties([]);
+      setNextCursor(null);
     } finally {
       setLoading(false);
     }
-  }, [filters]);
+  }, [filters, buildParams]);
+
+  // Appends the next page using the cursor returned by the previous response
+  const loadMore = async () => {
+    if (!nextCursor) return;
+    setLoadingMore(true);
+    try {
+      const response = await apiClient.get('/properties', { params: { ...buildParams(), cursor: nextCursor } });
+      const items = Array.isArray(response.data?.items) ? response.data.items : [];
+      setProperties(prev => [...prev, ...items]);
+      setNextCursor(response.data?.nextCursor || null);
+    } catch (err) {
+      console.error("[PropertyList] Failed to load more properties:", err);
+      setError('Failed to load more properties.');
+    } finally {
+      setLoadingMore(false);
+    }
+  };
 
   // Initial Fetch
   useEffect(() => {
@@ -109,8 +139,9 @@ function PropertyList() {
       {/* Filter Form */}
       <form onSubmit={handleFilterSubmit} style={filterContainerStyle}>
          {/* ... Filter inputs ... */}
+         <div style={filterGroupStyle}> <label style={filterLabelStyle} htmlFor="q">Keywords:</label> <input type="text" id="q" name="q" value={filters.q} onChange={handleFilterChange} placeholder="e.g., pool garden" style={filterInputStyle}/> </div>
          <div style={filterGroupStyle}> <label style={filterLabelStyle} htmlFor="city">City:</label> <input type="text" id="city" name="city" value={filters.city} onChange={handleFilterChange} placeholder="e.g., Bengaluru" style={filterInputStyle}/> </div>
-         <div style={filterGroupStyle}> <label style={filterLabelStyle} htmlFor="type">Type:</label> <select id="type" name="type" value={filters.type} onChange={handleFilterChange} style={filterInputStyle}> <option value="">All Types</option><option value="SALE">For Sale</option><option value="RENT">For Rent</option></select> </div>
+         <div style={filterGroupStyle}> <label style={filterLabelStyle} htmlFor="type">Type:</label> <select id="type" name="type" value={filters.type} onChange={handleFilterChange} style={filterInputStyle}> <option value="">All Types</option><option value="SALE">For Sale{facets ? ` (${facets.types?.SALE ?? 0})` : ''}</option><option value="RENT">For Rent{facets ? ` (${facets.types?.RENT ?? 0})` : ''}</option></select> </div>
          <div style={filterGroupStyle}> <label style={filterLabelStyle} htmlFor="minPrice">Min Price (₹):</label> <input type="number" id="minPrice" name="minPrice" value={filters.minPrice} onChange={handleFilterChange} placeholder="Any" style={filterInputStyle} min="0"/> </div>
          <div style={filterGroupStyle}> <label style={filterLabelStyle} htmlFor="maxPrice">Max Price (₹):</label> <input type="number" id="maxPrice" name="maxPrice" value={filters.maxPrice} onChange={handleFilterChange} placeholder="Any" style={filterInputStyle} min="0"/> </div>
          <div style={filterGroupStyle}> <label style={filterLabelStyle} htmlFor="minBedrooms">Min Beds:</label> <input type="number" id="minBedrooms" name="minBedrooms" value={filters.minBedrooms} onChange={handleFilterChange} placeholder="Any" style={filterInputStyle} min="0"/> </div>
@@ -170,6 +201,11 @@ function PropertyList() {
           })}
         </ul>
       )}
+      {!loading && !error && nextCursor && (
+        <button onClick={loadMore} style={filterButtonStyle} disabled={loadingMore}>
+          {loadingMore ? 'Loading...' : 'Load More'}
+        </button>
+      )}
     </div>
   );
 }
@@ -90,6 +90,8 @@ public class SecurityConfig {
                         // --- Property Endpoints ---
                         // VVV MODIFIED: Allow anonymous GET access to the list endpoint VVV
                         .requestMatchers(HttpMethod.GET, "/api/properties").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/properties/facets").permitAll() // Counts for the public search page
+                        .requestMatchers(HttpMethod.GET, "/api/properties/suggest").permitAll() // Search box autocomplete
                         // VVV MODIFIED: Viewing specific details still requires authentication VVV
                         .requestMatchers(HttpMethod.GET, "/api/properties/**").authenticated()
                         // Creating property requires authentication
@@ -1,7 +1,12 @@
 package com.example.demo.config.filter;
 
+import com.example.demo.service.AuthenticatedUser;
+import com.example.demo.service.CurrentUser;
 import com.example.demo.service.JwtService;
-import com.example.demo.service.UserDetailsServiceImpl; // Use the specific implementation
+import com.example.demo.service.TokenRevocationService;
+import com.example.demo.service.UserCache;
+import com.example.demo.service.UserSnapshot;
+import com.example.demo.service.VerifiedToken;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.security.SignatureException;
@@ -9,31 +14,37 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-// Using SLF4J logger is generally better than System.out, but System.out is fine for quick debugging
-// import org.slf4j.Logger;
-// import org.slf4j.LoggerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
 
 @Component // Mark this as a Spring component to be automatically detected
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    // Optional: Use SLF4J logger for better logging control
-    // private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+    // Named so it does not hide GenericFilterBean's commons-logging 'logger'
+    private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
     @Autowired
     private JwtService jwtService;
     @Autowired
-    private UserDetailsServiceImpl userDetailsService; // Inject specific UserDetailsService implementation
+    private UserCache userCache; // Only for tokens without the user id and role claims
+    @Autowired
+    private TokenRevocationService tokenRevocations;
+    @Autowired
+    private CurrentUser currentUser; // Request scoped: services read the caller from here
 
     /**
      * Filters incoming requests to check for a valid JWT in the Authorization header.
@@ -66,51 +77,57 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwt = authHeader.substring(7);
 
         try {
-            // 3. Extract user email (subject) from JWT using JwtService
-            userEmail = jwtService.extractUsername(jwt);
+            // 3. Verify the signature and expiry once and read the user email (subject) from the verified claims
+            VerifiedToken token = jwtService.verify(jwt);
+            userEmail = token.getSubject();
 
             // 4. Check: Is email present in token AND is user NOT already authenticated in this request?
             if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-                // 5. Load UserDetails from the database via UserDetailsService
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-
-                // 6. Validate the token: Checks signature, expiration, and compares username.
-                if (jwtService.isTokenValid(jwt, userDetails)) {
-
-                    // 7. If token is valid, create an Authentication object for Spring Security
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,           // Principal
-                            null,                  // Credentials (null for token auth)
-                            userDetails.getAuthorities() // Authorities (roles) loaded by UserDetailsService
-                    );
-
-                    // 8. Set additional details
-                    authToken.setDetails(
-                            new WebAuthenticationDetailsSource().buildDetails(request)
-                    );
-
-                    // 9. Update the SecurityContextHolder - THIS AUTHENTICATES THE USER FOR THIS REQUEST
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-
-                    // <<<--- ADDED LOGGING LINE FOR DEBUGGING ROLES --->>>
-                    System.out.println("[JwtAuthFilter] User authenticated: " + userEmail + ", Roles from UserDetails: " + userDetails.getAuthorities());
-
+                // 5. Build the principal: from the token's claims, or (tokens issued before the id and role
+                //    claims existed) from the shared user cache
+                final AuthenticatedUser principal;
+                if (token.hasUserClaims()) {
+                    principal = new AuthenticatedUser(token.getUserId(), userEmail, token.getRole());
                 } else {
-                    System.out.println("[JwtAuthFilter] Token validation failed for user: " + userEmail); // Log validation failure
+                    UserSnapshot user = userCache.findByEmail(userEmail)
+                            .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + userEmail));
+                    principal = new AuthenticatedUser(user.getId(), user.getEmail(), user.getRole());
+                }
+
+                // 6. Revoked tokens (issued before the user's cut-off) are rejected without a database read
+                if (tokenRevocations.isRevoked(principal.getId(), token.getIssuedAtMillis())) {
+                    log.debug("Rejected revoked token for user: {}", userEmail);
+                    filterChain.doFilter(request, response);
+                    return;
                 }
-            } else {
-                // Optional log if email null or user already authenticated
-                // System.out.println("[JwtAuthFilter] Skipping auth context update. Email: " + userEmail + ", Existing Auth: " + (SecurityContextHolder.getContext().getAuthentication() != null));
+                List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_" + principal.getRole().toUpperCase(Locale.ROOT)));
+
+                // 7. The token is valid: create an Authentication object for Spring Security
+                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                        principal,   // Principal
+                        null,        // Credentials (null for token auth)
+                        authorities  // Authorities (roles)
+                );
+
+                // 8. Set additional details
+                authToken.setDetails(
+                        new WebAuthenticationDetailsSource().buildDetails(request)
+                );
+
+                // 9. Update the SecurityContextHolder - THIS AUTHENTICATES THE USER FOR THIS REQUEST
+                SecurityContextHolder.getContext().setAuthentication(authToken);
+                currentUser.set(principal);
+                log.debug("User authenticated: {}, Roles: {}", userEmail, authorities);
             }
         } catch (ExpiredJwtException e) {
-            System.err.println("[JwtAuthFilter] JWT token is expired: " + e.getMessage());
+            log.debug("JWT token is expired: {}", e.getMessage());
         } catch (SignatureException | MalformedJwtException e) {
-            System.err.println("[JwtAuthFilter] JWT token is invalid ("+ e.getClass().getSimpleName() +"): " + e.getMessage());
+            log.warn("JWT token is invalid ({}): {}", e.getClass().getSimpleName(), e.getMessage());
         } catch (UsernameNotFoundException e) {
-            System.err.println("[JwtAuthFilter] User not found during JWT validation: " + e.getMessage());
+            log.warn("User not found during JWT validation: {}", e.getMessage());
         } catch (Exception e) {
-            System.err.println("[JwtAuthFilter] Cannot set user authentication: " + e.getMessage());
+            log.error("Cannot set user authentication: {}", e.getMessage());
         }
 
         // Clear context if an error occurred that wasn't handled above, just in case
@@ -1,11 +1,18 @@
 package com.example.demo.controller;
 
 import com.example.demo.model.Property; // Assuming returning entity for simplicity
+import com.example.demo.service.JwtService;
+import com.example.demo.service.PropertyJsonCache;
+import com.example.demo.service.PropertyOwnerIndex;
 import com.example.demo.service.PropertyService;
+import com.example.demo.service.TokenRevocationService;
+import com.example.demo.service.UserCache;
 // Import User service/repo if managing users
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -14,6 +21,7 @@ import org.springframework.web.bind.annotation.*;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 @RestController
 @RequestMapping("/api/admin") // Base path for admin actions
@@ -24,6 +32,18 @@ public class AdminController {
 
     @Autowired
     private PropertyService propertyService;
+    @Autowired
+    private NdjsonResponseWriter ndjsonWriter;
+    @Autowired
+    private PropertyJsonCache jsonCache;
+    @Autowired
+    private JwtService jwtService;
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+    @Autowired
+    private UserCache userCache;
+    @Autowired
+    private PropertyOwnerIndex ownerIndex;
     // Autowire UserService, BookingService etc. as needed
 
     /**
@@ -32,8 +52,22 @@ public class AdminController {
      */
     @GetMapping("/properties")
     @PreAuthorize("hasRole('ADMIN')") // Secure endpoint for ADMIN role only
-    public ResponseEntity<List<Property>> getAllProperties() {
+    public ResponseEntity<List<Property>> getAllProperties(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            HttpServletResponse response) {
         logger.info("Admin request received: getAllProperties");
+        if (NdjsonResponseWriter.isRequested(accept)) {
+            // Streaming export: same representation as the JSON list, one property per line
+            try {
+                Consumer<Object> out = ndjsonWriter.open(response);
+                long count = propertyService.streamAllPropertiesAdmin(out::accept);
+                logger.debug("Admin: Streamed {} properties as NDJSON.", count);
+                return null;
+            } catch (Exception e) {
+                logger.error("Admin: Error streaming all properties: {}", e.getMessage(), e);
+                return response.isCommitted() ? null : ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Collections.emptyList());
+            }
+        }
         try {
             List<Property> properties = propertyService.findAllPropertiesAdmin();
             // TODO: Convert to DTOs is highly recommended
@@ -69,6 +103,68 @@ public class AdminController {
         }
     }
 
+    /**
+     * Endpoint for ADMIN to read the property search cache counters (hits, misses, evictions, invalidations, size).
+     */
+    @GetMapping("/search-cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Long>> getSearchCacheStats() {
+        return ResponseEntity.ok(propertyService.getSearchCacheStats());
+    }
+
+    /**
+     * Endpoint for ADMIN to read the property JSON cache counters (hits, misses, evictions, entries, bytes used and capacity).
+     */
+    @GetMapping("/json-cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Long>> getJsonCacheStats() {
+        return ResponseEntity.ok(jsonCache.getStats());
+    }
+
+    /**
+     * Endpoint for ADMIN to read the verified-token cache counters (hits, misses, entries and capacity).
+     */
+    @GetMapping("/jwt-cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Long>> getJwtCacheStats() {
+        return ResponseEntity.ok(jwtService.getCacheStats());
+    }
+
+    /**
+     * Endpoint for ADMIN to read the user cache counters (hits, misses, hit rate, evictions, invalidations and entries).
+     */
+    @GetMapping("/user-cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Long>> getUserCacheStats() {
+        return ResponseEntity.ok(userCache.getStats());
+    }
+
+    /**
+     * Endpoint for ADMIN to read the property owner index counters (hits, misses, entries and table capacity).
+     */
+    @GetMapping("/owner-index")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Long>> getOwnerIndexStats() {
+        return ResponseEntity.ok(ownerIndex.getStats());
+    }
+
+    /**
+     * Endpoint for ADMIN to sign a user out everywhere: every token issued to the user so far is rejected.
+     * @param id The ID of the user.
+     * @return 204 No Content, or 404 if the user does not exist.
+     */
+    @PostMapping("/users/{id}/revoke-tokens")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> revokeUserTokens(@PathVariable Long id) {
+        logger.info("Admin request received: revokeUserTokens for user ID {}", id);
+        try {
+            tokenRevocationService.revokeTokens(id);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
+    }
+
     // TODO: Add endpoints for managing users, all bookings, etc.
     // Example:
     // @GetMapping("/users")
@@ -4,13 +4,13 @@ import com.example.demo.dto.BookingRequestDTO;
 import com.example.demo.dto.BookingResponseDTO;
 import com.example.demo.dto.BookingStatusUpdateDTO;
 import com.example.demo.model.Booking;
-import com.example.demo.model.Property;
-import com.example.demo.model.User;
 import com.example.demo.service.BookingService;
-import org.hibernate.LazyInitializationException;
+import com.example.demo.mapper.BookingMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -19,9 +19,9 @@ import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
 import java.util.Collections;
-import java.util.HashSet; // Ensure used in DTO helper
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @RestController
@@ -33,6 +33,10 @@ public class BookingController {
 
     @Autowired
     private BookingService bookingService; // Correct service injection
+    @Autowired
+    private NdjsonResponseWriter ndjsonWriter;
+    @Autowired
+    private BookingMapper bookingMapper;
 
     // --- Create Booking Request ---
     @PostMapping
@@ -45,7 +49,7 @@ public class BookingController {
             bookingDetails.setVisitTime(request.getVisitTime());
             bookingDetails.setCustomerNotes(request.getCustomerNotes());
             Booking createdBooking = bookingService.createBooking(request.getPropertyId(), bookingDetails);
-            return ResponseEntity.status(HttpStatus.CREATED).body(convertToDto(createdBooking));
+            return ResponseEntity.status(HttpStatus.CREATED).body(bookingMapper.toDto(createdBooking));
         } catch (IllegalArgumentException e) { return ResponseEntity.badRequest().body(Map.of("error", e.getMessage())); }
         catch (AccessDeniedException e) { return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage())); }
         catch (Exception e) { return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Failed to create booking request.")); }
@@ -59,7 +63,7 @@ public class BookingController {
         try {
             // Service now returns eager-loaded entities
             List<Booking> bookings = bookingService.findMyBookingsAsCustomer();
-            List<BookingResponseDTO> dtos = bookings.stream().map(this::convertToDto).collect(Collectors.toList());
+            List<BookingResponseDTO> dtos = bookings.stream().map(bookingMapper::toDto).collect(Collectors.toList());
             return ResponseEntity.ok(dtos);
         } catch(Exception e) {
             logger.error("Error fetching customer bookings: {}", e.getMessage(), e);
@@ -74,7 +78,7 @@ public class BookingController {
         try {
             // Service now returns eager-loaded entities
             List<Booking> bookings = bookingService.findMyBookingsAsOwner();
-            List<BookingResponseDTO> dtos = bookings.stream().map(this::convertToDto).collect(Collectors.toList());
+            List<BookingResponseDTO> dtos = bookings.stream().map(bookingMapper::toDto).collect(Collectors.toList());
             return ResponseEntity.ok(dtos);
         } catch(Exception e) {
             logger.error("Error fetching owner bookings: {}", e.getMessage(), e);
@@ -84,12 +88,27 @@ public class BookingController {
 
     @GetMapping("/admin/all")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<BookingResponseDTO>> getAllBookingsAdmin() {
+    public ResponseEntity<List<BookingResponseDTO>> getAllBookingsAdmin(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            HttpServletResponse response) {
         logger.info("Fetching all bookings for admin.");
+        if (NdjsonResponseWriter.isRequested(accept)) {
+            // Streaming export: each booking is converted and written as soon as it is read
+            try {
+                Consumer<Object> out = ndjsonWriter.open(response);
+                long count = bookingService.streamAllBookingsAdmin(booking -> out.accept(bookingMapper.toDto(booking)));
+                logger.debug("Streamed {} bookings as NDJSON.", count);
+                return null;
+            } catch(AccessDeniedException e) { return response.isCommitted() ? null : ResponseEntity.status(HttpStatus.FORBIDDEN).body(Collections.emptyList()); }
+            catch(Exception e) {
+                logger.error("Error streaming all bookings: {}", e.getMessage(), e);
+                return response.isCommitted() ? null : ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Collections.emptyList());
+            }
+        }
         try {
             // Service now returns eager-loaded entities
             List<Booking> bookings = bookingService.findAllBookingsAdmin();
-            List<BookingResponseDTO> dtos = bookings.stream().map(this::convertToDto).collect(Collectors.toList());
+            List<BookingResponseDTO> dtos = bookings.stream().map(bookingMapper::toDto).collect(Collectors.toList());
             return ResponseEntity.ok(dtos);
         } catch(AccessDeniedException e) { /* ... */ return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Collections.emptyList()); }
         catch(Exception e) { /* ... */ return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Collections.emptyList()); }
@@ -104,7 +123,7 @@ public class BookingController {
         try {
             // Service now returns eager-loaded entity and checks auth
             return bookingService.findBookingByIdWithAuth(id)
-                    .map(this::convertToDto)
+                    .map(bookingMapper::toDto)
                     .map(ResponseEntity::ok)
                     .orElse(ResponseEntity.notFound().build());
         } catch (AccessDeniedException e) { /* ... */ return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage())); }
@@ -121,48 +140,11 @@ public class BookingController {
         try {
             // Service method contains logic for who can update to which status
             Booking updatedBooking = bookingService.updateBookingStatus(id, statusUpdate.getNewStatus(), statusUpdate.getNotes());
-            return ResponseEntity.ok(convertToDto(updatedBooking));
+            return ResponseEntity.ok(bookingMapper.toDto(updatedBooking));
         } catch (IllegalArgumentException e) { /* ... */ return ResponseEntity.badRequest().body(Map.of("error", e.getMessage())); }
         catch (AccessDeniedException e) { /* ... */ return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage())); }
         catch (Exception e) { /* ... */ return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Update failed.")); }
     }
 
     // --- REMOVED Payment Status Endpoint from here ---
-
-
-    // --- Helper Method: Convert Booking Entity to BookingResponseDTO ---
-    private BookingResponseDTO convertToDto(Booking booking) {
-        if (booking == null) return null;
-        BookingResponseDTO dto = new BookingResponseDTO();
-        dto.setId(booking.getId());
-        dto.setStatus(booking.getStatus());
-        dto.setPaymentStatus(booking.getPaymentStatus()); // Include payment status
-        dto.setCustomerNotes(booking.getCustomerNotes());
-        dto.setOwnerAgentNotes(booking.getOwnerAgentNotes());
-        dto.setVisitDate(booking.getVisitDate());
-        dto.setVisitTime(booking.getVisitTime());
-        dto.setCreatedAt(booking.getCreatedAt());
-
-        // Access related data (should be loaded due to JOIN FETCH in service calls)
-        if (booking.getProperty() != null) {
-            Property property = booking.getProperty();
-            dto.setPropertyId(property.getId());
-            dto.setPropertyAddress(property.getAddress());
-            dto.setPropertyCity(property.getCity());
-            if (property.getOwner() != null) { // Owner should be fetched too
-                dto.setOwnerId(property.getOwner().getId());
-                dto.setOwnerName(property.getOwner().getName());
-            } else {
-                dto.setOwnerId(property.getOwnerId());
-                dto.setOwnerName("N/A");
-            }
-        }
-        if (booking.getCustomer() != null) { // Customer should be fetched too
-            User customer = booking.getCustomer();
-            dto.setCustomerId(customer.getId());
-            dto.setCustomerName(customer.getName());
-        }
-        return dto;
-    }
-    // --- End Helper Method ---
 }
\ No newline at end of file
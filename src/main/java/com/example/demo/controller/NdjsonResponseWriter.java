@@ -0,0 +1,73 @@
+package com.example.demo.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Writes newline-delimited JSON (one object per line) straight to the servlet response,
+ * so list endpoints can emit rows as they are read instead of building the whole list first.
+ * Clients opt in with {@code Accept: application/x-ndjson}.
+ */
+@Component
+public class NdjsonResponseWriter {
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+    private static final MediaType NDJSON = MediaType.parseMediaType(NDJSON_VALUE);
+
+    private final ObjectWriter writer;
+
+    @Autowired
+    public NdjsonResponseWriter(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writer(); // Uses Spring's configured mapper (JavaTime module, etc.)
+    }
+
+    /** True if the Accept header explicitly asks for NDJSON (wildcards do not count). */
+    public static boolean isRequested(String acceptHeader) {
+        if (acceptHeader == null || acceptHeader.isBlank()) { return false; }
+        try {
+            List<MediaType> accepted = MediaType.parseMediaTypes(acceptHeader);
+            return accepted.stream().anyMatch(type -> !type.isWildcardType() && !type.isWildcardSubtype() && type.isCompatibleWith(NDJSON));
+        } catch (IllegalArgumentException e) { // Unparseable Accept header
+            return false;
+        }
+    }
+
+    /**
+     * Prepares the response and returns a sink that serializes each value as one line.
+     * The first line is flushed immediately to keep time-to-first-byte low; later lines go out
+     * whenever the servlet buffer fills.
+     */
+    public Consumer<Object> open(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        ServletOutputStream out = response.getOutputStream();
+        return new Consumer<>() {
+            private boolean first = true;
+
+            @Override
+            public void accept(Object value) {
+                try {
+                    out.write(writer.writeValueAsBytes(value));
+                    out.write('\n');
+                    if (first) {
+                        out.flush();
+                        first = false;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e); // Typically the client went away
+                }
+            }
+        };
+    }
+}
@@ -1,9 +1,10 @@
 package com.example.demo.controller;
 
-import com.example.demo.dto.PropertyDTO; // Import DTO
+import com.example.demo.dto.PropertyPatchDTO;
 import com.example.demo.model.Property;
 import com.example.demo.service.FileStorageService;
 import com.example.demo.service.PropertyService;
+import com.example.demo.mapper.PropertyMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,6 +29,7 @@ public class OwnerPropertyController {
 
     @Autowired private PropertyService propertyService;
     @Autowired private FileStorageService fileStorageService;
+    @Autowired private PropertyMapper propertyMapper;
 
     // --- PUT to Update Property (Owner Only) ---
     @PutMapping("/{id}")
@@ -35,16 +37,13 @@ public class OwnerPropertyController {
     public ResponseEntity<?> updateMyProperty(@PathVariable Long id, @RequestBody Property propertyData) {
         // Use Property entity as request body for simplicity, or create a dedicated UpdateDTO
         logger.info("Owner request received to update property ID: {}", id);
-        // --- VVV ADD LOGGING VVV ---
-        // Log received data (including amenities) before passing to service
-        logger.info("Received update payload in controller: Address={}, City={}, Amenities={}",
+        logger.debug("Received update payload in controller: Address={}, City={}, Amenities={}",
                 propertyData.getAddress(), propertyData.getCity(), propertyData.getAmenities());
-        // --- ^^^ END LOGGING ^^^ ---
         try {
             // Service method attempts the update
             return propertyService.updateProperty(id, propertyData)
                     // --- VVV Convert to DTO before sending response VVV ---
-                    .map(updatedEntity -> ResponseEntity.ok(convertToDto(updatedEntity))) // Use helper/factory
+                    .map(updatedEntity -> ResponseEntity.ok(propertyMapper.toDto(updatedEntity))) // Use helper/factory
                     // --- ^^^ End Conversion ^^^ ---
                     .orElseGet(() -> {
                         logger.warn("Owner Update failed: Property with ID {} not found by service.", id);
@@ -62,6 +61,31 @@ public class OwnerPropertyController {
         }
     }
 
+    // --- PATCH to Partially Update Property (Owner Only) ---
+    // Only the fields present in the body change; amenities, when present, replace the whole set.
+    @PatchMapping("/{id}")
+    @PreAuthorize("@propertyService.checkOwnership(#id)") // Check ownership before execution
+    public ResponseEntity<?> patchMyProperty(@PathVariable Long id, @RequestBody PropertyPatchDTO patch) {
+        logger.info("Owner request received to patch property ID: {}", id);
+        try {
+            return propertyService.patchProperty(id, patch)
+                    .map(updatedEntity -> ResponseEntity.ok(propertyMapper.toDto(updatedEntity)))
+                    .orElseGet(() -> {
+                        logger.warn("Owner Patch failed: Property with ID {} not found by service.", id);
+                        return ResponseEntity.notFound().build();
+                    });
+        } catch (AccessDeniedException e) {
+            logger.warn("Owner Patch Forbidden for property ID {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) { // e.g. an amenity name that is too long
+            logger.warn("Owner Patch rejected for property ID {}: {}", id, e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Owner Error: Unexpected error patching property {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Error updating property."));
+        }
+    }
+
     // --- DELETE Property (Owner Only) ---
     @DeleteMapping("/{id}")
     @PreAuthorize("@propertyService.checkOwnership(#id)") // Check ownership before execution
@@ -142,35 +166,4 @@ public class OwnerPropertyController {
         }
     }
 
-    // --- Helper Method: Convert Property Entity to PropertyDTO ---
-    // Duplicated here for now, consider moving to a shared utility or using MapStruct
-    private PropertyDTO convertToDto(Property property) {
-        if (property == null) {
-            return null;
-        }
-        PropertyDTO dto = new PropertyDTO();
-        dto.setId(property.getId());
-        dto.setAddress(property.getAddress());
-        dto.setCity(property.getCity());
-        dto.setState(property.getState());
-        dto.setPostalCode(property.getPostalCode());
-        dto.setPrice(property.getPrice());
-        dto.setBedrooms(property.getBedrooms());
-        dto.setBathrooms(property.getBathrooms());
-        dto.setAreaSqft(property.getAreaSqft());
-        dto.setDescription(property.getDescription());
-        dto.setType(property.getType());
-        dto.setStatus(property.getStatus());
-        dto.setImageUrls(property.getImageUrls());
-        dto.setCreatedAt(property.getCreatedAt());
-        dto.setUpdatedAt(property.getUpdatedAt());
-        dto.setAmenities(property.getAmenities()); // Include amenities
-
-        if (property.getOwner() != null) {
-            dto.setOwnerId(property.getOwner().getId());
-            dto.setOwnerName(property.getOwner().getName());
-            dto.setOwnerEmail(property.getOwner().getEmail());
-        }
-        return dto;
-    }
 }
\ No newline at end of file
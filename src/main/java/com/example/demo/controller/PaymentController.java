@@ -2,10 +2,8 @@ package com.example.demo.controller;
 
 import com.example.demo.dto.BookingResponseDTO; // To return updated booking info
 import com.example.demo.model.Booking;
-import com.example.demo.model.Property; // Needed for DTO conversion helper
-import com.example.demo.model.User;     // Needed for DTO conversion helper
 import com.example.demo.service.BookingService;
-import org.hibernate.LazyInitializationException; // For DTO helper
+import com.example.demo.mapper.BookingMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,8 +13,6 @@ import org.springframework.security.access.AccessDeniedException; // Import
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Collections; // For DTO helper
-import java.util.HashSet;     // For DTO helper
 import java.util.Map;
 
 @RestController
@@ -30,6 +26,8 @@ public class PaymentController {
     // Use the specific bean name for @PreAuthorize SpEL
     @Autowired
     private BookingService bookingService;
+    @Autowired
+    private BookingMapper bookingMapper;
 
     /**
      * Endpoint for an Owner or Admin to manually confirm that payment
@@ -40,7 +38,7 @@ public class PaymentController {
      * @return The updated BookingResponseDTO with paymentStatus="RECEIVED".
      */
     @PostMapping("/booking/{bookingId}/confirm-manual") // Descriptive POST endpoint path
-    @PreAuthorize("hasRole('ADMIN') or @bookingService.checkBookingOwnershipOrAdmin(#bookingId)") // Secure
+    @PreAuthorize("@currentUser.admin or @bookingService.checkBookingOwnershipOrAdmin(#bookingId)") // Secure
     public ResponseEntity<?> confirmManualPaymentForBooking(@PathVariable Long bookingId) {
         logger.info("Received request to manually confirm payment for booking ID {}", bookingId);
 
@@ -48,7 +46,7 @@ public class PaymentController {
             // Call the service method responsible for updating the payment status to RECEIVED
             Booking updatedBooking = bookingService.updatePaymentStatus(bookingId, "RECEIVED");
             // Convert the updated entity to DTO for the response
-            return ResponseEntity.ok(convertToDto(updatedBooking));
+            return ResponseEntity.ok(bookingMapper.toDto(updatedBooking));
 
         } catch (IllegalArgumentException e) { // Booking not found or invalid status update from service
             logger.warn("Bad request during manual payment confirmation for booking {}: {}", bookingId, e.getMessage());
@@ -69,53 +67,15 @@ public class PaymentController {
     // --- Optional: Endpoint to revert payment status back to PENDING ---
     /*
     @PostMapping("/booking/{bookingId}/revert-payment")
-    @PreAuthorize("hasRole('ADMIN') or @bookingService.checkBookingOwnershipOrAdmin(#bookingId)")
+    @PreAuthorize("@currentUser.admin or @bookingService.checkBookingOwnershipOrAdmin(#bookingId)")
     public ResponseEntity<?> revertPaymentConfirmation(@PathVariable Long bookingId) {
         logger.info("Received request to revert payment status for booking ID {} to PENDING", bookingId);
          try {
             Booking updatedBooking = bookingService.updatePaymentStatus(bookingId, "PENDING");
-            return ResponseEntity.ok(convertToDto(updatedBooking));
+            return ResponseEntity.ok(bookingMapper.toDto(updatedBooking));
         } catch (IllegalArgumentException e) { // ... error handling ... }
           catch (AccessDeniedException e) { // ... error handling ... }
           catch (Exception e) { // ... error handling ... }
     }
     */
-
-
-    // --- Helper Method: Convert Booking Entity to BookingResponseDTO ---
-    // Consider moving this to a shared Mapper/Util class to avoid duplication
-    private BookingResponseDTO convertToDto(Booking booking) {
-        if (booking == null) return null;
-        BookingResponseDTO dto = new BookingResponseDTO();
-        dto.setId(booking.getId());
-        dto.setStatus(booking.getStatus());
-        dto.setPaymentStatus(booking.getPaymentStatus()); // Include payment status
-        dto.setCustomerNotes(booking.getCustomerNotes());
-        dto.setOwnerAgentNotes(booking.getOwnerAgentNotes());
-        dto.setVisitDate(booking.getVisitDate());
-        dto.setVisitTime(booking.getVisitTime());
-        dto.setCreatedAt(booking.getCreatedAt());
-        // Safely map related data
-        try {
-            if (booking.getProperty() != null) {
-                Property property = booking.getProperty();
-                dto.setPropertyId(property.getId());
-                dto.setPropertyAddress(property.getAddress());
-                dto.setPropertyCity(property.getCity());
-                if (property.getOwner() != null) {
-                    dto.setOwnerId(property.getOwner().getId());
-                    dto.setOwnerName(property.getOwner().getName());
-                } else { dto.setOwnerId(property.getOwnerId()); dto.setOwnerName("N/A"); }
-            }
-        } catch (LazyInitializationException e) { /* ... handle lazy load exception ... */ }
-        try {
-            if (booking.getCustomer() != null) {
-                User customer = booking.getCustomer();
-                dto.setCustomerId(customer.getId());
-                dto.setCustomerName(customer.getName());
-            }
-        } catch (LazyInitializationException e) { /* ... handle lazy load exception ... */ }
-        return dto;
-    }
-    // --- End Helper Method ---
 }
\ No newline at end of file
@@ -1,23 +1,45 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.PropertyBatchDTO;
 import com.example.demo.dto.PropertyDTO; // Import the DTO
+import com.example.demo.dto.PropertyFacetsDTO;
+import com.example.demo.dto.PropertySuggestionDTO;
 import com.example.demo.model.Property;
-import com.example.demo.model.User; // Import User for owner details in DTO conversion
 import com.example.demo.model.enums.PropertyType;
+import com.example.demo.service.PropertyJsonCache;
 import com.example.demo.service.PropertyService;
+import com.example.demo.service.PropertyVersion;
+import com.example.demo.service.search.GeoFilter;
+import com.example.demo.service.search.PropertyFacets;
+import com.example.demo.service.search.PropertySearchCriteria;
+import com.example.demo.service.search.PropertySearchPage;
+import com.example.demo.service.search.PropertySort;
+import com.example.demo.service.search.SearchResultCache;
+import com.example.demo.mapper.PropertyMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.math.BigDecimal;
-import java.util.Collections; // Import Collections for emptySet
-import java.util.HashSet;     // Import HashSet for defensive copy
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors; // Import Collectors
 
 @RestController
@@ -28,47 +50,199 @@ public class PropertyController {
     private static final Logger logger = LoggerFactory.getLogger(PropertyController.class);
 
     @Autowired private PropertyService propertyService;
+    @Autowired private NdjsonResponseWriter ndjsonWriter;
+    @Autowired private PropertyJsonCache jsonCache;
+    @Autowired private PropertyMapper propertyMapper;
 
-    // --- GET for Search/Listing (Returns List<PropertyDTO>) ---
-    // Accessible to any authenticated user
+    // --- Paging limits for search/listing ---
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_BATCH_SIZE = 100; // ids per /batch request
+    private static final int DEFAULT_SUGGESTIONS = 10;
+    private static final int MAX_PREFIX_LENGTH = 100;
+
+    // --- GET for Search/Listing (Returns PropertyPageDTO) ---
+    // Accessible to anyone. Results are sorted server-side and paginated with an opaque keyset cursor.
     @GetMapping
-    public ResponseEntity<List<PropertyDTO>> searchProperties( // Return specific DTO list type
-                                                               @RequestParam(required = false) PropertyType type,
-                                                               @RequestParam(required = false) String city,
-                                                               @RequestParam(required = false) BigDecimal minPrice,
-                                                               @RequestParam(required = false) BigDecimal maxPrice,
-                                                               @RequestParam(required = false) Integer minBedrooms,
-                                                               @RequestParam(required = false) Integer minBathrooms) {
-        logger.info("Received property search request with filters - Type: {}, City: {}, Price: {}-{}, Beds: {}, Baths: {}",
-                type, city, minPrice, maxPrice, minBedrooms, minBathrooms);
+    public ResponseEntity<?> searchProperties(
+            @RequestParam(required = false) PropertyType type,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Integer minBedrooms,
+            @RequestParam(required = false) Integer minBathrooms,
+            @RequestParam(required = false) String q,        // free-text query over description, address, city and amenities
+            @RequestParam(required = false) Double lat,      // origin for radiusKm and sort=distance
+            @RequestParam(required = false) Double lng,
+            @RequestParam(required = false) Double radiusKm,
+            @RequestParam(required = false) String bbox,     // minLng,minLat,maxLng,maxLat (GeoJSON order)
+            @RequestParam(value = "amenity", required = false) List<String> amenities, // repeatable; all are required
+            @RequestParam(required = false) String sort,     // price | createdAt | bedrooms | relevance (with q) | distance (with lat/lng), optionally ",asc"/",desc"
+            @RequestParam(required = false) String cursor,   // nextCursor from the previous page
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            ServletWebRequest request,
+            HttpServletResponse response) {
+        logger.info("Received property search request with filters - Type: {}, City: {}, Price: {}-{}, Beds: {}, Baths: {}, Q: {}, Geo: {},{} r={} bbox={}, Amenities: {}, Sort: {}, Limit: {}, Cursor: {}",
+                type, city, minPrice, maxPrice, minBedrooms, minBathrooms, q, lat, lng, radiusKm, bbox, amenities, sort, limit, cursor != null);
         try {
-            List<Property> properties = propertyService.searchProperties(type, city, minPrice, maxPrice, minBedrooms, minBathrooms);
-            // Convert List<Property> to List<PropertyDTO>
-            List<PropertyDTO> propertyDTOs = properties.stream()
-                    .map(this::convertToDto) // Use helper method
-                    .collect(Collectors.toList());
-            logger.debug("Returning {} properties after filtering.", propertyDTOs.size());
-            return ResponseEntity.ok(propertyDTOs);
+            PropertySearchCriteria criteria = PropertySearchCriteria.builder().type(type).city(city)
+                    .minPrice(minPrice).maxPrice(maxPrice).minBedrooms(minBedrooms).minBathrooms(minBathrooms)
+                    .text(q).geo(GeoFilter.of(lat, lng, radiusKm, bbox)).amenities(amenities).build();
+            PropertySort order = PropertySort.parse(sort, criteria);
+            if (NdjsonResponseWriter.isRequested(accept)) {
+                // Streaming export: every match, one DTO per line, no paging (limit/cursor are ignored)
+                return streamProperties(criteria, order, response);
+            }
+            int pageSize = (limit == null || limit < 1) ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+            PropertySearchPage page = propertyService.searchPropertiesPage(criteria, order, cursor, pageSize);
+            List<PropertyDTO> propertyDTOs = page.getItems(); // Already projected to DTOs by the query
+            logger.debug("Returning {} properties after filtering, hasNext: {}", propertyDTOs.size(), page.getNextCursor() != null);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue()); // Store, but revalidate
+            if (request.checkNotModified(listingEtag(criteria, order, cursor, pageSize, page))) {
+                return null; // 304, no body
+            }
+            // Same JSON as PropertyPageDTO, assembled from the pre-serialized items
+            jsonCache.writePage(propertyDTOs, page.getNextCursor(), response);
+            return null;
+        } catch (IllegalArgumentException e) { // Bad sort, cursor or geo parameters
+            logger.warn("Invalid property search request: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) { // Text or distance search requested while an index is still loading
+            logger.warn("Property search unavailable: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             logger.error("Error searching properties: {}", e.getMessage(), e);
-            // Return an empty list with an error status (or could return an error object)
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Collections.emptyList());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Error searching properties."));
+        }
+    }
+
+    // Writes the search results as NDJSON while they are read from the database; returns null once the body is written
+    private ResponseEntity<?> streamProperties(PropertySearchCriteria criteria, PropertySort sort, HttpServletResponse response) {
+        try {
+            Consumer<Object> out = ndjsonWriter.open(response);
+            long count = propertyService.streamProperties(criteria, sort, out::accept);
+            logger.debug("Streamed {} properties as NDJSON.", count);
+            return null;
+        } catch (Exception e) {
+            logger.error("Error streaming properties: {}", e.getMessage(), e);
+            if (response.isCommitted()) { return null; } // Nothing useful can be sent once rows went out
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Error searching properties."));
+        }
+    }
+
+    // --- GET Facet Counts (Returns PropertyFacetsDTO) ---
+    // Accessible to anyone. Same filters as the search; counts come from the in-memory index, no entities are loaded.
+    @GetMapping("/facets")
+    public ResponseEntity<?> getFacets(
+            @RequestParam(required = false) PropertyType type,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Integer minBedrooms,
+            @RequestParam(required = false) Integer minBathrooms,
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) Double lat,
+            @RequestParam(required = false) Double lng,
+            @RequestParam(required = false) Double radiusKm,
+            @RequestParam(required = false) String bbox,
+            @RequestParam(value = "amenity", required = false) List<String> amenities,
+            @RequestParam(required = false) List<BigDecimal> priceBreaks, // e.g. 50000,100000,500000
+            @RequestParam(required = false) Integer cityLimit) {
+        logger.debug("Received facet request - Type: {}, City: {}, Price: {}-{}, Beds: {}, Baths: {}, Q: {}, Geo: {},{} r={} bbox={}, Amenities: {}",
+                type, city, minPrice, maxPrice, minBedrooms, minBathrooms, q, lat, lng, radiusKm, bbox, amenities);
+        try {
+            PropertySearchCriteria criteria = PropertySearchCriteria.builder().type(type).city(city)
+                    .minPrice(minPrice).maxPrice(maxPrice).minBedrooms(minBedrooms).minBathrooms(minBathrooms)
+                    .text(q).geo(GeoFilter.of(lat, lng, radiusKm, bbox)).amenities(amenities).build();
+            int cities = (cityLimit == null || cityLimit < 1) ? PropertyFacets.DEFAULT_CITY_LIMIT : Math.min(cityLimit, MAX_PAGE_SIZE);
+            return ResponseEntity.ok(convertToFacetsDto(propertyService.countFacets(criteria, priceBreaks, cities)));
+        } catch (IllegalArgumentException e) { // Bad price breaks or geo parameters
+            logger.warn("Invalid facet request: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) { // Indexes still loading
+            logger.warn("Facet counts unavailable: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error counting property facets: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Error counting property facets."));
+        }
+    }
+
+    // --- GET Search Box Suggestions (Returns List<PropertySuggestionDTO>) ---
+    // Accessible to anyone. Cities, postal codes and street names starting with the prefix, most listings first.
+    @GetMapping("/suggest")
+    public ResponseEntity<?> suggest(@RequestParam String prefix, @RequestParam(required = false) Integer limit) {
+        if (prefix.isBlank() || prefix.length() > MAX_PREFIX_LENGTH) {
+            return ResponseEntity.badRequest().body(Map.of("error", "A prefix of 1 to " + MAX_PREFIX_LENGTH + " characters is required"));
+        }
+        try {
+            int size = (limit == null || limit < 1) ? DEFAULT_SUGGESTIONS : limit;
+            List<PropertySuggestionDTO> suggestions = propertyService.suggest(prefix, size).stream()
+                    .map(suggestion -> new PropertySuggestionDTO(suggestion.getText(), suggestion.getType().name(), suggestion.getCount()))
+                    .collect(Collectors.toList());
+            return ResponseEntity.ok(suggestions);
+        } catch (IllegalStateException e) { // Index still loading
+            logger.warn("Suggestions unavailable: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error suggesting for prefix '{}': {}", prefix, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Error fetching suggestions."));
+        }
+    }
+
+    // --- GET Several by ID (Returns PropertyBatchDTO) ---
+    // Accessible to any authenticated user. For comparison and favourites views: one request instead of one per id.
+    @GetMapping("/batch")
+    public ResponseEntity<?> getPropertiesByIds(@RequestParam List<Long> ids) { // ids=1,2,3 or ids=1&ids=2
+        logger.debug("Received batch request for {} property IDs", ids.size());
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        requested.remove(null); // An empty element, as in ids=1,,2
+        if (requested.isEmpty() || requested.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Between 1 and " + MAX_BATCH_SIZE + " distinct ids are required"));
+        }
+        try {
+            List<PropertyDTO> found = propertyService.findPropertyDtosByIds(requested);
+            Set<Long> foundIds = found.stream().map(PropertyDTO::getId).collect(Collectors.toSet());
+            List<Long> missing = requested.stream().filter(id -> !foundIds.contains(id)).collect(Collectors.toList());
+            return ResponseEntity.ok(new PropertyBatchDTO(found, missing));
+        } catch (Exception e) {
+            logger.error("Error fetching properties by IDs {}: {}", requested, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Error fetching properties."));
         }
     }
 
     // --- GET by ID (Returns PropertyDTO) ---
     // Accessible to any authenticated user
     @GetMapping("/{id}")
-    public ResponseEntity<PropertyDTO> getPropertyById(@PathVariable Long id) { // Return specific DTO type
+    public ResponseEntity<?> getPropertyById(@PathVariable Long id, ServletWebRequest request, HttpServletResponse response) {
         logger.info("Received request for property ID: {}", id);
-        // Convert Optional<Property> to Optional<PropertyDTO>
-        return propertyService.findPropertyById(id)
-                .map(this::convertToDto) // Convert found property to DTO
-                .map(ResponseEntity::ok) // Wrap DTO in ResponseEntity<PropertyDTO>
-                .orElseGet(() -> {
-                    logger.warn("Property not found with ID: {}", id);
-                    return ResponseEntity.notFound().build(); // Handle not found
-                });
+        try {
+            // A version probe (timestamp and owner fields) decides whether the cached JSON is still current
+            Optional<PropertyVersion> version = propertyService.findPropertyVersion(id);
+            if (version.isEmpty()) {
+                logger.warn("Property not found with ID: {}", id);
+                return ResponseEntity.notFound().build();
+            }
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue()); // Store, but revalidate
+            // Handles If-None-Match (precedence) and If-Modified-Since, and sets ETag/Last-Modified on the response
+            if (request.checkNotModified(propertyEtag(id, version.get()), lastModifiedMillis(version.get().lastModified()))) {
+                return null; // 304, no body
+            }
+            PropertyJsonCache.JsonBuffer buffer = jsonCache.buffer();
+            if (!jsonCache.appendCached(id, PropertyJsonCache.versionOf(null, version.get().getVersion()), version.get().ownerStamp(), buffer)) {
+                // Projected straight to the DTO (owner joined, amenities batched); no entity is loaded
+                Optional<PropertyDTO> dto = propertyService.findPropertyDtoById(id);
+                if (dto.isEmpty()) { return ResponseEntity.notFound().build(); } // Deleted since the probe
+                jsonCache.append(dto.get(), buffer);
+            }
+            buffer.writeTo(response);
+            return null;
+        } catch (Exception e) {
+            logger.error("Error fetching property {}: {}", id, e.getMessage(), e);
+            if (response.isCommitted()) { return null; }
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Error fetching property."));
+        }
     }
 
     // --- POST to Create (Still accepts Property entity/CreateDTO, returns PropertyDTO) ---
@@ -93,7 +267,7 @@ public class PropertyController {
             Property createdProperty = propertyService.createProperty(property);
             logger.info("Property created with ID: {}", createdProperty.getId());
             // Convert created Property entity to DTO before returning
-            return ResponseEntity.status(HttpStatus.CREATED).body(convertToDto(createdProperty));
+            return ResponseEntity.status(HttpStatus.CREATED).body(propertyMapper.toDto(createdProperty));
         } catch (IllegalStateException | UsernameNotFoundException e) { // Catch auth errors from service
             logger.warn("Property creation failed due to authentication issue: {}", e.getMessage());
             // Return 401 or 403 depending on specific cause if distinguishable
@@ -104,60 +278,52 @@ public class PropertyController {
         }
     }
 
-    // --- Helper Method: Convert Property Entity to PropertyDTO ---
-    // Ensures consistent data structure is sent to the frontend
-    private PropertyDTO convertToDto(Property property) {
-        if (property == null) {
-            return null;
-        }
-        PropertyDTO dto = new PropertyDTO();
-        // Map basic fields
-        dto.setId(property.getId());
-        dto.setAddress(property.getAddress());
-        dto.setCity(property.getCity());
-        dto.setState(property.getState());
-        dto.setPostalCode(property.getPostalCode());
-        dto.setPrice(property.getPrice());
-        dto.setBedrooms(property.getBedrooms());
-        dto.setBathrooms(property.getBathrooms());
-        dto.setAreaSqft(property.getAreaSqft());
-        dto.setDescription(property.getDescription());
-        dto.setType(property.getType());
-        dto.setStatus(property.getStatus());
-        dto.setImageUrls(property.getImageUrls()); // Include image URLs string
-        dto.setCreatedAt(property.getCreatedAt());
-        dto.setUpdatedAt(property.getUpdatedAt());
-
-        // Map Amenities (handle null Set from entity defensively)
-        dto.setAmenities(property.getAmenities() != null ? new HashSet<>(property.getAmenities()) : Collections.emptySet());
-
-        // Map Owner Info (handle null Owner object defensively)
-        User owner = property.getOwner(); // Get the possibly LAZY loaded owner
-        if (owner != null) {
-            // Assuming User entity has getId(), getName(), getEmail()
-            try {
-                // Access owner details (might trigger fetch if LAZY)
-                dto.setOwnerId(owner.getId());
-                dto.setOwnerName(owner.getName());
-                dto.setOwnerEmail(owner.getEmail()); // Ensure DTO has this field/setter
-            } catch (org.hibernate.LazyInitializationException e) {
-                logger.warn("Could not lazy-load owner details for property ID {} during DTO conversion. Sending only ID.", property.getId());
-                // Fallback: Use ownerId if available directly, set others to N/A
-                dto.setOwnerId(property.getOwnerId()); // Use direct ID from Property entity
-                dto.setOwnerName("Owner details not loaded");
-                dto.setOwnerEmail("N/A");
-            }
-        } else {
-            // If owner object itself is null
-            logger.warn("Owner object was null for property ID {} during DTO conversion.", property.getId());
-            dto.setOwnerId(property.getOwnerId()); // Use direct ID if available
-            dto.setOwnerName("N/A");
-            dto.setOwnerEmail("N/A");
+    // --- Helper Methods: Conditional GET validators ---
+
+    // Strong: the representation is fully determined by the property version and the owner fields it embeds
+    private static String propertyEtag(Long id, PropertyVersion version) {
+        return "\"" + id + "-" + Long.toHexString(PropertyJsonCache.versionOf(null, version.getVersion()))
+                + "-" + Long.toHexString(version.ownerStamp()) + "\"";
+    }
+
+    // Entity timestamps are written with LocalDateTime.now(), i.e. in the server's zone
+    private static long lastModifiedMillis(LocalDateTime version) {
+        return version.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Weak: the filters (normalized as for the search cache), the newest updatedAt among the results,
+     * and the listed ids with their owner stamps, so a property dropping out of the page or a renamed
+     * owner also changes the tag.
+     */
+    private static String listingEtag(PropertySearchCriteria criteria, PropertySort sort, String cursor, int limit, PropertySearchPage page) {
+        long newest = 0L;
+        StringBuilder validator = new StringBuilder(SearchResultCache.keyOf(criteria, sort, cursor, limit)).append("|ids=");
+        for (PropertyDTO dto : page.getItems()) {
+            newest = Math.max(newest, PropertyJsonCache.versionOf(dto));
+            validator.append(dto.getId()).append(':').append(PropertyJsonCache.ownerStampOf(dto)).append(',');
         }
+        validator.append("|newest=").append(newest).append("|next=").append(page.getNextCursor());
+        return "W/\"" + DigestUtils.md5DigestAsHex(validator.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
 
+    // --- Helper Method: Convert PropertyFacets to PropertyFacetsDTO ---
+    private PropertyFacetsDTO convertToFacetsDto(PropertyFacets facets) {
+        PropertyFacetsDTO dto = new PropertyFacetsDTO();
+        dto.setTotal(facets.getTotal());
+        Map<String, Long> types = new LinkedHashMap<>();
+        facets.getTypes().forEach((propertyType, count) -> types.put(propertyType.name(), count));
+        dto.setTypes(types);
+        dto.setBedrooms(facets.getBedrooms());
+        dto.setBathrooms(facets.getBathrooms());
+        dto.setPriceBuckets(facets.getPriceBuckets().stream()
+                .map(bucket -> new PropertyFacetsDTO.PriceBucketDTO(bucket.getMin(), bucket.getMax(), bucket.getCount()))
+                .collect(Collectors.toList()));
+        dto.setCities(facets.getCities().stream()
+                .map(cityCount -> new PropertyFacetsDTO.CityCountDTO(cityCount.getCity(), cityCount.getCount()))
+                .collect(Collectors.toList()));
         return dto;
     }
-    // --- End Helper Method ---
 
     // PUT, DELETE, Image Upload endpoints are now in OwnerPropertyController
     /*
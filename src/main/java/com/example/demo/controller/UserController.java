@@ -14,14 +14,12 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 
 import java.util.Collection;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -129,18 +127,8 @@ public class UserController {
             if (passwordEncoder.matches(request.getPassword(), user.getPassword())) {
                 logger.info("Login successful for user: {}", email);
 
-                // Create UserDetails for JWT generation (needed by JwtService)
-                // Ensure roles are prefixed with ROLE_ for Spring Security's hasRole checks
-                List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().toUpperCase()));
-                org.springframework.security.core.userdetails.User springSecurityUser =
-                        new org.springframework.security.core.userdetails.User(
-                                user.getEmail(),
-                                user.getPassword(), // Password hash is needed here by User constructor, but not exposed
-                                authorities
-                        );
-
-                // Generate JWT Token
-                String jwtToken = jwtService.generateToken(springSecurityUser);
+                // Generate JWT Token (carries the user id and role, so later requests need no user lookup)
+                String jwtToken = jwtService.generateToken(user);
 
                 // Return successful response with token and user info (excluding password)
                 return ResponseEntity.ok(Map.of(
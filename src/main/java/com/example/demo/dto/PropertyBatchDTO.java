@@ -0,0 +1,24 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+// Response envelope for GET /api/properties/batch
+public class PropertyBatchDTO {
+
+    private List<PropertyDTO> items; // In the order the ids were requested (duplicates once)
+    private List<Long> missingIds;   // Requested ids with no property, in request order
+
+    public PropertyBatchDTO() {
+    }
+
+    public PropertyBatchDTO(List<PropertyDTO> items, List<Long> missingIds) {
+        this.items = items;
+        this.missingIds = missingIds;
+    }
+
+    public List<PropertyDTO> getItems() { return items; }
+    public void setItems(List<PropertyDTO> items) { this.items = items; }
+
+    public List<Long> getMissingIds() { return missingIds; }
+    public void setMissingIds(List<Long> missingIds) { this.missingIds = missingIds; }
+}
@@ -4,6 +4,7 @@ import com.example.demo.model.enums.PropertyStatus;
 import com.example.demo.model.enums.PropertyType;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.Set; // <-- Import Set
 import java.util.List; // <-- Or Import List if using List in entity
 
@@ -19,6 +20,9 @@ public class PropertyDTO {
     private Integer bedrooms;
     private Integer bathrooms;
     private BigDecimal areaSqft;
+    private Double latitude;
+    private Double longitude;
+    private Double distanceKm; // Distance from the search origin (lat/lng), only set on geo searches
     private String description;
     private PropertyType type;
     private PropertyStatus status;
@@ -68,6 +72,18 @@ public class PropertyDTO {
         this.updatedAt = updatedAt;
     }
 
+    // --- Projection Constructor (JPQL/Criteria constructor expression; amenities are attached by a separate batched query) ---
+    public PropertyDTO(Long id, String address, String city, String state, String postalCode,
+                       BigDecimal price, Integer bedrooms, Integer bathrooms, BigDecimal areaSqft,
+                       Double latitude, Double longitude, String description, PropertyType type, PropertyStatus status,
+                       String imageUrls, Long ownerId, String ownerName, String ownerEmail,
+                       LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(id, address, city, state, postalCode, price, bedrooms, bathrooms, areaSqft, description, type, status,
+                imageUrls, ownerId, ownerName, ownerEmail, new HashSet<>(), createdAt, updatedAt);
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
 
     // --- Manual Getters and Setters ---
     public Long getId() { return id; }
@@ -96,6 +112,12 @@ public class PropertyDTO {
 
     public BigDecimal getAreaSqft() { return areaSqft; }
     public void setAreaSqft(BigDecimal areaSqft) { this.areaSqft = areaSqft; }
+    public Double getLatitude() { return latitude; }
+    public void setLatitude(Double latitude) { this.latitude = latitude; }
+    public Double getLongitude() { return longitude; }
+    public void setLongitude(Double longitude) { this.longitude = longitude; }
+    public Double getDistanceKm() { return distanceKm; }
+    public void setDistanceKm(Double distanceKm) { this.distanceKm = distanceKm; }
 
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
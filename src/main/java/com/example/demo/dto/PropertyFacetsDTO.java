@@ -0,0 +1,81 @@
+package com.example.demo.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+// Response for the search page facet counts (GET /api/properties/facets)
+public class PropertyFacetsDTO {
+
+    private long total; // Results with every filter applied
+    private Map<String, Long> types; // Each facet ignores its own filter, so alternatives can be shown
+    private Map<Integer, Long> bedrooms;
+    private Map<Integer, Long> bathrooms;
+    private List<PriceBucketDTO> priceBuckets;
+    private List<CityCountDTO> cities; // Most frequent first
+
+    public PropertyFacetsDTO() {
+    }
+
+    public long getTotal() { return total; }
+    public void setTotal(long total) { this.total = total; }
+
+    public Map<String, Long> getTypes() { return types; }
+    public void setTypes(Map<String, Long> types) { this.types = types; }
+
+    public Map<Integer, Long> getBedrooms() { return bedrooms; }
+    public void setBedrooms(Map<Integer, Long> bedrooms) { this.bedrooms = bedrooms; }
+
+    public Map<Integer, Long> getBathrooms() { return bathrooms; }
+    public void setBathrooms(Map<Integer, Long> bathrooms) { this.bathrooms = bathrooms; }
+
+    public List<PriceBucketDTO> getPriceBuckets() { return priceBuckets; }
+    public void setPriceBuckets(List<PriceBucketDTO> priceBuckets) { this.priceBuckets = priceBuckets; }
+
+    public List<CityCountDTO> getCities() { return cities; }
+    public void setCities(List<CityCountDTO> cities) { this.cities = cities; }
+
+    // Price range [min, max); a null bound is open
+    public static class PriceBucketDTO {
+        private BigDecimal min;
+        private BigDecimal max;
+        private long count;
+
+        public PriceBucketDTO() {
+        }
+
+        public PriceBucketDTO(BigDecimal min, BigDecimal max, long count) {
+            this.min = min;
+            this.max = max;
+            this.count = count;
+        }
+
+        public BigDecimal getMin() { return min; }
+        public void setMin(BigDecimal min) { this.min = min; }
+
+        public BigDecimal getMax() { return max; }
+        public void setMax(BigDecimal max) { this.max = max; }
+
+        public long getCount() { return count; }
+        public void setCount(long count) { this.count = count; }
+    }
+
+    public static class CityCountDTO {
+        private String city;
+        private long count;
+
+        public CityCountDTO() {
+        }
+
+        public CityCountDTO(String city, long count) {
+            this.city = city;
+            this.count = count;
+        }
+
+        public String getCity() { return city; }
+        public void setCity(String city) { this.city = city; }
+
+        public long getCount() { return count; }
+        public void setCount(long count) { this.count = count; }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+// Response envelope for paginated property search
+public class PropertyPageDTO {
+
+    private List<PropertyDTO> items;
+    private String nextCursor; // Opaque; pass back as ?cursor= to fetch the next page. Null on the last page.
+
+    public PropertyPageDTO() {
+    }
+
+    public PropertyPageDTO(List<PropertyDTO> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<PropertyDTO> getItems() { return items; }
+    public void setItems(List<PropertyDTO> items) { this.items = items; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
@@ -0,0 +1,73 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.enums.PropertyStatus;
+import com.example.demo.model.enums.PropertyType;
+import java.math.BigDecimal;
+import java.util.Set;
+
+// Partial update of a property (PATCH). Every field is optional: null means "leave unchanged".
+// amenities replaces the whole set when present (send [] to remove all of them).
+public class PropertyPatchDTO {
+
+    private String address;
+    private String city;
+    private String state;
+    private String postalCode;
+    private BigDecimal price;
+    private Integer bedrooms;
+    private Integer bathrooms;
+    private BigDecimal areaSqft;
+    private Double latitude;
+    private Double longitude;
+    private String description;
+    private PropertyType type;
+    private PropertyStatus status;
+    private Set<String> amenities;
+
+    // --- Manual No-Argument Constructor ---
+    public PropertyPatchDTO() {
+    }
+
+    // --- Manual Getters and Setters ---
+    public String getAddress() { return address; }
+    public void setAddress(String address) { this.address = address; }
+
+    public String getCity() { return city; }
+    public void setCity(String city) { this.city = city; }
+
+    public String getState() { return state; }
+    public void setState(String state) { this.state = state; }
+
+    public String getPostalCode() { return postalCode; }
+    public void setPostalCode(String postalCode) { this.postalCode = postalCode; }
+
+    public BigDecimal getPrice() { return price; }
+    public void setPrice(BigDecimal price) { this.price = price; }
+
+    public Integer getBedrooms() { return bedrooms; }
+    public void setBedrooms(Integer bedrooms) { this.bedrooms = bedrooms; }
+
+    public Integer getBathrooms() { return bathrooms; }
+    public void setBathrooms(Integer bathrooms) { this.bathrooms = bathrooms; }
+
+    public BigDecimal getAreaSqft() { return areaSqft; }
+    public void setAreaSqft(BigDecimal areaSqft) { this.areaSqft = areaSqft; }
+
+    public Double getLatitude() { return latitude; }
+    public void setLatitude(Double latitude) { this.latitude = latitude; }
+
+    public Double getLongitude() { return longitude; }
+    public void setLongitude(Double longitude) { this.longitude = longitude; }
+
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+
+    public PropertyType getType() { return type; }
+    public void setType(PropertyType type) { this.type = type; }
+
+    public PropertyStatus getStatus() { return status; }
+    public void setStatus(PropertyStatus status) { this.status = status; }
+
+    public Set<String> getAmenities() { return amenities; }
+    public void setAmenities(Set<String> amenities) { this.amenities = amenities; }
+}
@@ -0,0 +1,27 @@
+package com.example.demo.dto;
+
+// One search box suggestion (GET /api/properties/suggest)
+public class PropertySuggestionDTO {
+
+    private String text;
+    private String type; // CITY, POSTAL_CODE or STREET
+    private long count; // AVAILABLE listings with this value
+
+    public PropertySuggestionDTO() {
+    }
+
+    public PropertySuggestionDTO(String text, String type, long count) {
+        this.text = text;
+        this.type = type;
+        this.count = count;
+    }
+
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+}
@@ -0,0 +1,53 @@
+package com.example.demo.mapper;
+
+import com.example.demo.dto.BookingResponseDTO;
+import com.example.demo.model.Booking;
+import com.example.demo.model.Property;
+import com.example.demo.model.User;
+import org.mapstruct.AfterMapping;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.MappingTarget;
+import org.mapstruct.ReportingPolicy;
+
+import java.util.List;
+
+/**
+ * Booking entity to {@link BookingResponseDTO}, generated by MapStruct at compile time.
+ * <p>
+ * Property, owner and customer details are part of the response, so callers load the booking with
+ * them (see {@code BookingRepository.findByIdWithDetails} and the other *WithDetails queries).
+ */
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING, unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface BookingMapper {
+
+    @Mapping(target = "propertyId", ignore = true) // See mapAssociations
+    @Mapping(target = "propertyAddress", ignore = true)
+    @Mapping(target = "propertyCity", ignore = true)
+    @Mapping(target = "ownerId", ignore = true)
+    @Mapping(target = "ownerName", ignore = true)
+    @Mapping(target = "customerId", ignore = true)
+    @Mapping(target = "customerName", ignore = true)
+    BookingResponseDTO toDto(Booking booking);
+
+    List<BookingResponseDTO> toDtos(List<Booking> bookings);
+
+    @AfterMapping
+    default void mapAssociations(Booking booking, @MappingTarget BookingResponseDTO dto) {
+        Property property = booking.getProperty();
+        if (property != null) {
+            dto.setPropertyId(property.getId());
+            dto.setPropertyAddress(property.getAddress());
+            dto.setPropertyCity(property.getCity());
+            User owner = property.getOwner();
+            dto.setOwnerId(owner != null ? owner.getId() : property.getOwnerId());
+            dto.setOwnerName(owner != null ? owner.getName() : PropertyMapper.UNKNOWN);
+        }
+        User customer = booking.getCustomer();
+        if (customer != null) {
+            dto.setCustomerId(customer.getId());
+            dto.setCustomerName(customer.getName());
+        }
+    }
+}
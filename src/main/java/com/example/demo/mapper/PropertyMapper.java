@@ -0,0 +1,60 @@
+package com.example.demo.mapper;
+
+import com.example.demo.dto.PropertyDTO;
+import com.example.demo.model.Property;
+import com.example.demo.model.User;
+import org.mapstruct.AfterMapping;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.MappingTarget;
+import org.mapstruct.Named;
+import org.mapstruct.ReportingPolicy;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Property entity to {@link PropertyDTO}. The implementation is generated by MapStruct at compile time
+ * (plain getter/setter calls, no reflection); a DTO field without a mapping fails the build.
+ * <p>
+ * The owner's name and email are part of the response, so callers load the property with its owner
+ * (see {@code PropertyRepository.findByIdWithOwner}); "N/A" is only used for a property without an owner.
+ */
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING, unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface PropertyMapper {
+
+    String UNKNOWN = "N/A";
+
+    @Mapping(target = "amenities", qualifiedByName = "shared")
+    @Mapping(target = "ownerId", ignore = true)    // See mapOwner
+    @Mapping(target = "ownerName", ignore = true)
+    @Mapping(target = "ownerEmail", ignore = true)
+    @Mapping(target = "distanceKm", ignore = true) // Search-specific, set by geo queries only
+    PropertyDTO toDto(Property property);
+
+    List<PropertyDTO> toDtos(List<Property> properties);
+
+    @AfterMapping
+    default void mapOwner(Property property, @MappingTarget PropertyDTO dto) {
+        User owner = property.getOwner();
+        if (owner != null) {
+            dto.setOwnerId(owner.getId());
+            dto.setOwnerName(owner.getName());
+            dto.setOwnerEmail(owner.getEmail());
+        } else {
+            dto.setOwnerId(property.getOwnerId());
+            dto.setOwnerName(UNKNOWN);
+            dto.setOwnerEmail(UNKNOWN);
+        }
+    }
+
+    /**
+     * The entity's amenity names are a set it owns (setAmenities copies its argument) and nothing changes
+     * them after mapping, so the DTO shares the instance instead of copying it on every call.
+     */
+    @Named("shared")
+    default Set<String> shared(Set<String> names) {
+        return names != null ? names : Set.of();
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Entry of the amenity dictionary. Properties reference amenities by this compact integer id
+ * (property_amenity_ids) instead of repeating the text on every row.
+ */
+@Entity
+@Table(name = "amenities", uniqueConstraints = @UniqueConstraint(name = "uk_amenities_name", columnNames = "name"))
+public class Amenity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(nullable = false, length = 100)
+    private String name;
+
+    // --- Manual Constructors, Getters, Setters ---
+    public Amenity() {}
+
+    public Amenity(String name) { this.name = name; }
+
+    public Integer getId() { return id; }
+    public void setId(Integer id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+}
@@ -2,14 +2,26 @@ package com.example.demo.model;
 
 import com.example.demo.model.enums.PropertyStatus;
 import com.example.demo.model.enums.PropertyType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.DynamicUpdate;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.HashSet; // Import HashSet
 import java.util.Set;     // Import Set
 
 @Entity
-@Table(name = "properties")
+@Table(name = "properties", indexes = {
+        // Search always filters on status; the next columns follow the most common filter/sort combinations.
+        // Created by ddl-auto=update; on a schema managed by hand, create them with the same names.
+        @Index(name = "idx_properties_status_type_price", columnList = "status, type, price"),
+        @Index(name = "idx_properties_status_city", columnList = "status, city"),
+        @Index(name = "idx_properties_status_created_at", columnList = "status, created_at, id"), // Default sort (newest first)
+        @Index(name = "idx_properties_status_price", columnList = "status, price, id"),           // Sort by price without a type filter
+        @Index(name = "idx_properties_lat_lng", columnList = "latitude, longitude")               // Bounding-box pruning for geo search
+})
+@DynamicUpdate // UPDATE statements list only the columns that changed (partial updates touch one or two)
 public class Property {
 
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY) private Long id;
@@ -21,6 +33,8 @@ public class Property {
     @Column(nullable = false) private Integer bedrooms;
     @Column(nullable = false) private Integer bathrooms;
     @Column(precision = 10, scale = 2) private BigDecimal areaSqft;
+    @Column(nullable = true) private Double latitude;  // WGS84 degrees; null when the location is unknown
+    @Column(nullable = true) private Double longitude;
     @Lob @Column(columnDefinition = "TEXT") private String description;
     @Enumerated(EnumType.STRING) @Column(nullable = false, length = 20) private PropertyType type;
     @Enumerated(EnumType.STRING) @Column(nullable = false, length = 20) private PropertyStatus status;
@@ -35,9 +49,17 @@ public class Property {
     @Column(name = "owner_id", insertable = false, updatable = false)
     private Long ownerId;
 
-    @ElementCollection(fetch = FetchType.EAGER)
-    @CollectionTable(name = "property_amenities", joinColumns = @JoinColumn(name = "property_id"))
-    @Column(name = "amenity")
+    // Ids into the amenity dictionary (see AmenityDictionary). Lazy: list endpoints attach the names of a
+    // whole page with one query, and entities touched in bulk load their sets in batches.
+    @ElementCollection(fetch = FetchType.LAZY)
+    @BatchSize(size = 100)
+    @CollectionTable(name = "property_amenity_ids", joinColumns = @JoinColumn(name = "property_id"))
+    @Column(name = "amenity_id", nullable = false)
+    @JsonIgnore
+    private Set<Integer> amenityIds = new HashSet<>();
+
+    // Names as sent and returned by the API; translated to and from amenityIds by PropertyService
+    @Transient
     private Set<String> amenities = new HashSet<>();
 
     // --- Constructors ---
@@ -70,6 +92,10 @@ public class Property {
     public void setBathrooms(Integer bathrooms) { this.bathrooms = bathrooms; }
     public BigDecimal getAreaSqft() { return areaSqft; }
     public void setAreaSqft(BigDecimal areaSqft) { this.areaSqft = areaSqft; }
+    public Double getLatitude() { return latitude; }
+    public void setLatitude(Double latitude) { this.latitude = latitude; }
+    public Double getLongitude() { return longitude; }
+    public void setLongitude(Double longitude) { this.longitude = longitude; }
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
     public PropertyType getType() { return type; }
@@ -100,6 +126,9 @@ public class Property {
     }
     // --- ^^^ END ADDED GETTER AND SETTER ^^^ ---
 
+    public Set<Integer> getAmenityIds() { return amenityIds; }
+    public void setAmenityIds(Set<Integer> amenityIds) { this.amenityIds = amenityIds; }
+
 
     // --- Getter for Owner ID ---
     public Long getOwnerId() {
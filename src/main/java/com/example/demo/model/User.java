@@ -1,12 +1,16 @@
 package com.example.demo.model;
 
+import com.example.demo.service.UserCacheInvalidator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
 // No Lombok imports needed
 
 @Entity
 @Table(name = "users")
+@EntityListeners(UserCacheInvalidator.class) // Cached UserSnapshots are dropped when the row changes
 // Removed Lombok annotations
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class User {
@@ -28,6 +32,14 @@ public class User {
     @Column(nullable = false, length = 50)
     private String role;
 
+    @Column(nullable = true)
+    @JsonIgnore
+    private LocalDateTime tokensValidAfter; // JWTs issued before this are rejected; null until tokens are first revoked
+
+    @Column(nullable = true)
+    @JsonIgnore
+    private LocalDateTime updatedAt; // Last change to the row; property responses embedding the owner use it as their Last-Modified too
+
     // --- Manual No-Argument Constructor ---
     public User() {
     }
@@ -41,6 +53,8 @@ public class User {
         this.role = role;
     }
 
+    @PreUpdate protected void onUpdate() { updatedAt = LocalDateTime.now(); }
+
     // --- Manual Getters and Setters ---
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -56,4 +70,9 @@ public class User {
 
     public String getRole() { return role; }
     public void setRole(String role) { this.role = role; }
+
+    public LocalDateTime getTokensValidAfter() { return tokensValidAfter; }
+    public void setTokensValidAfter(LocalDateTime tokensValidAfter) { this.tokensValidAfter = tokensValidAfter; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
 }
\ No newline at end of file
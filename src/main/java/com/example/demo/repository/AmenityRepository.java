@@ -0,0 +1,14 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.Amenity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface AmenityRepository extends JpaRepository<Amenity, Integer> {
+
+    // Compared with the column collation (case-insensitive on MySQL's default)
+    Optional<Amenity> findByName(String name);
+}
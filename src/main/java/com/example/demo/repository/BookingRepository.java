@@ -6,12 +6,16 @@ import com.example.demo.model.User;
 import com.example.demo.model.enums.BookingStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query; // Import Query
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param; // Import Param
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long> {
@@ -22,20 +26,32 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
     @Query("SELECT b FROM Booking b JOIN FETCH b.property p JOIN FETCH p.owner JOIN FETCH b.customer WHERE b.customer = :customer ORDER BY b.createdAt DESC")
     List<Booking> findByCustomerWithDetails(@Param("customer") User customer);
 
-    /** Finds bookings by property owner, eagerly fetching Property and Customer. Ordered by creation date descending. */
-    @Query("SELECT b FROM Booking b JOIN FETCH b.property p JOIN FETCH b.customer WHERE p.owner = :owner ORDER BY b.createdAt DESC")
+    /** Finds bookings by property owner, eagerly fetching Property and its Owner, and Customer. Ordered by creation date descending. */
+    @Query("SELECT b FROM Booking b JOIN FETCH b.property p JOIN FETCH p.owner JOIN FETCH b.customer WHERE p.owner = :owner ORDER BY b.createdAt DESC")
     List<Booking> findByPropertyOwnerWithDetails(@Param("owner") User owner);
 
     /** Finds all bookings, eagerly fetching Property, its Owner, and Customer. Ordered by creation date descending. (For Admin) */
     @Query("SELECT b FROM Booking b JOIN FETCH b.property p JOIN FETCH p.owner JOIN FETCH b.customer ORDER BY b.createdAt DESC")
     List<Booking> findAllWithDetails();
 
+    /** Streams all bookings with Property, its Owner, and Customer, in the same order as findAllWithDetails. Must be consumed inside a read-only transaction. (For Admin NDJSON export) */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT b FROM Booking b JOIN FETCH b.property p JOIN FETCH p.owner JOIN FETCH b.customer ORDER BY b.createdAt DESC")
+    Stream<Booking> streamAllWithDetails();
+
     /** Finds a single booking by ID, eagerly fetching Property, its Owner, and Customer. */
     @Query("SELECT b FROM Booking b JOIN FETCH b.property p JOIN FETCH p.owner JOIN FETCH b.customer WHERE b.id = :id")
     Optional<Booking> findByIdWithDetails(@Param("id") Long id);
 
     // --- ^^^ END Methods using JOIN FETCH ^^^ ---
 
+    /** Reads only the owner id of the booked property, for permission checks. Empty if the booking does not exist. */
+    @Query("SELECT p.ownerId FROM Booking b JOIN b.property p WHERE b.id = :id")
+    Optional<Long> findPropertyOwnerIdById(@Param("id") Long id);
+
 
     // Original simple finders (might be used elsewhere or can be removed if WithDetails covers all cases)
     List<Booking> findByCustomer(User customer);
@@ -4,14 +4,22 @@ import com.example.demo.model.Property;
 import com.example.demo.model.User;
 // Correct imports for enums from the 'enums' package
 import com.example.demo.model.enums.PropertyStatus;
-import com.example.demo.model.enums.PropertyType;
+import com.example.demo.service.PropertyVersion;
+import com.example.demo.service.search.ListingRow;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Spring Data JPA repository for Property entities.
@@ -19,7 +27,7 @@ import java.util.List;
  * and custom finder methods derived from method names or defined via @Query.
  */
 @Repository // Indicates that this is a Spring Data repository interface
-public interface PropertyRepository extends JpaRepository<Property, Long> { // Extends JpaRepository for standard methods
+public interface PropertyRepository extends JpaRepository<Property, Long>, PropertyRepositoryCustom { // Extends JpaRepository for standard methods
 
     /**
      * Finds all properties owned by a specific user.
@@ -51,38 +59,89 @@ public interface PropertyRepository extends JpaRepository<Property, Long> { // E
 
 
     /**
-     * Finds properties based on multiple optional criteria using a custom JPQL query.
-     * This allows for more complex filtering logic than derived query methods alone.
-     * Parameters annotated with @Param correspond to the named parameters (:paramName) in the @Query.
-     * The query handles NULL values for optional parameters, effectively ignoring that filter condition.
-     *
-     * @param status Filter by property status (uses imported PropertyStatus enum).
-     * @param type Filter by property type (uses imported PropertyType enum).
-     * @param city Filter by city name (case-insensitive comparison using LOWER and CONCAT for partial match).
-     * @param minPrice Filter by minimum price (inclusive).
-     * @param maxPrice Filter by maximum price (inclusive).
-     * @param minBedrooms Filter by minimum number of bedrooms (inclusive).
-     * @param minBathrooms Filter by minimum number of bathrooms (inclusive).
-     * @return A list of properties matching all specified (non-null) criteria.
+     * Loads only the searchable columns of every property, used to warm the in-memory search index.
+     * The constructor expression avoids hydrating Property entities; amenities come from {@link #findAllAmenityIdPairs()}.
+     * @return One ListingRow per property.
      */
-    @Query("SELECT p FROM Property p WHERE " +
-            "(:status IS NULL OR p.status = :status) AND " +           // Filter by status if provided
-            "(:type IS NULL OR p.type = :type) AND " +                 // Filter by type if provided
-            "(:city IS NULL OR LOWER(p.city) LIKE LOWER(CONCAT('%', :city, '%'))) AND " + // Filter by city if provided
-            "(:minPrice IS NULL OR p.price >= :minPrice) AND " +       // Filter by min price if provided
-            "(:maxPrice IS NULL OR p.price <= :maxPrice) AND " +       // Filter by max price if provided
-            "(:minBedrooms IS NULL OR p.bedrooms >= :minBedrooms) AND " + // Filter by min bedrooms if provided
-            "(:minBathrooms IS NULL OR p.bathrooms >= :minBathrooms)"  // Filter by min bathrooms if provided
-            // Consider adding database indexes on frequently filtered columns (status, type, city, price) for performance.
-    )
-    List<Property> findPropertiesByCriteria(
-            @Param("status") PropertyStatus status, // Uses imported enum from com.example.demo.model.enums
-            @Param("type") PropertyType type,       // Uses imported enum from com.example.demo.model.enums
-            @Param("city") String city,
-            @Param("minPrice") BigDecimal minPrice,
-            @Param("maxPrice") BigDecimal maxPrice,
-            @Param("minBedrooms") Integer minBedrooms,
-            @Param("minBathrooms") Integer minBathrooms
-    );
-
-}
\ No newline at end of file
+    @Query("SELECT new com.example.demo.service.search.ListingRow(p.id, p.price, p.bedrooms, p.bathrooms, p.type, p.status, p.city, p.latitude, p.longitude, p.createdAt) FROM Property p")
+    List<ListingRow> findAllListingRows();
+
+    /**
+     * Returns every (property ID, amenity ID) pair, read straight from the collection table.
+     * Used with {@link #findAllListingRows()} to warm the in-memory search index.
+     * @return Arrays of {Long propertyId, Integer amenityId}.
+     */
+    @Query("SELECT p.id, a FROM Property p JOIN p.amenityIds a")
+    List<Object[]> findAllAmenityIdPairs();
+
+    /**
+     * Loads the location columns of every property, used to warm the autocomplete index.
+     * @return Arrays of {Long id, PropertyStatus status, String city, String postalCode, String address}.
+     */
+    @Query("SELECT p.id, p.status, p.city, p.postalCode, p.address FROM Property p")
+    List<Object[]> findAllSuggestRows();
+
+    /**
+     * Returns every (property ID, owner ID) pair, used to warm the ownership index.
+     * @return Arrays of {Long propertyId, Long ownerId}.
+     */
+    @Query("SELECT p.id, p.ownerId FROM Property p")
+    List<Object[]> findAllOwnerIdPairs();
+
+    /**
+     * Reads only the owner id of a property, for ownership checks.
+     * @return The owner's user ID, or empty if the property does not exist.
+     */
+    @Query("SELECT p.ownerId FROM Property p WHERE p.id = :id")
+    Optional<Long> findOwnerIdById(@Param("id") Long id);
+
+    /**
+     * Finds a property by ID with its owner fetched in the same statement, for responses that show the owner.
+     * @return The property, or empty if it does not exist.
+     */
+    @Query("SELECT p FROM Property p JOIN FETCH p.owner WHERE p.id = :id")
+    Optional<Property> findByIdWithOwner(@Param("id") Long id);
+
+    /**
+     * Streams every property (any status) with its owner, ordered by ID. Used by the admin NDJSON export.
+     * Must be consumed inside a read-only transaction; rows arrive in batches of the JDBC fetch size.
+     * @return A lazily populated stream that the caller must close.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Property p JOIN FETCH p.owner ORDER BY p.id")
+    Stream<Property> streamAllWithOwner();
+
+    /**
+     * Returns, in ID order, a batch of IDs of properties created or updated at or after the given time.
+     * Used to (re)build the full-text index in batches without loading the whole table at once.
+     * @param since Lower bound on createdAt/updatedAt, or null for every property.
+     * @param afterId Only IDs greater than this are returned (the last ID of the previous batch, 0 for the first).
+     * @param page Batch size (use PageRequest.of(0, size)).
+     * @return Up to page-size IDs, ascending.
+     */
+    @Query("SELECT p.id FROM Property p WHERE p.id > :afterId AND " +
+            "(:since IS NULL OR p.createdAt >= :since OR p.updatedAt >= :since) ORDER BY p.id")
+    List<Long> findIdsChangedSince(@Param("since") LocalDateTime since, @Param("afterId") Long afterId, Pageable page);
+
+    /**
+     * Returns the version timestamp of a property (updatedAt, or createdAt if never updated) and the owner
+     * fields its JSON embeds, without loading either entity. Used to validate cached JSON before anything else is read.
+     * @param id The property ID.
+     * @return The version, or empty if there is no such property.
+     */
+    @Query("SELECT new com.example.demo.service.PropertyVersion(COALESCE(p.updatedAt, p.createdAt), o.id, o.name, o.email, o.updatedAt) " +
+            "FROM Property p JOIN p.owner o WHERE p.id = :id")
+    Optional<PropertyVersion> findVersionById(@Param("id") Long id);
+
+    /**
+     * Loads the given properties with their amenity IDs in a single query (no per-row amenity selects).
+     * @param ids The property IDs.
+     * @return The properties found, in no particular order.
+     */
+    @Query("SELECT DISTINCT p FROM Property p LEFT JOIN FETCH p.amenityIds WHERE p.id IN :ids")
+    List<Property> findAllWithAmenitiesByIdIn(@Param("ids") Collection<Long> ids);
+
+}
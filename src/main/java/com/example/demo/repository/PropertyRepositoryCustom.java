@@ -0,0 +1,59 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.PropertyDTO;
+import com.example.demo.model.Property;
+import com.example.demo.model.enums.PropertyStatus;
+import com.example.demo.service.search.PropertyCursor;
+import com.example.demo.service.search.PropertySearchCriteria;
+import com.example.demo.service.search.PropertySort;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Custom query methods for Property that cannot be expressed as a single static @Query,
+ * implemented in {@link PropertyRepositoryImpl} and exposed through PropertyRepository.
+ */
+public interface PropertyRepositoryCustom {
+
+    /**
+     * Keyset ("seek") pagination over the property search.
+     * Instead of OFFSET, the page starts strictly after the cursor row: {@code (sortKey, id) > (afterKey, afterId)}
+     * for ascending sorts and {@code <} for descending ones, so every page costs the same as the first.
+     *
+     * @param status Only properties with this status are returned.
+     * @param criteria Optional filters; null fields are not added to the query at all.
+     * @param sort Ordering of the results; the id is used as a tie-breaker.
+     * @param after Cursor of the last row of the previous page, or null for the first page.
+     * @param limit Maximum number of rows to return.
+     * @return Up to {@code limit} properties in sort order, as DTOs with owner details and amenities.
+     */
+    List<PropertyDTO> findPageByCriteria(PropertyStatus status, PropertySearchCriteria criteria,
+                                         PropertySort sort, PropertyCursor after, int limit);
+
+    /**
+     * Streams every property matching the filters in sort order, without pagination.
+     * Rows are pulled from a server-side cursor with a JDBC fetch size, so the caller must consume
+     * (and close) the stream inside a read-only transaction. Amenities are NOT attached; pass batches
+     * of rows to {@link #attachAmenities(List)}.
+     */
+    Stream<PropertyDTO> streamByCriteria(PropertyStatus status, PropertySearchCriteria criteria, PropertySort sort);
+
+    /**
+     * Loads the given properties as DTOs (owner details and amenities included) in two statements,
+     * keeping only those that still match the status and filters.
+     *
+     * @param ids The property IDs.
+     * @param status Only properties with this status are returned, or null for any status.
+     * @param criteria Filters re-checked by the database (the text query is not part of them).
+     * @return The matching properties, in no particular order.
+     */
+    List<PropertyDTO> findDtosByIds(Collection<Long> ids, PropertyStatus status, PropertySearchCriteria criteria);
+
+    /**
+     * Fills in the amenities of the given DTOs with a single {@code IN} query.
+     * @return The same list, for chaining.
+     */
+    List<PropertyDTO> attachAmenities(List<PropertyDTO> properties);
+}
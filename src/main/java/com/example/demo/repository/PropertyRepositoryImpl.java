@@ -0,0 +1,207 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.PropertyDTO;
+import com.example.demo.model.Property;
+import com.example.demo.model.User;
+import com.example.demo.model.enums.PropertyStatus;
+import com.example.demo.service.AmenityDictionary;
+import com.example.demo.service.search.GeoFilter;
+import com.example.demo.service.search.PropertyCursor;
+import com.example.demo.service.search.PropertySearchCriteria;
+import com.example.demo.service.search.PropertySort;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CompoundSelection;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of {@link PropertyRepositoryCustom}, picked up by Spring Data through the "Impl" suffix.
+ * <p>
+ * Search queries are assembled with the Criteria API so that only the filters actually supplied become
+ * predicates. A catch-all {@code (:x IS NULL OR ...)} query compiles to one generic plan that cannot use
+ * the composite indexes declared on {@link Property}; these queries can.
+ * <p>
+ * Read endpoints select {@link PropertyDTO} columns directly (owner joined in the same statement) and
+ * attach amenities with one batched query, so a page costs two statements and no entity is hydrated.
+ */
+public class PropertyRepositoryImpl implements PropertyRepositoryCustom {
+
+    private static final double DEGREES_TO_RADIANS = Math.PI / 180;
+
+    // Rows buffered per round trip when streaming; requires useCursorFetch=true on the MySQL JDBC URL
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Autowired
+    private AmenityDictionary amenityDictionary;
+
+    @Override
+    public List<PropertyDTO> findPageByCriteria(PropertyStatus status, PropertySearchCriteria criteria,
+                                                PropertySort sort, PropertyCursor after, int limit) {
+        TypedQuery<PropertyDTO> query = buildSearchQuery(status, criteria, sort, after);
+        query.setMaxResults(limit);
+        return attachAmenities(query.getResultList());
+    }
+
+    @Override
+    public Stream<PropertyDTO> streamByCriteria(PropertyStatus status, PropertySearchCriteria criteria, PropertySort sort) {
+        TypedQuery<PropertyDTO> query = buildSearchQuery(status, criteria, sort, null);
+        query.setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE);
+        return query.getResultStream();
+    }
+
+    @Override
+    public List<PropertyDTO> findDtosByIds(Collection<Long> ids, PropertyStatus status, PropertySearchCriteria criteria) {
+        if (ids.isEmpty()) { return new ArrayList<>(); }
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<PropertyDTO> query = cb.createQuery(PropertyDTO.class);
+        Root<Property> p = query.from(Property.class);
+        List<Predicate> predicates = filterPredicates(cb, p, status, criteria);
+        predicates.add(p.get("id").in(ids));
+        query.select(dtoSelection(cb, p)).where(predicates.toArray(new Predicate[0]));
+        return attachAmenities(entityManager.createQuery(query).getResultList());
+    }
+
+    @Override
+    public List<PropertyDTO> attachAmenities(List<PropertyDTO> properties) {
+        if (properties.isEmpty()) { return properties; }
+        Map<Long, List<Integer>> amenityIds = new HashMap<>();
+        for (PropertyDTO dto : properties) { amenityIds.put(dto.getId(), new ArrayList<>()); }
+        // Ids only, read from the collection table; names come from the in-memory dictionary
+        List<Object[]> rows = entityManager.createQuery(
+                        "SELECT p.id, a FROM Property p JOIN p.amenityIds a WHERE p.id IN :ids", Object[].class)
+                .setParameter("ids", amenityIds.keySet())
+                .getResultList();
+        for (Object[] row : rows) { amenityIds.get((Long) row[0]).add((Integer) row[1]); }
+        for (PropertyDTO dto : properties) { dto.setAmenities(amenityDictionary.namesOf(amenityIds.get(dto.getId()))); }
+        return properties;
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"}) // The sort key type depends on the field (BigDecimal, LocalDateTime, Integer)
+    private TypedQuery<PropertyDTO> buildSearchQuery(PropertyStatus status, PropertySearchCriteria criteria,
+                                                     PropertySort sort, PropertyCursor after) {
+        if (sort.isRanked()) {
+            throw new IllegalArgumentException("Sort " + sort + " is served by a search index, not by the database");
+        }
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<PropertyDTO> query = cb.createQuery(PropertyDTO.class);
+        Root<Property> p = query.from(Property.class);
+        List<Predicate> predicates = filterPredicates(cb, p, status, criteria);
+
+        // Seek predicate: (sortKey, id) > (afterKey, afterId), expanded because there is no row-value comparison
+        Path<Comparable> key = p.get(sort.getField().getAttribute());
+        Path<Long> id = p.get("id");
+        if (after != null) {
+            Comparable afterKey = (Comparable) after.getAfterKey();
+            predicates.add(sort.isDescending()
+                    ? cb.or(cb.lessThan(key, afterKey), cb.and(cb.equal(key, afterKey), cb.lessThan(id, after.getAfterId())))
+                    : cb.or(cb.greaterThan(key, afterKey), cb.and(cb.equal(key, afterKey), cb.greaterThan(id, after.getAfterId()))));
+        }
+        query.select(dtoSelection(cb, p)).where(predicates.toArray(new Predicate[0]));
+        query.orderBy(sort.isDescending() ? List.of(cb.desc(key), cb.desc(id)) : List.of(cb.asc(key), cb.asc(id)));
+        return entityManager.createQuery(query);
+    }
+
+    /** The PropertyDTO columns, with the owner joined in the same statement (matches the projection constructor). */
+    private static CompoundSelection<PropertyDTO> dtoSelection(CriteriaBuilder cb, Root<Property> p) {
+        Join<Property, User> owner = p.join("owner");
+        return cb.construct(PropertyDTO.class,
+                p.get("id"), p.get("address"), p.get("city"), p.get("state"), p.get("postalCode"),
+                p.get("price"), p.get("bedrooms"), p.get("bathrooms"), p.get("areaSqft"),
+                p.get("latitude"), p.get("longitude"), p.get("description"), p.get("type"), p.get("status"),
+                p.get("imageUrls"), owner.get("id"), owner.get("name"), owner.get("email"),
+                p.get("createdAt"), p.get("updatedAt"));
+    }
+
+    /**
+     * One predicate per supplied filter, in index column order (status first); absent filters add nothing.
+     * An amenity filter must already be resolved to ids (see AmenityDictionary#resolve).
+     */
+    private static List<Predicate> filterPredicates(CriteriaBuilder cb, Root<Property> p, PropertyStatus status,
+                                                    PropertySearchCriteria criteria) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (status != null) {
+            predicates.add(cb.equal(p.get("status"), status));
+        }
+        if (criteria.getType() != null) {
+            predicates.add(cb.equal(p.get("type"), criteria.getType()));
+        }
+        if (criteria.getCityValues() != null) {
+            // Substring already resolved to exact values by the trigram index: index-friendly IN
+            predicates.add(p.get("city").in(criteria.getCityValues()));
+        } else if (criteria.getCity() != null) {
+            predicates.add(cb.like(cb.lower(p.get("city")), "%" + criteria.getCity().toLowerCase(Locale.ROOT) + "%"));
+        }
+        if (criteria.getMinPrice() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(p.get("price"), criteria.getMinPrice()));
+        }
+        if (criteria.getMaxPrice() != null) {
+            predicates.add(cb.lessThanOrEqualTo(p.get("price"), criteria.getMaxPrice()));
+        }
+        if (criteria.getMinBedrooms() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(p.get("bedrooms"), criteria.getMinBedrooms()));
+        }
+        if (criteria.getMinBathrooms() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(p.get("bathrooms"), criteria.getMinBathrooms()));
+        }
+        if (criteria.getGeo() != null && criteria.getGeo().isRestricting()) {
+            predicates.add(geoPredicate(cb, p, criteria.getGeo()));
+        }
+        for (int amenityId : criteria.getAmenityIds()) {
+            // One join per required amenity, each a primary-key lookup on (property_id, amenity_id): no GROUP BY/HAVING
+            Join<Property, Integer> amenity = p.join("amenityIds");
+            predicates.add(amenityId >= 0 ? cb.equal(amenity, amenityId) : cb.disjunction());
+        }
+        return predicates;
+    }
+
+    /**
+     * Range predicates on (latitude, longitude) for the covering boxes, which the composite index can
+     * serve, then the exact radius test. The haversine term is compared with sin^2(d / 2R) so no
+     * ASIN/SQRT is evaluated per row; cos(origin latitude) is computed once here.
+     */
+    private static Predicate geoPredicate(CriteriaBuilder cb, Root<Property> p, GeoFilter geo) {
+        List<double[]> boxes = geo.coveringBoxes();
+        if (boxes.isEmpty()) { return cb.disjunction(); } // Always false
+        Path<Double> lat = p.get("latitude");
+        Path<Double> lng = p.get("longitude");
+        List<Predicate> inBoxes = new ArrayList<>(boxes.size());
+        for (double[] box : boxes) {
+            inBoxes.add(cb.and(cb.between(lat, box[0], box[2]), cb.between(lng, box[1], box[3])));
+        }
+        Predicate covered = cb.or(inBoxes.toArray(new Predicate[0]));
+        if (geo.getRadiusKm() == null) { return covered; }
+
+        double halfAngle = geo.getRadiusKm() / (2 * GeoFilter.EARTH_RADIUS_KM);
+        double maxHaversine = halfAngle >= Math.PI / 2 ? 1.0 : Math.pow(Math.sin(halfAngle), 2);
+        double cosOriginLat = Math.cos(geo.getLatitude() * DEGREES_TO_RADIANS);
+        Expression<Double> latTerm = squaredSine(cb, cb.prod(cb.diff(lat, geo.getLatitude()), DEGREES_TO_RADIANS / 2));
+        Expression<Double> lngTerm = squaredSine(cb, cb.prod(cb.diff(lng, geo.getLongitude()), DEGREES_TO_RADIANS / 2));
+        Expression<Double> cosLat = cb.function("cos", Double.class, cb.prod(lat, DEGREES_TO_RADIANS));
+        Expression<Double> haversine = cb.sum(latTerm, cb.prod(cb.prod(cosLat, cosOriginLat), lngTerm));
+        return cb.and(covered, cb.lessThanOrEqualTo(haversine, maxHaversine));
+    }
+
+    private static Expression<Double> squaredSine(CriteriaBuilder cb, Expression<Double> angle) {
+        Expression<Double> sine = cb.function("sin", Double.class, angle);
+        return cb.prod(sine, sine);
+    }
+}
@@ -1,12 +1,30 @@
 package com.example.demo.repository;
 
 import com.example.demo.model.User;
+import com.example.demo.service.UserSnapshot;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmailAndPassword(String email, String password);
 
     Optional<User> findByEmail(String email);
+
+    /**
+     * Loads the id, name, email and role of a user without hydrating the entity. Used by {@link com.example.demo.service.UserCache}.
+     * @param email The normalized (trimmed, lower-case) email.
+     */
+    @Query("SELECT new com.example.demo.service.UserSnapshot(u.id, u.name, u.email, u.role) FROM User u WHERE u.email = :email")
+    Optional<UserSnapshot> findSnapshotByEmail(@Param("email") String email);
+
+    /**
+     * Returns the token cut-off of every user whose tokens were ever revoked, for the JWT filter's revocation map.
+     * @return Arrays of {Long userId, LocalDateTime tokensValidAfter}.
+     */
+    @Query("SELECT u.id, u.tokensValidAfter FROM User u WHERE u.tokensValidAfter IS NOT NULL")
+    List<Object[]> findAllTokensValidAfter();
 }
@@ -0,0 +1,214 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Amenity;
+import com.example.demo.repository.AmenityRepository;
+import com.example.demo.service.search.PropertySearchCriteria;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory, bidirectional interner over the amenities table: amenity name to compact integer id and back.
+ * <p>
+ * Names are matched case-insensitively after trimming; the first spelling stored is the one returned.
+ * Lookups by id read a copy-on-write array and lookups by name a concurrent map, so readers never lock.
+ * New names are inserted in their own transaction, so an id is only cached once its row is committed,
+ * even if the caller's transaction later rolls back.
+ */
+@Component
+public class AmenityDictionary {
+
+    private static final Logger logger = LoggerFactory.getLogger(AmenityDictionary.class);
+
+    static final int MAX_NAME_LENGTH = 100; // Amenity.name column length
+    static final String LEGACY_MIGRATION = "amenity-dictionary-v1"; // data_migrations marker of the property_amenities copy
+
+    @Autowired
+    private AmenityRepository amenityRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate newTransaction;
+
+    private final Map<String, Integer> idByKey = new ConcurrentHashMap<>(); // lower-cased name -> id
+    private volatile String[] nameById = new String[0]; // indexed by id, null for unused ids; replaced on growth
+    private volatile boolean loaded;
+
+    public AmenityDictionary(PlatformTransactionManager transactionManager) {
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // --- Loading ---
+
+    // Runs while the context refreshes, before the web server accepts requests: no request can intern an
+    // amenity before the legacy rows are copied. A failed migration fails startup rather than losing links.
+    @PostConstruct
+    public void load() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS data_migrations ("
+                + "name VARCHAR(100) NOT NULL PRIMARY KEY, applied_at DATETIME NOT NULL)"); // DDL commits implicitly in MySQL
+        try {
+            newTransaction.executeWithoutResult(status -> migrateLegacyAmenities());
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to migrate amenities from property_amenities: " + e.getMessage(), e);
+        }
+        reload();
+    }
+
+    /**
+     * One-time copy of the free-text property_amenities rows into the dictionary and property_amenity_ids;
+     * the old table is left in place. Runs once per database, recorded as {@value #LEGACY_MIGRATION} in
+     * data_migrations in the same transaction (a concurrently starting instance waits on the marker row).
+     * Rows that cannot be copied are logged one by one.
+     */
+    private void migrateLegacyAmenities() {
+        int claimed = jdbcTemplate.update("INSERT IGNORE INTO data_migrations (name, applied_at) VALUES (?, NOW())", LEGACY_MIGRATION);
+        if (claimed == 0) { return; } // Already applied
+        Integer legacy = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.tables "
+                + "WHERE table_schema = DATABASE() AND table_name = 'property_amenities'", Integer.class);
+        if (legacy == null || legacy == 0) {
+            logger.info("No legacy property_amenities table, nothing to migrate");
+            return;
+        }
+        // The name column's case-insensitive collation folds case variants into one entry
+        int names = jdbcTemplate.update("INSERT IGNORE INTO amenities (name) SELECT DISTINCT TRIM(amenity) FROM property_amenities "
+                + "WHERE amenity IS NOT NULL AND TRIM(amenity) <> '' AND CHAR_LENGTH(TRIM(amenity)) <= " + MAX_NAME_LENGTH);
+        int links = jdbcTemplate.update("INSERT IGNORE INTO property_amenity_ids (property_id, amenity_id) "
+                + "SELECT pa.property_id, a.id FROM property_amenities pa JOIN amenities a ON a.name = TRIM(pa.amenity)");
+        List<Map<String, Object>> skipped = jdbcTemplate.queryForList("SELECT pa.property_id, pa.amenity FROM property_amenities pa "
+                + "WHERE amenity IS NOT NULL AND TRIM(amenity) <> '' "
+                + "AND NOT EXISTS (SELECT 1 FROM amenities a WHERE a.name = TRIM(pa.amenity))");
+        for (Map<String, Object> row : skipped) {
+            logger.warn("Legacy amenity of property {} not migrated (longer than {} characters): {}",
+                    row.get("property_id"), MAX_NAME_LENGTH, row.get("amenity"));
+        }
+        logger.info("Migrated legacy amenities: {} distinct names, {} property links, {} rows skipped", names, links, skipped.size());
+    }
+
+    private synchronized void reload() {
+        idByKey.clear();
+        nameById = new String[0];
+        for (Amenity amenity : amenityRepository.findAll()) { register(amenity); }
+        loaded = true;
+        logger.info("Amenity dictionary loaded {} names", idByKey.size());
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) { reload(); }
+            }
+        }
+    }
+
+    // --- Lookups ---
+
+    /** The id of the amenity with this name (case-insensitive), or null if no property ever used it. */
+    public Integer idOf(String name) {
+        ensureLoaded();
+        String key = keyOf(name);
+        return key != null ? idByKey.get(key) : null;
+    }
+
+    /** The stored spelling of the amenity, or null for an unknown id. */
+    public String nameOf(int id) {
+        ensureLoaded();
+        String[] names = nameById;
+        return id >= 0 && id < names.length ? names[id] : null;
+    }
+
+    /** The names of the given ids in case-insensitive alphabetical order; unknown ids are skipped. */
+    public Set<String> namesOf(Collection<Integer> ids) {
+        Set<String> names = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        if (ids == null) { return names; }
+        for (Integer id : ids) {
+            String name = id != null ? nameOf(id) : null;
+            if (name != null) { names.add(name); }
+        }
+        return names;
+    }
+
+    /**
+     * Resolves the amenity filter of the criteria to dictionary ids, as the search indexes and the SQL
+     * query expect; unknown names become -1 (nothing can match). Criteria without one are returned as is.
+     */
+    public PropertySearchCriteria resolve(PropertySearchCriteria criteria) {
+        if (!criteria.hasAmenities()) { return criteria; }
+        List<String> names = criteria.getAmenities();
+        int[] ids = new int[names.size()];
+        for (int i = 0; i < ids.length; i++) {
+            Integer id = idOf(names.get(i));
+            ids[i] = id != null ? id : -1;
+        }
+        return criteria.withAmenityIds(ids);
+    }
+
+    /**
+     * Returns the ids of the given names, adding names never seen before to the dictionary.
+     * Blank names are ignored.
+     * @throws IllegalArgumentException if a name is longer than {@value #MAX_NAME_LENGTH} characters.
+     */
+    public Set<Integer> intern(Collection<String> names) {
+        Set<Integer> ids = new HashSet<>();
+        if (names == null) { return ids; }
+        ensureLoaded();
+        for (String name : names) {
+            String key = keyOf(name);
+            if (key == null) { continue; }
+            Integer id = idByKey.get(key);
+            ids.add(id != null ? id : insert(name.trim()));
+        }
+        return ids;
+    }
+
+    private synchronized int insert(String name) {
+        if (name.length() > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("Amenity names are limited to " + MAX_NAME_LENGTH + " characters: " + name);
+        }
+        Integer known = idByKey.get(keyOf(name)); // Another thread may have added it while we waited
+        if (known != null) { return known; }
+        Amenity amenity;
+        try {
+            amenity = newTransaction.execute(status -> amenityRepository.findByName(name)
+                    .orElseGet(() -> amenityRepository.saveAndFlush(new Amenity(name))));
+        } catch (DataIntegrityViolationException e) { // Inserted concurrently by another application instance
+            amenity = newTransaction.execute(status -> amenityRepository.findByName(name).orElseThrow(() -> e));
+        }
+        register(amenity);
+        idByKey.putIfAbsent(keyOf(name), amenity.getId()); // The database may have matched a different spelling
+        return amenity.getId();
+    }
+
+    // Callers hold the monitor
+    private void register(Amenity amenity) {
+        int id = amenity.getId();
+        String[] names = nameById;
+        if (id >= names.length) { names = Arrays.copyOf(names, Math.max(id + 1, names.length * 2)); }
+        names[id] = amenity.getName();
+        nameById = names; // Republish, so readers see the new entry even when the array was not replaced
+        idByKey.putIfAbsent(keyOf(amenity.getName()), id);
+    }
+
+    private static String keyOf(String name) {
+        if (name == null) { return null; }
+        String trimmed = name.trim();
+        return trimmed.isEmpty() ? null : trimmed.toLowerCase(Locale.ROOT);
+    }
+}
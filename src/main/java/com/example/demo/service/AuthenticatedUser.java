@@ -0,0 +1,30 @@
+package com.example.demo.service;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+/**
+ * Principal of a request authenticated with a JWT, built from the token's verified claims without a
+ * database read. {@link #getName()} is the email, so {@code authentication.getName()} works as before.
+ */
+public final class AuthenticatedUser implements AuthenticatedPrincipal {
+
+    private final Long id;
+    private final String email;
+    private final String role; // As stored on the user, e.g. CUSTOMER, PROPERTY_OWNER, ADMIN
+
+    public AuthenticatedUser(Long id, String email, String role) {
+        this.id = id;
+        this.email = email;
+        this.role = role;
+    }
+
+    public Long getId() { return id; }
+    public String getEmail() { return email; }
+    public String getRole() { return role; }
+
+    @Override
+    public String getName() { return email; }
+
+    @Override
+    public String toString() { return email; }
+}
@@ -0,0 +1,67 @@
+package com.example.demo.service;
+
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+import java.util.Objects;
+
+/**
+ * The caller of the current request (id, email, role), set once by the JWT filter from the verified token.
+ * Services and {@code @PreAuthorize} expressions ({@code @currentUser.admin}) read it instead of resolving
+ * the user by email again; ownership checks become id comparisons.
+ * <p>
+ * Request scoped: only usable while handling an HTTP request. Falls back to the Spring Security principal
+ * if the filter did not set it (e.g. the request was authenticated some other way).
+ */
+@Component("currentUser")
+@RequestScope
+public class CurrentUser {
+
+    private AuthenticatedUser user; // null for anonymous requests
+
+    public void set(AuthenticatedUser user) {
+        this.user = user;
+    }
+
+    public boolean isAuthenticated() {
+        return resolve() != null;
+    }
+
+    /** @throws AccessDeniedException if the request is not authenticated. */
+    public Long getId() {
+        return require().getId();
+    }
+
+    /** @throws AccessDeniedException if the request is not authenticated. */
+    public String getEmail() {
+        return require().getEmail();
+    }
+
+    public boolean isAdmin() {
+        AuthenticatedUser current = resolve();
+        return current != null && "ADMIN".equalsIgnoreCase(current.getRole());
+    }
+
+    /** True if the caller is authenticated and has this user id. */
+    public boolean is(Long userId) {
+        AuthenticatedUser current = resolve();
+        return current != null && Objects.equals(current.getId(), userId);
+    }
+
+    private AuthenticatedUser require() {
+        AuthenticatedUser current = resolve();
+        if (current == null) { throw new AccessDeniedException("Authentication required."); }
+        return current;
+    }
+
+    private AuthenticatedUser resolve() {
+        if (user == null) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser principal) { user = principal; }
+        }
+        return user;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.demo.service;
+
+import jakarta.persistence.EntityManager;
+
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Helper for pushing a streamed JPA result to a consumer without the persistence context
+ * growing with the result size.
+ */
+final class EntityStreams {
+
+    // Entities are detached in batches; clearing after every row would re-load shared associations each time
+    private static final int CLEAR_INTERVAL = 200;
+
+    private EntityStreams() {}
+
+    /**
+     * Hands every row to the sink, clearing the persistence context periodically so heap use stays flat.
+     * The stream is always closed. Must run inside a (read-only) transaction.
+     * @return The number of rows consumed.
+     */
+    static <T> long forEach(EntityManager entityManager, Stream<T> rows, Consumer<? super T> sink) {
+        long count = 0;
+        try (rows) {
+            Iterator<T> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                sink.accept(iterator.next());
+                if (++count % CLEAR_INTERVAL == 0) { entityManager.clear(); }
+            }
+        }
+        return count;
+    }
+}
@@ -1,29 +1,67 @@
 package com.example.demo.service;
 
+import com.example.demo.model.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails; // Use Spring Security UserDetails
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
 
+    // Claims read by the JWT filter to authenticate without loading the user
+    static final String USER_ID_CLAIM = "uid";
+    static final String ROLE_CLAIM = "role";
+
     @Value("${jwt.secret}")
     private String secretKeyString;
 
     @Value("${jwt.expiration.ms}")
     private long jwtExpirationMs;
 
+    // Tokens verified recently, so a client sending the same token on every call is only checked once (0 disables)
+    @Value("${jwt.verified-cache.max-entries:10000}")
+    private int verifiedCacheMaxEntries;
+
+    // Built once: decoding the secret and building a parser on every call showed up in every authenticated request
+    private Key signingKey;
+    private JwtParser parser;
+
+    private Map<String, VerifiedToken> verifiedTokens; // SHA-256 of the token -> claims, access order, guarded by itself
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKeyString));
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        verifiedTokens = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+                return size() > verifiedCacheMaxEntries;
+            }
+        };
+    }
+
     // Generate a token for a user
     public String generateToken(UserDetails userDetails) {
         // You can add extra claims (payload data) if needed
@@ -33,6 +71,20 @@ public class JwtService {
         return buildToken(extraClaims, userDetails, jwtExpirationMs);
     }
 
+    // Generate a token carrying the user's id and role, so requests can be authenticated from the token alone
+    public String generateToken(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID_CLAIM, user.getId());
+        claims.put(ROLE_CLAIM, user.getRole());
+        return Jwts.builder()
+                .setClaims(claims)
+                .setSubject(user.getEmail())
+                .setIssuedAt(new Date(System.currentTimeMillis()))
+                .setExpiration(new Date(System.currentTimeMillis() + jwtExpirationMs))
+                .signWith(signingKey, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
     // Overload for custom expiration
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
         return buildToken(extraClaims, userDetails, jwtExpirationMs);
@@ -48,27 +100,53 @@ public class JwtService {
                 .setSubject(userDetails.getUsername()) // Usually email or username
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    // Check if a token is valid for a given user
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+    /**
+     * Checks the signature and expiry of a token and returns its claims, parsing it at most once.
+     * Tokens verified before are served from a bounded cache keyed by the token's SHA-256 until they expire.
+     * @throws JwtException (ExpiredJwtException, SignatureException, MalformedJwtException, ...) if the token is not valid.
+     */
+    public VerifiedToken verify(String token) {
+        if (verifiedCacheMaxEntries <= 0) { return parse(token); }
+        String digest = digestOf(token);
+        synchronized (verifiedTokens) {
+            VerifiedToken cached = verifiedTokens.get(digest);
+            if (cached != null) {
+                if (!cached.isExpired(System.currentTimeMillis())) {
+                    cacheHits.incrementAndGet();
+                    return cached;
+                }
+                verifiedTokens.remove(digest); // Parsed again below, so the caller gets the parser's ExpiredJwtException
+            }
+        }
+        cacheMisses.incrementAndGet();
+        VerifiedToken verified = parse(token);
+        synchronized (verifiedTokens) { verifiedTokens.put(digest, verified); }
+        return verified;
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public Map<String, Long> getCacheStats() {
+        long size;
+        synchronized (verifiedTokens) { size = verifiedTokens.size(); }
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hits", cacheHits.get());
+        stats.put("misses", cacheMisses.get());
+        stats.put("entries", size);
+        stats.put("maxEntries", (long) verifiedCacheMaxEntries);
+        return stats;
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    // Check if a token is valid for a given user
+    public boolean isTokenValid(String token, UserDetails userDetails) {
+        return verify(token).getSubject().equals(userDetails.getUsername()); // verify() rejects expired tokens
     }
 
     // Extract username (subject) from the token
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verify(token).getSubject();
     }
 
     // Generic method to extract a specific claim
@@ -77,19 +155,24 @@ public class JwtService {
         return claimsResolver.apply(claims);
     }
 
+    private VerifiedToken parse(String token) {
+        Claims claims = extractAllClaims(token);
+        return new VerifiedToken(claims.getSubject(), claims.get(USER_ID_CLAIM, Long.class), claims.get(ROLE_CLAIM, String.class),
+                claims.getIssuedAt(), claims.getExpiration());
+    }
+
     // Extract all claims (payload) from the token
     private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 
-    // Get the signing key from the secret string
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKeyString);
-        return Keys.hmacShaKeyFor(keyBytes);
+    // The cache is keyed by a digest so live bearer tokens are not kept in memory
+    private static String digestOf(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // Required on every JVM
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,408 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.PropertyDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Off-heap cache of serialized {@link PropertyDTO} JSON, keyed by property id, version (updatedAt, or
+ * createdAt for a property never updated) and owner stamp (a hash of the owner's id, name and email, which
+ * the JSON embeds but which do not change the property's version). An edited property, or one whose owner
+ * was renamed, gets a new key, so its old payload is simply never hit again and ages out; nothing has to be
+ * invalidated.
+ * <p>
+ * Payloads are stored in one direct ByteBuffer used as a ring log: each entry is appended at the head
+ * with a small header (id, length), and space is reclaimed at the tail. An entry read since the tail last
+ * passed it gets a second chance and is moved to the head (CLOCK), which approximates LRU over the byte
+ * budget. The index is an open-addressing hash table of primitive arrays, so the Java heap holds no
+ * per-entry objects. Responses are assembled from the cached fragments in a reusable per-thread buffer
+ * and written to the servlet output stream with a known Content-Length.
+ * <p>
+ * Reads take no lock: they copy the entry under an optimistic {@link StampedLock} stamp (a seqlock) and
+ * only retry under the read lock if a write overlapped them. Writes and evictions take the write lock.
+ * <p>
+ * DTOs carrying a search-specific distance are serialized but not cached.
+ */
+@Component
+public class PropertyJsonCache {
+
+    private static final int HEADER_BYTES = Long.BYTES + Integer.BYTES; // property id, payload length
+    private static final long EMPTY = 0L; // Property ids are positive
+    private static final int MAX_RETAINED_BUFFER = 256 * 1024; // per-thread response buffer kept between requests
+    private static final int MISS = 0, HIT = 1, TORN = 2; // copyEntry results
+
+    private static final byte[] PAGE_START = "{\"items\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PAGE_CURSOR = "],\"nextCursor\":".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectWriter writer;
+    private final ByteBuffer ring; // null when disabled
+    private final int capacity;
+
+    private final StampedLock lock = new StampedLock();
+
+    // Ring log, in logical positions (physical = position % capacity); guarded by lock
+    private long head; // next write position
+    private long tail; // oldest byte still in use
+    private final byte[] header = new byte[HEADER_BYTES];
+    private final ByteBuffer headerView = ByteBuffer.wrap(header);
+
+    private Index index = new Index(1024); // guarded by lock, replaced as a whole on growth
+
+    // Adders: every request thread bumps these, and a shared AtomicLong would be one contended cache line
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private final ThreadLocal<JsonBuffer> buffers = ThreadLocal.withInitial(JsonBuffer::new);
+
+    @Autowired
+    public PropertyJsonCache(ObjectMapper objectMapper, @Value("${property.json-cache.max-bytes:67108864}") int maxBytes) {
+        this.writer = objectMapper.writer(); // Same configuration as the regular message converters
+        this.capacity = Math.max(0, maxBytes);
+        this.ring = capacity > 0 ? ByteBuffer.allocateDirect(capacity) : null;
+    }
+
+    /** Version of a property as used in the cache key: updatedAt, or createdAt if it was never updated, in microseconds. */
+    public static long versionOf(LocalDateTime createdAt, LocalDateTime updatedAt) {
+        LocalDateTime time = updatedAt != null ? updatedAt : createdAt;
+        if (time == null) { return 0L; }
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    public static long versionOf(PropertyDTO dto) {
+        return versionOf(dto.getCreatedAt(), dto.getUpdatedAt());
+    }
+
+    /** Owner part of the cache key: a 64-bit FNV-1a hash of the owner fields the JSON embeds. */
+    public static long ownerStampOf(Long ownerId, String ownerName, String ownerEmail) {
+        long hash = 0xcbf29ce484222325L;
+        hash = (hash ^ (ownerId != null ? ownerId : 0L)) * 0x100000001b3L;
+        for (String part : new String[] {ownerName, ownerEmail}) {
+            if (part == null) { hash = (hash ^ 0xffffL) * 0x100000001b3L; continue; }
+            for (int i = 0; i < part.length(); i++) { hash = (hash ^ part.charAt(i)) * 0x100000001b3L; }
+            hash = (hash ^ 0xfffeL) * 0x100000001b3L; // Separator, so ("ab", "c") and ("a", "bc") differ
+        }
+        return hash;
+    }
+
+    public static long ownerStampOf(PropertyDTO dto) {
+        return ownerStampOf(dto.getOwnerId(), dto.getOwnerName(), dto.getOwnerEmail());
+    }
+
+    // --- Responses ---
+
+    /**
+     * Appends the cached JSON of the given property version and owner to this thread's response buffer.
+     * @return false on a miss (nothing was appended).
+     */
+    public boolean appendCached(long id, long version, long ownerStamp, JsonBuffer buffer) {
+        if (ring == null) { return false; }
+        long stamp = lock.tryOptimisticRead(); // Zero while a write is in progress
+        int result = stamp != 0L ? copyEntry(id, version, ownerStamp, buffer, stamp) : TORN;
+        if (result == TORN) {
+            stamp = lock.readLock();
+            try {
+                result = copyEntry(id, version, ownerStamp, buffer, 0L);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (result == MISS) {
+            misses.increment();
+            return false;
+        }
+        hits.increment();
+        return true;
+    }
+
+    /**
+     * Copies the entry to the end of the buffer. With an optimistic stamp, returns TORN (and leaves the
+     * buffer's length unchanged) if a write overlapped the read; without one the caller holds the read lock.
+     */
+    private int copyEntry(long id, long version, long ownerStamp, JsonBuffer buffer, long optimisticStamp) {
+        boolean optimistic = optimisticStamp != 0L;
+        Index current = index;
+        int slot = current.find(id);
+        boolean hit = slot >= 0 && current.versions[slot] == version && current.owners[slot] == ownerStamp;
+        int length = hit ? current.lengths[slot] : 0;
+        long position = hit ? current.positions[slot] : 0L;
+        // Validate before trusting length: a torn read could ask for an absurd allocation
+        if (optimistic && !lock.validate(optimisticStamp)) { return TORN; }
+        if (!hit) { return MISS; }
+        buffer.ensureCapacity(length);
+        readRing(position + HEADER_BYTES, buffer.bytes, buffer.length, length);
+        if (optimistic && !lock.validate(optimisticStamp)) { return TORN; } // Overwritten while copying
+        // Unsynchronized outside the read lock: at worst a concurrent move loses or misplaces one
+        // reference bit, which only makes eviction a little less precise
+        current.referenced[slot] = true;
+        buffer.length += length;
+        return HIT;
+    }
+
+    /** Appends the JSON of the DTO, from the cache when possible, otherwise serializing (and caching) it. */
+    public void append(PropertyDTO dto, JsonBuffer buffer) throws JsonProcessingException {
+        boolean cacheable = dto.getDistanceKm() == null && dto.getId() != null;
+        long version = versionOf(dto);
+        long ownerStamp = ownerStampOf(dto);
+        if (cacheable && appendCached(dto.getId(), version, ownerStamp, buffer)) { return; }
+        byte[] json = writer.writeValueAsBytes(dto);
+        if (cacheable) { put(dto.getId(), version, ownerStamp, json); }
+        buffer.append(json);
+    }
+
+    /** Writes a search page ({@code {"items":[...],"nextCursor":...}}, as PropertyPageDTO) built from cached fragments. */
+    public void writePage(List<PropertyDTO> items, String nextCursor, HttpServletResponse response) throws IOException {
+        JsonBuffer buffer = buffer();
+        buffer.append(PAGE_START);
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) { buffer.append((byte) ','); }
+            append(items.get(i), buffer);
+        }
+        buffer.append(PAGE_CURSOR);
+        buffer.append(writer.writeValueAsBytes(nextCursor));
+        buffer.append((byte) '}');
+        buffer.writeTo(response);
+    }
+
+    /** This thread's response buffer, emptied. */
+    public JsonBuffer buffer() {
+        JsonBuffer buffer = buffers.get();
+        buffer.reset();
+        return buffer;
+    }
+
+    /** Hit, miss and eviction counters since startup, plus the current entry count and bytes in use. */
+    public Map<String, Long> getStats() {
+        long entries;
+        long bytesUsed;
+        long stamp = lock.readLock();
+        try {
+            entries = index.entries;
+            bytesUsed = head - tail;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("entries", entries);
+        stats.put("bytesUsed", bytesUsed);
+        stats.put("capacityBytes", (long) capacity);
+        return stats;
+    }
+
+    // --- Storing and evicting (write lock held) ---
+
+    private void put(long id, long version, long ownerStamp, byte[] json) {
+        if (ring == null) { return; }
+        int size = HEADER_BYTES + json.length;
+        if (size > capacity / 4) { return; } // A few huge entries would flush everything else
+        long stamp = lock.writeLock();
+        try {
+            int existing = index.find(id);
+            if (existing >= 0) {
+                if (index.versions[existing] > version) { return; } // A newer version is already cached
+                index.remove(existing); // Its bytes become garbage and are skipped when the tail reaches them
+            }
+            while (head + size - tail > capacity) { evictAtTail(); }
+            long position = head;
+            writeEntry(position, id, json);
+            head += size;
+            if (index.isFull()) { index = index.grow(); }
+            index.insert(id, version, ownerStamp, position, json.length, false);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Reclaims the entry at the tail. A live entry that was read since it was written (or last moved)
+     * is copied to the head instead, with its reference bit cleared, so only cold entries are dropped.
+     */
+    private void evictAtTail() {
+        readRing(tail, header, 0, HEADER_BYTES);
+        long id = headerView.getLong(0);
+        int length = headerView.getInt(Long.BYTES);
+        int size = HEADER_BYTES + length;
+        int slot = index.find(id);
+        boolean live = slot >= 0 && index.positions[slot] == tail;
+        if (live && index.referenced[slot]) {
+            byte[] payload = new byte[length]; // The source may be overwritten by the copy itself
+            readRing(tail + HEADER_BYTES, payload, 0, length);
+            tail += size;
+            index.referenced[slot] = false;
+            index.positions[slot] = head;
+            writeEntry(head, id, payload);
+            head += size;
+            return;
+        }
+        if (live) {
+            index.remove(slot);
+            evictions.increment();
+        }
+        tail += size;
+    }
+
+    private void writeEntry(long position, long id, byte[] payload) {
+        headerView.putLong(0, id);
+        headerView.putInt(Long.BYTES, payload.length);
+        writeRing(position, header, 0, HEADER_BYTES);
+        writeRing(position + HEADER_BYTES, payload, 0, payload.length);
+    }
+
+    // Ring access; a range may wrap around the end of the buffer. Absolute gets and puts, so concurrent readers are safe
+    private void readRing(long position, byte[] target, int offset, int length) {
+        int start = (int) (position % capacity);
+        int first = Math.min(length, capacity - start);
+        ring.get(start, target, offset, first);
+        if (first < length) { ring.get(0, target, offset + first, length - first); }
+    }
+
+    private void writeRing(long position, byte[] source, int offset, int length) {
+        int start = (int) (position % capacity);
+        int first = Math.min(length, capacity - start);
+        ring.put(start, source, offset, first);
+        if (first < length) { ring.put(0, source, offset + first, length - first); }
+    }
+
+    // --- Index ---
+
+    /**
+     * One slot per cached property id (linear probing, backward-shift deletion), at most half full. The arrays
+     * are final and only replaced together with the Index, so an optimistic reader always sees arrays of one
+     * length and its probe loop ends at an empty slot.
+     */
+    private static final class Index {
+        final long[] ids;
+        final long[] versions;
+        final long[] owners;    // owner stamp
+        final long[] positions; // ring position of the entry header
+        final int[] lengths;    // payload bytes
+        final boolean[] referenced;
+        int entries;
+
+        Index(int slots) {
+            ids = new long[slots];
+            versions = new long[slots];
+            owners = new long[slots];
+            positions = new long[slots];
+            lengths = new int[slots];
+            referenced = new boolean[slots];
+        }
+
+        private int indexFor(long id) {
+            long hash = id * 0x9E3779B97F4A7C15L; // Fibonacci hashing spreads sequential ids
+            return (int) (hash >>> 40) & (ids.length - 1);
+        }
+
+        int find(long id) {
+            int mask = ids.length - 1;
+            for (int slot = indexFor(id), probes = 0; ids[slot] != EMPTY && probes <= mask; slot = (slot + 1) & mask, probes++) {
+                if (ids[slot] == id) { return slot; }
+            }
+            return -1;
+        }
+
+        boolean isFull() {
+            return (entries + 1) * 2 > ids.length;
+        }
+
+        Index grow() {
+            Index grown = new Index(ids.length * 2);
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] != EMPTY) { grown.insert(ids[i], versions[i], owners[i], positions[i], lengths[i], referenced[i]); }
+            }
+            return grown;
+        }
+
+        void insert(long id, long version, long owner, long position, int length, boolean isReferenced) {
+            int mask = ids.length - 1;
+            int slot = indexFor(id);
+            while (ids[slot] != EMPTY) { slot = (slot + 1) & mask; }
+            versions[slot] = version;
+            owners[slot] = owner;
+            positions[slot] = position;
+            lengths[slot] = length;
+            referenced[slot] = isReferenced;
+            ids[slot] = id;
+            entries++;
+        }
+
+        // Backward-shift deletion keeps every probe chain intact without tombstones
+        void remove(int slot) {
+            int mask = ids.length - 1;
+            int hole = slot;
+            for (int next = (hole + 1) & mask; ids[next] != EMPTY; next = (next + 1) & mask) {
+                int ideal = indexFor(ids[next]);
+                if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                    ids[hole] = ids[next];
+                    versions[hole] = versions[next];
+                    owners[hole] = owners[next];
+                    positions[hole] = positions[next];
+                    lengths[hole] = lengths[next];
+                    referenced[hole] = referenced[next];
+                    hole = next;
+                }
+            }
+            ids[hole] = EMPTY;
+            entries--;
+        }
+    }
+
+    /** Growable byte buffer for one JSON response, reused by the request thread. */
+    public static final class JsonBuffer {
+        private byte[] bytes = new byte[8 * 1024];
+        private int length;
+
+        private void reset() {
+            length = 0;
+            if (bytes.length > MAX_RETAINED_BUFFER) { bytes = new byte[8 * 1024]; }
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > bytes.length) {
+                byte[] grown = new byte[Math.max(length + extra, bytes.length * 2)];
+                System.arraycopy(bytes, 0, grown, 0, length);
+                bytes = grown;
+            }
+        }
+
+        void append(byte[] data) {
+            ensureCapacity(data.length);
+            System.arraycopy(data, 0, bytes, length, data.length);
+            length += data.length;
+        }
+
+        void append(byte value) {
+            ensureCapacity(1);
+            bytes[length++] = value;
+        }
+
+        /** Sends the buffer as the complete JSON response body. */
+        public void writeTo(HttpServletResponse response) throws IOException {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            response.setContentLength(length);
+            response.getOutputStream().write(bytes, 0, length);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.PropertyRepository;
+import com.example.demo.service.search.PropertyChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Property ID to owner ID map used by ownership checks, so they do not touch the database.
+ * <p>
+ * Backed by an open-addressing table of primitive longs (16 bytes per slot, no boxing), warmed from one
+ * {@code SELECT id, owner_id} at startup and kept in sync with {@link PropertyChangedEvent}s after commit.
+ * A miss (a property created on another instance, or a lookup before the warm-up finished) falls back to
+ * {@link PropertyRepository#findOwnerIdById} and stores the answer. Properties deleted on another instance
+ * stay in the table; since IDs are never reused that only means their handlers report "not found" after
+ * the ownership check rather than before it.
+ * <p>
+ * Reads are lock-free optimistic reads that retry under the read lock if a write overlapped them.
+ */
+@Component
+public class PropertyOwnerIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(PropertyOwnerIndex.class);
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    private final StampedLock lock = new StampedLock();
+    private final LongLongTable table = new LongLongTable(); // guarded by lock
+    private final List<PropertyChangedEvent> pendingWrites = new ArrayList<>(); // writes seen while loading, guarded by lock
+    private boolean loading = true; // guarded by lock
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    // --- Loading ---
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            long start = System.nanoTime();
+            List<Object[]> rows = propertyRepository.findAllOwnerIdPairs();
+            long stamp = lock.writeLock();
+            try {
+                table.clear(rows.size());
+                for (Object[] row : rows) {
+                    if (row[1] != null) { table.put((Long) row[0], (Long) row[1]); }
+                }
+                for (PropertyChangedEvent event : pendingWrites) { applyLocked(event); }
+                pendingWrites.clear();
+                loading = false;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            logger.info("Property owner index loaded {} properties in {} ms", rows.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            logger.error("Failed to load property owner index, ownership checks will query the database: {}", e.getMessage(), e);
+            long stamp = lock.writeLock();
+            try {
+                pendingWrites.clear();
+                loading = false;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    // --- Reads ---
+
+    /**
+     * Returns the owner's user ID, from the index or (on a miss) the database.
+     * @return The owner ID, or empty if the property does not exist.
+     */
+    public Optional<Long> findOwnerId(Long propertyId) {
+        if (propertyId == null) { return Optional.empty(); }
+        long ownerId = get(propertyId);
+        if (ownerId != LongLongTable.MISSING) {
+            hits.incrementAndGet();
+            return Optional.of(ownerId);
+        }
+        misses.incrementAndGet();
+        Optional<Long> loaded = propertyRepository.findOwnerIdById(propertyId);
+        loaded.ifPresent(owner -> {
+            long stamp = lock.writeLock();
+            try {
+                table.put(propertyId, owner);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        });
+        return loaded;
+    }
+
+    public Map<String, Long> getStats() {
+        long entries;
+        long capacity;
+        long stamp = lock.readLock();
+        try {
+            entries = table.size();
+            capacity = table.capacity();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("entries", entries);
+        stats.put("capacity", capacity);
+        return stats;
+    }
+
+    private long get(long propertyId) {
+        long stamp = lock.tryOptimisticRead();
+        long ownerId = table.get(propertyId);
+        if (lock.validate(stamp)) { return ownerId; }
+        stamp = lock.readLock();
+        try {
+            return table.get(propertyId);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // --- Writes (applied once the publishing transaction commits) ---
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(0)
+    public void onPropertyChanged(PropertyChangedEvent event) {
+        long stamp = lock.writeLock();
+        try {
+            if (loading) {
+                pendingWrites.add(event);
+                return;
+            }
+            applyLocked(event);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void applyLocked(PropertyChangedEvent event) {
+        Long ownerId = event.isDeleted() ? null : event.getProperty().getOwnerId();
+        if (ownerId == null) {
+            table.remove(event.getPropertyId());
+        } else {
+            table.put(event.getPropertyId(), ownerId);
+        }
+    }
+
+    /**
+     * Linear-probing long to long hash table, kept at most half full. Keys and values share one array
+     * ({@code slots[2i]} is a key, {@code slots[2i + 1]} its value) so a reader always sees a matching pair of
+     * lengths, even if it races a resize (the optimistic read is then discarded and retried). Key 0 marks an
+     * empty slot, which is safe because generated IDs start at 1. Removal shifts later entries of the probe run
+     * back instead of leaving tombstones.
+     */
+    static final class LongLongTable {
+
+        static final long MISSING = 0L;
+        private static final int MIN_CAPACITY = 16;
+
+        private long[] slots = new long[2 * MIN_CAPACITY];
+        private int size;
+
+        long get(long key) {
+            long[] current = slots;
+            int mask = (current.length >> 1) - 1;
+            for (int i = index(key, mask), probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+                long slotKey = current[2 * i];
+                if (slotKey == key) { return current[2 * i + 1]; }
+                if (slotKey == 0) { return MISSING; }
+            }
+            return MISSING; // Only reachable by a reader racing a write; the caller retries under the lock
+        }
+
+        void put(long key, long value) {
+            if (key == 0) { throw new IllegalArgumentException("Key 0 is reserved for empty slots"); }
+            if (2 * (size + 1) > capacity()) { resize(2 * capacity()); }
+            int mask = capacity() - 1;
+            int i = index(key, mask);
+            while (slots[2 * i] != 0 && slots[2 * i] != key) { i = (i + 1) & mask; }
+            if (slots[2 * i] == 0) { size++; }
+            slots[2 * i] = key;
+            slots[2 * i + 1] = value;
+        }
+
+        void remove(long key) {
+            int mask = capacity() - 1;
+            int i = index(key, mask);
+            while (slots[2 * i] != key) {
+                if (slots[2 * i] == 0) { return; }
+                i = (i + 1) & mask;
+            }
+            // Move back each later entry of the run whose home slot is not between the hole and itself
+            int hole = i;
+            for (int j = (hole + 1) & mask; slots[2 * j] != 0; j = (j + 1) & mask) {
+                int home = index(slots[2 * j], mask);
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    slots[2 * hole] = slots[2 * j];
+                    slots[2 * hole + 1] = slots[2 * j + 1];
+                    hole = j;
+                }
+            }
+            slots[2 * hole] = 0;
+            slots[2 * hole + 1] = 0;
+            size--;
+        }
+
+        /** Empties the table, sized for {@code expected} entries. */
+        void clear(int expected) {
+            int capacity = MIN_CAPACITY;
+            while (capacity < 2 * expected) { capacity <<= 1; }
+            slots = new long[2 * capacity];
+            size = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int capacity() {
+            return slots.length >> 1;
+        }
+
+        private void resize(int newCapacity) {
+            long[] old = slots;
+            slots = new long[2 * newCapacity];
+            size = 0;
+            for (int i = 0; i < old.length; i += 2) {
+                if (old[i] != 0) { put(old[i], old[i + 1]); }
+            }
+        }
+
+        private static int index(long key, int mask) {
+            long hash = key * 0x9E3779B97F4A7C15L; // Fibonacci hashing spreads sequential IDs
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
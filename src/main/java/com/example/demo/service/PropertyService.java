@@ -1,86 +1,407 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.PropertyDTO;
+import com.example.demo.dto.PropertyPatchDTO;
 import com.example.demo.model.Property;
-import com.example.demo.model.User;
 import com.example.demo.model.enums.PropertyStatus;
-import com.example.demo.model.enums.PropertyType;
 import com.example.demo.repository.PropertyRepository;
-import com.example.demo.repository.UserRepository;
+import com.example.demo.service.search.FullTextIndex;
+import com.example.demo.service.search.GeoFilter;
+import com.example.demo.service.search.PropertyChangedEvent;
+import com.example.demo.service.search.PropertyCursor;
+import com.example.demo.service.search.PropertyFacets;
+import com.example.demo.service.search.RankedMatches;
+import com.example.demo.service.search.SearchResultCache;
+import com.example.demo.service.search.SuggestIndex;
+import com.example.demo.service.search.Suggestion;
+import com.example.demo.service.search.PropertySearchCriteria;
+import com.example.demo.service.search.PropertySearchIndex;
+import com.example.demo.service.search.PropertySearchPage;
+import com.example.demo.service.search.PropertySort;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class PropertyService {
 
     private static final Logger logger = LoggerFactory.getLogger(PropertyService.class);
 
+    // Ranked matches (full-text or distance) are filtered in memory and hydrated in windows of this many ids
+    private static final int RANKED_MATCH_WINDOW = 500;
+    // Streamed rows get their amenities attached (one IN query) per batch of this many
+    private static final int STREAM_BATCH = 500;
+    private static final int MAX_PRICE_BREAKS = 20;
+
     @Autowired
     private PropertyRepository propertyRepository;
     @Autowired
-    private UserRepository userRepository;
+    private UserCache userCache;
+    @Autowired
+    private CurrentUser currentUser;
+    @Autowired
+    private PropertyOwnerIndex ownerIndex;
+    @Autowired
+    private PropertySearchIndex searchIndex;
+    @Autowired
+    private FullTextIndex fullTextIndex;
+    @Autowired
+    private SearchResultCache searchCache;
+    @Autowired
+    private SuggestIndex suggestIndex;
+    @Autowired
+    private AmenityDictionary amenityDictionary;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher; // Search indexes listen for PropertyChangedEvent after commit
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Largest page (plus the look-ahead row) selected from the in-memory index; bigger ones are sorted by MySQL
+    @Value("${search.top-k.max:1000}")
+    private int topKMax;
 
     // --- Read Operations ---
     @Transactional(readOnly = true)
     public Optional<Property> findPropertyById(Long id) {
         logger.debug("Finding property by ID: {}", id);
-        // Fetch eagerly with owner and amenities if needed frequently, or rely on EAGER fetch type
-        // Consider adding a method with specific joins if performance becomes an issue
-        return propertyRepository.findById(id);
+        // Owner stays lazy; amenity names are resolved from the dictionary ids
+        return propertyRepository.findById(id).map(this::withAmenityNames);
+    }
+
+    /** Loads a property (any status) for display: DTO columns with the owner joined, plus amenities, in two statements. */
+    @Transactional(readOnly = true)
+    public Optional<PropertyDTO> findPropertyDtoById(Long id) {
+        logger.debug("Finding property DTO by ID: {}", id);
+        return propertyRepository.findDtosByIds(List.of(id), null, PropertySearchCriteria.builder().build()).stream().findFirst();
+    }
+
+    /** The version timestamp of a property (updatedAt, or createdAt if never updated) and its owner fields, in one primary-key lookup. */
+    @Transactional(readOnly = true)
+    public Optional<PropertyVersion> findPropertyVersion(Long id) {
+        return propertyRepository.findVersionById(id);
+    }
+
+    /**
+     * Loads the given properties (any status) as DTOs in two statements: one IN query with the owner
+     * joined, one for the amenities of all of them. The result follows the order of {@code ids};
+     * ids without a property are left out.
+     */
+    @Transactional(readOnly = true)
+    public List<PropertyDTO> findPropertyDtosByIds(Collection<Long> ids) {
+        logger.debug("Finding property DTOs by IDs: {}", ids);
+        Map<Long, PropertyDTO> byId = propertyRepository.findDtosByIds(ids, null, PropertySearchCriteria.builder().build()).stream()
+                .collect(Collectors.toMap(PropertyDTO::getId, Function.identity()));
+        List<PropertyDTO> ordered = new ArrayList<>(byId.size());
+        for (Long id : ids) {
+            PropertyDTO property = byId.remove(id); // Removed, so a repeated id is returned once
+            if (property != null) { ordered.add(property); }
+        }
+        return ordered;
+    }
+
+    /**
+     * Returns one page of AVAILABLE properties using keyset pagination.
+     * One extra row is fetched to find out whether a next page exists without a COUNT query.
+     * Pages are served from {@link SearchResultCache} when the same request was answered recently.
+     * With a text query the results come from the full-text index, ordered by relevance; sorted by
+     * distance they come from the listing index, nearest first. Column sorts are selected from the
+     * listing index with a bounded heap when it is loaded, and by SQL otherwise.
+     * @throws IllegalArgumentException if the cursor is malformed or was issued for a different sort,
+     *         or if the sort does not fit the criteria (see {@link PropertySort#parse(String, PropertySearchCriteria)}).
+     * @throws IllegalStateException if a ranked search arrives before the index serving it is loaded.
+     */
+    @Transactional(readOnly = true)
+    public PropertySearchPage searchPropertiesPage(PropertySearchCriteria criteria, PropertySort sort, String cursor, int limit) {
+        PropertyCursor after = PropertyCursor.decode(cursor, sort); // Rejects a bad cursor before the cache is consulted
+        return searchCache.get(criteria, sort, cursor, limit, () -> loadPropertiesPage(criteria, sort, after, limit));
+    }
+
+    private PropertySearchPage loadPropertiesPage(PropertySearchCriteria requested, PropertySort sort, PropertyCursor after, int limit) {
+        PropertySearchCriteria criteria = amenityDictionary.resolve(requested);
+        RankedMatches ranked = rankedMatches(criteria, sort);
+        if (ranked != null) {
+            return searchPropertiesRanked(criteria, sort, ranked, after, limit);
+        }
+        PropertySearchCriteria resolved = searchIndex.resolveCities(criteria);
+        if (resolved.matchesNothing()) { return new PropertySearchPage(new ArrayList<>(), null); }
+        if (searchIndex.isReady() && limit + 1 <= topKMax) {
+            PropertySearchPage page = searchPropertiesTopK(criteria, sort, after, limit);
+            if (page != null) { return page; }
+        }
+        logger.debug("Searching property page - {}, Sort: {}, After: {}, Limit: {}", resolved, sort, after != null ? after.getAfterId() : null, limit);
+        List<PropertyDTO> rows = propertyRepository.findPageByCriteria(PropertyStatus.AVAILABLE, resolved, sort, after, limit + 1);
+        return toPage(rows, criteria, sort, limit);
+    }
+
+    /**
+     * Selects the page (plus one look-ahead row) from the in-memory listing index with a bounded heap,
+     * so no ORDER BY runs over the filtered set, then loads only those rows. Returns null if one of them
+     * changed in the database since it was indexed; the caller then runs the SQL query instead of
+     * returning a short or misordered page.
+     */
+    private PropertySearchPage searchPropertiesTopK(PropertySearchCriteria criteria, PropertySort sort, PropertyCursor after, int limit) {
+        long[] ids = searchIndex.topK(criteria, sort, after, limit + 1);
+        List<PropertyDTO> rows = findMatchingInOrder(ids, criteria);
+        if (rows.size() != ids.length) {
+            logger.debug("Top-{} selection is stale ({} of {} rows still match), using the database", limit + 1, rows.size(), ids.length);
+            return null;
+        }
+        logger.debug("Top-{} selection from the listing index - {}, Sort: {}", limit + 1, criteria, sort);
+        return toPage(rows, criteria, sort, limit);
+    }
+
+    // rows holds up to limit + 1 matches in order; the extra one only tells whether there is a next page
+    private static PropertySearchPage toPage(List<PropertyDTO> rows, PropertySearchCriteria criteria, PropertySort sort, int limit) {
+        rows.forEach(dto -> setDistance(dto, criteria));
+        if (rows.size() <= limit) {
+            return new PropertySearchPage(rows, null);
+        }
+        List<PropertyDTO> page = rows.subList(0, limit);
+        return new PropertySearchPage(page, PropertyCursor.encode(sort, page.get(limit - 1)));
+    }
+
+    private PropertySearchPage searchPropertiesRanked(PropertySearchCriteria criteria, PropertySort sort, RankedMatches matches,
+                                                     PropertyCursor after, int limit) {
+        int from = after != null ? matches.indexAfter((Double) after.getAfterKey(), after.getAfterId()) : 0;
+        logger.debug("Ranked search ({}) matched {} properties - {}, From: {}, Limit: {}", sort, matches.size(), criteria, from, limit);
+        List<PropertyDTO> rows = new ArrayList<>(limit + 1);
+        List<Double> keys = new ArrayList<>(limit + 1);
+        forEachRankedMatch(criteria, matches, from, limit + 1, (property, key) -> {
+            rows.add(property);
+            keys.add(key);
+        });
+        if (rows.size() <= limit) {
+            return new PropertySearchPage(rows, null);
+        }
+        PropertyDTO last = rows.get(limit - 1);
+        return new PropertySearchPage(rows.subList(0, limit), PropertyCursor.encode(sort, keys.get(limit - 1), last.getId()));
+    }
+
+    /** Fills in the distance from the geo origin, when the search has one and the property is located. */
+    private static void setDistance(PropertyDTO dto, PropertySearchCriteria criteria) {
+        GeoFilter geo = criteria.getGeo();
+        if (geo != null && geo.hasOrigin() && dto.getLatitude() != null && dto.getLongitude() != null) {
+            dto.setDistanceKm(geo.distanceKm(dto.getLatitude(), dto.getLongitude()));
+        }
+    }
+
+    /**
+     * Counts AVAILABLE properties matching the criteria per type, bedrooms, bathrooms, price bucket and
+     * city (top {@code cityLimit}), from the in-memory index bitmaps; no entity is loaded.
+     * @param priceBreaks Ascending, positive bucket boundaries, or null for {@link PropertyFacets#DEFAULT_PRICE_BREAKS}.
+     * @throws IllegalArgumentException for invalid price breaks.
+     * @throws IllegalStateException if the search indexes are still loading.
+     */
+    public PropertyFacets countFacets(PropertySearchCriteria criteria, List<BigDecimal> priceBreaks, int cityLimit) {
+        List<BigDecimal> breaks = (priceBreaks == null || priceBreaks.isEmpty()) ? PropertyFacets.DEFAULT_PRICE_BREAKS : priceBreaks;
+        if (breaks.size() > MAX_PRICE_BREAKS) { throw new IllegalArgumentException("At most " + MAX_PRICE_BREAKS + " price breaks are allowed"); }
+        for (int i = 0; i < breaks.size(); i++) {
+            if (breaks.get(i).signum() <= 0 || (i > 0 && breaks.get(i).compareTo(breaks.get(i - 1)) <= 0)) {
+                throw new IllegalArgumentException("Price breaks must be positive and strictly ascending");
+            }
+        }
+        if (!searchIndex.isReady()) { throw new IllegalStateException("Facet counts are not available yet"); }
+        long[] textMatchIds = null;
+        if (criteria.hasText()) {
+            if (!fullTextIndex.isReady()) { throw new IllegalStateException("Text search is not available yet"); }
+            textMatchIds = fullTextIndex.search(criteria.getText()).ids();
+        }
+        logger.debug("Counting facets - {}, Price breaks: {}, City limit: {}", criteria, breaks, cityLimit);
+        return searchIndex.facets(amenityDictionary.resolve(criteria), textMatchIds, breaks, cityLimit);
+    }
+
+    /**
+     * Autocomplete for the search box: cities, postal codes and street names of AVAILABLE properties
+     * starting with the prefix (case-insensitive), most listings first. Served from memory.
+     * @param limit Capped at {@code search.suggest.max-results}.
+     * @throws IllegalStateException if the suggest index is still loading.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        logger.debug("Suggesting for prefix '{}', limit {}", prefix, limit);
+        return suggestIndex.suggest(prefix, Math.min(limit, suggestIndex.getMaxResults()));
+    }
+
+    /**
+     * Returns the ranked matches for requests served by an index rather than by SQL ordering: full-text
+     * matches by relevance, or listing index rows by distance. Null for a column sort.
+     */
+    private RankedMatches rankedMatches(PropertySearchCriteria criteria, PropertySort sort) {
+        if (criteria.hasText() != sort.isRelevance()) {
+            throw new IllegalArgumentException("Text search requires relevance order, and relevance order requires a text query (q)");
+        }
+        if (sort.isRelevance()) {
+            if (!fullTextIndex.isReady()) { throw new IllegalStateException("Text search is not available yet"); }
+            return fullTextIndex.search(criteria.getText());
+        }
+        if (sort.isDistance()) {
+            if (criteria.getGeo() == null || !criteria.getGeo().hasOrigin()) { throw new IllegalArgumentException("Sorting by distance requires lat and lng"); }
+            if (!searchIndex.isReady()) { throw new IllegalStateException("Distance search is not available yet"); }
+            return searchIndex.rankByDistance(criteria);
+        }
+        return null;
+    }
+
+    /**
+     * Walks the ranked matches starting at {@code from} and passes AVAILABLE properties that satisfy the
+     * structured filters to the sink (with their rank key), until {@code max} were accepted. Each window of
+     * ids is first narrowed with the in-memory listing index (when loaded) so only likely hits are loaded;
+     * the database re-checks the filters while loading them as DTOs.
+     */
+    private int forEachRankedMatch(PropertySearchCriteria criteria, RankedMatches matches, int from, int max,
+                                   BiConsumer<PropertyDTO, Double> sink) {
+        int accepted = 0;
+        for (int start = from; start < matches.size() && accepted < max; start += RANKED_MATCH_WINDOW) {
+            int end = Math.min(matches.size(), start + RANKED_MATCH_WINDOW);
+            long[] window = new long[end - start];
+            Map<Long, Double> keyById = new HashMap<>();
+            for (int i = start; i < end; i++) {
+                window[i - start] = matches.id(i);
+                keyById.put(matches.id(i), matches.key(i));
+            }
+            long[] candidates = searchIndex.isReady() ? searchIndex.retainMatching(window, criteria) : window;
+            for (int i = 0; i < candidates.length && accepted < max; ) {
+                int count = Math.min(candidates.length - i, max - accepted); // Load only as many as can still be used
+                for (PropertyDTO property : findMatchingInOrder(Arrays.copyOfRange(candidates, i, i + count), criteria)) {
+                    setDistance(property, criteria);
+                    sink.accept(property, keyById.get(property.getId()));
+                    if (++accepted == max) { break; }
+                }
+                i += count;
+            }
+        }
+        return accepted;
+    }
+
+    /** Loads the given ids as DTOs and returns them in the same order, skipping rows that vanished or stopped matching since indexing. */
+    private List<PropertyDTO> findMatchingInOrder(long[] ids, PropertySearchCriteria criteria) {
+        if (ids.length == 0) { return new ArrayList<>(); }
+        List<Long> idList = new ArrayList<>(ids.length);
+        for (long id : ids) { idList.add(id); }
+        Map<Long, PropertyDTO> byId = propertyRepository.findDtosByIds(idList, PropertyStatus.AVAILABLE, criteria).stream()
+                .collect(Collectors.toMap(PropertyDTO::getId, Function.identity()));
+        List<PropertyDTO> ordered = new ArrayList<>(ids.length);
+        for (Long id : idList) {
+            PropertyDTO property = byId.get(id);
+            if (property != null) { ordered.add(property); }
+        }
+        return ordered;
+    }
+
+    /**
+     * Streams every AVAILABLE property matching the criteria, in sort order, to the sink (NDJSON export).
+     * Rows are read as DTOs through a server-side cursor and handed on in batches (amenities loaded once
+     * per batch), so memory does not grow with the result.
+     * @return The number of properties written.
+     */
+    @Transactional(readOnly = true)
+    public long streamProperties(PropertySearchCriteria requested, PropertySort sort, Consumer<PropertyDTO> sink) {
+        logger.debug("Streaming properties - {}, Sort: {}", requested, sort);
+        PropertySearchCriteria criteria = amenityDictionary.resolve(requested);
+        RankedMatches ranked = rankedMatches(criteria, sort);
+        if (ranked != null) {
+            return forEachRankedMatch(criteria, ranked, 0, Integer.MAX_VALUE, (property, key) -> sink.accept(property));
+        }
+        PropertySearchCriteria resolved = searchIndex.resolveCities(criteria);
+        if (resolved.matchesNothing()) { return 0; }
+        long count = 0;
+        List<PropertyDTO> batch = new ArrayList<>(STREAM_BATCH);
+        try (Stream<PropertyDTO> rows = propertyRepository.streamByCriteria(PropertyStatus.AVAILABLE, resolved, sort)) {
+            Iterator<PropertyDTO> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                PropertyDTO dto = iterator.next();
+                setDistance(dto, criteria);
+                batch.add(dto);
+                if (batch.size() == STREAM_BATCH || !iterator.hasNext()) {
+                    propertyRepository.attachAmenities(batch).forEach(sink);
+                    count += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+        return count;
+    }
+
+    /** Counters of the search result cache, for the admin API. */
+    public Map<String, Long> getSearchCacheStats() {
+        return searchCache.getStats();
     }
 
+    /** Streams all properties (any status) with their owners, ordered by ID. Admin NDJSON export. */
     @Transactional(readOnly = true)
-    public List<Property> searchProperties(
-            PropertyType type, String city, BigDecimal minPrice, BigDecimal maxPrice,
-            Integer minBedrooms, Integer minBathrooms) {
-        PropertyStatus status = PropertyStatus.AVAILABLE;
-        String cityFilter = (city != null && city.isBlank()) ? null : city;
-        logger.debug("Searching properties with criteria - Status: {}, Type: {}, City: {}, MinPrice: {}, MaxPrice: {}, MinBeds: {}, MinBaths: {}",
-                status, type, cityFilter, minPrice, maxPrice, minBedrooms, minBathrooms);
-        return propertyRepository.findPropertiesByCriteria(status, type, cityFilter, minPrice, maxPrice, minBedrooms, minBathrooms);
+    public long streamAllPropertiesAdmin(Consumer<Property> sink) {
+        return EntityStreams.forEach(entityManager, propertyRepository.streamAllWithOwner(),
+                property -> sink.accept(withAmenityNames(property)));
     }
 
     @Transactional(readOnly = true)
-    public List<Property> findAllAvailableProperties() { /* ... */ return propertyRepository.findByStatus(PropertyStatus.AVAILABLE); }
+    public List<Property> findAllAvailableProperties() { /* ... */ return withAmenityNames(propertyRepository.findByStatus(PropertyStatus.AVAILABLE)); }
     @Transactional(readOnly = true)
-    public List<Property> findAllPropertiesAdmin() { /* ... */ return propertyRepository.findAll(); }
+    public List<Property> findAllPropertiesAdmin() { /* ... */ return withAmenityNames(propertyRepository.findAll()); }
+
+    // Entities store amenity dictionary ids; callers (and JSON responses) see the names. The ids of a
+    // list are loaded lazily in batches (@BatchSize on Property.amenityIds), not one query per row.
+    private Property withAmenityNames(Property property) {
+        property.setAmenities(amenityDictionary.namesOf(property.getAmenityIds()));
+        return property;
+    }
+
+    private List<Property> withAmenityNames(List<Property> properties) {
+        properties.forEach(this::withAmenityNames);
+        return properties;
+    }
 
 
     // --- Write Operations ---
     @Transactional
     public Property createProperty(Property property) {
-        String ownerEmail = getCurrentUsername()
-                .orElseThrow(() -> new IllegalStateException("User must be authenticated to create a property"));
+        if (!currentUser.isAuthenticated()) { throw new IllegalStateException("User must be authenticated to create a property"); }
+        String ownerEmail = currentUser.getEmail();
         logger.debug("Attempting to create property for user: {}", ownerEmail);
-        User owner = userRepository.findByEmail(ownerEmail)
+        UserSnapshot owner = userCache.findByEmail(ownerEmail) // Cached; the owner's name goes into the response
                 .orElseThrow(() -> new UsernameNotFoundException("Authenticated user not found: " + ownerEmail));
 
-        property.setOwner(owner);
+        property.setOwner(owner.toReference());
         if (property.getStatus() == null) { property.setStatus(PropertyStatus.AVAILABLE); }
-        // Amenities set directly from request if included
+        // Amenity names from the request are stored as dictionary ids (new names are added to the dictionary)
+        property.setAmenityIds(amenityDictionary.intern(property.getAmenities()));
         // @PrePersist handles createdAt
 
-        Property savedProperty = propertyRepository.save(property);
+        Property savedProperty = withAmenityNames(propertyRepository.save(property));
+        eventPublisher.publishEvent(PropertyChangedEvent.saved(savedProperty));
         logger.info("Property created with ID {} for owner {}", savedProperty.getId(), ownerEmail);
         return savedProperty;
     }
 
-    // --- Update Property with Detailed Logging ---
+    // --- Update Property (full replacement of the editable fields, PUT) ---
     @Transactional
     public Optional<Property> updateProperty(Long id, Property updatedPropertyData) {
         logger.debug("Attempting to update property data for ID: {}", id);
-        Optional<Property> existingPropertyOpt = propertyRepository.findById(id);
+        Optional<Property> existingPropertyOpt = propertyRepository.findByIdWithOwner(id); // The response shows the owner
 
         if (existingPropertyOpt.isEmpty()) {
             logger.warn("Update failed: Property not found with ID: {}", id);
@@ -89,7 +410,7 @@ public class PropertyService {
 
         Property existingProperty = existingPropertyOpt.get();
 
-        // Update standard fields
+        // Update standard fields (only the columns whose value changed are written, see @DynamicUpdate)
         existingProperty.setAddress(updatedPropertyData.getAddress());
         existingProperty.setCity(updatedPropertyData.getCity());
         existingProperty.setState(updatedPropertyData.getState());
@@ -98,36 +419,69 @@ public class PropertyService {
         existingProperty.setBedrooms(updatedPropertyData.getBedrooms());
         existingProperty.setBathrooms(updatedPropertyData.getBathrooms());
         existingProperty.setAreaSqft(updatedPropertyData.getAreaSqft());
+        existingProperty.setLatitude(updatedPropertyData.getLatitude());
+        existingProperty.setLongitude(updatedPropertyData.getLongitude());
         existingProperty.setDescription(updatedPropertyData.getDescription());
         existingProperty.setType(updatedPropertyData.getType());
         existingProperty.setStatus(updatedPropertyData.getStatus());
+        // A missing amenity list clears them, as before
+        replaceAmenities(existingProperty, updatedPropertyData.getAmenities() != null ? updatedPropertyData.getAmenities() : Set.of());
 
-        // --- Update the Amenities Set with Logging ---
-        Set<String> incomingAmenities = updatedPropertyData.getAmenities();
-        logger.info("[Service Update] Property ID: {}. Amenities received in Request DTO/Entity: {}", id, incomingAmenities);
-        logger.info("[Service Update] Property ID: {}. Amenities currently on Entity before clear: {}", id, existingProperty.getAmenities());
+        // @PreUpdate handles updatedAt; the managed entity is flushed at commit
+        Property savedProperty = withAmenityNames(propertyRepository.save(existingProperty));
+        eventPublisher.publishEvent(PropertyChangedEvent.saved(savedProperty));
+        logger.info("Property data updated successfully for ID: {}", id);
+        return Optional.of(savedProperty);
+    }
 
-        if (incomingAmenities != null) {
-            // Modify the existing Set managed by Hibernate
-            existingProperty.getAmenities().clear();
-            existingProperty.getAmenities().addAll(incomingAmenities);
-            logger.info("[Service Update] Property ID: {}. Amenities on Entity AFTER update logic: {}", id, existingProperty.getAmenities());
-        } else {
-            existingProperty.getAmenities().clear();
-            logger.info("[Service Update] Property ID: {}. Clearing all amenities as incoming was null.", id);
+    /**
+     * Partial update (PATCH): applies only the non-null fields of the patch. Unchanged values cause no
+     * write at all, changed ones are the only columns in the UPDATE, and amenity links are inserted or
+     * deleted individually for the names added or removed.
+     */
+    @Transactional
+    public Optional<Property> patchProperty(Long id, PropertyPatchDTO patch) {
+        logger.debug("Attempting to patch property ID: {}", id);
+        Optional<Property> existingPropertyOpt = propertyRepository.findByIdWithOwner(id); // The response shows the owner
+        if (existingPropertyOpt.isEmpty()) {
+            logger.warn("Patch failed: Property not found with ID: {}", id);
+            return Optional.empty();
         }
-        // --- End Amenities Update ---
-
-        // @PreUpdate handles updatedAt
-        logger.info("[Service Update] Property ID: {}. Attempting to SAVE entity with amenities: {}", id, existingProperty.getAmenities());
-        Property savedProperty = propertyRepository.save(existingProperty);
+        Property property = existingPropertyOpt.get();
+        if (patch.getAddress() != null) { property.setAddress(patch.getAddress()); }
+        if (patch.getCity() != null) { property.setCity(patch.getCity()); }
+        if (patch.getState() != null) { property.setState(patch.getState()); }
+        if (patch.getPostalCode() != null) { property.setPostalCode(patch.getPostalCode()); }
+        if (patch.getPrice() != null) { property.setPrice(patch.getPrice()); }
+        if (patch.getBedrooms() != null) { property.setBedrooms(patch.getBedrooms()); }
+        if (patch.getBathrooms() != null) { property.setBathrooms(patch.getBathrooms()); }
+        if (patch.getAreaSqft() != null) { property.setAreaSqft(patch.getAreaSqft()); }
+        if (patch.getLatitude() != null) { property.setLatitude(patch.getLatitude()); }
+        if (patch.getLongitude() != null) { property.setLongitude(patch.getLongitude()); }
+        if (patch.getDescription() != null) { property.setDescription(patch.getDescription()); }
+        if (patch.getType() != null) { property.setType(patch.getType()); }
+        if (patch.getStatus() != null) { property.setStatus(patch.getStatus()); }
+        if (patch.getAmenities() != null) { replaceAmenities(property, patch.getAmenities()); }
 
-        // Fetch again immediately after save to verify persistence (within same transaction)
-        Property checkProperty = propertyRepository.findById(id).orElse(null);
-        logger.info("[Service Update] Property ID: {}. Amenities on Entity immediately AFTER save (refetched): {}", id, checkProperty != null ? checkProperty.getAmenities() : "ENTITY NOT FOUND AFTER SAVE!?");
+        // No save(): the entity is managed, so dirty checking flushes only what changed at commit
+        withAmenityNames(property);
+        eventPublisher.publishEvent(PropertyChangedEvent.saved(property));
+        logger.info("Property patched successfully for ID: {}", id);
+        return Optional.of(property);
+    }
 
-        logger.info("Property data (including amenities) updated successfully for ID: {}", id);
-        return Optional.of(savedProperty); // Return the instance returned by save
+    /**
+     * Makes the property's amenity links equal to the given names by removing and adding only the
+     * differences. The persistent set is modified in place: assigning a new set would make Hibernate
+     * delete every link and insert them all again.
+     */
+    private void replaceAmenities(Property property, Set<String> names) {
+        Set<Integer> target = amenityDictionary.intern(names);
+        Set<Integer> current = property.getAmenityIds();
+        boolean changed = current.retainAll(target); // One DELETE per removed amenity
+        changed |= current.addAll(target);           // One INSERT per added amenity
+        // A collection-only change does not run @PreUpdate; bump the version so cached JSON is not served stale
+        if (changed) { property.setUpdatedAt(LocalDateTime.now()); }
     }
     // --- End Update Property ---
 
@@ -138,7 +492,8 @@ public class PropertyService {
         Property property = propertyRepository.findById(propertyId)
                 .orElseThrow(() -> new IllegalArgumentException("Property not found with ID: " + propertyId));
         property.setImageUrls(newImageUrlsString);
-        Property savedProperty = propertyRepository.save(property); // Triggers @PreUpdate
+        Property savedProperty = withAmenityNames(propertyRepository.save(property)); // Triggers @PreUpdate
+        eventPublisher.publishEvent(PropertyChangedEvent.saved(savedProperty));
         logger.info("Image URLs updated successfully for property ID: {}", propertyId);
         return savedProperty;
     }
@@ -149,34 +504,23 @@ public class PropertyService {
         Optional<Property> propertyOpt = propertyRepository.findById(id);
         if (propertyOpt.isEmpty()) { logger.warn("Delete failed: Property not found with ID: {}", id); return false; }
         propertyRepository.deleteById(id);
+        eventPublisher.publishEvent(PropertyChangedEvent.deleted(id));
         logger.info("Property deleted successfully for ID: {}", id);
         return true;
     }
 
     // --- Method for @PreAuthorize ownership check ---
-    @Transactional(readOnly = true)
-    public boolean checkOwnership(Long propertyId) { /* ... (no changes needed here) ... */
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated() || "anonymousUser".equals(authentication.getPrincipal())) { return false; }
-        String currentUsername = authentication.getName();
-        User currentUser = userRepository.findByEmail(currentUsername).orElseThrow(() -> new UsernameNotFoundException("Authenticated user not found: " + currentUsername));
-        Long currentUserId = currentUser.getId();
-        Property property = propertyRepository.findById(propertyId).orElseThrow(() -> new IllegalArgumentException("Property not found: " + propertyId));
-        Long propertyOwnerId = property.getOwnerId();
-        if (propertyOwnerId == null && property.getOwner() != null) { propertyOwnerId = property.getOwner().getId(); }
-        if (propertyOwnerId == null) { logger.error("Property ID {} has null ownerId.", propertyId); return false; }
-        boolean isOwner = propertyOwnerId.equals(currentUserId);
-        logger.debug("[checkOwnership] Property ID: {}, Current User ID: {}, Owner ID: {}, Is Owner?: {}", propertyId, currentUserId, propertyOwnerId, isOwner);
+    // The caller comes from the request's CurrentUser and the owner from the in-memory owner index;
+    // no transaction here, so a hit does not even borrow a connection
+    public boolean checkOwnership(Long propertyId) {
+        if (!currentUser.isAuthenticated()) { return false; }
+        Long propertyOwnerId = ownerIndex.findOwnerId(propertyId)
+                .orElseThrow(() -> new IllegalArgumentException("Property not found: " + propertyId));
+        boolean isOwner = currentUser.is(propertyOwnerId);
+        logger.debug("[checkOwnership] Property ID: {}, Current User ID: {}, Owner ID: {}, Is Owner?: {}", propertyId, currentUser.getId(), propertyOwnerId, isOwner);
         return isOwner;
     }
 
-    // --- Helper Method to get current user ---
-    private Optional<String> getCurrentUsername() { /* ... (no changes needed here) ... */
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated() || "anonymousUser".equals(authentication.getPrincipal())) { return Optional.empty(); }
-        return Optional.ofNullable(authentication.getName());
-    }
-
     // Keep verifyOwnershipOrAdmin if needed by Admins elsewhere
     private void verifyOwnershipOrAdmin(Property property) { /* ... */ }
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.example.demo.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * What the JSON of a property depends on, read without loading the property: its version timestamp
+ * (updatedAt, or createdAt if never updated) and the owner fields embedded in the DTO, with the owner's
+ * own last change.
+ * Used to validate cached JSON and conditional GETs before anything else is read.
+ */
+public final class PropertyVersion {
+
+    private final LocalDateTime version;
+    private final Long ownerId;
+    private final String ownerName;
+    private final String ownerEmail;
+    private final LocalDateTime ownerUpdatedAt; // null if the owner row was never updated
+
+    // Used by the JPQL constructor expression in PropertyRepository
+    public PropertyVersion(LocalDateTime version, Long ownerId, String ownerName, String ownerEmail, LocalDateTime ownerUpdatedAt) {
+        this.version = version;
+        this.ownerId = ownerId;
+        this.ownerName = ownerName;
+        this.ownerEmail = ownerEmail;
+        this.ownerUpdatedAt = ownerUpdatedAt;
+    }
+
+    public LocalDateTime getVersion() { return version; }
+    public Long getOwnerId() { return ownerId; }
+    public String getOwnerName() { return ownerName; }
+    public String getOwnerEmail() { return ownerEmail; }
+    public LocalDateTime getOwnerUpdatedAt() { return ownerUpdatedAt; }
+
+    /** When the representation last changed: the property's version, or the owner's last update if later. */
+    public LocalDateTime lastModified() {
+        return ownerUpdatedAt != null && ownerUpdatedAt.isAfter(version) ? ownerUpdatedAt : version;
+    }
+
+    /** The owner part of the JSON cache key, see {@link PropertyJsonCache#ownerStampOf}. */
+    public long ownerStamp() {
+        return PropertyJsonCache.ownerStampOf(ownerId, ownerName, ownerEmail);
+    }
+}
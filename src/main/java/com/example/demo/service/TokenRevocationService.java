@@ -0,0 +1,107 @@
+package com.example.demo.service;
+
+import com.example.demo.model.User;
+import com.example.demo.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-user "tokens valid after" cut-offs, so JWTs can be revoked without reading the users table per request.
+ * <p>
+ * The cut-off is stored on the user ({@code tokensValidAfter}) and mirrored in an immutable in-memory map that
+ * the JWT filter checks. The map is reloaded from the database every {@code jwt.revocation.refresh-seconds}
+ * (picking up revocations made by other instances) and updated immediately for revocations made here.
+ * Cut-offs are kept to the second, the resolution of the token's issued-at claim.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${jwt.revocation.refresh-seconds:30}")
+    private long refreshSeconds;
+
+    private volatile Map<Long, Long> validAfterMillis = Map.of(); // userId -> cut-off, replaced as a whole
+    private ScheduledExecutorService refresher;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        refresh();
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-revocation-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refresher != null) { refresher.shutdownNow(); }
+    }
+
+    /** True if the user's tokens were revoked after this token was issued. */
+    public boolean isRevoked(Long userId, long issuedAtMillis) {
+        Long cutOff = validAfterMillis.get(userId);
+        return cutOff != null && issuedAtMillis < cutOff;
+    }
+
+    /**
+     * Rejects every token issued to the user before now, e.g. after a password or role change.
+     * Takes effect on this instance immediately and on others after their next refresh.
+     * @throws IllegalArgumentException if the user does not exist.
+     */
+    @Transactional
+    public void revokeTokens(Long userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found with ID: " + userId));
+        LocalDateTime cutOff = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        user.setTokensValidAfter(cutOff);
+        userRepository.save(user);
+        synchronized (this) {
+            Map<Long, Long> updated = new HashMap<>(validAfterMillis);
+            updated.put(userId, toMillis(cutOff));
+            validAfterMillis = updated;
+        }
+        logger.info("Revoked tokens issued before {} for user ID {}", cutOff, userId);
+    }
+
+    private void refresh() {
+        try {
+            Map<Long, Long> loaded = new HashMap<>();
+            for (Object[] row : userRepository.findAllTokensValidAfter()) {
+                loaded.put((Long) row[0], toMillis((LocalDateTime) row[1]));
+            }
+            synchronized (this) {
+                // Cut-offs only move forward: keep local ones a concurrent revocation made after the query ran
+                validAfterMillis.forEach((userId, cutOff) -> loaded.merge(userId, cutOff, Math::max));
+                validAfterMillis = loaded;
+            }
+        } catch (Exception e) {
+            logger.error("Failed to refresh token revocations, keeping the previous ones: {}", e.getMessage(), e);
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
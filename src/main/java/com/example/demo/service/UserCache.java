@@ -0,0 +1,118 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded TTL cache of {@link UserSnapshot}s by email, shared by every place that resolves the current user
+ * (JWT filter, ownership and booking permission checks, "my bookings", creating bookings and properties).
+ * <p>
+ * Entries expire after a TTL and the least recently used entry is evicted once the cache is full. A user's
+ * entry is dropped whenever the user row is updated or deleted ({@link UserCacheInvalidator}); a lookup that
+ * was running while any user changed does not store its result, since it may have read the old row.
+ * Unknown emails are not cached.
+ */
+@Service
+public class UserCache {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    private final Map<String, Entry> entries; // access order, guarded by this
+    private final AtomicLong version = new AtomicLong(); // incremented on every invalidation
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();     // size and TTL
+    private final AtomicLong invalidations = new AtomicLong(); // dropped because the user changed
+
+    public UserCache(@Value("${user.cache.max-entries:10000}") int maxEntries,
+                     @Value("${user.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= UserCache.this.maxEntries) { return false; }
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /** Returns the user with this email (trimmed, case-insensitive), from the cache or the database. */
+    public Optional<UserSnapshot> findByEmail(String email) {
+        String key = email.trim().toLowerCase(Locale.ROOT);
+        if (maxEntries <= 0) { return userRepository.findSnapshotByEmail(key); }
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (System.nanoTime() - entry.expiresAt < 0) {
+                    hits.incrementAndGet();
+                    return Optional.of(entry.user);
+                }
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        long versionAtLoad = version.get();
+        Optional<UserSnapshot> loaded = userRepository.findSnapshotByEmail(key);
+        if (loaded.isPresent()) {
+            synchronized (this) {
+                if (version.get() == versionAtLoad) { entries.put(key, new Entry(loaded.get(), System.nanoTime() + ttlNanos)); }
+            }
+        }
+        return loaded;
+    }
+
+    /** Drops the user's entry (whatever email it was cached under) and keeps in-flight lookups from storing theirs. */
+    public void invalidate(Long userId) {
+        version.incrementAndGet();
+        synchronized (this) {
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+                if (it.next().user.getId().equals(userId)) {
+                    it.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    public Map<String, Long> getStats() {
+        long entryCount;
+        synchronized (this) { entryCount = entries.size(); }
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatePercent", hitCount + missCount == 0 ? 0L : Math.round(100.0 * hitCount / (hitCount + missCount)));
+        stats.put("evictions", evictions.get());
+        stats.put("invalidations", invalidations.get());
+        stats.put("entries", entryCount);
+        return stats;
+    }
+
+    private static final class Entry {
+        final UserSnapshot user;
+        final long expiresAt; // System.nanoTime()
+
+        Entry(UserSnapshot user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
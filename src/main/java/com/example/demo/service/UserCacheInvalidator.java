@@ -0,0 +1,38 @@
+package com.example.demo.service;
+
+import com.example.demo.model.User;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA entity listener on {@link User} that drops the user from {@link UserCache} whenever the row is updated
+ * (role, password, email, ...) or deleted, whichever code path made the change.
+ * <p>
+ * The entry is dropped at flush and again after commit: a lookup in another transaction between the two
+ * still reads the old committed row and could otherwise cache it for a full TTL.
+ */
+@Component
+public class UserCacheInvalidator {
+
+    @Autowired
+    private UserCache userCache;
+
+    @PostUpdate
+    @PostRemove
+    void onUserChanged(User user) {
+        Long userId = user.getId();
+        userCache.invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    userCache.invalidate(userId);
+                }
+            });
+        }
+    }
+}
@@ -64,11 +64,6 @@ public class UserDetailsServiceImpl implements UserDetailsService {
                 // Collect the authorities into a List
                 .collect(Collectors.toList());
 
-        // <<<--- ADDED EXTRA LOGGING FOR DEBUGGING ---<<<
-        // Print the exact authorities list being created BEFORE returning UserDetails
-        System.out.println("[UserDetailsServiceImpl] Authorities created for " + email + ": " + authorities);
-        // --- END EXTRA LOGGING ---
-
         // Check if any authorities were actually created (user might have a null/blank role in DB)
         if (authorities.isEmpty()) {
             logger.warn("User {} has no roles assigned or role is invalid/empty in database.", email);
@@ -0,0 +1,40 @@
+package com.example.demo.service;
+
+import com.example.demo.model.User;
+
+/**
+ * Immutable copy of the user columns needed to identify and authorize a caller, as held by {@link UserCache}.
+ * Carries no password hash.
+ */
+public final class UserSnapshot {
+
+    private final Long id;
+    private final String name;
+    private final String email;
+    private final String role; // CUSTOMER, PROPERTY_OWNER or ADMIN
+
+    // Used by the JPQL constructor expression in UserRepository
+    public UserSnapshot(Long id, String name, String email, String role) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.role = role;
+    }
+
+    public Long getId() { return id; }
+    public String getName() { return name; }
+    public String getEmail() { return email; }
+    public String getRole() { return role; }
+
+    public boolean isAdmin() {
+        return "ADMIN".equals(role);
+    }
+
+    /**
+     * A detached User with these columns, to set as the target of a many-to-one association (booking customer,
+     * property owner) without loading the row. Only its id is written; it must not be saved itself.
+     */
+    public User toReference() {
+        return new User(id, name, email, null, role);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.demo.service;
+
+import java.util.Date;
+
+/**
+ * The claims of a JWT whose signature has been checked, as returned by {@link JwtService#verify(String)}.
+ * Immutable, so one instance can be shared by every request presenting the same token.
+ */
+public final class VerifiedToken {
+
+    private final String subject; // User email
+    private final Long userId; // null in tokens issued before the id and role claims were added
+    private final String role;
+    private final long issuedAtMillis;
+    private final long expiresAtMillis;
+
+    VerifiedToken(String subject, Long userId, String role, Date issuedAt, Date expiration) {
+        this.subject = subject;
+        this.userId = userId;
+        this.role = role;
+        this.issuedAtMillis = issuedAt != null ? issuedAt.getTime() : 0L;
+        this.expiresAtMillis = expiration != null ? expiration.getTime() : Long.MAX_VALUE;
+    }
+
+    public String getSubject() { return subject; }
+    public Long getUserId() { return userId; }
+    public String getRole() { return role; }
+    public long getIssuedAtMillis() { return issuedAtMillis; }
+    public long getExpiresAtMillis() { return expiresAtMillis; }
+
+    /** True if the token carries the user id and role, so the user does not have to be loaded to authenticate it. */
+    public boolean hasUserClaims() {
+        return userId != null && role != null;
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return nowMillis > expiresAtMillis; // Same boundary as the parser
+    }
+}
@@ -0,0 +1,522 @@
+package com.example.demo.service.search;
+
+import com.example.demo.model.Property;
+import com.example.demo.repository.PropertyRepository;
+import com.example.demo.service.AmenityDictionary;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Embedded full-text index over property description, address, city and amenities, ranked with BM25.
+ * <p>
+ * Layout (LSM style): recent changes go to an in-memory table; it is flushed periodically (or when it
+ * reaches {@code search.fulltext.flush-docs} documents) into an immutable {@link TextSegment} file under
+ * {@code search.fulltext.dir}. Every document is live in exactly one place, tracked by
+ * {@code liveGeneration}; older copies in other segments are ignored at query time and dropped when
+ * small segments are merged.
+ * <p>
+ * On startup the segments are read back instead of re-indexing the whole table. The manifest records
+ * a watermark (the time of the last flush); properties created or updated since then (minus a safety
+ * margin) are re-indexed. Deletions are appended to a tombstone log as they happen, each with the first
+ * generation not yet written: on restart, a document whose live copy is older than its tombstone is
+ * dropped, so no scan of the properties table is needed. Tombstones are pruned once no segment holds a
+ * copy they hide.
+ */
+@Component
+public class FullTextIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(FullTextIndex.class);
+
+    /** Bump when the analyzer or the segment layout changes; older files are then discarded and rebuilt. */
+    static final int FORMAT_VERSION = 2; // 2: deletions are kept in the tombstone log
+
+    private static final int MEMTABLE = Integer.MAX_VALUE; // "generation" of documents not flushed yet
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MAX_SEGMENTS = 8;
+    private static final int LOAD_BATCH = 500;
+    private static final int LOAD_SEGMENT_DOCS = 50_000; // flush size while (re)building, keeps the memtable bounded
+    private static final Duration CATCH_UP_MARGIN = Duration.ofMinutes(5); // covers commits racing the last flush
+    private static final String MANIFEST = "manifest.properties";
+    private static final String TOMBSTONES = "tombstones.log"; // (long id, int generation) records, appended per deletion
+    private static final int TOMBSTONE_BYTES = Long.BYTES + Integer.BYTES;
+    private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d+)\\.bin");
+
+    @Value("${search.fulltext.dir:./search-index}")
+    private String indexDir;
+    @Value("${search.fulltext.flush-docs:1000}")
+    private int flushDocs;
+    @Value("${search.fulltext.flush-interval-seconds:30}")
+    private long flushIntervalSeconds;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+    @Autowired
+    private AmenityDictionary amenityDictionary;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // --- State below is guarded by lock ---
+    private final List<TextSegment> segments = new ArrayList<>();
+    private final Map<Long, Map<String, Integer>> memtable = new HashMap<>();
+    private final Map<Long, Integer> liveGeneration = new HashMap<>(); // doc id -> generation holding its current copy
+    private final Map<Long, Integer> docLengths = new HashMap<>();
+    private final Map<Long, Integer> tombstones = new HashMap<>(); // deleted doc id -> generations below this may hold a copy
+    private final List<PropertyChangedEvent> pendingEvents = new ArrayList<>(); // changes seen while loading
+    private long totalLength;
+    private int nextGeneration;
+    private boolean dirty;
+    private boolean loading = true;
+    private volatile boolean ready;
+
+    private Path directory;
+    private ScheduledExecutorService flusher;
+
+    // --- Loading ---
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.nanoTime();
+        LocalDateTime loadStart = LocalDateTime.now();
+        try {
+            directory = Paths.get(indexDir).toAbsolutePath().normalize();
+            Files.createDirectories(directory);
+            LocalDateTime watermark = readSegments();
+            int dropped = watermark != null ? applyTombstones() : 0;
+            int reindexed = reindexChangedSince(watermark != null ? watermark.minus(CATCH_UP_MARGIN) : null);
+            int documents;
+            lock.writeLock().lock();
+            try {
+                for (PropertyChangedEvent event : pendingEvents) { apply(event, termFrequencies(event)); }
+                pendingEvents.clear();
+                flushLocked(loadStart);
+                documents = liveGeneration.size();
+                loading = false;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            startFlusher();
+            logger.info("Full-text index ready in {} ms: {} documents, {} re-indexed, {} dropped ({})",
+                    (System.nanoTime() - start) / 1_000_000, documents, reindexed, dropped,
+                    watermark != null ? "incremental since " + watermark : "full rebuild");
+        } catch (Exception e) {
+            logger.error("Failed to load full-text index, text search is unavailable: {}", e.getMessage(), e);
+            lock.writeLock().lock();
+            try {
+                pendingEvents.clear();
+                loading = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /** Loads the persisted segments. Returns the manifest watermark, or null if a full rebuild is needed. */
+    private LocalDateTime readSegments() throws IOException {
+        Path manifestFile = directory.resolve(MANIFEST);
+        if (!Files.exists(manifestFile)) {
+            deleteSegmentFiles();
+            return null;
+        }
+        Properties manifest = new Properties();
+        try (InputStream in = Files.newInputStream(manifestFile)) { manifest.load(in); }
+        if (!String.valueOf(FORMAT_VERSION).equals(manifest.getProperty("formatVersion"))) {
+            logger.info("Full-text index format changed, rebuilding");
+            deleteSegmentFiles();
+            return null;
+        }
+        List<Integer> generations = listSegmentGenerations();
+        lock.writeLock().lock();
+        try {
+            for (int generation : generations) { // Ascending, so newer copies of a document win
+                addSegment(TextSegment.readFrom(segmentFile(generation), generation, FORMAT_VERSION));
+                nextGeneration = generation + 1;
+            }
+            return LocalDateTime.parse(manifest.getProperty("watermark"));
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Full-text index files are unreadable, rebuilding: {}", e.getMessage());
+            segments.clear();
+            liveGeneration.clear();
+            docLengths.clear();
+            tombstones.clear();
+            totalLength = 0;
+            nextGeneration = 0;
+            deleteSegmentFiles();
+            return null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Indexes properties created or updated at or after {@code since} (all of them if null), in id order. */
+    private int reindexChangedSince(LocalDateTime since) throws IOException {
+        int count = 0;
+        long afterId = 0;
+        while (true) {
+            List<Long> ids = propertyRepository.findIdsChangedSince(since, afterId, PageRequest.of(0, LOAD_BATCH));
+            if (ids.isEmpty()) { return count; }
+            List<Property> batch = propertyRepository.findAllWithAmenitiesByIdIn(ids);
+            lock.writeLock().lock();
+            try {
+                for (Property property : batch) { putDocument(property.getId(), termFrequencies(property)); }
+                if (memtable.size() >= LOAD_SEGMENT_DOCS) { writeMemtableSegment(); }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            count += batch.size();
+            afterId = ids.get(ids.size() - 1);
+        }
+    }
+
+    /** Reads the tombstone log and drops the documents it deleted. Returns the number dropped. */
+    private int applyTombstones() throws IOException {
+        Path file = directory.resolve(TOMBSTONES);
+        if (!Files.exists(file)) { return 0; }
+        ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(file));
+        lock.writeLock().lock();
+        try {
+            int dropped = 0;
+            while (records.remaining() >= TOMBSTONE_BYTES) { // A record torn by a crash is ignored
+                long id = records.getLong();
+                int generation = records.getInt();
+                tombstones.merge(id, generation, Math::max);
+                Integer live = liveGeneration.get(id);
+                if (live != null && live < generation) {
+                    removeDocument(id);
+                    dropped++;
+                }
+            }
+            return dropped;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // --- Reads ---
+
+    /**
+     * Ranks the indexed properties (any status) that contain at least one term of the query, by BM25.
+     * Callers apply the status and structured filters to the result.
+     * @throws IllegalStateException if the index has not been loaded.
+     */
+    public RankedMatches search(String query) {
+        Set<String> terms = new LinkedHashSet<>(TextAnalyzer.analyze(query));
+        lock.readLock().lock();
+        try {
+            if (!ready) { throw new IllegalStateException("Full-text index is not loaded"); }
+            int documents = liveGeneration.size();
+            if (documents == 0 || terms.isEmpty()) { return RankedMatches.NONE; }
+            double avgLength = Math.max(1.0, (double) totalLength / documents);
+            Map<Long, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                int df = documentFrequency(term);
+                if (df == 0) { continue; }
+                double idf = Math.log(1 + (documents - df + 0.5) / (df + 0.5));
+                for (TextSegment segment : segments) {
+                    int t = segment.findTerm(term);
+                    if (t < 0) { continue; }
+                    for (int i = segment.postingsStart(t); i < segment.postingsEnd(t); i++) {
+                        long doc = segment.postingDoc(i);
+                        if (isLive(segment.generation, doc)) {
+                            scores.merge(doc, idf * termWeight(segment.postingFreq(i), docLengths.get(doc), avgLength), Double::sum);
+                        }
+                    }
+                }
+                for (Map.Entry<Long, Map<String, Integer>> doc : memtable.entrySet()) {
+                    Integer tf = doc.getValue().get(term);
+                    if (tf != null) {
+                        scores.merge(doc.getKey(), idf * termWeight(tf, docLengths.get(doc.getKey()), avgLength), Double::sum);
+                    }
+                }
+            }
+            return rank(scores);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int documentFrequency(String term) {
+        int df = 0;
+        for (TextSegment segment : segments) {
+            int t = segment.findTerm(term);
+            if (t < 0) { continue; }
+            for (int i = segment.postingsStart(t); i < segment.postingsEnd(t); i++) {
+                if (isLive(segment.generation, segment.postingDoc(i))) { df++; }
+            }
+        }
+        for (Map<String, Integer> doc : memtable.values()) {
+            if (doc.containsKey(term)) { df++; }
+        }
+        return df;
+    }
+
+    private static double termWeight(int tf, int docLength, double avgLength) {
+        return tf * (K1 + 1) / (tf + K1 * (1 - B + B * docLength / avgLength));
+    }
+
+    private static RankedMatches rank(Map<Long, Double> scores) {
+        Long[] ids = scores.keySet().toArray(new Long[0]);
+        Arrays.sort(ids, (a, b) -> {
+            int byScore = Double.compare(scores.get(b), scores.get(a));
+            return byScore != 0 ? byScore : Long.compare(a, b);
+        });
+        long[] rankedIds = new long[ids.length];
+        double[] rankedScores = new double[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            rankedIds[i] = ids[i];
+            rankedScores[i] = scores.get(ids[i]);
+        }
+        return new RankedMatches(rankedIds, rankedScores, true);
+    }
+
+    // --- Writes (applied once the publishing transaction commits) ---
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(0) // Before SearchResultCache drops the affected entries
+    public void onPropertyChanged(PropertyChangedEvent event) {
+        Map<String, Integer> terms = termFrequencies(event); // Analyze outside the lock
+        boolean flushNow;
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                if (loading) { pendingEvents.add(event); }
+                return;
+            }
+            apply(event, terms);
+            flushNow = memtable.size() >= flushDocs;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (flushNow && flusher != null) { flusher.execute(this::flush); }
+    }
+
+    private void apply(PropertyChangedEvent event, Map<String, Integer> terms) {
+        if (event.isDeleted()) {
+            removeDocument(event.getPropertyId());
+            recordTombstone(event.getPropertyId());
+        } else {
+            putDocument(event.getPropertyId(), terms);
+        }
+    }
+
+    private void putDocument(long id, Map<String, Integer> terms) {
+        removeDocument(id);
+        int length = 0;
+        for (int tf : terms.values()) { length += tf; }
+        memtable.put(id, terms);
+        liveGeneration.put(id, MEMTABLE);
+        docLengths.put(id, length);
+        totalLength += length;
+        dirty = true;
+    }
+
+    private void removeDocument(long id) {
+        memtable.remove(id);
+        if (liveGeneration.remove(id) != null) {
+            totalLength -= docLengths.remove(id);
+            dirty = true; // Older segment copies become dead; a deletion also leaves a tombstone for restarts
+        }
+    }
+
+    // Every segment written from now on gets a generation >= nextGeneration, so only older ones can hold a copy
+    private void recordTombstone(long id) {
+        int generation = nextGeneration;
+        tombstones.merge(id, generation, Math::max);
+        ByteBuffer record = ByteBuffer.allocate(TOMBSTONE_BYTES).putLong(id).putInt(generation).flip();
+        try (FileChannel log = FileChannel.open(directory.resolve(TOMBSTONES),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (record.hasRemaining()) { log.write(record); }
+        } catch (IOException e) {
+            // Still applied in memory and pruned or rewritten by the next flush; only a crash before it would revive the copy
+            logger.error("Failed to log full-text deletion of property {}: {}", id, e.getMessage(), e);
+        }
+    }
+
+    private void addSegment(TextSegment segment) {
+        segments.add(segment);
+        for (int i = 0; i < segment.docCount(); i++) {
+            long id = segment.docId(i);
+            Integer previous = docLengths.put(id, segment.docLength(i));
+            if (previous != null) { totalLength -= previous; }
+            totalLength += segment.docLength(i);
+            liveGeneration.put(id, segment.generation);
+        }
+    }
+
+    private boolean isLive(int generation, long docId) {
+        Integer live = liveGeneration.get(docId);
+        return live != null && live == generation;
+    }
+
+    private Map<String, Integer> termFrequencies(PropertyChangedEvent event) {
+        return event.isDeleted() ? null : termFrequencies(event.getProperty());
+    }
+
+    private Map<String, Integer> termFrequencies(Property property) {
+        StringBuilder text = new StringBuilder();
+        if (property.getDescription() != null) { text.append(property.getDescription()).append(' '); }
+        if (property.getAddress() != null) { text.append(property.getAddress()).append(' '); }
+        if (property.getCity() != null) { text.append(property.getCity()).append(' '); }
+        for (String amenity : amenityDictionary.namesOf(property.getAmenityIds())) { text.append(amenity).append(' '); }
+        Map<String, Integer> terms = new HashMap<>();
+        for (String term : TextAnalyzer.analyze(text.toString())) { terms.merge(term, 1, Integer::sum); }
+        return terms;
+    }
+
+    // --- Flushing and merging ---
+
+    private void startFlusher() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fulltext-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalSeconds, flushIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /** Writes pending changes to disk (if any) and merges segments when there are too many. */
+    void flush() {
+        lock.writeLock().lock();
+        try {
+            if (ready && dirty) { flushLocked(LocalDateTime.now()); }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to flush full-text index, will retry: {}", e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Every change committed before 'watermark' is either in a segment now or reconciled on restart
+    private void flushLocked(LocalDateTime watermark) throws IOException {
+        writeMemtableSegment();
+        if (segments.size() > MAX_SEGMENTS) { mergeSmallSegments(); }
+        writeTombstones();
+        writeManifest(watermark);
+        dirty = false;
+    }
+
+    private void writeMemtableSegment() throws IOException {
+        if (memtable.isEmpty()) { return; }
+        int generation = nextGeneration++;
+        TextSegment segment = TextSegment.fromDocuments(generation, memtable);
+        segment.writeTo(segmentFile(generation), FORMAT_VERSION);
+        segments.add(segment);
+        for (Long id : memtable.keySet()) { liveGeneration.put(id, generation); }
+        memtable.clear();
+    }
+
+    // Size-tiered: merge the segments much smaller than the largest one, so the big base segment is rarely rewritten
+    private void mergeSmallSegments() throws IOException {
+        int largest = 0;
+        for (TextSegment segment : segments) { largest = Math.max(largest, segment.docCount()); }
+        List<TextSegment> parts = new ArrayList<>();
+        for (TextSegment segment : segments) {
+            if (segment.docCount() < largest / 4) { parts.add(segment); }
+        }
+        if (parts.size() < 2) { parts = new ArrayList<>(segments); }
+
+        int generation = nextGeneration++;
+        TextSegment merged = TextSegment.merge(generation, parts, this::isLive);
+        merged.writeTo(segmentFile(generation), FORMAT_VERSION);
+        segments.removeAll(parts);
+        segments.add(merged);
+        for (int i = 0; i < merged.docCount(); i++) { liveGeneration.put(merged.docId(i), generation); }
+        for (TextSegment part : parts) { Files.deleteIfExists(segmentFile(part.generation)); }
+        logger.debug("Merged {} full-text segments into generation {} ({} documents)", parts.size(), generation, merged.docCount());
+    }
+
+    // Rewrites the log with only the tombstones that still hide a copy in some segment
+    private void writeTombstones() throws IOException {
+        tombstones.entrySet().removeIf(tombstone -> !hasCopyBelow(tombstone.getKey(), tombstone.getValue()));
+        ByteBuffer records = ByteBuffer.allocate(tombstones.size() * TOMBSTONE_BYTES);
+        tombstones.forEach((id, generation) -> records.putLong(id).putInt(generation));
+        Path tmp = directory.resolve(TOMBSTONES + ".tmp");
+        Files.write(tmp, records.array());
+        Files.move(tmp, directory.resolve(TOMBSTONES), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private boolean hasCopyBelow(long id, int generation) {
+        for (TextSegment segment : segments) {
+            if (segment.generation < generation && segment.containsDoc(id)) { return true; }
+        }
+        return false;
+    }
+
+    private void writeManifest(LocalDateTime watermark) throws IOException {
+        Properties manifest = new Properties();
+        manifest.setProperty("formatVersion", String.valueOf(FORMAT_VERSION));
+        manifest.setProperty("watermark", watermark.toString());
+        Path tmp = directory.resolve(MANIFEST + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) { manifest.store(out, "Full-text index manifest"); }
+        Files.move(tmp, directory.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path segmentFile(int generation) {
+        return directory.resolve("segment-" + generation + ".bin");
+    }
+
+    private List<Integer> listSegmentGenerations() throws IOException {
+        List<Integer> generations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Matcher matcher = SEGMENT_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches()) { generations.add(Integer.parseInt(matcher.group(1))); }
+            }
+        }
+        generations.sort(null);
+        return generations;
+    }
+
+    private void deleteSegmentFiles() throws IOException {
+        for (int generation : listSegmentGenerations()) { Files.deleteIfExists(segmentFile(generation)); }
+        Files.deleteIfExists(directory.resolve(TOMBSTONES));
+        Files.deleteIfExists(directory.resolve(MANIFEST));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flusher != null) { flusher.shutdown(); }
+        flush();
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.demo.service.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Geographic part of a property search: an optional origin point (lat, lng), an optional radius
+ * around it and an optional bounding box. The origin alone does not filter; it is what results are
+ * sorted by with {@code sort=distance}. Radius and box may be combined (both must hold).
+ * <p>
+ * Bounding boxes follow the GeoJSON order {@code minLng,minLat,maxLng,maxLat}; a box whose minLng is
+ * greater than its maxLng crosses the antimeridian.
+ */
+public final class GeoFilter {
+
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE_LAT = Math.PI * EARTH_RADIUS_KM / 180;
+    private static final double MAX_RADIUS_KM = 20_000;
+
+    private final Double latitude;
+    private final Double longitude;
+    private final Double radiusKm;
+    private final double[] box; // minLng, minLat, maxLng, maxLat; null if absent
+
+    private GeoFilter(Double latitude, Double longitude, Double radiusKm, double[] box) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.radiusKm = radiusKm;
+        this.box = box;
+    }
+
+    /**
+     * Builds the filter from request parameters; returns null if none was given.
+     * @throws IllegalArgumentException for out-of-range or incomplete values.
+     */
+    public static GeoFilter of(Double latitude, Double longitude, Double radiusKm, String bbox) {
+        if (latitude == null && longitude == null && radiusKm == null && (bbox == null || bbox.isBlank())) { return null; }
+        if ((latitude == null) != (longitude == null)) { throw new IllegalArgumentException("lat and lng must be given together"); }
+        if (latitude != null) { checkCoordinates(latitude, longitude); }
+        if (radiusKm != null) {
+            if (latitude == null) { throw new IllegalArgumentException("radiusKm requires lat and lng"); }
+            if (!(radiusKm > 0 && radiusKm <= MAX_RADIUS_KM)) { throw new IllegalArgumentException("radiusKm must be in (0, " + (int) MAX_RADIUS_KM + "]"); }
+        }
+        return new GeoFilter(latitude, longitude, radiusKm, bbox == null || bbox.isBlank() ? null : parseBox(bbox));
+    }
+
+    private static double[] parseBox(String bbox) {
+        String[] parts = bbox.split(",");
+        if (parts.length != 4) { throw new IllegalArgumentException("bbox must be minLng,minLat,maxLng,maxLat"); }
+        double[] box = new double[4];
+        try {
+            for (int i = 0; i < 4; i++) { box[i] = Double.parseDouble(parts[i].trim()); }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bbox must be minLng,minLat,maxLng,maxLat", e);
+        }
+        checkCoordinates(box[1], box[0]);
+        checkCoordinates(box[3], box[2]);
+        if (box[1] > box[3]) { throw new IllegalArgumentException("bbox minLat must not exceed maxLat"); }
+        return box;
+    }
+
+    private static void checkCoordinates(double latitude, double longitude) {
+        if (!(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) {
+            throw new IllegalArgumentException("Coordinates out of range: " + latitude + "," + longitude);
+        }
+    }
+
+    public boolean hasOrigin() { return latitude != null; }
+    public Double getLatitude() { return latitude; }
+    public Double getLongitude() { return longitude; }
+    public Double getRadiusKm() { return radiusKm; }
+
+    /** True if the filter restricts results (radius or box), as opposed to only providing an origin for sorting. */
+    public boolean isRestricting() {
+        return radiusKm != null || box != null;
+    }
+
+    /** Exact test. Properties without coordinates (NaN) never match a restricting filter. */
+    public boolean matches(double lat, double lng) {
+        if (!isRestricting()) { return true; }
+        if (Double.isNaN(lat) || Double.isNaN(lng)) { return false; }
+        if (box != null && !(lat >= box[1] && lat <= box[3] && inLongitudeRange(lng, box[0], box[2]))) { return false; }
+        return radiusKm == null || distanceKm(lat, lng) <= radiusKm;
+    }
+
+    /** Great-circle (haversine) distance from the origin. */
+    public double distanceKm(double lat, double lng) {
+        double dLat = Math.toRadians(lat - latitude);
+        double dLng = Math.toRadians(lng - longitude);
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(latitude)) * Math.cos(Math.toRadians(lat)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+    /**
+     * Axis-aligned boxes ({minLat, minLng, maxLat, maxLng}, never crossing the antimeridian) that contain
+     * every matching point. Used for index pruning and SQL range predicates; the exact test still applies.
+     */
+    public List<double[]> coveringBoxes() {
+        double minLat = -90;
+        double maxLat = 90;
+        double minLng = -180;
+        double maxLng = 180;
+        boolean wraps = false;
+        if (box != null) {
+            minLat = box[1];
+            maxLat = box[3];
+            minLng = box[0];
+            maxLng = box[2];
+            wraps = minLng > maxLng;
+        }
+        if (radiusKm != null) {
+            double dLat = radiusKm / KM_PER_DEGREE_LAT;
+            minLat = Math.max(minLat, latitude - dLat);
+            maxLat = Math.min(maxLat, latitude + dLat);
+            double cosLat = Math.cos(Math.toRadians(Math.max(Math.abs(latitude - dLat), Math.abs(latitude + dLat))));
+            double dLng = cosLat <= 1e-9 ? 360 : radiusKm / (KM_PER_DEGREE_LAT * cosLat);
+            if (dLng < 180 && latitude + dLat < 90 && latitude - dLat > -90 && box == null) { // Circle does not reach a pole
+                minLng = longitude - dLng;
+                maxLng = longitude + dLng;
+                if (minLng < -180) { minLng += 360; wraps = true; }
+                if (maxLng > 180) { maxLng -= 360; wraps = true; }
+            }
+        }
+        List<double[]> boxes = new ArrayList<>(2);
+        if (minLat > maxLat) { return boxes; } // Circle and box do not overlap
+        if (wraps) {
+            boxes.add(new double[] { minLat, minLng, maxLat, 180 });
+            boxes.add(new double[] { minLat, -180, maxLat, maxLng });
+        } else {
+            boxes.add(new double[] { minLat, minLng, maxLat, maxLng });
+        }
+        return boxes;
+    }
+
+    private static boolean inLongitudeRange(double lng, double min, double max) {
+        return min <= max ? (lng >= min && lng <= max) : (lng >= min || lng <= max);
+    }
+
+    @Override
+    public String toString() {
+        return "Origin: " + latitude + "," + longitude + ", RadiusKm: " + radiusKm
+                + (box != null ? ", Box: " + box[0] + "," + box[1] + "," + box[2] + "," + box[3] : "");
+    }
+}
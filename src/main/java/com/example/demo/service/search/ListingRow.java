@@ -0,0 +1,82 @@
+package com.example.demo.service.search;
+
+import com.example.demo.model.Property;
+import com.example.demo.model.enums.PropertyStatus;
+import com.example.demo.model.enums.PropertyType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * The searchable columns of a single property, as loaded into the {@link PropertySearchIndex}.
+ * Instantiated directly by a JPQL constructor expression so the index can be warmed
+ * without hydrating full Property entities; amenities are loaded by a second query and set afterwards.
+ */
+public class ListingRow {
+
+    static final long[] NO_AMENITIES = new long[0];
+
+    private final long id;
+    private final BigDecimal price;
+    private final int bedrooms;
+    private final int bathrooms;
+    private final PropertyType type;
+    private final PropertyStatus status;
+    private final String city;
+    private final double latitude;  // NaN when unknown
+    private final double longitude; // NaN when unknown
+    private final LocalDateTime createdAt;
+    private long[] amenityMask = NO_AMENITIES; // bit i set when the property has amenity id i
+
+    public ListingRow(Long id, BigDecimal price, Integer bedrooms, Integer bathrooms,
+                      PropertyType type, PropertyStatus status, String city, Double latitude, Double longitude,
+                      LocalDateTime createdAt) {
+        this.id = id;
+        this.price = price;
+        this.bedrooms = bedrooms != null ? bedrooms : 0;
+        this.bathrooms = bathrooms != null ? bathrooms : 0;
+        this.type = type;
+        this.status = status;
+        this.city = city != null ? city : "";
+        boolean located = latitude != null && longitude != null;
+        this.latitude = located ? latitude : Double.NaN;
+        this.longitude = located ? longitude : Double.NaN;
+        this.createdAt = createdAt;
+    }
+
+    public static ListingRow from(Property property) {
+        return new ListingRow(property.getId(), property.getPrice(), property.getBedrooms(), property.getBathrooms(),
+                property.getType(), property.getStatus(), property.getCity(), property.getLatitude(), property.getLongitude(),
+                property.getCreatedAt())
+                .withAmenityIds(property.getAmenityIds());
+    }
+
+    /** Sets the amenities of this row (ids from the amenity dictionary) and returns it. */
+    ListingRow withAmenityIds(Collection<Integer> amenityIds) {
+        this.amenityMask = maskOf(amenityIds);
+        return this;
+    }
+
+    /** Bitmask with bit i set for amenity id i; just long enough for the highest id. */
+    static long[] maskOf(Collection<Integer> amenityIds) {
+        if (amenityIds == null || amenityIds.isEmpty()) { return NO_AMENITIES; }
+        int maxId = 0;
+        for (int id : amenityIds) { maxId = Math.max(maxId, id); }
+        long[] mask = new long[(maxId >>> 6) + 1];
+        for (int id : amenityIds) { mask[id >>> 6] |= 1L << id; }
+        return mask;
+    }
+
+    public long getId() { return id; }
+    public BigDecimal getPrice() { return price; }
+    public int getBedrooms() { return bedrooms; }
+    public int getBathrooms() { return bathrooms; }
+    public PropertyType getType() { return type; }
+    public PropertyStatus getStatus() { return status; }
+    public String getCity() { return city; }
+    public double getLatitude() { return latitude; }
+    public double getLongitude() { return longitude; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    long[] getAmenityMask() { return amenityMask; }
+}
@@ -0,0 +1,995 @@
+package com.example.demo.service.search;
+
+import com.example.demo.model.enums.PropertyStatus;
+import com.example.demo.model.enums.PropertyType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Immutable, column-oriented copy of the searchable property data.
+ * <p>
+ * Rows are kept sorted by property id so a single row can be located with a binary search.
+ * Type and status are stored as enum ordinals with one bitset per value; city is dictionary-encoded
+ * with one posting list (sorted row numbers) per distinct city, which stays compact even with
+ * thousands of cities. Coordinates are bucketed into a fixed grid of {@value #GRID_DEGREES}-degree
+ * cells (sorted cell keys with row lists) so geo filters only test rows in the cells they cover.
+ * Each row also keeps a bitmask of its amenity dictionary ids (rows with the same amenities share it),
+ * and each amenity id has a row bitset, so "has all of these amenities" is a bitwise AND.
+ * Writers never modify a published snapshot: {@link #withUpsert} and
+ * {@link #without} return a new instance, sharing the arrays the edit leaves alone, so readers need no locking.
+ */
+final class ListingSnapshot {
+
+    private static final PropertyType[] TYPES = PropertyType.values();
+    private static final PropertyStatus[] STATUSES = PropertyStatus.values();
+
+    // Facet dimensions, used to remember which single filter a row failed
+    private static final int FACET_TYPE = 0;
+    private static final int FACET_CITY = 1;
+    private static final int FACET_PRICE = 2;
+    private static final int FACET_BEDROOMS = 3;
+    private static final int FACET_BATHROOMS = 4;
+
+    // Column values saturate at +/-Long.MAX_VALUE, never Long.MIN_VALUE, so a descending sort can negate them
+    private static final BigDecimal MIN_CENTS = BigDecimal.valueOf(-Long.MAX_VALUE);
+    private static final BigDecimal MAX_CENTS = BigDecimal.valueOf(Long.MAX_VALUE);
+    private static final long MAX_MICROS_SECONDS = Long.MAX_VALUE / 1_000_000L - 1;
+
+    static final double GRID_DEGREES = 0.1; // ~11 km of latitude per cell
+    private static final int GRID_LAT_CELLS = (int) Math.round(180 / GRID_DEGREES);
+    private static final int GRID_LNG_CELLS = (int) Math.round(360 / GRID_DEGREES);
+
+    final int size;
+    final long[] ids;
+    final long[] priceCents;
+    final byte[] bedrooms;   // saturated at Byte.MAX_VALUE
+    final byte[] bathrooms;  // saturated at Byte.MAX_VALUE
+    final int[] typeCodes;   // PropertyType ordinal, -1 if missing
+    final int[] statusCodes; // PropertyStatus ordinal, -1 if missing
+    final int[] cityCodes;   // index into cityDictionary
+    final double[] latitudes;  // NaN if unknown
+    final double[] longitudes; // NaN if unknown
+    final long[][] amenityMasks; // bit i set for amenity id i; shared with the ListingRow, never modified
+    final long[] createdMicros;  // createdAt in microseconds since the epoch (UTC wall clock), 0 if missing
+
+    final String[] cityDictionary;
+    final TrigramIndex cityTrigrams; // substring lookup over cityDictionary
+    private final Map<String, Integer> cityCodeByValue;
+    // One array per distinct amenity mask, carried from snapshot to snapshot. Only the writer (PropertySearchIndex
+    // serializes writes) adds to it; masks of deleted rows stay until the next full build.
+    private final Map<AmenityMaskKey, long[]> sharedMasks;
+
+    final long[][] typeBits;
+    final long[][] statusBits;
+    final int[][] cityRows;
+    final long[][] amenityBits; // indexed by amenity id; null (or all zero after edits) for ids no row has
+
+    private final int[] gridCells;   // sorted distinct cell keys that contain located rows
+    private final int[] gridOffsets; // rows of gridCells[i] are gridRows[gridOffsets[i] .. gridOffsets[i + 1])
+    private final int[] gridRows;
+
+    private ListingSnapshot(int size, long[] ids, long[] priceCents, byte[] bedrooms, byte[] bathrooms,
+                            int[] typeCodes, int[] statusCodes, int[] cityCodes, double[] latitudes, double[] longitudes,
+                            long[][] amenityMasks, long[] createdMicros, String[] cityDictionary, Map<String, Integer> cityCodeByValue,
+                            TrigramIndex cityTrigrams, Map<AmenityMaskKey, long[]> sharedMasks, long[][] typeBits, long[][] statusBits,
+                            int[][] cityRows, long[][] amenityBits, int[] gridCells, int[] gridOffsets, int[] gridRows) {
+        this.size = size;
+        this.ids = ids;
+        this.priceCents = priceCents;
+        this.bedrooms = bedrooms;
+        this.bathrooms = bathrooms;
+        this.typeCodes = typeCodes;
+        this.statusCodes = statusCodes;
+        this.cityCodes = cityCodes;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.amenityMasks = amenityMasks;
+        this.createdMicros = createdMicros;
+        this.cityDictionary = cityDictionary;
+        this.cityCodeByValue = cityCodeByValue;
+        this.cityTrigrams = cityTrigrams;
+        this.sharedMasks = sharedMasks;
+        this.typeBits = typeBits;
+        this.statusBits = statusBits;
+        this.cityRows = cityRows;
+        this.amenityBits = amenityBits;
+        this.gridCells = gridCells;
+        this.gridOffsets = gridOffsets;
+        this.gridRows = gridRows;
+    }
+
+    /** Derives the bitsets, posting lists and grid from the columns in full. Used for the initial build only. */
+    private static ListingSnapshot derive(int size, long[] ids, long[] priceCents, byte[] bedrooms, byte[] bathrooms,
+                                          int[] typeCodes, int[] statusCodes, int[] cityCodes, double[] latitudes, double[] longitudes,
+                                          long[][] amenityMasks, long[] createdMicros, String[] cityDictionary,
+                                          Map<String, Integer> cityCodeByValue, Map<AmenityMaskKey, long[]> sharedMasks) {
+        int words = wordCount(size);
+        long[][] typeBits = new long[TYPES.length][words];
+        long[][] statusBits = new long[STATUSES.length][words];
+        int[] cityCounts = new int[cityDictionary.length];
+        for (int row = 0; row < size; row++) {
+            if (typeCodes[row] >= 0) { setBit(typeBits[typeCodes[row]], row); }
+            if (statusCodes[row] >= 0) { setBit(statusBits[statusCodes[row]], row); }
+            cityCounts[cityCodes[row]]++;
+        }
+        long[][] amenityBits = buildAmenityBits(size, amenityMasks, words);
+        int[][] cityRows = new int[cityDictionary.length][];
+        for (int code = 0; code < cityRows.length; code++) {
+            cityRows[code] = new int[cityCounts[code]];
+        }
+        int[] fill = new int[cityDictionary.length];
+        for (int row = 0; row < size; row++) {
+            int code = cityCodes[row];
+            cityRows[code][fill[code]++] = row;
+        }
+
+        // (cell << 32 | row) sorts rows by cell, then the distinct cells become the CSR keys
+        long[] keyed = new long[size];
+        int located = 0;
+        for (int row = 0; row < size; row++) {
+            if (!Double.isNaN(latitudes[row])) { keyed[located++] = ((long) cellOf(latitudes[row], longitudes[row]) << 32) | row; }
+        }
+        Arrays.sort(keyed, 0, located);
+        int[] cells = new int[located];
+        int[] offsets = new int[located + 1];
+        int[] gridRows = new int[located];
+        int distinct = 0;
+        for (int i = 0; i < located; i++) {
+            int cell = (int) (keyed[i] >>> 32);
+            if (distinct == 0 || cells[distinct - 1] != cell) {
+                cells[distinct] = cell;
+                offsets[distinct++] = i;
+            }
+            gridRows[i] = (int) keyed[i];
+        }
+        offsets[distinct] = located;
+        return new ListingSnapshot(size, ids, priceCents, bedrooms, bathrooms, typeCodes, statusCodes, cityCodes, latitudes,
+                longitudes, amenityMasks, createdMicros, cityDictionary, cityCodeByValue, TrigramIndex.build(cityDictionary),
+                sharedMasks, typeBits, statusBits, cityRows, amenityBits,
+                Arrays.copyOf(cells, distinct), Arrays.copyOf(offsets, distinct + 1), gridRows);
+    }
+
+    private static long[][] buildAmenityBits(int size, long[][] amenityMasks, int words) {
+        int maxWords = 0;
+        for (int row = 0; row < size; row++) { maxWords = Math.max(maxWords, amenityMasks[row].length); }
+        long[][] bits = new long[maxWords << 6][];
+        for (int row = 0; row < size; row++) {
+            long[] mask = amenityMasks[row];
+            for (int w = 0; w < mask.length; w++) {
+                long word = mask[w];
+                while (word != 0) {
+                    int id = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    if (bits[id] == null) { bits[id] = new long[words]; }
+                    setBit(bits[id], row);
+                }
+            }
+        }
+        return bits;
+    }
+
+    // --- Construction ---
+
+    static ListingSnapshot build(List<ListingRow> rows) {
+        List<ListingRow> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparingLong(ListingRow::getId));
+        int n = sorted.size();
+        long[] ids = new long[n];
+        long[] priceCents = new long[n];
+        byte[] bedrooms = new byte[n];
+        byte[] bathrooms = new byte[n];
+        int[] typeCodes = new int[n];
+        int[] statusCodes = new int[n];
+        int[] cityCodes = new int[n];
+        double[] latitudes = new double[n];
+        double[] longitudes = new double[n];
+        long[][] amenityMasks = new long[n][];
+        long[] createdMicros = new long[n];
+        Map<AmenityMaskKey, long[]> sharedMasks = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        Map<String, Integer> codeByValue = new HashMap<>();
+
+        int size = 0;
+        for (ListingRow row : sorted) {
+            if (size > 0 && ids[size - 1] == row.getId()) { size--; } // keep the last duplicate
+            write(row, size, ids, priceCents, bedrooms, bathrooms, typeCodes, statusCodes, cityCodes, latitudes, longitudes,
+                    amenityMasks, createdMicros, cityCode(row.getCity(), dictionary, codeByValue));
+            // Most listings repeat a few amenity combinations: keep one array per distinct mask
+            amenityMasks[size] = sharedMasks.computeIfAbsent(new AmenityMaskKey(amenityMasks[size]), key -> key.mask);
+            size++;
+        }
+        return derive(size, ids, priceCents, bedrooms, bathrooms, typeCodes, statusCodes, cityCodes,
+                latitudes, longitudes, amenityMasks, createdMicros, dictionary.toArray(new String[0]), codeByValue, sharedMasks);
+    }
+
+    /**
+     * Returns a copy of this snapshot with the row inserted, or replaced if its id is already present.
+     * The columns are copied; bitsets, posting lists and grid arrays are patched (see {@link #patch}).
+     */
+    ListingSnapshot withUpsert(ListingRow row) {
+        int pos = Arrays.binarySearch(ids, 0, size, row.getId());
+        int newSize = pos >= 0 ? size : size + 1;
+        int at = pos >= 0 ? pos : -pos - 1;
+
+        long[] newIds = new long[newSize];
+        long[] newPrice = new long[newSize];
+        byte[] newBeds = new byte[newSize];
+        byte[] newBaths = new byte[newSize];
+        int[] newTypes = new int[newSize];
+        int[] newStatuses = new int[newSize];
+        int[] newCities = new int[newSize];
+        double[] newLats = new double[newSize];
+        double[] newLngs = new double[newSize];
+        long[][] newMasks = new long[newSize][];
+        long[] newCreated = new long[newSize];
+        int tail = pos >= 0 ? at + 1 : at; // first old row copied after the written slot
+        copyRange(0, 0, at, newIds, newPrice, newBeds, newBaths, newTypes, newStatuses, newCities, newLats, newLngs, newMasks, newCreated);
+        copyRange(tail, at + 1, size - tail, newIds, newPrice, newBeds, newBaths, newTypes, newStatuses, newCities, newLats, newLngs, newMasks, newCreated);
+
+        String[] dictionary = cityDictionary;
+        Map<String, Integer> codeByValue = cityCodeByValue;
+        TrigramIndex trigrams = cityTrigrams;
+        Integer code = cityCodeByValue.get(row.getCity());
+        if (code == null) { // The dictionary only grows, so the trigram index is rebuilt only when a new city appears
+            code = cityDictionary.length;
+            dictionary = Arrays.copyOf(cityDictionary, code + 1);
+            dictionary[code] = row.getCity();
+            codeByValue = new HashMap<>(cityCodeByValue);
+            codeByValue.put(row.getCity(), code);
+            trigrams = TrigramIndex.build(dictionary);
+        }
+        write(row, at, newIds, newPrice, newBeds, newBaths, newTypes, newStatuses, newCities, newLats, newLngs, newMasks, newCreated, code);
+        newMasks[at] = sharedMasks.computeIfAbsent(new AmenityMaskKey(newMasks[at]), key -> key.mask);
+        return patch(new RowEdit(at, pos >= 0 ? 0 : 1, newSize), newIds, newPrice, newBeds, newBaths, newTypes, newStatuses,
+                newCities, newLats, newLngs, newMasks, newCreated, dictionary, codeByValue, trigrams);
+    }
+
+    /** Returns a copy of this snapshot without the given id (or this snapshot if the id is absent). */
+    ListingSnapshot without(long id) {
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos < 0) { return this; }
+        int newSize = size - 1;
+        long[] newIds = new long[newSize];
+        long[] newPrice = new long[newSize];
+        byte[] newBeds = new byte[newSize];
+        byte[] newBaths = new byte[newSize];
+        int[] newTypes = new int[newSize];
+        int[] newStatuses = new int[newSize];
+        int[] newCities = new int[newSize];
+        double[] newLats = new double[newSize];
+        double[] newLngs = new double[newSize];
+        long[][] newMasks = new long[newSize][];
+        long[] newCreated = new long[newSize];
+        copyRange(0, 0, pos, newIds, newPrice, newBeds, newBaths, newTypes, newStatuses, newCities, newLats, newLngs, newMasks, newCreated);
+        copyRange(pos + 1, pos, size - pos - 1, newIds, newPrice, newBeds, newBaths, newTypes, newStatuses, newCities, newLats, newLngs, newMasks, newCreated);
+        return patch(new RowEdit(pos, -1, newSize), newIds, newPrice, newBeds, newBaths, newTypes, newStatuses,
+                newCities, newLats, newLngs, newMasks, newCreated, cityDictionary, cityCodeByValue, cityTrigrams);
+    }
+
+    /**
+     * Builds the snapshot over the edited columns from this snapshot's bitsets, posting lists and grid, changing
+     * only what the edit touches: no full pass and no sort. A structure is shared as is when neither the edited
+     * row nor any row it renumbers is in it (always the case for the other values of a replaced row, and for
+     * most of them when a new listing is appended at the highest id); the others are copied with the row
+     * numbers after the edit shifted by one.
+     */
+    private ListingSnapshot patch(RowEdit edit, long[] newIds, long[] newPrice, byte[] newBeds, byte[] newBaths, int[] newTypes,
+                                  int[] newStatuses, int[] newCities, double[] newLats, double[] newLngs, long[][] newMasks,
+                                  long[] newCreated, String[] dictionary, Map<String, Integer> codeByValue, TrigramIndex trigrams) {
+        int at = edit.at;
+        boolean removes = edit.shift <= 0; // the old row at `at` goes away (replaced or deleted)
+        boolean adds = edit.shift >= 0;    // a new row is written at `at`
+
+        long[][] newTypeBits = new long[TYPES.length][];
+        for (int type = 0; type < TYPES.length; type++) {
+            newTypeBits[type] = edit.bits(typeBits[type], adds && newTypes[at] == type);
+        }
+        long[][] newStatusBits = new long[STATUSES.length][];
+        for (int status = 0; status < STATUSES.length; status++) {
+            newStatusBits[status] = edit.bits(statusBits[status], adds && newStatuses[at] == status);
+        }
+        long[] mask = adds ? newMasks[at] : new long[0];
+        long[][] newAmenityBits = Arrays.copyOf(amenityBits, Math.max(amenityBits.length, mask.length << 6));
+        for (int id = 0; id < newAmenityBits.length; id++) {
+            boolean has = (id >>> 6) < mask.length && (mask[id >>> 6] & (1L << id)) != 0;
+            if (newAmenityBits[id] != null) {
+                newAmenityBits[id] = edit.bits(newAmenityBits[id], has);
+            } else if (has) {
+                newAmenityBits[id] = new long[edit.words];
+                setBit(newAmenityBits[id], at);
+            }
+        }
+
+        int oldCity = removes ? cityCodes[at] : -1;
+        int newCity = adds ? newCities[at] : -1;
+        boolean cityChanged = oldCity != newCity;
+        int[][] newCityRows = Arrays.copyOf(cityRows, dictionary.length);
+        for (int code = 0; code < newCityRows.length; code++) {
+            int[] rows = code < cityRows.length ? cityRows[code] : new int[0];
+            newCityRows[code] = edit.rows(rows, cityChanged && code == oldCity, cityChanged && code == newCity);
+        }
+
+        int oldCell = removes && !Double.isNaN(latitudes[at]) ? cellOf(latitudes[at], longitudes[at]) : -1;
+        int newCell = adds && !Double.isNaN(newLats[at]) ? cellOf(newLats[at], newLngs[at]) : -1;
+        int[] newGridCells = gridCells;
+        int[] newGridOffsets = gridOffsets;
+        int[] newGridRows;
+        if (oldCell == newCell) { // Same cells with the same rows, only renumbered
+            newGridRows = edit.renumbered(gridRows);
+        } else {
+            int located = gridRows.length - (oldCell >= 0 ? 1 : 0) + (newCell >= 0 ? 1 : 0);
+            int[] cells = new int[gridCells.length + 1];
+            int[] offsets = new int[gridCells.length + 2];
+            newGridRows = new int[located];
+            int distinct = 0;
+            int filled = 0;
+            boolean placed = newCell < 0;
+            for (int c = 0; c <= gridCells.length; c++) {
+                if (!placed && (c == gridCells.length || newCell < gridCells[c])) { // A cell no row was in before
+                    cells[distinct] = newCell;
+                    offsets[distinct++] = filled;
+                    newGridRows[filled++] = at;
+                    placed = true;
+                }
+                if (c == gridCells.length) { break; }
+                int cell = gridCells[c];
+                int start = filled;
+                filled = edit.copyRows(gridRows, gridOffsets[c], gridOffsets[c + 1], cell == oldCell, cell == newCell, newGridRows, filled);
+                if (cell == newCell) { placed = true; }
+                if (filled > start) { // The removed row may have been the last one in its cell
+                    cells[distinct] = cell;
+                    offsets[distinct++] = start;
+                }
+            }
+            offsets[distinct] = filled;
+            newGridCells = Arrays.copyOf(cells, distinct);
+            newGridOffsets = Arrays.copyOf(offsets, distinct + 1);
+        }
+
+        return new ListingSnapshot(edit.size, newIds, newPrice, newBeds, newBaths, newTypes, newStatuses, newCities, newLats,
+                newLngs, newMasks, newCreated, dictionary, codeByValue, trigrams, sharedMasks, newTypeBits, newStatusBits,
+                newCityRows, newAmenityBits, newGridCells, newGridOffsets, newGridRows);
+    }
+
+    // --- Querying ---
+
+    /**
+     * Evaluates the criteria against the AVAILABLE rows and returns the matching property ids
+     * in ascending id order.
+     */
+    long[] search(PropertySearchCriteria criteria, ParallelScan scan) {
+        long[] candidates = candidateBits(criteria);
+        RangeFilter ranges = new RangeFilter(criteria);
+        return scan.scan(candidates.length, (from, to) -> {
+            long[] matches = new long[64];
+            int count = 0;
+            for (int w = from; w < to; w++) {
+                long word = candidates[w];
+                while (word != 0) {
+                    int row = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    if (ranges.test(row)) {
+                        if (count == matches.length) { matches = Arrays.copyOf(matches, count * 2); }
+                        matches[count++] = ids[row];
+                    }
+                }
+            }
+            return Arrays.copyOf(matches, count);
+        }, ListingSnapshot::concat);
+    }
+
+    /**
+     * Keeps, in their given order, the ids whose rows are AVAILABLE and pass the criteria.
+     * Ids unknown to the snapshot are dropped. Used to filter candidates produced by another index
+     * (e.g. full-text matches) without loading them.
+     */
+    long[] retainMatching(long[] candidateIds, PropertySearchCriteria criteria) {
+        int available = PropertyStatus.AVAILABLE.ordinal();
+        int type = criteria.getType() != null ? criteria.getType().ordinal() : -1;
+        boolean[] cityAllowed = null;
+        if (criteria.getCity() != null) {
+            cityAllowed = new boolean[cityDictionary.length];
+            for (int code : cityTrigrams.lookup(criteria.getCity())) { cityAllowed[code] = true; }
+        }
+        long[] requiredAmenities = requiredAmenityMask(criteria);
+        if (requiredAmenities == null) { return new long[0]; }
+        RangeFilter ranges = new RangeFilter(criteria);
+        long[] kept = new long[candidateIds.length];
+        int count = 0;
+        for (long id : candidateIds) {
+            int row = Arrays.binarySearch(ids, 0, size, id);
+            if (row < 0 || statusCodes[row] != available) { continue; }
+            if (type >= 0 && typeCodes[row] != type) { continue; }
+            if (cityAllowed != null && !cityAllowed[cityCodes[row]]) { continue; }
+            if (!containsAll(amenityMasks[row], requiredAmenities)) { continue; }
+            if (ranges.test(row)) { kept[count++] = id; }
+        }
+        return Arrays.copyOf(kept, count);
+    }
+
+    /** Bitset of AVAILABLE rows that pass the dictionary-encoded (type, city and amenity) filters. */
+    private long[] candidateBits(PropertySearchCriteria criteria) {
+        long[] bits = statusBits[PropertyStatus.AVAILABLE.ordinal()].clone();
+        andAmenities(bits, criteria);
+        if (criteria.getType() != null) {
+            and(bits, typeBits[criteria.getType().ordinal()]);
+        }
+        if (criteria.getCity() != null) {
+            long[] cityMask = new long[bits.length];
+            for (int code : cityTrigrams.lookup(criteria.getCity())) {
+                for (int row : cityRows[code]) { setBit(cityMask, row); }
+            }
+            and(bits, cityMask);
+        }
+        GeoFilter geo = criteria.getGeo();
+        if (geo != null && geo.isRestricting()) {
+            and(bits, geoCandidateBits(geo));
+        }
+        return bits;
+    }
+
+    /** Clears the rows lacking any of the required amenities: one AND per amenity. */
+    private void andAmenities(long[] bits, PropertySearchCriteria criteria) {
+        for (int id : criteria.getAmenityIds()) {
+            long[] rows = id >= 0 && id < amenityBits.length ? amenityBits[id] : null;
+            if (rows == null) { // No row has it (or the name is unknown)
+                Arrays.fill(bits, 0L);
+                return;
+            }
+            and(bits, rows);
+        }
+    }
+
+    /** Mask of the required amenity ids, or null if one of the names is unknown (nothing can match). */
+    private static long[] requiredAmenityMask(PropertySearchCriteria criteria) {
+        List<Integer> ids = new ArrayList<>();
+        for (int id : criteria.getAmenityIds()) {
+            if (id < 0) { return null; }
+            ids.add(id);
+        }
+        return ListingRow.maskOf(ids);
+    }
+
+    /** Rows in the grid cells overlapping the filter's covering boxes (a superset of the matches). */
+    private long[] geoCandidateBits(GeoFilter geo) {
+        long[] bits = new long[wordCount(size)];
+        for (double[] box : geo.coveringBoxes()) {
+            int minY = latCell(box[0]);
+            int maxY = latCell(box[2]);
+            int minX = lngCell(box[1]);
+            int maxX = lngCell(box[3]);
+            for (int y = minY; y <= maxY; y++) {
+                // Cells of one grid row are contiguous keys: one binary search, then walk
+                int first = y * GRID_LNG_CELLS + minX;
+                int last = y * GRID_LNG_CELLS + maxX;
+                int pos = Arrays.binarySearch(gridCells, first);
+                for (int c = pos >= 0 ? pos : -pos - 1; c < gridCells.length && gridCells[c] <= last; c++) {
+                    for (int i = gridOffsets[c]; i < gridOffsets[c + 1]; i++) { setBit(bits, gridRows[i]); }
+                }
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Ranks the AVAILABLE rows matching the criteria by distance from the geo origin (nearest first).
+     * The criteria must carry a geo filter with an origin.
+     */
+    RankedMatches rankByDistance(PropertySearchCriteria criteria, ParallelScan scan) {
+        GeoFilter geo = criteria.getGeo();
+        long[] candidates = candidateBits(criteria);
+        RangeFilter ranges = new RangeFilter(criteria);
+        int[] rows = scan.scan(candidates.length, (from, to) -> {
+            int[] located = new int[64];
+            int count = 0;
+            for (int w = from; w < to; w++) {
+                long word = candidates[w];
+                while (word != 0) {
+                    int row = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    if (!Double.isNaN(latitudes[row]) && ranges.test(row)) { // Unlocated rows cannot be ordered by distance
+                        if (count == located.length) { located = Arrays.copyOf(located, count * 2); }
+                        located[count++] = row;
+                    }
+                }
+            }
+            return Arrays.copyOf(located, count);
+        }, ListingSnapshot::concat);
+        int count = rows.length;
+        double[] distances = new double[count];
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            distances[i] = geo.distanceKm(latitudes[rows[i]], longitudes[rows[i]]);
+            order[i] = i;
+        }
+        final int[] matched = rows;
+        Arrays.sort(order, (a, b) -> {
+            int byDistance = Double.compare(distances[a], distances[b]);
+            return byDistance != 0 ? byDistance : Long.compare(ids[matched[a]], ids[matched[b]]);
+        });
+        long[] rankedIds = new long[count];
+        double[] rankedDistances = new double[count];
+        for (int i = 0; i < count; i++) {
+            rankedIds[i] = ids[matched[order[i]]];
+            rankedDistances[i] = distances[order[i]];
+        }
+        return new RankedMatches(rankedIds, rankedDistances, false);
+    }
+
+    /**
+     * Returns, in sort order, the ids of the first {@code k} AVAILABLE rows matching the criteria, starting
+     * after the cursor position (afterKey, afterId) when one is given. The sort must be a column sort
+     * (price, createdAt or bedrooms); ties are broken by id in the same direction, as in the SQL.
+     * Matches are offered to a bounded heap, so the cost is O(matches * log k) and nothing is sorted
+     * beyond the k winners. Bedrooms are saturated at {@value Byte#MAX_VALUE}, which only blurs the order
+     * of implausibly large values.
+     */
+    long[] topK(PropertySearchCriteria criteria, PropertySort sort, Object afterKey, long afterId, int k, ParallelScan scan) {
+        PropertySort.Field field = sort.getField();
+        if (sort.isRanked()) { throw new IllegalArgumentException("Sort " + field + " is not a listing column"); }
+        // Descending order is the ascending order of the negated (key, id) pairs
+        long sign = sort.isDescending() ? -1L : 1L;
+        boolean hasCursor = afterKey != null;
+        long cursorKey = hasCursor ? sign * sortKeyOf(field, afterKey) : 0L;
+        long cursorId = sign * afterId;
+        long[] candidates = candidateBits(criteria);
+        RangeFilter ranges = new RangeFilter(criteria);
+        TopKHeap heap = scan.scan(candidates.length, (from, to) -> { // One heap per partition, merged at the end
+            TopKHeap partial = new TopKHeap(k);
+            for (int w = from; w < to; w++) {
+                long word = candidates[w];
+                while (word != 0) {
+                    int row = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    long key = sign * sortKey(field, row);
+                    long id = sign * ids[row];
+                    if (hasCursor && !TopKHeap.less(cursorKey, cursorId, key, id)) { continue; } // At or before the cursor
+                    if (ranges.test(row)) { partial.offer(key, id); }
+                }
+            }
+            return partial;
+        }, TopKHeap::merge);
+        long[] winners = heap.drainAscending();
+        for (int i = 0; i < winners.length; i++) { winners[i] *= sign; }
+        return winners;
+    }
+
+    private long sortKey(PropertySort.Field field, int row) {
+        switch (field) {
+            case PRICE: return priceCents[row];
+            case CREATED_AT: return createdMicros[row];
+            case BEDROOMS: return bedrooms[row];
+            default: throw new IllegalArgumentException("Sort " + field + " is not a listing column");
+        }
+    }
+
+    // A cursor key (as decoded by PropertySort) in the units of the sort column
+    private static long sortKeyOf(PropertySort.Field field, Object key) {
+        switch (field) {
+            case PRICE: return toCents((BigDecimal) key, RoundingMode.HALF_UP);
+            case CREATED_AT: return toMicros((LocalDateTime) key);
+            case BEDROOMS: return saturate((Integer) key);
+            default: throw new IllegalArgumentException("Sort " + field + " is not a listing column");
+        }
+    }
+
+    /**
+     * Counts facets over the AVAILABLE rows in one pass (see {@link PropertyFacets} for the semantics).
+     * A row that passes every filter counts in every facet; a row that fails exactly one filter counts
+     * only in that filter's facet; any other row is skipped.
+     *
+     * @param textMatchIds Ids the rows are restricted to (full-text matches), or null for no restriction.
+     * @param priceBreaks Ascending bucket boundaries.
+     */
+    PropertyFacets facets(PropertySearchCriteria criteria, long[] textMatchIds, List<BigDecimal> priceBreaks, int cityLimit,
+                          ParallelScan scan) {
+        long[] candidates = statusBits[PropertyStatus.AVAILABLE.ordinal()].clone();
+        if (textMatchIds != null) {
+            long[] textMask = new long[candidates.length];
+            for (long id : textMatchIds) {
+                int row = Arrays.binarySearch(ids, 0, size, id);
+                if (row >= 0) { setBit(textMask, row); }
+            }
+            and(candidates, textMask);
+        }
+        andAmenities(candidates, criteria); // Like location, a constraint here rather than a facet
+        int type = criteria.getType() != null ? criteria.getType().ordinal() : -1;
+        boolean[] cityAllowed = criteria.getCity() != null ? new boolean[cityDictionary.length] : null;
+        if (cityAllowed != null) {
+            for (int code : cityTrigrams.lookup(criteria.getCity())) { cityAllowed[code] = true; }
+        }
+        RangeFilter ranges = new RangeFilter(criteria);
+        long[] breakCents = new long[priceBreaks.size()];
+        for (int i = 0; i < breakCents.length; i++) { breakCents[i] = toCents(priceBreaks.get(i), RoundingMode.CEILING); }
+
+        FacetCounts counts = scan.scan(candidates.length, (from, to) -> {
+            FacetCounts partial = new FacetCounts(cityDictionary.length, breakCents.length + 1);
+            for (int w = from; w < to; w++) {
+                long word = candidates[w];
+                while (word != 0) {
+                    int row = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    if (!ranges.geoOk(row)) { continue; } // Location is a constraint here, not a facet
+                    int failed = -1;
+                    int misses = 0;
+                    if (type >= 0 && typeCodes[row] != type) { failed = FACET_TYPE; misses++; }
+                    if (cityAllowed != null && !cityAllowed[cityCodes[row]]) { failed = FACET_CITY; misses++; }
+                    if (!ranges.priceOk(row)) { failed = FACET_PRICE; misses++; }
+                    if (!ranges.bedroomsOk(row)) { failed = FACET_BEDROOMS; misses++; }
+                    if (!ranges.bathroomsOk(row)) { failed = FACET_BATHROOMS; misses++; }
+                    if (misses > 1) { continue; }
+                    if (misses == 0) { partial.total++; }
+                    if (failed < 0 || failed == FACET_TYPE) { if (typeCodes[row] >= 0) { partial.types[typeCodes[row]]++; } }
+                    if (failed < 0 || failed == FACET_CITY) { partial.cities[cityCodes[row]]++; }
+                    if (failed < 0 || failed == FACET_PRICE) { partial.prices[priceBucket(priceCents[row], breakCents)]++; }
+                    if (failed < 0 || failed == FACET_BEDROOMS) { partial.bedrooms[Math.max(0, bedrooms[row])]++; }
+                    if (failed < 0 || failed == FACET_BATHROOMS) { partial.bathrooms[Math.max(0, bathrooms[row])]++; }
+                }
+            }
+            return partial;
+        }, FacetCounts::add);
+        int total = counts.total;
+        int[] typeCounts = counts.types;
+        int[] cityCounts = counts.cities;
+        int[] priceCounts = counts.prices;
+        int[] bedCounts = counts.bedrooms;
+        int[] bathCounts = counts.bathrooms;
+
+        Map<PropertyType, Long> typeFacet = new EnumMap<>(PropertyType.class);
+        for (PropertyType value : TYPES) { typeFacet.put(value, (long) typeCounts[value.ordinal()]); }
+        List<PropertyFacets.PriceBucket> priceFacet = new ArrayList<>(priceCounts.length);
+        for (int b = 0; b < priceCounts.length; b++) {
+            priceFacet.add(new PropertyFacets.PriceBucket(b == 0 ? null : priceBreaks.get(b - 1),
+                    b == breakCents.length ? null : priceBreaks.get(b), priceCounts[b]));
+        }
+        List<Integer> cityCodesByCount = new ArrayList<>();
+        for (int code = 0; code < cityCounts.length; code++) {
+            if (cityCounts[code] > 0) { cityCodesByCount.add(code); }
+        }
+        cityCodesByCount.sort((a, b) -> cityCounts[a] != cityCounts[b]
+                ? Integer.compare(cityCounts[b], cityCounts[a]) : cityDictionary[a].compareTo(cityDictionary[b]));
+        List<PropertyFacets.CityCount> cityFacet = new ArrayList<>();
+        for (int code : cityCodesByCount.subList(0, Math.min(cityLimit, cityCodesByCount.size()))) {
+            cityFacet.add(new PropertyFacets.CityCount(cityDictionary[code], cityCounts[code]));
+        }
+        return new PropertyFacets(total, typeFacet, nonZero(bedCounts), nonZero(bathCounts), priceFacet, cityFacet);
+    }
+
+    // Bucket b holds prices in [breaks[b - 1], breaks[b])
+    private static int priceBucket(long cents, long[] breakCents) {
+        int pos = Arrays.binarySearch(breakCents, cents);
+        return pos >= 0 ? pos + 1 : -pos - 1;
+    }
+
+    private static SortedMap<Integer, Long> nonZero(int[] counts) {
+        SortedMap<Integer, Long> result = new TreeMap<>();
+        for (int value = 0; value < counts.length; value++) {
+            if (counts[value] > 0) { result.put(value, (long) counts[value]); }
+        }
+        return result;
+    }
+
+    /**
+     * Resolves a case-insensitive city substring to the exact stored city values that contain it
+     * (only values still used by at least one row), so SQL can use {@code city IN (...)} instead of a LIKE scan.
+     */
+    List<String> citiesMatching(String needle) {
+        List<String> result = new ArrayList<>();
+        for (int code : cityTrigrams.lookup(needle)) {
+            if (cityRows[code].length > 0) { result.add(cityDictionary[code]); }
+        }
+        return result;
+    }
+
+    /** The numeric (price, bedrooms, bathrooms) part of the criteria, converted to column units. */
+    private final class RangeFilter {
+        private final long minPrice;
+        private final long maxPrice;
+        private final int minBeds;
+        private final int minBaths;
+        private final GeoFilter geo; // null unless it restricts
+
+        RangeFilter(PropertySearchCriteria criteria) {
+            minPrice = criteria.getMinPrice() != null ? toCents(criteria.getMinPrice(), RoundingMode.CEILING) : Long.MIN_VALUE;
+            maxPrice = criteria.getMaxPrice() != null ? toCents(criteria.getMaxPrice(), RoundingMode.FLOOR) : Long.MAX_VALUE;
+            minBeds = criteria.getMinBedrooms() != null ? Math.min(criteria.getMinBedrooms(), Byte.MAX_VALUE) : Integer.MIN_VALUE;
+            minBaths = criteria.getMinBathrooms() != null ? Math.min(criteria.getMinBathrooms(), Byte.MAX_VALUE) : Integer.MIN_VALUE;
+            geo = criteria.getGeo() != null && criteria.getGeo().isRestricting() ? criteria.getGeo() : null;
+        }
+
+        boolean test(int row) {
+            return priceOk(row) && bedroomsOk(row) && bathroomsOk(row) && geoOk(row);
+        }
+
+        // Exact check (haversine / box) after the grid pruning
+        boolean geoOk(int row) { return geo == null || geo.matches(latitudes[row], longitudes[row]); }
+
+        boolean priceOk(int row) { return priceCents[row] >= minPrice && priceCents[row] <= maxPrice; }
+        boolean bedroomsOk(int row) { return bedrooms[row] >= minBeds; }
+        boolean bathroomsOk(int row) { return bathrooms[row] >= minBaths; }
+    }
+
+    // --- Helpers ---
+
+    /**
+     * The amount in cents, saturating at -Long.MAX_VALUE / Long.MAX_VALUE: a filter bound, price break or cursor
+     * key beyond any storable price (a DECIMAL(12,2) column) keeps its meaning instead of failing the request.
+     * Extreme exponents (1E+999999999) are decided from the magnitude, without materializing the digits.
+     */
+    static long toCents(BigDecimal amount, RoundingMode rounding) {
+        long integerDigits = (long) amount.precision() - amount.scale(); // |amount| < 10^integerDigits; long, the scale can be near Integer.MIN_VALUE
+        if (integerDigits > 18) { return amount.signum() > 0 ? Long.MAX_VALUE : -Long.MAX_VALUE; }
+        // Below a hundredth of a unit only the sign matters for the rounding, so round a stand-in of the same sign
+        BigDecimal cents = integerDigits < -1 ? BigDecimal.valueOf(amount.signum(), 1) : amount.movePointRight(2);
+        cents = cents.setScale(0, rounding);
+        if (cents.compareTo(MAX_CENTS) > 0) { return Long.MAX_VALUE; }
+        if (cents.compareTo(MIN_CENTS) < 0) { return -Long.MAX_VALUE; }
+        return cents.longValue();
+    }
+
+    /** Microseconds since the epoch (UTC), saturating like {@link #toCents} for cursor keys thousands of years away. */
+    static long toMicros(LocalDateTime time) {
+        long seconds = time.toEpochSecond(ZoneOffset.UTC);
+        if (Math.abs(seconds) > MAX_MICROS_SECONDS) { return seconds > 0 ? Long.MAX_VALUE : -Long.MAX_VALUE; }
+        return seconds * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    private static byte saturate(int value) {
+        return (byte) Math.max(Byte.MIN_VALUE, Math.min(Byte.MAX_VALUE, value));
+    }
+
+    private static int cellOf(double latitude, double longitude) {
+        return latCell(latitude) * GRID_LNG_CELLS + lngCell(longitude);
+    }
+
+    private static int latCell(double latitude) {
+        return Math.max(0, Math.min(GRID_LAT_CELLS - 1, (int) Math.floor((latitude + 90) / GRID_DEGREES)));
+    }
+
+    private static int lngCell(double longitude) {
+        return Math.max(0, Math.min(GRID_LNG_CELLS - 1, (int) Math.floor((longitude + 180) / GRID_DEGREES)));
+    }
+
+    private static long[] concat(long[] first, long[] second) {
+        long[] joined = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return joined;
+    }
+
+    private static int[] concat(int[] first, int[] second) {
+        int[] joined = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return joined;
+    }
+
+    private static int wordCount(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    private static void setBit(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private static void and(long[] target, long[] mask) {
+        for (int i = 0; i < target.length; i++) { target[i] &= mask[i]; }
+    }
+
+    // Masks may differ in length; words missing from the row's mask are zero
+    private static boolean containsAll(long[] mask, long[] required) {
+        for (int w = 0; w < required.length; w++) {
+            long have = w < mask.length ? mask[w] : 0L;
+            if ((have & required[w]) != required[w]) { return false; }
+        }
+        return true;
+    }
+
+    private static int cityCode(String city, List<String> dictionary, Map<String, Integer> codeByValue) {
+        return codeByValue.computeIfAbsent(city, value -> {
+            dictionary.add(value);
+            return dictionary.size() - 1;
+        });
+    }
+
+    private static void write(ListingRow row, int at, long[] ids, long[] priceCents, byte[] bedrooms, byte[] bathrooms,
+                              int[] typeCodes, int[] statusCodes, int[] cityCodes, double[] latitudes, double[] longitudes,
+                              long[][] amenityMasks, long[] createdMicros, int cityCode) {
+        ids[at] = row.getId();
+        priceCents[at] = row.getPrice() != null ? toCents(row.getPrice(), RoundingMode.HALF_UP) : 0L;
+        bedrooms[at] = saturate(row.getBedrooms());
+        bathrooms[at] = saturate(row.getBathrooms());
+        typeCodes[at] = row.getType() != null ? row.getType().ordinal() : -1;
+        statusCodes[at] = row.getStatus() != null ? row.getStatus().ordinal() : -1;
+        cityCodes[at] = cityCode;
+        latitudes[at] = row.getLatitude();
+        longitudes[at] = row.getLongitude();
+        amenityMasks[at] = row.getAmenityMask();
+        createdMicros[at] = row.getCreatedAt() != null ? toMicros(row.getCreatedAt()) : 0L;
+    }
+
+    private void copyRange(int from, int to, int length, long[] newIds, long[] newPrice, byte[] newBeds, byte[] newBaths,
+                           int[] newTypes, int[] newStatuses, int[] newCities, double[] newLats, double[] newLngs,
+                           long[][] newMasks, long[] newCreated) {
+        if (length <= 0) { return; }
+        System.arraycopy(ids, from, newIds, to, length);
+        System.arraycopy(priceCents, from, newPrice, to, length);
+        System.arraycopy(bedrooms, from, newBeds, to, length);
+        System.arraycopy(bathrooms, from, newBaths, to, length);
+        System.arraycopy(typeCodes, from, newTypes, to, length);
+        System.arraycopy(statusCodes, from, newStatuses, to, length);
+        System.arraycopy(cityCodes, from, newCities, to, length);
+        System.arraycopy(latitudes, from, newLats, to, length);
+        System.arraycopy(longitudes, from, newLngs, to, length);
+        System.arraycopy(amenityMasks, from, newMasks, to, length);
+        System.arraycopy(createdMicros, from, newCreated, to, length);
+    }
+
+    /**
+     * One inserted, replaced or deleted row, as seen by the row-numbered structures: the edited row keeps
+     * the number {@code at}, and the old rows after it move up (insert) or down (delete) by one.
+     */
+    private static final class RowEdit {
+        final int at;
+        final int shift; // +1 insert, 0 replace, -1 delete
+        final int size;  // rows after the edit
+        final int words; // bitset length after the edit
+        private final int firstMoved; // old rows from here on are renumbered by shift
+
+        RowEdit(int at, int shift, int size) {
+            this.at = at;
+            this.shift = shift;
+            this.size = size;
+            this.words = wordCount(size);
+            this.firstMoved = shift > 0 ? at : at + 1;
+        }
+
+        /** The bitset after the edit, with bit {@code at} set or cleared (ignored for a delete); {@code bits} itself if unchanged. */
+        long[] bits(long[] bits, boolean set) {
+            boolean unchanged = bits.length == words && (shift == 0
+                    ? ((bits[at >>> 6] & (1L << at)) != 0) == set
+                    : !set && !anySetFrom(bits, at));
+            if (unchanged) { return bits; }
+            long[] result = Arrays.copyOf(bits, words);
+            if (shift > 0) { shiftUp(bits, result); } else if (shift < 0) { shiftDown(bits, result); }
+            if (shift >= 0) {
+                if (set) { result[at >>> 6] |= 1L << at; } else { result[at >>> 6] &= ~(1L << at); }
+            }
+            return result;
+        }
+
+        // Bits from `at` on move up by one, leaving bit `at` clear
+        private void shiftUp(long[] source, long[] target) {
+            long below = (1L << at) - 1; // the bits under `at` in its word
+            long carry = 0;
+            for (int w = at >>> 6; w < target.length; w++) {
+                long word = w < source.length ? source[w] : 0L;
+                long moving = w == at >>> 6 ? word & ~below : word;
+                target[w] = (w == at >>> 6 ? word & below : 0L) | moving << 1 | carry;
+                carry = moving >>> 63;
+            }
+        }
+
+        // Bit `at` is dropped and the bits above it move down by one
+        private void shiftDown(long[] source, long[] target) {
+            long below = (1L << at) - 1;
+            for (int w = at >>> 6; w < target.length; w++) {
+                long next = w + 1 < source.length ? source[w + 1] : 0L;
+                long moving = w == at >>> 6 ? source[w] & ~below & ~(1L << at) : source[w];
+                target[w] = (w == at >>> 6 ? source[w] & below : 0L) | moving >>> 1 | next << 63;
+            }
+        }
+
+        /** The sorted posting list after the edit, without and/or with row {@code at}; {@code rows} itself if unchanged. */
+        int[] rows(int[] rows, boolean remove, boolean add) {
+            if (!remove && !add && (shift == 0 || rows.length == 0 || rows[rows.length - 1] < firstMoved)) { return rows; }
+            int[] result = new int[rows.length - (remove ? 1 : 0) + (add ? 1 : 0)];
+            copyRows(rows, 0, rows.length, remove, add, result, 0);
+            return result;
+        }
+
+        /** Copies sorted rows[from, to) renumbered into target at offset, dropping and/or inserting row {@code at}; returns the new offset. */
+        int copyRows(int[] rows, int from, int to, boolean remove, boolean add, int[] target, int offset) {
+            for (int i = from; i < to; i++) {
+                int row = rows[i];
+                if (remove && row == at) { continue; }
+                int moved = row >= firstMoved ? row + shift : row;
+                if (add && moved > at) {
+                    target[offset++] = at;
+                    add = false;
+                }
+                target[offset++] = moved;
+            }
+            if (add) { target[offset++] = at; }
+            return offset;
+        }
+
+        /** The rows renumbered, in the same order; {@code rows} itself if none moves. */
+        int[] renumbered(int[] rows) {
+            if (shift == 0) { return rows; }
+            int[] result = null;
+            for (int i = 0; i < rows.length; i++) {
+                if (rows[i] >= firstMoved) {
+                    if (result == null) { result = rows.clone(); }
+                    result[i] += shift;
+                }
+            }
+            return result != null ? result : rows;
+        }
+
+        private static boolean anySetFrom(long[] bits, int from) {
+            int w = from >>> 6;
+            if (w >= bits.length) { return false; }
+            if ((bits[w] & (-1L << from)) != 0) { return true; }
+            for (w++; w < bits.length; w++) {
+                if (bits[w] != 0) { return true; }
+            }
+            return false;
+        }
+    }
+
+    /** Facet counters of one scan partition; partitions are merged by adding them up. */
+    private static final class FacetCounts {
+        int total;
+        final int[] types = new int[TYPES.length];
+        final int[] cities;
+        final int[] prices;
+        final int[] bedrooms = new int[Byte.MAX_VALUE + 1];
+        final int[] bathrooms = new int[Byte.MAX_VALUE + 1];
+
+        FacetCounts(int cityCount, int priceBuckets) {
+            cities = new int[cityCount];
+            prices = new int[priceBuckets];
+        }
+
+        FacetCounts add(FacetCounts other) {
+            total += other.total;
+            addTo(types, other.types);
+            addTo(cities, other.cities);
+            addTo(prices, other.prices);
+            addTo(bedrooms, other.bedrooms);
+            addTo(bathrooms, other.bathrooms);
+            return this;
+        }
+
+        private static void addTo(int[] target, int[] counts) {
+            for (int i = 0; i < target.length; i++) { target[i] += counts[i]; }
+        }
+    }
+
+    /** Content equality for amenity masks, ignoring trailing zero words. */
+    private static final class AmenityMaskKey {
+        private final long[] mask;
+        private final int length; // without trailing zero words
+
+        AmenityMaskKey(long[] mask) {
+            int length = mask.length;
+            while (length > 0 && mask[length - 1] == 0) { length--; }
+            this.mask = mask;
+            this.length = length;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof AmenityMaskKey key
+                    && Arrays.equals(mask, 0, length, key.mask, 0, key.length);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 1;
+            for (int i = 0; i < length; i++) { hash = 31 * hash + Long.hashCode(mask[i]); }
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.demo.service.search;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * Runs a scan over the words of a row bitset, either in one pass or split into fixed-size word ranges
+ * on a ForkJoinPool, each producing a partial result that is merged with its right-hand neighbour.
+ * Merges happen left to right, so results that depend on row order (id-sorted matches) keep it.
+ * Small scans stay on the calling thread: below {@code minRows} rows the fork/join overhead outweighs the gain.
+ */
+final class ParallelScan {
+
+    static final ParallelScan SEQUENTIAL = new ParallelScan(null, Integer.MAX_VALUE);
+
+    private static final int CHUNKS_PER_THREAD = 4; // Some slack so a slow chunk does not hold up the whole scan
+    private static final int MIN_CHUNK_WORDS = 256; // 16k rows
+
+    /** Scans rows [fromWord * 64, toWord * 64) of the bitset and returns the partial result. */
+    @FunctionalInterface
+    interface RangeScan<R> {
+        R scan(int fromWord, int toWord);
+    }
+
+    private final ForkJoinPool pool; // null for sequential
+    private final int minRows;
+
+    ParallelScan(ForkJoinPool pool, int minRows) {
+        this.pool = pool;
+        this.minRows = minRows;
+    }
+
+    <R> R scan(int words, RangeScan<R> scan, BinaryOperator<R> merge) {
+        if (pool == null || pool.getParallelism() < 2 || (long) words * 64 < minRows) {
+            return scan.scan(0, words);
+        }
+        int chunkWords = Math.max(MIN_CHUNK_WORDS, words / (pool.getParallelism() * CHUNKS_PER_THREAD) + 1);
+        return pool.invoke(new RangeTask<>(scan, merge, 0, words, chunkWords));
+    }
+
+    private static final class RangeTask<R> extends RecursiveTask<R> {
+        private final RangeScan<R> scan;
+        private final BinaryOperator<R> merge;
+        private final int from;
+        private final int to;
+        private final int chunkWords;
+
+        RangeTask(RangeScan<R> scan, BinaryOperator<R> merge, int from, int to, int chunkWords) {
+            this.scan = scan;
+            this.merge = merge;
+            this.from = from;
+            this.to = to;
+            this.chunkWords = chunkWords;
+        }
+
+        @Override
+        protected R compute() {
+            if (to - from <= chunkWords) { return scan.scan(from, to); }
+            int mid = (from + to) >>> 1;
+            RangeTask<R> left = new RangeTask<>(scan, merge, from, mid, chunkWords);
+            left.fork();
+            R right = new RangeTask<>(scan, merge, mid, to, chunkWords).compute();
+            return merge.apply(left.join(), right);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.demo.service.search;
+
+import com.example.demo.model.Property;
+import org.hibernate.Hibernate;
+
+/**
+ * Published by PropertyService whenever a property is created, updated or deleted.
+ * Search structures listen for it with {@code @TransactionalEventListener}, so they only see
+ * changes that were actually committed.
+ */
+public final class PropertyChangedEvent {
+
+    private final Long propertyId;
+    private final Property property; // null when the property was deleted
+
+    private PropertyChangedEvent(Long propertyId, Property property) {
+        this.propertyId = propertyId;
+        this.property = property;
+    }
+
+    public static PropertyChangedEvent saved(Property property) {
+        // Listeners run after commit, possibly without a session to load the lazy amenity ids from
+        Hibernate.initialize(property.getAmenityIds());
+        return new PropertyChangedEvent(property.getId(), property);
+    }
+
+    public static PropertyChangedEvent deleted(Long propertyId) {
+        return new PropertyChangedEvent(propertyId, null);
+    }
+
+    public Long getPropertyId() { return propertyId; }
+    public Property getProperty() { return property; }
+    public boolean isDeleted() { return property == null; }
+}
@@ -0,0 +1,66 @@
+package com.example.demo.service.search;
+
+import com.example.demo.dto.PropertyDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last row of a search page: the sort key and id of that row.
+ * Clients only ever see it as an opaque, URL-safe string; it embeds the sort it was issued for
+ * so that it cannot be replayed against a different ordering.
+ */
+public final class PropertyCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final Object afterKey;
+    private final long afterId;
+
+    private PropertyCursor(Object afterKey, long afterId) {
+        this.afterKey = afterKey;
+        this.afterId = afterId;
+    }
+
+    public Object getAfterKey() { return afterKey; }
+    public long getAfterId() { return afterId; }
+
+    /** Builds the opaque cursor pointing just after the given property. */
+    public static String encode(PropertySort sort, PropertyDTO last) {
+        return encode(sort, sort.keyOf(last), last.getId());
+    }
+
+    /** Builds the opaque cursor for a sort key that is not stored on the entity (e.g. a relevance score). */
+    public static String encode(PropertySort sort, Object lastKey, long lastId) {
+        String raw = sort + String.valueOf(SEPARATOR) + sort.formatKey(lastKey) + SEPARATOR + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor previously produced by {@link #encode} for the same sort.
+     * @return null if the cursor is blank (first page).
+     * @throws IllegalArgumentException if the cursor is malformed or was issued for another sort.
+     */
+    public static PropertyCursor decode(String cursor, PropertySort sort) {
+        if (cursor == null || cursor.isBlank()) { return null; }
+        String raw;
+        int first;
+        int last;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            first = raw.indexOf(SEPARATOR);
+            last = raw.lastIndexOf(SEPARATOR);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+        if (first < 0 || first == last) { throw new IllegalArgumentException("Invalid cursor"); }
+        if (!raw.substring(0, first).equals(sort.toString())) {
+            throw new IllegalArgumentException("Cursor does not match sort " + sort);
+        }
+        try {
+            return new PropertyCursor(sort.parseKey(raw.substring(first + 1, last)), Long.parseLong(raw.substring(last + 1)));
+        } catch (RuntimeException e) { // NumberFormatException, DateTimeParseException
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.demo.service.search;
+
+import com.example.demo.model.enums.PropertyType;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Facet counts for a property search, computed over AVAILABLE properties.
+ * <p>
+ * Counts are disjunctive: each facet is counted with every filter applied except its own, so the
+ * UI can show how many results each alternative value would give ("Rent (1,204) / Sale (873)"
+ * even while "Rent" is selected). {@link #getTotal()} is the number of results with all filters.
+ */
+public final class PropertyFacets {
+
+    /** Default price bucket boundaries (lower bounds of every bucket but the first). */
+    public static final List<BigDecimal> DEFAULT_PRICE_BREAKS = List.of(
+            new BigDecimal("10000"), new BigDecimal("25000"), new BigDecimal("50000"), new BigDecimal("100000"),
+            new BigDecimal("500000"), new BigDecimal("1000000"), new BigDecimal("5000000"), new BigDecimal("10000000"));
+    public static final int DEFAULT_CITY_LIMIT = 10;
+
+    private final long total;
+    private final Map<PropertyType, Long> types;
+    private final SortedMap<Integer, Long> bedrooms;
+    private final SortedMap<Integer, Long> bathrooms;
+    private final List<PriceBucket> priceBuckets;
+    private final List<CityCount> cities; // most frequent first
+
+    PropertyFacets(long total, Map<PropertyType, Long> types, SortedMap<Integer, Long> bedrooms,
+                   SortedMap<Integer, Long> bathrooms, List<PriceBucket> priceBuckets, List<CityCount> cities) {
+        this.total = total;
+        this.types = types;
+        this.bedrooms = bedrooms;
+        this.bathrooms = bathrooms;
+        this.priceBuckets = priceBuckets;
+        this.cities = cities;
+    }
+
+    public long getTotal() { return total; }
+    public Map<PropertyType, Long> getTypes() { return types; }
+    public SortedMap<Integer, Long> getBedrooms() { return bedrooms; }
+    public SortedMap<Integer, Long> getBathrooms() { return bathrooms; }
+    public List<PriceBucket> getPriceBuckets() { return priceBuckets; }
+    public List<CityCount> getCities() { return cities; }
+
+    /** Properties priced in [min, max); a null bound is open. */
+    public static final class PriceBucket {
+        private final BigDecimal min;
+        private final BigDecimal max;
+        private final long count;
+
+        PriceBucket(BigDecimal min, BigDecimal max, long count) {
+            this.min = min;
+            this.max = max;
+            this.count = count;
+        }
+
+        public BigDecimal getMin() { return min; }
+        public BigDecimal getMax() { return max; }
+        public long getCount() { return count; }
+    }
+
+    public static final class CityCount {
+        private final String city;
+        private final long count;
+
+        CityCount(String city, long count) {
+            this.city = city;
+            this.count = count;
+        }
+
+        public String getCity() { return city; }
+        public long getCount() { return count; }
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.demo.service.search;
+
+import com.example.demo.model.Property;
+import com.example.demo.model.enums.PropertyStatus;
+import com.example.demo.model.enums.PropertyType;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Immutable set of filters accepted by the property search, created through {@link #builder()}.
+ * Blank strings are normalized to null so that "no filter" has a single representation.
+ */
+public final class PropertySearchCriteria {
+
+    private final PropertyType type;
+    private final String city;
+    private final BigDecimal minPrice;
+    private final BigDecimal maxPrice;
+    private final Integer minBedrooms;
+    private final Integer minBathrooms;
+    private final String text;             // free-text query (q), matched by the full-text index
+    private final GeoFilter geo;           // radius / bounding box / origin for distance sort, null if none
+    private final List<String> amenities;  // required amenity names (all of them), null if none
+    private final List<String> cityValues; // exact city values the city substring resolved to, null if unresolved
+    private final int[] amenityIds;        // dictionary ids of the amenities (-1 for an unknown name), null if unresolved
+
+    private PropertySearchCriteria(Builder builder, List<String> cityValues, int[] amenityIds) {
+        this.type = builder.type;
+        this.city = builder.city;
+        this.minPrice = builder.minPrice;
+        this.maxPrice = builder.maxPrice;
+        this.minBedrooms = builder.minBedrooms;
+        this.minBathrooms = builder.minBathrooms;
+        this.text = builder.text;
+        this.geo = builder.geo;
+        this.amenities = builder.amenities;
+        this.cityValues = cityValues;
+        this.amenityIds = amenityIds;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Copy of these criteria with the city substring resolved to exact city values (see PropertySearchIndex). */
+    public PropertySearchCriteria withCityValues(List<String> values) {
+        return new PropertySearchCriteria(toBuilder(), List.copyOf(values), amenityIds);
+    }
+
+    /**
+     * Copy of these criteria with the amenity names resolved to dictionary ids (see AmenityDictionary),
+     * in the order of {@link #getAmenities()}; -1 marks a name no property has ever used.
+     */
+    public PropertySearchCriteria withAmenityIds(int[] ids) {
+        return new PropertySearchCriteria(toBuilder(), cityValues, ids.clone());
+    }
+
+    private Builder toBuilder() {
+        return new Builder().type(type).city(city).minPrice(minPrice).maxPrice(maxPrice)
+                .minBedrooms(minBedrooms).minBathrooms(minBathrooms).text(text).geo(geo).amenities(amenities);
+    }
+
+    public PropertyType getType() { return type; }
+    public String getCity() { return city; }
+    public BigDecimal getMinPrice() { return minPrice; }
+    public BigDecimal getMaxPrice() { return maxPrice; }
+    public Integer getMinBedrooms() { return minBedrooms; }
+    public Integer getMinBathrooms() { return minBathrooms; }
+    public String getText() { return text; }
+    public GeoFilter getGeo() { return geo; }
+    public List<String> getAmenities() { return amenities; }
+    public List<String> getCityValues() { return cityValues; }
+
+    public boolean hasText() {
+        return text != null;
+    }
+
+    public boolean hasAmenities() {
+        return amenities != null;
+    }
+
+    /**
+     * The dictionary ids of the required amenities.
+     * @throws IllegalStateException if there is an amenity filter that was not resolved with {@link #withAmenityIds}.
+     */
+    public int[] getAmenityIds() {
+        if (amenities != null && amenityIds == null) { throw new IllegalStateException("Amenity filter was not resolved to ids"); }
+        return amenityIds != null ? amenityIds.clone() : new int[0];
+    }
+
+    /** True when a filter has already been resolved to an empty candidate set, so no query needs to run. */
+    public boolean matchesNothing() {
+        if (amenityIds != null && Arrays.stream(amenityIds).anyMatch(id -> id < 0)) { return true; }
+        return cityValues != null && cityValues.isEmpty();
+    }
+
+    /**
+     * Evaluates the structured filters (not the text query) against a loaded entity, including the
+     * AVAILABLE status check. Used where candidates come from an index rather than from SQL.
+     */
+    public boolean matches(Property property) {
+        if (property.getStatus() != PropertyStatus.AVAILABLE) { return false; }
+        if (type != null && property.getType() != type) { return false; }
+        if (city != null && (property.getCity() == null
+                || !property.getCity().toLowerCase(Locale.ROOT).contains(city.toLowerCase(Locale.ROOT)))) { return false; }
+        BigDecimal price = property.getPrice();
+        if (minPrice != null && (price == null || price.compareTo(minPrice) < 0)) { return false; }
+        if (maxPrice != null && (price == null || price.compareTo(maxPrice) > 0)) { return false; }
+        if (minBedrooms != null && (property.getBedrooms() == null || property.getBedrooms() < minBedrooms)) { return false; }
+        if (minBathrooms != null && (property.getBathrooms() == null || property.getBathrooms() < minBathrooms)) { return false; }
+        if (amenities != null && !hasAllAmenities(property)) { return false; }
+        return geo == null || geo.matches(property.getLatitude() != null ? property.getLatitude() : Double.NaN,
+                property.getLongitude() != null ? property.getLongitude() : Double.NaN);
+    }
+
+    // By id once resolved, otherwise by name (the entity's names are filled in by PropertyService)
+    private boolean hasAllAmenities(Property property) {
+        if (amenityIds != null) {
+            Set<Integer> present = property.getAmenityIds();
+            return present != null && Arrays.stream(amenityIds).allMatch(present::contains);
+        }
+        Set<String> present = new HashSet<>();
+        if (property.getAmenities() != null) {
+            for (String name : property.getAmenities()) { present.add(name.toLowerCase(Locale.ROOT)); }
+        }
+        return amenities.stream().allMatch(name -> present.contains(name.toLowerCase(Locale.ROOT)));
+    }
+
+    @Override
+    public String toString() {
+        return "Type: " + type + ", City: " + city + ", Price: " + minPrice + "-" + maxPrice
+                + ", Beds: " + minBedrooms + ", Baths: " + minBathrooms + ", Q: " + text
+                + (amenities != null ? ", Amenities: " + amenities : "") + (geo != null ? ", " + geo : "");
+    }
+
+    public static final class Builder {
+        private PropertyType type;
+        private String city;
+        private BigDecimal minPrice;
+        private BigDecimal maxPrice;
+        private Integer minBedrooms;
+        private Integer minBathrooms;
+        private String text;
+        private GeoFilter geo;
+        private List<String> amenities;
+
+        private Builder() {}
+
+        public Builder type(PropertyType type) { this.type = type; return this; }
+        public Builder city(String city) { this.city = blankToNull(city); return this; }
+        public Builder minPrice(BigDecimal minPrice) { this.minPrice = minPrice; return this; }
+        public Builder maxPrice(BigDecimal maxPrice) { this.maxPrice = maxPrice; return this; }
+        public Builder minBedrooms(Integer minBedrooms) { this.minBedrooms = minBedrooms; return this; }
+        public Builder minBathrooms(Integer minBathrooms) { this.minBathrooms = minBathrooms; return this; }
+        public Builder text(String text) { this.text = blankToNull(text); return this; }
+        public Builder geo(GeoFilter geo) { this.geo = geo; return this; }
+
+        /** Amenities a property must all have; blank and case-insensitively repeated names are dropped. */
+        public Builder amenities(Collection<String> names) {
+            List<String> kept = new ArrayList<>();
+            Set<String> seen = new HashSet<>();
+            if (names != null) {
+                for (String name : names) {
+                    String value = blankToNull(name);
+                    if (value != null && seen.add(value.toLowerCase(Locale.ROOT))) { kept.add(value); }
+                }
+            }
+            this.amenities = kept.isEmpty() ? null : List.copyOf(kept);
+            return this;
+        }
+
+        public PropertySearchCriteria build() {
+            return new PropertySearchCriteria(this, null, null);
+        }
+
+        private static String blankToNull(String value) {
+            return (value == null || value.isBlank()) ? null : value.trim();
+        }
+    }
+}
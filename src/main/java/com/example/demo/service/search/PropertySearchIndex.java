@@ -0,0 +1,198 @@
+package com.example.demo.service.search;
+
+import com.example.demo.repository.PropertyRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-process search index over the properties table.
+ * <p>
+ * Searches run against an immutable {@link ListingSnapshot} published through a volatile field,
+ * so readers never lock. Writes arrive as {@link PropertyChangedEvent}s after the publishing
+ * transaction commits and publish a new snapshot. Until the initial load has completed
+ * {@link #isReady()} returns false and callers should fall back to the database query.
+ * <p>
+ * Large snapshots are scanned in parallel: the candidate bitset is split into word ranges that run on
+ * a dedicated ForkJoinPool, and the partial results (matches, heaps, facet counters) are merged.
+ */
+@Component
+public class PropertySearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(PropertySearchIndex.class);
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    private volatile ListingSnapshot snapshot; // null until the initial load completes
+    private final Object writeLock = new Object();
+    private final List<UnaryOperator<ListingSnapshot>> pendingWrites = new ArrayList<>(); // writes seen while loading
+    private boolean loading = true; // guarded by writeLock
+
+    private final ForkJoinPool scanPool; // null when running on a single core
+    private final ParallelScan scan;
+
+    /**
+     * @param threads Scan parallelism; 0 uses every available core, 1 keeps all scans sequential.
+     * @param parallelMinRows Snapshots with fewer rows are scanned on the request thread.
+     */
+    public PropertySearchIndex(@Value("${search.parallel.threads:0}") int threads,
+                               @Value("${search.parallel.min-rows:200000}") int parallelMinRows) {
+        int parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.scanPool = parallelism > 1 ? new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("listing-scan-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false) : null;
+        this.scan = new ParallelScan(scanPool, parallelMinRows);
+    }
+
+    // --- Loading ---
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            long start = System.nanoTime();
+            ListingSnapshot loaded = ListingSnapshot.build(loadListingRows());
+            synchronized (writeLock) {
+                for (UnaryOperator<ListingSnapshot> write : pendingWrites) { loaded = write.apply(loaded); }
+                pendingWrites.clear();
+                snapshot = loaded;
+                loading = false;
+            }
+            logger.info("Property search index loaded {} rows in {} ms", loaded.size, (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            logger.error("Failed to load property search index, searches will use the database: {}", e.getMessage(), e);
+            synchronized (writeLock) {
+                pendingWrites.clear();
+                loading = false;
+            }
+        }
+    }
+
+    /** Every property's searchable columns, plus its amenity ids from a second query (no per-row selects). */
+    private List<ListingRow> loadListingRows() {
+        List<ListingRow> rows = propertyRepository.findAllListingRows();
+        Map<Long, List<Integer>> amenityIds = new HashMap<>();
+        for (Object[] pair : propertyRepository.findAllAmenityIdPairs()) {
+            amenityIds.computeIfAbsent((Long) pair[0], id -> new ArrayList<>()).add((Integer) pair[1]);
+        }
+        for (ListingRow row : rows) { row.withAmenityIds(amenityIds.get(row.getId())); }
+        return rows;
+    }
+
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    // --- Reads ---
+
+    /**
+     * Returns the ids of AVAILABLE properties matching the criteria, in ascending id order.
+     * @throws IllegalStateException if the index has not been loaded yet.
+     */
+    public long[] search(PropertySearchCriteria criteria) {
+        return current().search(criteria, scan);
+    }
+
+    /**
+     * Filters externally produced candidate ids (kept in their order) down to AVAILABLE properties matching the criteria.
+     * @throws IllegalStateException if the index has not been loaded yet.
+     */
+    public long[] retainMatching(long[] candidateIds, PropertySearchCriteria criteria) {
+        return current().retainMatching(candidateIds, criteria);
+    }
+
+    /**
+     * Ranks AVAILABLE properties matching the criteria by distance from the geo origin, nearest first.
+     * Properties without coordinates are left out.
+     * @throws IllegalStateException if the index has not been loaded yet.
+     */
+    public RankedMatches rankByDistance(PropertySearchCriteria criteria) {
+        return current().rankByDistance(criteria, scan);
+    }
+
+    /**
+     * Selects the first {@code k} AVAILABLE properties matching the criteria in the given column sort
+     * (price, createdAt or bedrooms, id as tie-breaker), after the cursor if one is given, without sorting every match.
+     * @return Up to k ids, in sort order.
+     * @throws IllegalStateException if the index has not been loaded yet.
+     */
+    public long[] topK(PropertySearchCriteria criteria, PropertySort sort, PropertyCursor after, int k) {
+        return after != null
+                ? current().topK(criteria, sort, after.getAfterKey(), after.getAfterId(), k, scan)
+                : current().topK(criteria, sort, null, 0L, k, scan);
+    }
+
+    /**
+     * Counts facets for AVAILABLE properties matching the criteria, from the in-memory columns.
+     * @param textMatchIds Ids to restrict to (full-text matches), or null.
+     * @throws IllegalStateException if the index has not been loaded yet.
+     */
+    public PropertyFacets facets(PropertySearchCriteria criteria, long[] textMatchIds, List<BigDecimal> priceBreaks, int cityLimit) {
+        return current().facets(criteria, textMatchIds, priceBreaks, cityLimit, scan);
+    }
+
+    /**
+     * Resolves the city substring of the criteria to the exact city values containing it, using the
+     * trigram index, so the SQL can filter with {@code city IN (...)} instead of {@code LIKE '%x%'}.
+     * Returns the criteria unchanged if there is no city filter or the index is not loaded.
+     */
+    public PropertySearchCriteria resolveCities(PropertySearchCriteria criteria) {
+        ListingSnapshot current = snapshot;
+        if (current == null || criteria.getCity() == null) { return criteria; }
+        return criteria.withCityValues(current.citiesMatching(criteria.getCity()));
+    }
+
+    private ListingSnapshot current() {
+        ListingSnapshot current = snapshot;
+        if (current == null) { throw new IllegalStateException("Property search index is not loaded"); }
+        return current;
+    }
+
+    // --- Writes (applied once the publishing transaction commits) ---
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(0) // Before SearchResultCache drops the affected entries
+    public void onPropertyChanged(PropertyChangedEvent event) {
+        if (event.isDeleted()) {
+            long id = event.getPropertyId();
+            apply(current -> current.without(id));
+        } else {
+            ListingRow row = ListingRow.from(event.getProperty());
+            apply(current -> current.withUpsert(row));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scanPool != null) { scanPool.shutdown(); }
+    }
+
+    private void apply(UnaryOperator<ListingSnapshot> write) {
+        synchronized (writeLock) {
+            if (snapshot == null) {
+                if (loading) { pendingWrites.add(write); }
+            } else {
+                snapshot = write.apply(snapshot);
+            }
+        }
+    }
+}
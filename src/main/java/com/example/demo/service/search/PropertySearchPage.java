@@ -0,0 +1,23 @@
+package com.example.demo.service.search;
+
+import com.example.demo.dto.PropertyDTO;
+
+import java.util.List;
+
+/**
+ * One page of property search results plus the cursor for the following page
+ * ({@code null} when there are no more results).
+ */
+public final class PropertySearchPage {
+
+    private final List<PropertyDTO> items;
+    private final String nextCursor;
+
+    public PropertySearchPage(List<PropertyDTO> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<PropertyDTO> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+}
@@ -0,0 +1,127 @@
+package com.example.demo.service.search;
+
+import com.example.demo.dto.PropertyDTO;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * Server-side ordering for property search results.
+ * Parsed from the {@code sort} request parameter, e.g. {@code price}, {@code price,desc} or {@code createdAt,desc}.
+ * The property id is always used as a tie-breaker (in the same direction) so the order is total,
+ * which is what makes keyset pagination stable.
+ */
+public final class PropertySort {
+
+    public enum Field {
+        PRICE("price"),
+        CREATED_AT("createdAt"),
+        BEDROOMS("bedrooms"),
+        RELEVANCE("relevance"), // full-text score, only valid with a text query; not a JPA attribute
+        DISTANCE("distance");   // from the geo origin (lat/lng), computed by the search index; not a JPA attribute
+
+        private final String attribute; // JPA attribute name, also the request parameter value
+
+        Field(String attribute) { this.attribute = attribute; }
+
+        public String getAttribute() { return attribute; }
+    }
+
+    public static final PropertySort DEFAULT = new PropertySort(Field.CREATED_AT, true);
+    public static final PropertySort RELEVANCE = new PropertySort(Field.RELEVANCE, true);
+    public static final PropertySort DISTANCE = new PropertySort(Field.DISTANCE, false);
+
+    private final Field field;
+    private final boolean descending;
+
+    public PropertySort(Field field, boolean descending) {
+        this.field = field;
+        this.descending = descending;
+    }
+
+    /**
+     * Parses "field[,asc|desc]". Blank input yields {@link #DEFAULT}.
+     * @throws IllegalArgumentException for an unknown field or direction.
+     */
+    public static PropertySort parse(String value) {
+        if (value == null || value.isBlank()) { return DEFAULT; }
+        String[] parts = value.trim().split(",");
+        if (parts.length > 2) { throw new IllegalArgumentException("Invalid sort: " + value); }
+        Field field = null;
+        for (Field candidate : Field.values()) {
+            if (candidate.attribute.equalsIgnoreCase(parts[0].trim())) { field = candidate; }
+        }
+        if (field == null) {
+            throw new IllegalArgumentException("Unsupported sort field: " + parts[0].trim() + " (use price, createdAt, bedrooms, relevance or distance)");
+        }
+        boolean descending = field == Field.RELEVANCE; // Best match first unless stated otherwise
+        if (parts.length == 2) {
+            String direction = parts[1].trim().toLowerCase(Locale.ROOT);
+            if (direction.equals("desc")) { descending = true; }
+            else if (direction.equals("asc")) { descending = false; }
+            else { throw new IllegalArgumentException("Invalid sort direction: " + parts[1].trim()); }
+        }
+        if (field == Field.RELEVANCE && !descending) { throw new IllegalArgumentException("Relevance can only be sorted descending"); }
+        if (field == Field.DISTANCE && descending) { throw new IllegalArgumentException("Distance can only be sorted ascending"); }
+        return new PropertySort(field, descending);
+    }
+
+    /**
+     * Parses the sort for the given criteria. Relevance is the default with a text query, and the only
+     * ordering allowed with one (matches are ranked by the full-text index, not by SQL); distance needs
+     * a geo origin (lat/lng).
+     * @throws IllegalArgumentException for an invalid sort or an unsupported sort/criteria combination.
+     */
+    public static PropertySort parse(String value, PropertySearchCriteria criteria) {
+        boolean hasTextQuery = criteria.hasText();
+        if (hasTextQuery && (value == null || value.isBlank())) { return RELEVANCE; }
+        PropertySort sort = parse(value);
+        if (hasTextQuery && !sort.isRelevance()) { throw new IllegalArgumentException("Text search results can only be sorted by relevance"); }
+        if (!hasTextQuery && sort.isRelevance()) { throw new IllegalArgumentException("Sorting by relevance requires a text query (q)"); }
+        if (sort.isDistance() && (criteria.getGeo() == null || !criteria.getGeo().hasOrigin())) {
+            throw new IllegalArgumentException("Sorting by distance requires lat and lng");
+        }
+        return sort;
+    }
+
+    public Field getField() { return field; }
+    public boolean isDescending() { return descending; }
+    public boolean isRelevance() { return field == Field.RELEVANCE; }
+    public boolean isDistance() { return field == Field.DISTANCE; }
+
+    /** True if the order is computed by an index rather than by a column the database can sort on. */
+    public boolean isRanked() { return isRelevance() || isDistance(); }
+
+    // --- Sort key handling (used for cursors) ---
+
+    /** The value of this sort's field on the given property (not available for relevance or distance, which are not stored). */
+    public Object keyOf(PropertyDTO property) {
+        switch (field) {
+            case PRICE: return property.getPrice();
+            case CREATED_AT: return property.getCreatedAt();
+            case BEDROOMS: return property.getBedrooms();
+            default: throw new IllegalStateException("Sort field " + field + " is not a property attribute");
+        }
+    }
+
+    String formatKey(Object key) {
+        return key instanceof BigDecimal ? ((BigDecimal) key).toPlainString() : String.valueOf(key);
+    }
+
+    Object parseKey(String raw) {
+        switch (field) {
+            case PRICE: return new BigDecimal(raw);
+            case CREATED_AT: return LocalDateTime.parse(raw);
+            case BEDROOMS: return Integer.valueOf(raw);
+            case RELEVANCE:
+            case DISTANCE: return Double.valueOf(raw);
+            default: throw new IllegalStateException("Unhandled sort field " + field);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return field.attribute + (descending ? ",desc" : ",asc");
+    }
+}
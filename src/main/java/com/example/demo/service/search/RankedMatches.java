@@ -0,0 +1,39 @@
+package com.example.demo.service.search;
+
+/**
+ * Property ids ranked by a computed key (full-text score, distance) that is not a database column.
+ * The order is by key (highest first for scores, lowest first for distances) with the id ascending
+ * as tie-breaker, so it is total and can be paged with a (key, id) cursor.
+ */
+public final class RankedMatches {
+
+    static final RankedMatches NONE = new RankedMatches(new long[0], new double[0], true);
+
+    private final long[] ids;
+    private final double[] keys;
+    private final boolean descending;
+
+    RankedMatches(long[] ids, double[] keys, boolean descending) {
+        this.ids = ids;
+        this.keys = keys;
+        this.descending = descending;
+    }
+
+    public int size() { return ids.length; }
+    public long[] ids() { return ids.clone(); }
+    public long id(int index) { return ids[index]; }
+    public double key(int index) { return keys[index]; }
+
+    /** Position of the first match that comes after (key, id) in ranking order. */
+    public int indexAfter(double key, long id) {
+        int low = 0;
+        int high = ids.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            boolean ahead = descending ? keys[mid] > key : keys[mid] < key;
+            boolean before = ahead || (keys[mid] == key && ids[mid] <= id);
+            if (before) { low = mid + 1; } else { high = mid; }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.demo.service.search;
+
+import com.example.demo.dto.PropertyDTO;
+import com.example.demo.model.Property;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded cache of property search pages, keyed on the normalized criteria, sort, cursor and page size.
+ * <p>
+ * Entries expire after a TTL and the least recently used entry is evicted once the cache is full.
+ * When a property changes, only entries that listed it, or whose filters it now matches, are dropped.
+ * A search that was running while any property changed does not store its result, since it may have
+ * read the state from before the change.
+ */
+@Component
+public class SearchResultCache {
+
+    // After the search indexes (order 0) applied the change, so a reload never reads a stale index
+    static final int INVALIDATION_ORDER = 1;
+
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    private final Map<String, Entry> entries; // access order, guarded by this
+    private final AtomicLong version = new AtomicLong(); // incremented on every property change
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();     // size and TTL
+    private final AtomicLong invalidations = new AtomicLong(); // dropped because a property changed
+
+    public SearchResultCache(@Value("${search.cache.max-entries:500}") int maxEntries,
+                             @Value("${search.cache.ttl-seconds:60}") long ttlSeconds) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= SearchResultCache.this.maxEntries) { return false; }
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /** Returns the cached page, or loads it and caches the result (unless a property changed meanwhile). */
+    public PropertySearchPage get(PropertySearchCriteria criteria, PropertySort sort, String cursor, int limit,
+                                  Supplier<PropertySearchPage> loader) {
+        if (maxEntries <= 0) { return loader.get(); }
+        String key = keyOf(criteria, sort, cursor, limit);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (System.nanoTime() - entry.expiresAt < 0) {
+                    hits.incrementAndGet();
+                    return entry.page;
+                }
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        long versionAtLoad = version.get();
+        PropertySearchPage page = loader.get();
+        synchronized (this) {
+            if (version.get() == versionAtLoad) {
+                entries.put(key, new Entry(criteria, page, System.nanoTime() + ttlNanos));
+            }
+        }
+        return page;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(INVALIDATION_ORDER)
+    public void onPropertyChanged(PropertyChangedEvent event) {
+        long id = event.getPropertyId();
+        Property property = event.getProperty();
+        synchronized (this) {
+            version.incrementAndGet();
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+                Entry entry = it.next();
+                // The text query is not re-evaluated here, so text searches are dropped on a structured match
+                if (entry.lists(id) || (property != null && entry.criteria.matches(property))) {
+                    it.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /** Hit, miss, eviction and invalidation counters since startup, plus the current size. */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("invalidations", invalidations.get());
+        synchronized (this) { stats.put("size", (long) entries.size()); }
+        return stats;
+    }
+
+    // --- Keys ---
+
+    /**
+     * Canonical form of a request: blank strings are already null in the criteria, strings compared
+     * case-insensitively are lower-cased and prices drop their scale, so "100000.00" and "1E+5" share an entry.
+     * Also the filter part of the listing ETag.
+     */
+    public static String keyOf(PropertySearchCriteria criteria, PropertySort sort, String cursor, int limit) {
+        return "type=" + criteria.getType()
+                + "|city=" + lower(criteria.getCity())
+                + "|price=" + plain(criteria.getMinPrice()) + "-" + plain(criteria.getMaxPrice())
+                + "|beds=" + criteria.getMinBedrooms()
+                + "|baths=" + criteria.getMinBathrooms()
+                + "|q=" + lower(criteria.getText())
+                + "|amenities=" + amenitiesKey(criteria.getAmenities())
+                + "|geo=" + criteria.getGeo()
+                + "|sort=" + sort
+                + "|cursor=" + cursor
+                + "|limit=" + limit;
+    }
+
+    private static String lower(String value) {
+        return value != null ? value.toLowerCase(Locale.ROOT) : null;
+    }
+
+    // Order does not matter: all of them are required
+    private static String amenitiesKey(List<String> amenities) {
+        if (amenities == null) { return null; }
+        return amenities.stream().map(SearchResultCache::lower).sorted().collect(Collectors.joining(","));
+    }
+
+    private static String plain(BigDecimal value) {
+        return value != null ? value.stripTrailingZeros().toPlainString() : null;
+    }
+
+    private static final class Entry {
+        private final PropertySearchCriteria criteria;
+        private final PropertySearchPage page;
+        private final long[] ids; // sorted, for the invalidation check
+        private final long expiresAt;
+
+        private Entry(PropertySearchCriteria criteria, PropertySearchPage page, long expiresAt) {
+            this.criteria = criteria;
+            this.page = page;
+            this.ids = page.getItems().stream().mapToLong(PropertyDTO::getId).sorted().toArray();
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean lists(long id) {
+            return Arrays.binarySearch(ids, id) >= 0;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.demo.service.search;
+
+import com.example.demo.model.Property;
+import com.example.demo.model.enums.PropertyStatus;
+import com.example.demo.repository.PropertyRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Autocomplete over the cities, postal codes and street names of AVAILABLE properties, ranked by listing count.
+ * <p>
+ * Lookups read an immutable {@link SuggestSnapshot} through a volatile field. The index keeps the listing
+ * count of every term and the terms of every property; a {@link PropertyChangedEvent} only moves the counts
+ * of that property's old and new terms, and schedules a rebuild of the snapshot from the counts (not the
+ * database) on a background thread, at most once per {@code search.suggest.refresh-ms}.
+ */
+@Component
+public class SuggestIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SuggestIndex.class);
+    private static final Pattern ORDINAL = Pattern.compile("\\d+(st|nd|rd|th)", Pattern.CASE_INSENSITIVE); // 2nd Cross, 5th Avenue
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    private final int maxResults;
+    private final long refreshMillis;
+
+    private volatile SuggestSnapshot snapshot; // null until the initial load completes
+    private final Object writeLock = new Object();
+    private final Map<String, SuggestSnapshot.Term> terms = new HashMap<>(); // guarded by writeLock, keyed by type + key
+    private final Map<Long, SuggestSnapshot.Term[]> termsByProperty = new HashMap<>(); // guarded by writeLock, counted properties only
+    private final List<PropertyChangedEvent> pendingWrites = new ArrayList<>(); // writes seen while loading
+    private boolean loading = true; // guarded by writeLock
+
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "suggest-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param maxResults Most suggestions a lookup can return; the size of the precomputed per-prefix lists.
+     * @param refreshMillis Delay between a property change and the snapshot rebuild that shows it.
+     */
+    public SuggestIndex(@Value("${search.suggest.max-results:20}") int maxResults,
+                        @Value("${search.suggest.refresh-ms:500}") long refreshMillis) {
+        this.maxResults = Math.max(1, maxResults);
+        this.refreshMillis = refreshMillis;
+    }
+
+    // --- Loading ---
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            long start = System.nanoTime();
+            List<Object[]> rows = propertyRepository.findAllSuggestRows();
+            SuggestSnapshot loaded;
+            synchronized (writeLock) {
+                for (Object[] row : rows) {
+                    add((Long) row[0], (PropertyStatus) row[1], (String) row[2], (String) row[3], (String) row[4]);
+                }
+                for (PropertyChangedEvent event : pendingWrites) { applyLocked(event); }
+                pendingWrites.clear();
+                loaded = SuggestSnapshot.build(terms.values(), maxResults);
+                snapshot = loaded;
+                loading = false;
+            }
+            logger.info("Suggest index loaded {} terms from {} properties in {} ms",
+                    loaded.size(), rows.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            logger.error("Failed to load suggest index, suggestions are unavailable: {}", e.getMessage(), e);
+            synchronized (writeLock) {
+                pendingWrites.clear();
+                loading = false;
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    // --- Reads ---
+
+    /**
+     * Returns up to {@code limit} cities, postal codes and street names starting with the prefix
+     * (case-insensitive), most AVAILABLE listings first.
+     * @throws IllegalStateException if the index has not been loaded yet.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        SuggestSnapshot current = snapshot;
+        if (current == null) { throw new IllegalStateException("Suggestions are not available yet"); }
+        String key = SuggestSnapshot.normalize(prefix);
+        return key.isEmpty() ? List.of() : current.suggest(key, limit);
+    }
+
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    // --- Writes (applied once the publishing transaction commits) ---
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(0)
+    public void onPropertyChanged(PropertyChangedEvent event) {
+        synchronized (writeLock) {
+            if (snapshot == null) {
+                if (loading) { pendingWrites.add(event); }
+                return;
+            }
+            applyLocked(event);
+        }
+        if (refreshScheduled.compareAndSet(false, true)) {
+            refresher.schedule(this::refresh, refreshMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    private void refresh() {
+        refreshScheduled.set(false); // Changes from here on schedule another refresh
+        try {
+            synchronized (writeLock) {
+                snapshot = SuggestSnapshot.build(terms.values(), maxResults);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to refresh suggest index: {}", e.getMessage(), e);
+        }
+    }
+
+    private void applyLocked(PropertyChangedEvent event) {
+        remove(event.getPropertyId());
+        if (!event.isDeleted()) {
+            Property property = event.getProperty();
+            add(property.getId(), property.getStatus(), property.getCity(), property.getPostalCode(), property.getAddress());
+        }
+    }
+
+    private void add(Long id, PropertyStatus status, String city, String postalCode, String address) {
+        if (status != PropertyStatus.AVAILABLE) { return; }
+        List<SuggestSnapshot.Term> counted = new ArrayList<>(3);
+        count(Suggestion.Type.CITY, city, counted);
+        count(Suggestion.Type.POSTAL_CODE, postalCode, counted);
+        count(Suggestion.Type.STREET, streetOf(address), counted);
+        termsByProperty.put(id, counted.toArray(new SuggestSnapshot.Term[0]));
+    }
+
+    private void count(Suggestion.Type type, String text, List<SuggestSnapshot.Term> counted) {
+        if (text == null || text.isBlank()) { return; }
+        String key = SuggestSnapshot.normalize(text);
+        SuggestSnapshot.Term term = terms.computeIfAbsent(type.ordinal() + ":" + key,
+                k -> new SuggestSnapshot.Term(type, key, text.trim().replaceAll("\\s+", " ")));
+        term.count++;
+        counted.add(term);
+    }
+
+    private void remove(Long id) {
+        SuggestSnapshot.Term[] previous = termsByProperty.remove(id);
+        if (previous == null) { return; }
+        for (SuggestSnapshot.Term term : previous) {
+            if (--term.count == 0) { terms.remove(term.type.ordinal() + ":" + term.key); }
+        }
+    }
+
+    /**
+     * The street name of an address: its first comma-separated part that contains a letter, without the
+     * leading house number tokens ("12B Baker Street, Marylebone" gives "Baker Street", "#4, 2nd Cross" gives
+     * "2nd Cross"). Null if none is left.
+     */
+    static String streetOf(String address) {
+        if (address == null) { return null; }
+        for (String part : address.split(",")) {
+            String[] tokens = part.trim().split("\\s+");
+            int first = 0;
+            while (first < tokens.length && isHouseNumber(tokens[first])) { first++; }
+            if (first < tokens.length && tokens[first].chars().anyMatch(Character::isLetter)) {
+                return String.join(" ", Arrays.copyOfRange(tokens, first, tokens.length));
+            }
+        }
+        return null;
+    }
+
+    private static boolean isHouseNumber(String token) {
+        return token.chars().anyMatch(Character::isDigit) && !ORDINAL.matcher(token).matches();
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.demo.service.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable prefix index over the autocomplete terms (cities, postal codes, street names).
+ * <p>
+ * Terms are packed into parallel arrays sorted by their normalized key: a trie flattened to its leaves,
+ * where the subtree of every prefix is one contiguous index range found with two binary searches.
+ * Ranges of at most {@value #SCAN_LIMIT} terms are ranked by scanning them; for the few prefixes with
+ * larger ranges (the upper trie levels, "s", "sa", ...) the top {@code maxResults} are precomputed at
+ * build time, so a lookup never touches more than {@value #SCAN_LIMIT} terms.
+ */
+final class SuggestSnapshot {
+
+    static final int SCAN_LIMIT = 128;
+
+    /** Mutable per-term listing count kept by {@link SuggestIndex}; copied into the arrays on build. */
+    static final class Term {
+        final Suggestion.Type type;
+        final String key;
+        final String text; // Spelling of the first listing seen with this key
+        int count;
+
+        Term(Suggestion.Type type, String key, String text) {
+            this.type = type;
+            this.key = key;
+            this.text = text;
+        }
+    }
+
+    private static final Comparator<Term> KEY_ORDER = Comparator.<Term, String>comparing(term -> term.key)
+            .thenComparing(term -> term.type);
+    private static final Suggestion.Type[] TYPES = Suggestion.Type.values();
+
+    private final String[] keys;
+    private final String[] texts;
+    private final byte[] types;
+    private final int[] counts;
+    private final int maxResults;
+    private final Map<String, int[]> topByPrefix = new HashMap<>(); // Best term indexes, for prefixes spanning more than SCAN_LIMIT terms
+
+    private SuggestSnapshot(String[] keys, String[] texts, byte[] types, int[] counts, int maxResults) {
+        this.keys = keys;
+        this.texts = texts;
+        this.types = types;
+        this.counts = counts;
+        this.maxResults = maxResults;
+        indexLargePrefixes(0, keys.length, 0);
+    }
+
+    /** Builds a snapshot of the terms with a positive count. */
+    static SuggestSnapshot build(Collection<Term> terms, int maxResults) {
+        List<Term> live = new ArrayList<>(terms.size());
+        for (Term term : terms) {
+            if (term.count > 0) { live.add(term); }
+        }
+        live.sort(KEY_ORDER);
+        int n = live.size();
+        String[] keys = new String[n];
+        String[] texts = new String[n];
+        byte[] types = new byte[n];
+        int[] counts = new int[n];
+        for (int i = 0; i < n; i++) {
+            Term term = live.get(i);
+            keys[i] = term.key;
+            texts[i] = term.text;
+            types[i] = (byte) term.type.ordinal();
+            counts[i] = term.count;
+        }
+        return new SuggestSnapshot(keys, texts, types, counts, maxResults);
+    }
+
+    /** Lower-cases and collapses whitespace, so "  San   Jose" and "san jose" share a key. */
+    static String normalize(String text) {
+        return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    int prefixTables() {
+        return topByPrefix.size();
+    }
+
+    /**
+     * Returns up to {@code limit} terms starting with the (normalized, non-empty) prefix, most listings first,
+     * ties in key order.
+     */
+    List<Suggestion> suggest(String prefix, int limit) {
+        int n = Math.min(limit, maxResults);
+        int lo = lowerBound(prefix);
+        int hi = prefixEnd(prefix, lo);
+        int[] best = hi - lo > SCAN_LIMIT ? topByPrefix.get(prefix) : topOf(lo, hi);
+        List<Suggestion> result = new ArrayList<>(Math.min(n, best.length));
+        for (int i = 0; i < best.length && i < n; i++) {
+            int term = best[i];
+            result.add(new Suggestion(texts[term], TYPES[types[term]], counts[term]));
+        }
+        return result;
+    }
+
+    // --- Build ---
+
+    /**
+     * Walks the implicit trie below the range [lo, hi), whose keys share their first {@code depth} chars,
+     * and records the best terms of every child prefix spanning more than SCAN_LIMIT keys.
+     */
+    private void indexLargePrefixes(int lo, int hi, int depth) {
+        int i = lo;
+        while (i < hi && keys[i].length() == depth) { i++; } // The prefix itself sorts first
+        while (i < hi) {
+            char c = keys[i].charAt(depth);
+            int j = i + 1;
+            while (j < hi && keys[j].charAt(depth) == c) { j++; }
+            if (j - i > SCAN_LIMIT) {
+                topByPrefix.put(keys[i].substring(0, depth + 1), topOf(i, j));
+                indexLargePrefixes(i, j, depth + 1);
+            }
+            i = j;
+        }
+    }
+
+    /** The best {@code maxResults} term indexes in [lo, hi), best first; insertion into a small sorted array. */
+    private int[] topOf(int lo, int hi) {
+        int[] best = new int[Math.min(maxResults, hi - lo)];
+        int size = 0;
+        for (int term = lo; term < hi; term++) {
+            if (size == best.length && counts[term] <= counts[best[size - 1]]) { continue; } // Ties keep the earlier key
+            int at = size == best.length ? size - 1 : size++;
+            while (at > 0 && counts[term] > counts[best[at - 1]]) {
+                best[at] = best[at - 1];
+                at--;
+            }
+            best[at] = term;
+        }
+        return size == best.length ? best : Arrays.copyOf(best, size);
+    }
+
+    // --- Lookup ---
+
+    private int lowerBound(String prefix) {
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].compareTo(prefix) < 0) { lo = mid + 1; } else { hi = mid; }
+        }
+        return lo;
+    }
+
+    /** First index at or after {@code from} whose key does not start with the prefix. */
+    private int prefixEnd(String prefix, int from) {
+        int lo = from;
+        int hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].startsWith(prefix)) { lo = mid + 1; } else { hi = mid; }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.demo.service.search;
+
+/** One autocomplete entry: a city, postal code or street name and the number of AVAILABLE listings with it. */
+public final class Suggestion {
+
+    public enum Type { CITY, POSTAL_CODE, STREET }
+
+    private final String text;
+    private final Type type;
+    private final int count;
+
+    Suggestion(String text, Type type, int count) {
+        this.text = text;
+        this.type = type;
+        this.count = count;
+    }
+
+    public String getText() { return text; }
+    public Type getType() { return type; }
+    public int getCount() { return count; }
+}
@@ -0,0 +1,77 @@
+package com.example.demo.service.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Turns listing text and search queries into index terms: splits on anything that is not a letter
+ * or digit, lower-cases, drops stop words and single characters, and reduces each word with a light
+ * English suffix stemmer ("pools" and "pool", "swimming" and "swim" share a term).
+ * Documents and queries must go through the same analyzer, so changing it requires a full reindex
+ * (see {@link FullTextIndex#FORMAT_VERSION}).
+ */
+final class TextAnalyzer {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "has", "have", "in", "is", "it",
+            "its", "of", "on", "or", "that", "the", "this", "to", "was", "were", "will", "with");
+
+    private TextAnalyzer() {}
+
+    /** Terms of the text in order of appearance (duplicates kept, so callers can count frequencies). */
+    static List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) { return terms; }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String word = lower.substring(start, i);
+                if (word.length() > 1 && !STOP_WORDS.contains(word)) { terms.add(stem(word)); }
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    /** Light, conservative suffix stripping (plurals, -ing, -ed, -ly). Numbers are left alone. */
+    static String stem(String word) {
+        if (word.length() < 4 || Character.isDigit(word.charAt(0))) { return word; }
+        if (word.endsWith("ies") && word.length() > 4) { return word.substring(0, word.length() - 3) + "y"; }
+        if (word.endsWith("sses")) { return word.substring(0, word.length() - 2); }
+        if (word.endsWith("xes") || word.endsWith("ches") || word.endsWith("shes")) { return word.substring(0, word.length() - 2); }
+        if (word.endsWith("s") && !word.endsWith("ss") && !word.endsWith("us") && !word.endsWith("is")) {
+            return word.substring(0, word.length() - 1);
+        }
+        if (word.endsWith("ing") && word.length() > 5 && hasVowel(word, word.length() - 3)) {
+            return undouble(word.substring(0, word.length() - 3));
+        }
+        if (word.endsWith("ed") && word.length() > 4 && hasVowel(word, word.length() - 2)) {
+            return undouble(word.substring(0, word.length() - 2));
+        }
+        if (word.endsWith("ly") && word.length() > 5) { return word.substring(0, word.length() - 2); }
+        return word;
+    }
+
+    private static boolean hasVowel(String word, int end) {
+        for (int i = 0; i < end; i++) {
+            if ("aeiouy".indexOf(word.charAt(i)) >= 0) { return true; }
+        }
+        return false;
+    }
+
+    // "swimm" -> "swim", but keep "ll", "ss" and "zz" ("installed" -> "install")
+    private static String undouble(String stem) {
+        int n = stem.length();
+        if (n >= 3 && stem.charAt(n - 1) == stem.charAt(n - 2) && "lsz".indexOf(stem.charAt(n - 1)) < 0
+                && "aeiou".indexOf(stem.charAt(n - 1)) < 0) {
+            return stem.substring(0, n - 1);
+        }
+        return stem;
+    }
+}
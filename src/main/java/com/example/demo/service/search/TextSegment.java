@@ -0,0 +1,216 @@
+package com.example.demo.service.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Immutable inverted index over a batch of documents, as written to (and read back from) one file.
+ * <p>
+ * Terms are sorted and looked up by binary search; the postings of {@code terms[t]} are the entries
+ * {@code [offsets[t], offsets[t + 1])} of the parallel {@code postingDocs}/{@code postingFreqs}
+ * arrays, ascending by document id. A segment is never modified: a document that is updated or
+ * deleted later simply stops being live in it (see {@link FullTextIndex}), and the dead postings
+ * are dropped when segments are merged.
+ */
+final class TextSegment {
+
+    private static final int MAGIC = 0x50534547; // "PSEG"
+
+    final int generation;
+    private final String[] terms;
+    private final int[] offsets;
+    private final long[] postingDocs;
+    private final int[] postingFreqs;
+    private final long[] docIds;   // sorted
+    private final int[] docLengths; // number of terms, parallel to docIds
+
+    private TextSegment(int generation, String[] terms, int[] offsets, long[] postingDocs, int[] postingFreqs,
+                        long[] docIds, int[] docLengths) {
+        this.generation = generation;
+        this.terms = terms;
+        this.offsets = offsets;
+        this.postingDocs = postingDocs;
+        this.postingFreqs = postingFreqs;
+        this.docIds = docIds;
+        this.docLengths = docLengths;
+    }
+
+    // --- Construction ---
+
+    /** Inverts a batch of analyzed documents (document id to term frequencies). */
+    static TextSegment fromDocuments(int generation, Map<Long, Map<String, Integer>> documents) {
+        Map<String, List<long[]>> postings = new TreeMap<>();
+        Map<Long, Map<String, Integer>> byId = new TreeMap<>(documents); // postings end up ascending by doc
+        long[] docIds = new long[byId.size()];
+        int[] docLengths = new int[byId.size()];
+        int d = 0;
+        for (Map.Entry<Long, Map<String, Integer>> doc : byId.entrySet()) {
+            int length = 0;
+            for (Map.Entry<String, Integer> term : doc.getValue().entrySet()) {
+                postings.computeIfAbsent(term.getKey(), t -> new ArrayList<>()).add(new long[] { doc.getKey(), term.getValue() });
+                length += term.getValue();
+            }
+            docIds[d] = doc.getKey();
+            docLengths[d++] = length;
+        }
+        return fromPostings(generation, postings, docIds, docLengths);
+    }
+
+    /** Merges segments into one, keeping only the documents for which {@code live(generation, doc)} holds. */
+    static TextSegment merge(int generation, List<TextSegment> parts, LiveCheck live) {
+        TreeSet<String> allTerms = new TreeSet<>();
+        Map<Long, Integer> lengths = new TreeMap<>();
+        for (TextSegment part : parts) {
+            allTerms.addAll(Arrays.asList(part.terms));
+            for (int i = 0; i < part.docIds.length; i++) {
+                if (live.isLive(part.generation, part.docIds[i])) { lengths.put(part.docIds[i], part.docLengths[i]); }
+            }
+        }
+        Map<String, List<long[]>> postings = new TreeMap<>();
+        for (String term : allTerms) {
+            List<long[]> merged = new ArrayList<>();
+            for (TextSegment part : parts) {
+                int t = part.findTerm(term);
+                if (t < 0) { continue; }
+                for (int i = part.offsets[t]; i < part.offsets[t + 1]; i++) {
+                    if (live.isLive(part.generation, part.postingDocs[i])) { merged.add(new long[] { part.postingDocs[i], part.postingFreqs[i] }); }
+                }
+            }
+            if (!merged.isEmpty()) {
+                merged.sort((a, b) -> Long.compare(a[0], b[0])); // A live doc is in exactly one part, so no duplicates
+                postings.put(term, merged);
+            }
+        }
+        long[] docIds = new long[lengths.size()];
+        int[] docLengths = new int[lengths.size()];
+        int d = 0;
+        for (Map.Entry<Long, Integer> entry : lengths.entrySet()) {
+            docIds[d] = entry.getKey();
+            docLengths[d++] = entry.getValue();
+        }
+        return fromPostings(generation, postings, docIds, docLengths);
+    }
+
+    private static TextSegment fromPostings(int generation, Map<String, List<long[]>> postings, long[] docIds, int[] docLengths) {
+        String[] terms = postings.keySet().toArray(new String[0]);
+        int[] offsets = new int[terms.length + 1];
+        int total = 0;
+        for (List<long[]> list : postings.values()) { total += list.size(); }
+        long[] postingDocs = new long[total];
+        int[] postingFreqs = new int[total];
+        int t = 0;
+        int p = 0;
+        for (List<long[]> list : postings.values()) {
+            offsets[t++] = p;
+            for (long[] posting : list) {
+                postingDocs[p] = posting[0];
+                postingFreqs[p++] = (int) posting[1];
+            }
+        }
+        offsets[t] = p;
+        return new TextSegment(generation, terms, offsets, postingDocs, postingFreqs, docIds, docLengths);
+    }
+
+    // --- Persistence ---
+
+    /** Writes the segment to a temporary file and atomically moves it into place. */
+    void writeTo(Path file, int formatVersion) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(formatVersion);
+            out.writeInt(docIds.length);
+            for (int i = 0; i < docIds.length; i++) {
+                out.writeLong(docIds[i]);
+                out.writeInt(docLengths[i]);
+            }
+            out.writeInt(terms.length);
+            for (int t = 0; t < terms.length; t++) {
+                out.writeUTF(terms[t]);
+                out.writeInt(offsets[t + 1] - offsets[t]);
+                for (int i = offsets[t]; i < offsets[t + 1]; i++) {
+                    out.writeLong(postingDocs[i]);
+                    out.writeInt(postingFreqs[i]);
+                }
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a segment written by {@link #writeTo}.
+     * @throws IOException if the file is unreadable, truncated or was written in another format version.
+     */
+    static TextSegment readFrom(Path file, int generation, int formatVersion) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != formatVersion) {
+                throw new IOException("Unsupported segment format: " + file);
+            }
+            int docCount = in.readInt();
+            long[] docIds = new long[docCount];
+            int[] docLengths = new int[docCount];
+            for (int i = 0; i < docCount; i++) {
+                docIds[i] = in.readLong();
+                docLengths[i] = in.readInt();
+            }
+            int termCount = in.readInt();
+            String[] terms = new String[termCount];
+            int[] offsets = new int[termCount + 1];
+            long[] postingDocs = new long[Math.max(16, docCount)];
+            int[] postingFreqs = new int[postingDocs.length];
+            int p = 0;
+            for (int t = 0; t < termCount; t++) {
+                terms[t] = in.readUTF();
+                int count = in.readInt();
+                offsets[t] = p;
+                if (p + count > postingDocs.length) {
+                    int capacity = Math.max(p + count, postingDocs.length * 2);
+                    postingDocs = Arrays.copyOf(postingDocs, capacity);
+                    postingFreqs = Arrays.copyOf(postingFreqs, capacity);
+                }
+                for (int i = 0; i < count; i++, p++) {
+                    postingDocs[p] = in.readLong();
+                    postingFreqs[p] = in.readInt();
+                }
+            }
+            offsets[termCount] = p;
+            return new TextSegment(generation, terms, offsets, Arrays.copyOf(postingDocs, p), Arrays.copyOf(postingFreqs, p),
+                    docIds, docLengths);
+        }
+    }
+
+    // --- Access ---
+
+    /** Index of the term, or -1 if no document in this segment contains it. */
+    int findTerm(String term) {
+        int t = Arrays.binarySearch(terms, term);
+        return t >= 0 ? t : -1;
+    }
+
+    int postingsStart(int term) { return offsets[term]; }
+    int postingsEnd(int term) { return offsets[term + 1]; }
+    long postingDoc(int posting) { return postingDocs[posting]; }
+    int postingFreq(int posting) { return postingFreqs[posting]; }
+
+    int docCount() { return docIds.length; }
+    boolean containsDoc(long docId) { return Arrays.binarySearch(docIds, docId) >= 0; }
+    long docId(int index) { return docIds[index]; }
+    int docLength(int index) { return docLengths[index]; }
+
+    /** Decides whether the copy of a document held by the segment of the given generation is the current one. */
+    interface LiveCheck {
+        boolean isLive(int generation, long docId);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.demo.service.search;
+
+/**
+ * Keeps the k smallest (key, id) pairs offered, compared by key and then by id, in a bounded max-heap
+ * over two primitive arrays: no boxing and no per-element objects while a scan offers every match.
+ * The root is the largest pair kept, so a pair that cannot make the cut is rejected with one comparison.
+ */
+final class TopKHeap {
+
+    private final long[] keys;
+    private final long[] ids;
+    private int size;
+
+    TopKHeap(int k) {
+        keys = new long[k];
+        ids = new long[k];
+    }
+
+    void offer(long key, long id) {
+        if (size < keys.length) {
+            keys[size] = key;
+            ids[size] = id;
+            siftUp(size++);
+        } else if (size > 0 && less(key, id, keys[0], ids[0])) {
+            keys[0] = key;
+            ids[0] = id;
+            siftDown(0);
+        }
+    }
+
+    /** Offers every pair kept by the other heap (a partial result of the same scan) and returns this heap. */
+    TopKHeap merge(TopKHeap other) {
+        for (int i = 0; i < other.size; i++) { offer(other.keys[i], other.ids[i]); }
+        return this;
+    }
+
+    /** The ids kept, smallest pair first. Empties the heap. */
+    long[] drainAscending() {
+        long[] result = new long[size];
+        while (size > 0) {
+            result[size - 1] = ids[0]; // The root is the largest remaining pair
+            size--;
+            keys[0] = keys[size];
+            ids[0] = ids[size];
+            siftDown(0);
+        }
+        return result;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!less(keys[parent], ids[parent], keys[index], ids[index])) { return; }
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int largest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && less(keys[largest], ids[largest], keys[left], ids[left])) { largest = left; }
+            if (right < size && less(keys[largest], ids[largest], keys[right], ids[right])) { largest = right; }
+            if (largest == index) { return; }
+            swap(index, largest);
+            index = largest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+    }
+
+    static boolean less(long key, long id, long otherKey, long otherId) {
+        return key < otherKey || (key == otherKey && id < otherId);
+    }
+}
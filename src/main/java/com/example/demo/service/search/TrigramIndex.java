@@ -0,0 +1,132 @@
+package com.example.demo.service.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable trigram index over a dictionary of strings (e.g. the distinct city names).
+ * <p>
+ * Every value is normalized (trimmed, lower-cased) and split into overlapping 3-character grams.
+ * A substring lookup intersects the posting lists of the needle's grams, starting with the rarest,
+ * and then verifies the few surviving candidates with {@code contains}. Grams, offsets and postings
+ * are stored in flat primitive arrays (CSR layout) and looked up by binary search.
+ */
+final class TrigramIndex {
+
+    static final TrigramIndex EMPTY = build(new String[0]);
+
+    private final String[] values; // normalized, indexed by code
+    private final long[] grams;    // sorted, distinct
+    private final int[] offsets;   // postings of grams[i] are codes[offsets[i] .. offsets[i + 1])
+    private final int[] codes;     // ascending within each posting list
+
+    private TrigramIndex(String[] values, long[] grams, int[] offsets, int[] codes) {
+        this.values = values;
+        this.grams = grams;
+        this.offsets = offsets;
+        this.codes = codes;
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /** Indexes the given values; the position of each value is its code. */
+    static TrigramIndex build(String[] rawValues) {
+        String[] values = new String[rawValues.length];
+        Map<Long, List<Integer>> postings = new TreeMap<>();
+        for (int code = 0; code < rawValues.length; code++) {
+            values[code] = normalize(rawValues[code]);
+            for (long gram : distinctGrams(values[code])) {
+                postings.computeIfAbsent(gram, g -> new ArrayList<>()).add(code);
+            }
+        }
+        long[] grams = new long[postings.size()];
+        int[] offsets = new int[postings.size() + 1];
+        int total = 0;
+        for (List<Integer> list : postings.values()) { total += list.size(); }
+        int[] codes = new int[total];
+        int g = 0;
+        int c = 0;
+        for (Map.Entry<Long, List<Integer>> entry : postings.entrySet()) {
+            grams[g] = entry.getKey();
+            offsets[g] = c;
+            for (int code : entry.getValue()) { codes[c++] = code; }
+            g++;
+        }
+        offsets[g] = c;
+        return new TrigramIndex(values, grams, offsets, codes);
+    }
+
+    /** Codes (ascending) of all values containing the needle, case-insensitively. */
+    int[] lookup(String needle) {
+        String normalized = normalize(needle);
+        if (normalized.length() < 3) {
+            return scan(normalized); // Too short to have a trigram
+        }
+        long[] needleGrams = distinctGrams(normalized);
+        int[][] ranges = new int[needleGrams.length][];
+        for (int i = 0; i < needleGrams.length; i++) {
+            int pos = Arrays.binarySearch(grams, needleGrams[i]);
+            if (pos < 0) { return new int[0]; } // A gram nobody has: no match possible
+            ranges[i] = new int[] { offsets[pos], offsets[pos + 1] };
+        }
+        Arrays.sort(ranges, (a, b) -> Integer.compare(a[1] - a[0], b[1] - b[0])); // Rarest first
+
+        int[] candidates = Arrays.copyOfRange(codes, ranges[0][0], ranges[0][1]);
+        int count = candidates.length;
+        for (int i = 1; i < ranges.length && count > 0; i++) {
+            count = intersect(candidates, count, ranges[i][0], ranges[i][1]);
+        }
+        // Grams are necessary, not sufficient (order is not checked), so verify the survivors
+        int matched = 0;
+        for (int i = 0; i < count; i++) {
+            if (values[candidates[i]].contains(normalized)) { candidates[matched++] = candidates[i]; }
+        }
+        return Arrays.copyOf(candidates, matched);
+    }
+
+    /** Reference implementation: checks every value. Used for needles shorter than a trigram. */
+    int[] scan(String needle) {
+        String normalized = normalize(needle);
+        int[] result = new int[values.length];
+        int count = 0;
+        for (int code = 0; code < values.length; code++) {
+            if (values[code].contains(normalized)) { result[count++] = code; }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    int size() {
+        return values.length;
+    }
+
+    // Keeps in candidates[0..count) only the codes also present in codes[from..to); both are ascending
+    private int intersect(int[] candidates, int count, int from, int to) {
+        int kept = 0;
+        int j = from;
+        for (int i = 0; i < count && j < to; i++) {
+            while (j < to && codes[j] < candidates[i]) { j++; }
+            if (j < to && codes[j] == candidates[i]) { candidates[kept++] = candidates[i]; }
+        }
+        return kept;
+    }
+
+    private static long[] distinctGrams(String value) {
+        if (value.length() < 3) { return new long[0]; }
+        long[] result = new long[value.length() - 2];
+        for (int i = 0; i + 3 <= value.length(); i++) {
+            result[i] = ((long) value.charAt(i) << 32) | ((long) value.charAt(i + 1) << 16) | value.charAt(i + 2);
+        }
+        Arrays.sort(result);
+        int distinct = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (i == 0 || result[i] != result[i - 1]) { result[distinct++] = result[i]; }
+        }
+        return Arrays.copyOf(result, distinct);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.demo.config.filter;
+
+import com.example.demo.service.CurrentUser;
+import com.example.demo.service.JwtService;
+import com.example.demo.service.TokenRevocationService;
+import com.example.demo.service.UserCache;
+import com.example.demo.service.UserSnapshot;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of JWT authentication: the token handling the filter used to do (three parses, each
+ * decoding the secret and building a parser) vs. a single verify() with the key and parser built once,
+ * with and without the verified-token cache, alone and through the whole filter. Tokens with the user id and
+ * role claims are authenticated from the claims; legacy (subject only) tokens go through a stubbed user lookup.
+ * Times are in microseconds per request.
+ * <p>
+ * Run with: {@code java -cp <test classpath> org.openjdk.jmh.Main JwtFilterBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtFilterBenchmark {
+
+    private static final String SECRET = "ChangeThisSecretToSomethingVeryLongAndRandomKeepItSafe!";
+    private static final UserDetails USER = new User("user@example.com", "{noop}x", List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")));
+    private static final UserSnapshot SNAPSHOT = new UserSnapshot(7L, "User", "user@example.com", "CUSTOMER");
+
+    private JwtService cachedService;
+    private JwtService uncachedService;
+    private JwtAuthenticationFilter cachedFilter;
+    private JwtAuthenticationFilter uncachedFilter;
+    private String token;       // With the user id and role claims: authenticated from the token alone
+    private String legacyToken; // Subject only: the filter loads the user (stubbed here)
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cachedService = jwtService(10_000);
+        uncachedService = jwtService(0);
+        cachedFilter = filter(cachedService);
+        uncachedFilter = filter(uncachedService);
+        token = cachedService.generateToken(new com.example.demo.model.User(7L, "User", "user@example.com", "x", "CUSTOMER"));
+        legacyToken = cachedService.generateToken(USER);
+    }
+
+    @Benchmark
+    public boolean legacyTripleParse() {
+        String username = legacyClaims(legacyToken).getSubject();      // extractUsername
+        boolean sameUser = legacyClaims(legacyToken).getSubject().equals(username); // isTokenValid
+        return sameUser && !legacyClaims(legacyToken).getExpiration().before(new Date()); // isTokenExpired
+    }
+
+    @Benchmark
+    public String verifyUncached() {
+        return uncachedService.verify(token).getSubject();
+    }
+
+    @Benchmark
+    public String verifyCached() {
+        return cachedService.verify(token).getSubject();
+    }
+
+    @Benchmark
+    public Authentication filterUncached() throws Exception {
+        return runFilter(uncachedFilter, token);
+    }
+
+    @Benchmark
+    public Authentication filterCached() throws Exception {
+        return runFilter(cachedFilter, token);
+    }
+
+    @Benchmark
+    public Authentication filterCachedLegacyToken() throws Exception {
+        return runFilter(cachedFilter, legacyToken);
+    }
+
+    private Authentication runFilter(JwtAuthenticationFilter filter, String jwt) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/bookings/my-bookings");
+        request.addHeader("Authorization", "Bearer " + jwt);
+        SecurityContextHolder.clearContext();
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private Claims legacyClaims(String jwt) {
+        Key key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(jwt).getBody();
+    }
+
+    private static JwtService jwtService(int cacheEntries) {
+        JwtService service = new JwtService();
+        ReflectionTestUtils.setField(service, "secretKeyString", SECRET);
+        ReflectionTestUtils.setField(service, "jwtExpirationMs", 3_600_000L);
+        ReflectionTestUtils.setField(service, "verifiedCacheMaxEntries", cacheEntries);
+        ReflectionTestUtils.invokeMethod(service, "init");
+        return service;
+    }
+
+    private static JwtAuthenticationFilter filter(JwtService jwtService) {
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "jwtService", jwtService);
+        ReflectionTestUtils.setField(filter, "userCache", new UserCache(0, 0) {
+            @Override
+            public Optional<UserSnapshot> findByEmail(String email) {
+                return Optional.of(SNAPSHOT); // The database lookup is not what is measured here
+            }
+        });
+        ReflectionTestUtils.setField(filter, "tokenRevocations", new TokenRevocationService()); // Nothing revoked
+        ReflectionTestUtils.setField(filter, "currentUser", new CurrentUser());
+        return filter;
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.demo.mapper;
+
+import com.example.demo.dto.BookingResponseDTO;
+import com.example.demo.dto.PropertyDTO;
+import com.example.demo.model.Booking;
+import com.example.demo.model.Property;
+import com.example.demo.model.User;
+import com.example.demo.model.enums.BookingStatus;
+import com.example.demo.model.enums.PropertyStatus;
+import com.example.demo.model.enums.PropertyType;
+import org.hibernate.LazyInitializationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping a list of entities to DTOs: the generated MapStruct mappers vs. the hand-written
+ * convertToDto helpers they replaced (which copied the amenity set on every call).
+ * Throughput is in lists per second.
+ * <p>
+ * Run with: {@code java -cp <test classpath> org.openjdk.jmh.Main DtoMappingBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoMappingBenchmark {
+
+    private static final String[] AMENITIES = { "Parking", "Gym", "Pool", "Garden", "Lift", "Balcony", "Security", "Power Backup" };
+
+    @Param({ "10000" })
+    public int entities;
+
+    private final PropertyMapper propertyMapper = new PropertyMapperImpl();
+    private final BookingMapper bookingMapper = new BookingMapperImpl();
+
+    private List<Property> properties;
+    private List<Booking> bookings;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            User user = new User();
+            user.setId((long) i + 1);
+            user.setName("User " + i);
+            user.setEmail("user" + i + "@example.com");
+            users.add(user);
+        }
+        properties = new ArrayList<>(entities);
+        bookings = new ArrayList<>(entities);
+        for (int i = 0; i < entities; i++) {
+            Property property = new Property();
+            property.setId((long) i + 1);
+            property.setAddress(i + " Main Road");
+            property.setCity("City " + random.nextInt(200));
+            property.setState("State");
+            property.setPostalCode("5600" + random.nextInt(100));
+            property.setPrice(BigDecimal.valueOf(50_000 + random.nextInt(1_000_000)));
+            property.setBedrooms(1 + random.nextInt(5));
+            property.setBathrooms(1 + random.nextInt(3));
+            property.setDescription("A listing with a few lines of description text, as most of them have.");
+            property.setType(random.nextBoolean() ? PropertyType.SALE : PropertyType.RENT);
+            property.setStatus(PropertyStatus.AVAILABLE);
+            property.setCreatedAt(LocalDateTime.now());
+            property.setOwner(users.get(random.nextInt(users.size())));
+            Set<String> amenities = new HashSet<>();
+            for (int a = random.nextInt(AMENITIES.length); a > 0; a--) { amenities.add(AMENITIES[random.nextInt(AMENITIES.length)]); }
+            property.setAmenities(amenities);
+            properties.add(property);
+
+            Booking booking = new Booking();
+            booking.setId((long) i + 1);
+            booking.setProperty(property);
+            booking.setCustomer(users.get(random.nextInt(users.size())));
+            booking.setStatus(BookingStatus.PENDING);
+            booking.setVisitDate(LocalDate.now());
+            booking.setVisitTime(LocalTime.NOON);
+            booking.setCreatedAt(LocalDateTime.now());
+            bookings.add(booking);
+        }
+    }
+
+    @Benchmark
+    public List<PropertyDTO> propertiesHandWritten() {
+        List<PropertyDTO> dtos = new ArrayList<>(properties.size());
+        for (Property property : properties) { dtos.add(handWrittenPropertyDto(property)); }
+        return dtos;
+    }
+
+    @Benchmark
+    public List<PropertyDTO> propertiesGenerated() {
+        return propertyMapper.toDtos(properties);
+    }
+
+    @Benchmark
+    public List<BookingResponseDTO> bookingsHandWritten() {
+        List<BookingResponseDTO> dtos = new ArrayList<>(bookings.size());
+        for (Booking booking : bookings) { dtos.add(handWrittenBookingDto(booking)); }
+        return dtos;
+    }
+
+    @Benchmark
+    public List<BookingResponseDTO> bookingsGenerated() {
+        return bookingMapper.toDtos(bookings);
+    }
+
+    // The former PropertyController.convertToDto
+    private static PropertyDTO handWrittenPropertyDto(Property property) {
+        PropertyDTO dto = new PropertyDTO();
+        dto.setId(property.getId());
+        dto.setAddress(property.getAddress());
+        dto.setCity(property.getCity());
+        dto.setState(property.getState());
+        dto.setPostalCode(property.getPostalCode());
+        dto.setPrice(property.getPrice());
+        dto.setBedrooms(property.getBedrooms());
+        dto.setBathrooms(property.getBathrooms());
+        dto.setAreaSqft(property.getAreaSqft());
+        dto.setLatitude(property.getLatitude());
+        dto.setLongitude(property.getLongitude());
+        dto.setDescription(property.getDescription());
+        dto.setType(property.getType());
+        dto.setStatus(property.getStatus());
+        dto.setImageUrls(property.getImageUrls());
+        dto.setCreatedAt(property.getCreatedAt());
+        dto.setUpdatedAt(property.getUpdatedAt());
+        dto.setAmenities(property.getAmenities() != null ? new HashSet<>(property.getAmenities()) : Set.of());
+        User owner = property.getOwner();
+        try {
+            dto.setOwnerId(owner.getId());
+            dto.setOwnerName(owner.getName());
+            dto.setOwnerEmail(owner.getEmail());
+        } catch (LazyInitializationException e) {
+            dto.setOwnerId(property.getOwnerId());
+        }
+        return dto;
+    }
+
+    // The former BookingController/PaymentController.convertToDto
+    private static BookingResponseDTO handWrittenBookingDto(Booking booking) {
+        BookingResponseDTO dto = new BookingResponseDTO();
+        dto.setId(booking.getId());
+        dto.setStatus(booking.getStatus());
+        dto.setPaymentStatus(booking.getPaymentStatus());
+        dto.setCustomerNotes(booking.getCustomerNotes());
+        dto.setOwnerAgentNotes(booking.getOwnerAgentNotes());
+        dto.setVisitDate(booking.getVisitDate());
+        dto.setVisitTime(booking.getVisitTime());
+        dto.setCreatedAt(booking.getCreatedAt());
+        Property property = booking.getProperty();
+        dto.setPropertyId(property.getId());
+        dto.setPropertyAddress(property.getAddress());
+        dto.setPropertyCity(property.getCity());
+        dto.setOwnerId(property.getOwner().getId());
+        dto.setOwnerName(property.getOwner().getName());
+        dto.setCustomerId(booking.getCustomer().getId());
+        dto.setCustomerName(booking.getCustomer().getName());
+        return dto;
+    }
+}
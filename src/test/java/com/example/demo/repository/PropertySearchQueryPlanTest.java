@@ -0,0 +1,117 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.PropertyDTO;
+import com.example.demo.model.enums.PropertyStatus;
+import com.example.demo.model.enums.PropertyType;
+import com.example.demo.service.search.PropertySearchCriteria;
+import com.example.demo.service.search.PropertySort;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs EXPLAIN on the SQL generated for common search filter combinations and fails if MySQL plans a
+ * full table scan (access type ALL) for any of them. The statements are captured from Hibernate and
+ * re-bound with representative values.
+ * <p>
+ * The optimizer only prefers an index once the table has some rows, so the test is skipped on a
+ * near-empty database.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.example.demo.repository.PropertySearchQueryPlanTest$CapturingInspector")
+class PropertySearchQueryPlanTest {
+
+    private static final int MIN_ROWS_FOR_PLAN = 1000;
+    private static final List<String> captured = new ArrayList<>();
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    public static class CapturingInspector implements StatementInspector {
+        @Override
+        public String inspect(String sql) {
+            synchronized (captured) { captured.add(sql); }
+            return sql;
+        }
+    }
+
+    @BeforeEach
+    void requireData() {
+        Long rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM properties", Long.class);
+        assumeTrue(rows != null && rows >= MIN_ROWS_FOR_PLAN, "Query plans are only meaningful with at least " + MIN_ROWS_FOR_PLAN + " properties");
+    }
+
+    @Test
+    void typeAndPriceRangeSortedByPriceUsesIndex() {
+        PropertySearchCriteria criteria = PropertySearchCriteria.builder().type(PropertyType.SALE)
+                .minPrice(new BigDecimal("100000")).maxPrice(new BigDecimal("500000")).build();
+        String sql = capture(() -> propertyRepository.findPageByCriteria(PropertyStatus.AVAILABLE, criteria, PropertySort.parse("price"), null, 21));
+        assertNoFullScan(sql, "AVAILABLE", "SALE", new BigDecimal("100000"), new BigDecimal("500000"), 21);
+    }
+
+    @Test
+    void resolvedCitiesWithDefaultSortUseIndex() {
+        PropertySearchCriteria criteria = PropertySearchCriteria.builder().city("york").build()
+                .withCityValues(List.of("New York", "York"));
+        String sql = capture(() -> propertyRepository.findPageByCriteria(PropertyStatus.AVAILABLE, criteria, PropertySort.DEFAULT, null, 21));
+        assertNoFullScan(sql, "AVAILABLE", "New York", "York", 21);
+    }
+
+    @Test
+    void statusOnlyWithDefaultSortUsesIndex() {
+        PropertySearchCriteria criteria = PropertySearchCriteria.builder().build();
+        String sql = capture(() -> propertyRepository.findPageByCriteria(PropertyStatus.AVAILABLE, criteria, PropertySort.DEFAULT, null, 21));
+        assertNoFullScan(sql, "AVAILABLE", 21);
+    }
+
+    @Test
+    void typeFilterWithoutPagingUsesIndex() {
+        PropertySearchCriteria criteria = PropertySearchCriteria.builder().type(PropertyType.RENT).build();
+        // The NDJSON export: no LIMIT, and the cursor is only open inside a transaction
+        String sql = capture(() -> transactionTemplate.executeWithoutResult(tx -> {
+            try (Stream<PropertyDTO> rows = propertyRepository.streamByCriteria(PropertyStatus.AVAILABLE, criteria, PropertySort.DEFAULT)) {
+                rows.findFirst();
+            }
+        }));
+        assertNoFullScan(sql, "AVAILABLE", "RENT");
+    }
+
+    /** Runs the query and returns the first statement it issued against the properties table. */
+    private static String capture(Runnable query) {
+        synchronized (captured) { captured.clear(); }
+        query.run();
+        synchronized (captured) {
+            return captured.stream().filter(sql -> sql.contains("from properties")).findFirst().orElse(null);
+        }
+    }
+
+    /** Binds the parameters in order (they must match the placeholders exactly) and checks the EXPLAIN rows. */
+    private void assertNoFullScan(String sql, Object... params) {
+        assertNotNull(sql, "No statement against the properties table was captured");
+        assertEquals(params.length, sql.chars().filter(c -> c == '?').count(),
+                "Placeholder count changed, update the bound values: " + sql);
+        List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, params);
+        for (Map<String, Object> row : plan) {
+            assertFalse("ALL".equals(row.get("type")), "Full scan of " + row.get("table") + " in plan " + plan + " for " + sql);
+        }
+    }
+}
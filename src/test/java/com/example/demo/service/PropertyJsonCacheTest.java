@@ -0,0 +1,300 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.PropertyDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks {@link PropertyJsonCache} against a reference model of its ring log: a HashMap of the live keys
+ * plus a queue of every entry in write order, evicted from the front with the same second-chance rule.
+ * The ring is small, so positions wrap around its end many times and entries straddle the wrap point;
+ * ids come from a range wide enough to grow the index several times and collide in it.
+ */
+class PropertyJsonCacheTest {
+
+    private static final int HEADER_BYTES = Long.BYTES + Integer.BYTES;
+
+    @Test
+    void matchesReferenceModel() {
+        Random random = new Random(61);
+        int capacity = 48 * 1024;
+        PropertyJsonCache cache = new PropertyJsonCache(new ObjectMapper(), capacity);
+        RingModel model = new RingModel(capacity);
+        for (int step = 0; step < 200_000; step++) {
+            long id = 1 + random.nextInt(step < 100_000 ? 3_000 : 300); // Then fewer ids: removals empty the index out
+            long version = 1 + random.nextInt(4);
+            long owner = random.nextInt(3);
+            if (random.nextInt(3) == 0) {
+                byte[] json = payload(id, version, owner, 1 + random.nextInt(random.nextInt(50) == 0 ? capacity / 3 : 120));
+                put(cache, id, version, owner, json);
+                model.put(id, version, owner, json);
+            } else {
+                assertArrayEquals(model.get(id, version, owner), get(cache, id, version, owner),
+                        "step " + step + ": id " + id + " v" + version + " owner " + owner);
+            }
+            if (step % 1_000 == 0) { assertStats(model, cache); }
+        }
+        assertStats(model, cache);
+        assertTrue(model.evictions > 1_000, "Too few evictions to exercise the ring: " + model.evictions);
+    }
+
+    @Test
+    void newVersionsAndOwnersInvalidateTheOldKey() {
+        PropertyJsonCache cache = new PropertyJsonCache(new ObjectMapper(), 64 * 1024);
+        byte[] v2 = payload(7, 2, 1, 40);
+        put(cache, 7, 2, 1, v2);
+        assertArrayEquals(v2, get(cache, 7, 2, 1));
+        assertNull(get(cache, 7, 1, 1), "Older version");
+        assertNull(get(cache, 7, 3, 1), "Newer version");
+        assertNull(get(cache, 7, 2, 2), "Owner renamed");
+        assertNull(get(cache, 8, 2, 1), "Other id");
+
+        put(cache, 7, 1, 1, payload(7, 1, 1, 40)); // A late write of an older version is ignored
+        assertArrayEquals(v2, get(cache, 7, 2, 1));
+        assertNull(get(cache, 7, 1, 1));
+
+        byte[] renamed = payload(7, 2, 2, 50); // Same version, new owner stamp: replaces it
+        put(cache, 7, 2, 2, renamed);
+        assertArrayEquals(renamed, get(cache, 7, 2, 2));
+        assertNull(get(cache, 7, 2, 1));
+
+        byte[] v3 = payload(7, 3, 2, 30);
+        put(cache, 7, 3, 2, v3);
+        assertArrayEquals(v3, get(cache, 7, 3, 2));
+        assertNull(get(cache, 7, 2, 2));
+        assertEquals(1L, cache.getStats().get("entries"));
+    }
+
+    @Test
+    void ownerStampCoversEveryEmbeddedField() {
+        long stamp = PropertyJsonCache.ownerStampOf(1L, "Ann", "ann@example.com");
+        assertEquals(stamp, PropertyJsonCache.ownerStampOf(1L, "Ann", "ann@example.com"));
+        assertNotEquals(stamp, PropertyJsonCache.ownerStampOf(2L, "Ann", "ann@example.com"));
+        assertNotEquals(stamp, PropertyJsonCache.ownerStampOf(1L, "Anne", "ann@example.com"));
+        assertNotEquals(stamp, PropertyJsonCache.ownerStampOf(1L, "Ann", "anne@example.com"));
+        assertNotEquals(PropertyJsonCache.ownerStampOf(1L, "ab", "c"), PropertyJsonCache.ownerStampOf(1L, "a", "bc"));
+        assertNotEquals(PropertyJsonCache.ownerStampOf(1L, null, "x"), PropertyJsonCache.ownerStampOf(1L, "", "x"));
+        assertNotEquals(PropertyJsonCache.ownerStampOf(null, "Ann", "x"), PropertyJsonCache.ownerStampOf(1L, "Ann", "x"));
+
+        LocalDateTime created = LocalDateTime.of(2024, 3, 1, 12, 0, 0, 123_456_789);
+        assertEquals(PropertyJsonCache.versionOf(created, null) + 1_000_000L,
+                PropertyJsonCache.versionOf(created, created.plusSeconds(1)), "updatedAt wins, in microseconds");
+        assertEquals(0L, PropertyJsonCache.versionOf(null, null));
+    }
+
+    @Test
+    void appendSerializesOnceAndSkipsGeoResults() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        PropertyJsonCache cache = new PropertyJsonCache(objectMapper, 64 * 1024);
+        PropertyDTO dto = new PropertyDTO();
+        dto.setId(3L);
+        dto.setCity("Lisbon");
+        dto.setOwnerId(9L);
+        dto.setOwnerName("Ann");
+        dto.setCreatedAt(LocalDateTime.of(2024, 3, 1, 12, 0));
+        byte[] expected = objectMapper.writeValueAsBytes(dto);
+        for (int i = 0; i < 3; i++) {
+            PropertyJsonCache.JsonBuffer buffer = new PropertyJsonCache.JsonBuffer();
+            cache.append(dto, buffer);
+            assertArrayEquals(expected, contents(buffer));
+        }
+        assertEquals(2L, cache.getStats().get("hits"));
+
+        dto.setDistanceKm(1.5); // Search-specific: never cached
+        cache.append(dto, new PropertyJsonCache.JsonBuffer());
+        cache.append(dto, new PropertyJsonCache.JsonBuffer());
+        assertEquals(2L, cache.getStats().get("hits"));
+        assertEquals(1L, cache.getStats().get("entries"));
+
+        PropertyJsonCache disabled = new PropertyJsonCache(objectMapper, 0);
+        put(disabled, 3, 1, 1, payload(3, 1, 1, 10));
+        assertNull(get(disabled, 3, 1, 1));
+    }
+
+    /** Readers copy without the lock while a writer keeps overwriting the ring; a hit must never be torn or stale. */
+    @Test
+    void optimisticReadsNeverReturnTornEntries() throws InterruptedException {
+        PropertyJsonCache cache = new PropertyJsonCache(new ObjectMapper(), 16 * 1024);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        AtomicLong hits = new AtomicLong();
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            long seed = r;
+            Thread reader = new Thread(() -> {
+                Random random = new Random(seed);
+                try {
+                    while (!done.get() && failure.get() == null) {
+                        long id = 1 + random.nextInt(200);
+                        long version = 1 + random.nextInt(3);
+                        byte[] actual = get(cache, id, version, 0);
+                        if (actual == null) { continue; }
+                        hits.incrementAndGet();
+                        if (!Arrays.equals(payload(id, version, 0, lengthOf(id, version)), actual)) {
+                            failure.compareAndSet(null, "Torn read of id " + id + " v" + version);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e.toString());
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        Random random = new Random(62);
+        for (int step = 0; step < 100_000 && failure.get() == null; step++) {
+            long id = 1 + random.nextInt(200);
+            long version = 1 + random.nextInt(3);
+            put(cache, id, version, 0, payload(id, version, 0, lengthOf(id, version)));
+        }
+        done.set(true);
+        for (Thread reader : readers) { reader.join(); }
+        assertNull(failure.get(), failure.get());
+        assertTrue(hits.get() > 0, "The readers never hit");
+    }
+
+    // --- Harness ---
+
+    private static void put(PropertyJsonCache cache, long id, long version, long owner, byte[] json) {
+        ReflectionTestUtils.invokeMethod(cache, "put", id, version, owner, json);
+    }
+
+    /** The cached payload, or null on a miss. */
+    private static byte[] get(PropertyJsonCache cache, long id, long version, long owner) {
+        PropertyJsonCache.JsonBuffer buffer = new PropertyJsonCache.JsonBuffer();
+        buffer.append((byte) '['); // Appended after existing content, which must stay
+        if (!cache.appendCached(id, version, owner, buffer)) {
+            assertArrayEquals(new byte[] { '[' }, contents(buffer), "A miss appended bytes");
+            return null;
+        }
+        byte[] bytes = contents(buffer);
+        assertEquals('[', bytes[0]);
+        return Arrays.copyOfRange(bytes, 1, bytes.length);
+    }
+
+    private static byte[] contents(PropertyJsonCache.JsonBuffer buffer) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            buffer.writeTo(response);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        assertEquals(response.getContentAsByteArray().length, response.getContentLength());
+        return response.getContentAsByteArray();
+    }
+
+    private static int lengthOf(long id, long version) {
+        return 1 + (int) ((id * 31 + version) % 300);
+    }
+
+    /** Bytes that depend on the whole key, so a payload served for the wrong key or length does not match. */
+    private static byte[] payload(long id, long version, long owner, int length) {
+        Random random = new Random(id * 1_000_003L + version * 101 + owner * 7 + length);
+        byte[] json = new byte[length];
+        random.nextBytes(json);
+        return json;
+    }
+
+    private static void assertStats(RingModel model, PropertyJsonCache cache) {
+        Map<String, Long> stats = cache.getStats();
+        assertEquals(model.hits, stats.get("hits"), "hits");
+        assertEquals(model.misses, stats.get("misses"), "misses");
+        assertEquals(model.evictions, stats.get("evictions"), "evictions");
+        assertEquals(model.live.size(), stats.get("entries"), "entries");
+        assertEquals(model.used, stats.get("bytesUsed"), "bytesUsed");
+        assertTrue(model.used <= model.capacity);
+    }
+
+    // --- Reference ---
+
+    /** The ring as a queue of entries in write order; replaced entries stay queued as garbage until evicted. */
+    private static final class RingModel {
+        final int capacity;
+        final Map<Long, Entry> live = new HashMap<>();
+        final ArrayDeque<Entry> log = new ArrayDeque<>();
+        long used;
+        long hits;
+        long misses;
+        long evictions;
+
+        RingModel(int capacity) {
+            this.capacity = capacity;
+        }
+
+        void put(long id, long version, long owner, byte[] json) {
+            int size = HEADER_BYTES + json.length;
+            if (size > capacity / 4) { return; }
+            Entry existing = live.get(id);
+            if (existing != null) {
+                if (existing.version > version) { return; }
+                live.remove(id);
+                existing.live = false;
+            }
+            while (used + size > capacity) {
+                Entry oldest = log.removeFirst();
+                if (oldest.live && oldest.referenced) { // Second chance: moved to the head
+                    oldest.referenced = false;
+                    log.addLast(oldest);
+                    continue;
+                }
+                used -= HEADER_BYTES + oldest.json.length;
+                if (oldest.live) {
+                    live.remove(oldest.id);
+                    evictions++;
+                }
+            }
+            Entry entry = new Entry(id, version, owner, json);
+            log.addLast(entry);
+            live.put(id, entry);
+            used += size;
+        }
+
+        byte[] get(long id, long version, long owner) {
+            Entry entry = live.get(id);
+            if (entry == null || entry.version != version || entry.owner != owner) {
+                misses++;
+                return null;
+            }
+            entry.referenced = true;
+            hits++;
+            return entry.json;
+        }
+    }
+
+    private static final class Entry {
+        final long id;
+        final long version;
+        final long owner;
+        final byte[] json;
+        boolean live = true;
+        boolean referenced;
+
+        Entry(long id, long version, long owner, byte[] json) {
+            this.id = id;
+            this.version = version;
+            this.owner = owner;
+            this.json = json;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks {@link PropertyOwnerIndex.LongLongTable} against a HashMap under random puts and removes.
+ * Keys are drawn from a small range so probe runs collide and wrap around the end of the table,
+ * which is where backward-shift deletion can go wrong.
+ */
+class PropertyOwnerIndexTest {
+
+    @Test
+    void matchesHashMapUnderRandomPutsAndRemoves() {
+        Random random = new Random(42);
+        PropertyOwnerIndex.LongLongTable table = new PropertyOwnerIndex.LongLongTable();
+        Map<Long, Long> reference = new HashMap<>();
+        for (int step = 0; step < 200_000; step++) {
+            long key = 1 + random.nextInt(step < 100_000 ? 2_000 : 200); // Then shrink back down
+            if (random.nextInt(3) == 0) {
+                table.remove(key);
+                reference.remove(key);
+            } else {
+                long value = 1 + random.nextInt(1_000);
+                table.put(key, value);
+                reference.put(key, value);
+            }
+            if (step % 1_000 == 0) { assertSameContents(reference, table, 2_000); }
+        }
+        assertSameContents(reference, table, 2_000);
+    }
+
+    @Test
+    void removeShiftsBackCollidingEntries() {
+        // Sequential keys of a full probe run: removing any one must keep all the others reachable
+        for (int removed = 1; removed <= 8; removed++) {
+            PropertyOwnerIndex.LongLongTable table = new PropertyOwnerIndex.LongLongTable();
+            Map<Long, Long> reference = new HashMap<>();
+            for (long key = 1; key <= 8; key++) {
+                table.put(key, key * 10);
+                reference.put(key, key * 10);
+            }
+            table.remove(removed);
+            reference.remove((long) removed);
+            assertSameContents(reference, table, 8);
+        }
+    }
+
+    @Test
+    void growsAndKeepsEntriesAcrossResizes() {
+        PropertyOwnerIndex.LongLongTable table = new PropertyOwnerIndex.LongLongTable();
+        List<Integer> capacities = new ArrayList<>();
+        for (long key = 1; key <= 10_000; key++) {
+            table.put(key, key + 1);
+            if (capacities.isEmpty() || capacities.get(capacities.size() - 1) != table.capacity()) { capacities.add(table.capacity()); }
+            assertTrue(2 * table.size() <= table.capacity(), "Table is more than half full");
+        }
+        assertTrue(capacities.size() > 5, "Expected several resizes, got " + capacities);
+        for (long key = 1; key <= 10_000; key++) { assertEquals(key + 1, table.get(key)); }
+        for (long key = 1; key <= 10_000; key += 2) { table.remove(key); }
+        assertEquals(5_000, table.size());
+        for (long key = 1; key <= 10_000; key++) { assertEquals(key % 2 == 0 ? key + 1 : PropertyOwnerIndex.LongLongTable.MISSING, table.get(key)); }
+    }
+
+    @Test
+    void clearSizesForExpectedEntries() {
+        PropertyOwnerIndex.LongLongTable table = new PropertyOwnerIndex.LongLongTable();
+        table.put(5, 6);
+        table.clear(1_000);
+        assertEquals(0, table.size());
+        assertEquals(2_048, table.capacity());
+        assertEquals(PropertyOwnerIndex.LongLongTable.MISSING, table.get(5));
+    }
+
+    @Test
+    void rejectsReservedKeyAndIgnoresAbsentRemove() {
+        PropertyOwnerIndex.LongLongTable table = new PropertyOwnerIndex.LongLongTable();
+        assertThrows(IllegalArgumentException.class, () -> table.put(0, 1));
+        table.put(1, 2);
+        table.remove(3);
+        assertEquals(1, table.size());
+        assertEquals(2, table.get(1));
+    }
+
+    private static void assertSameContents(Map<Long, Long> reference, PropertyOwnerIndex.LongLongTable table, long maxKey) {
+        assertEquals(reference.size(), table.size());
+        for (long key = 1; key <= maxKey; key++) {
+            assertEquals(reference.getOrDefault(key, PropertyOwnerIndex.LongLongTable.MISSING), table.get(key), "key " + key);
+        }
+    }
+}
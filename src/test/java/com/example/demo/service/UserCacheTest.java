@@ -0,0 +1,183 @@
+package com.example.demo.service;
+
+import com.example.demo.model.User;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks {@link UserCache} and {@link UserCacheInvalidator} against a map-backed repository stub: emails are
+ * folded with the root locale, a lookup that overlaps an invalidation does not store what it read, and the
+ * second invalidation after commit drops a row cached between the flush and the commit.
+ */
+class UserCacheTest {
+
+    @Test
+    void emailsAreTrimmedAndFoldedWithTheRootLocale() {
+        Database database = new Database();
+        database.put(new UserSnapshot(1L, "Info", "info@example.com", "CUSTOMER"));
+        UserCache cache = cache(database);
+        Locale defaultLocale = Locale.getDefault();
+        try {
+            Locale.setDefault(new Locale("tr", "TR")); // "I".toLowerCase() would be a dotless i here
+            assertEquals(1L, cache.findByEmail("  INFO@EXAMPLE.COM ").orElseThrow().getId());
+            assertEquals(1L, cache.findByEmail("Info@Example.com").orElseThrow().getId());
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+        assertEquals(List.of("info@example.com"), database.queried, "One query, with the folded key");
+        assertEquals(1L, cache.getStats().get("hits"));
+    }
+
+    @Test
+    void unknownEmailsAreNotCached() {
+        Database database = new Database();
+        UserCache cache = cache(database);
+        assertTrue(cache.findByEmail("nobody@example.com").isEmpty());
+        assertTrue(cache.findByEmail("nobody@example.com").isEmpty());
+        assertEquals(2, database.queried.size());
+        assertEquals(0L, cache.getStats().get("entries"));
+    }
+
+    @Test
+    void invalidationDropsOnlyThatUser() {
+        Database database = new Database();
+        database.put(new UserSnapshot(1L, "Ann", "ann@example.com", "CUSTOMER"));
+        database.put(new UserSnapshot(2L, "Bob", "bob@example.com", "PROPERTY_OWNER"));
+        UserCache cache = cache(database);
+        cache.findByEmail("ann@example.com");
+        cache.findByEmail("bob@example.com");
+
+        database.put(new UserSnapshot(1L, "Ann", "ann@example.com", "ADMIN"));
+        cache.invalidate(1L);
+        assertEquals("ADMIN", cache.findByEmail("ann@example.com").orElseThrow().getRole());
+        cache.findByEmail("bob@example.com");
+        assertEquals(List.of("ann@example.com", "bob@example.com", "ann@example.com"), database.queried);
+        assertEquals(1L, cache.getStats().get("invalidations"));
+    }
+
+    @Test
+    void lookupOverlappingAnInvalidationIsNotStored() {
+        Database database = new Database();
+        database.put(new UserSnapshot(1L, "Ann", "ann@example.com", "CUSTOMER"));
+        UserCache cache = cache(database);
+        // Another user changes while the row is read: the lookup cannot tell which state it saw
+        database.duringLookup = () -> cache.invalidate(2L);
+        cache.findByEmail("ann@example.com");
+        database.duringLookup = null;
+        cache.findByEmail("ann@example.com");
+        cache.findByEmail("ann@example.com");
+        assertEquals(2, database.queried.size(), "Only the lookup without an invalidation in between is stored");
+    }
+
+    @Test
+    void invalidationOnAnotherThreadDuringTheLookupPreventsTheStore() throws Exception {
+        Database database = new Database();
+        database.put(new UserSnapshot(1L, "Ann", "ann@example.com", "CUSTOMER"));
+        UserCache cache = cache(database);
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch changed = new CountDownLatch(1);
+        database.duringLookup = () -> {
+            reading.countDown();
+            await(changed);
+        };
+        CompletableFuture<Optional<UserSnapshot>> lookup = CompletableFuture.supplyAsync(() -> cache.findByEmail("ann@example.com"));
+        assertTrue(reading.await(10, TimeUnit.SECONDS));
+        database.put(new UserSnapshot(1L, "Ann", "ann@example.com", "ADMIN"));
+        cache.invalidate(1L);
+        changed.countDown();
+        assertEquals("CUSTOMER", lookup.get(10, TimeUnit.SECONDS).orElseThrow().getRole(), "Read before the change");
+        database.duringLookup = null;
+        assertEquals("ADMIN", cache.findByEmail("ann@example.com").orElseThrow().getRole());
+    }
+
+    @Test
+    void invalidatorDropsTheUserAgainAfterCommit() {
+        Database database = new Database();
+        database.put(new UserSnapshot(1L, "Ann", "ann@example.com", "CUSTOMER"));
+        UserCache cache = cache(database);
+        UserCacheInvalidator invalidator = new UserCacheInvalidator();
+        ReflectionTestUtils.setField(invalidator, "userCache", cache);
+        cache.findByEmail("ann@example.com");
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            invalidator.onUserChanged(new User(1L, "Ann", "ann@example.com", null, "ADMIN")); // At flush
+            // Another transaction still sees the old committed row and caches it
+            assertEquals("CUSTOMER", cache.findByEmail("ann@example.com").orElseThrow().getRole());
+            database.put(new UserSnapshot(1L, "Ann", "ann@example.com", "ADMIN")); // Commit
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            assertEquals(1, synchronizations.size());
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals("ADMIN", cache.findByEmail("ann@example.com").orElseThrow().getRole());
+        assertEquals(2L, cache.getStats().get("invalidations"));
+
+        // Outside a transaction there is nothing to register; the entry is still dropped
+        assertFalse(TransactionSynchronizationManager.isSynchronizationActive());
+        invalidator.onUserChanged(new User(1L, "Ann", "ann@example.com", null, "ADMIN"));
+        assertEquals(0L, cache.getStats().get("entries"));
+    }
+
+    // --- Harness ---
+
+    /** The users table, by normalized email; records every email queried. */
+    private static final class Database {
+        final Map<String, UserSnapshot> rows = new HashMap<>();
+        final List<String> queried = new ArrayList<>();
+        volatile Runnable duringLookup; // runs inside findSnapshotByEmail, after the row is read
+
+        void put(UserSnapshot user) {
+            synchronized (rows) { rows.put(user.getEmail(), user); }
+        }
+
+        UserRepository repository() {
+            return (UserRepository) Proxy.newProxyInstance(UserCacheTest.class.getClassLoader(),
+                    new Class<?>[] { UserRepository.class }, (proxy, method, args) -> {
+                        if (!method.getName().equals("findSnapshotByEmail")) { throw new UnsupportedOperationException(method.getName()); }
+                        Optional<UserSnapshot> row;
+                        synchronized (rows) {
+                            queried.add((String) args[0]);
+                            row = Optional.ofNullable(rows.get((String) args[0]));
+                        }
+                        Runnable hook = duringLookup;
+                        if (hook != null) { hook.run(); }
+                        return row;
+                    });
+        }
+    }
+
+    private static UserCache cache(Database database) {
+        UserCache cache = new UserCache(100, 3_600);
+        ReflectionTestUtils.setField(cache, "userRepository", database.repository());
+        return cache;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) { throw new IllegalStateException("Timed out"); }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.demo.service.search;
+
+import com.example.demo.model.enums.PropertyStatus;
+import com.example.demo.model.enums.PropertyType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Case-insensitive city substring filter: full scan over every listing's city
+ * (what {@code LOWER(p.city) LIKE '%x%'} does) vs. trigram lookup over the city dictionary
+ * followed by the matching cities' posting lists.
+ * <p>
+ * Run with: {@code java -cp <test classpath> org.openjdk.jmh.Main CityFilterBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CityFilterBenchmark {
+
+    private static final String[] SYLLABLES = { "ban", "ga", "lu", "ru", "mum", "bai", "del", "hi", "che", "nn",
+            "ai", "pu", "ne", "hy", "de", "ra", "bad", "kol", "ka", "ta", "jai", "pur", "sur", "at", "noi", "da" };
+
+    @Param({ "100000", "1000000" })
+    public int listings;
+
+    @Param({ "5000" })
+    public int distinctCities;
+
+    private String[] rowCities;
+    private long[] rowIds;
+    private ListingSnapshot snapshot;
+    private String[] needles;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        String[] cities = new String[distinctCities];
+        for (int i = 0; i < cities.length; i++) {
+            StringBuilder name = new StringBuilder();
+            int parts = 2 + random.nextInt(3);
+            for (int p = 0; p < parts; p++) { name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]); }
+            name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+            cities[i] = name.append(' ').append(i).toString(); // Keep names distinct
+        }
+        rowCities = new String[listings];
+        rowIds = new long[listings];
+        List<ListingRow> rows = new ArrayList<>(listings);
+        for (int i = 0; i < listings; i++) {
+            rowIds[i] = i + 1;
+            rowCities[i] = cities[random.nextInt(cities.length)];
+            rows.add(new ListingRow(rowIds[i], BigDecimal.valueOf(1000), 2, 1, PropertyType.SALE, PropertyStatus.AVAILABLE, rowCities[i], null, null, null));
+        }
+        snapshot = ListingSnapshot.build(rows);
+
+        needles = new String[64];
+        for (int i = 0; i < needles.length; i++) {
+            String city = cities[random.nextInt(cities.length)];
+            int start = random.nextInt(Math.max(1, city.length() - 5));
+            needles[i] = city.substring(start, Math.min(city.length(), start + 4 + random.nextInt(3))).toUpperCase(Locale.ROOT);
+        }
+    }
+
+    private String nextNeedle() {
+        next = (next + 1) & (needles.length - 1);
+        return needles[next];
+    }
+
+    @Benchmark
+    public long[] scanAllListings() {
+        String needle = nextNeedle().toLowerCase(Locale.ROOT);
+        long[] ids = new long[64];
+        int count = 0;
+        for (int i = 0; i < rowCities.length; i++) {
+            if (rowCities[i].toLowerCase(Locale.ROOT).contains(needle)) {
+                if (count == ids.length) { ids = Arrays.copyOf(ids, count * 2); }
+                ids[count++] = rowIds[i];
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    @Benchmark
+    public long[] trigramLookup() {
+        int[] codes = snapshot.cityTrigrams.lookup(nextNeedle());
+        int total = 0;
+        for (int code : codes) { total += snapshot.cityRows[code].length; }
+        long[] ids = new long[total];
+        int count = 0;
+        for (int code : codes) {
+            for (int row : snapshot.cityRows[code]) { ids[count++] = snapshot.ids[row]; }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.demo.service.search;
+
+import com.example.demo.model.Property;
+import com.example.demo.repository.PropertyRepository;
+import com.example.demo.service.AmenityDictionary;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives {@link FullTextIndex} through saves, deletes, flushes, merges and restarts against a map-backed
+ * repository stub, and checks every search against BM25 computed from scratch over the stub's rows.
+ * Restarts are "crashes": the memtable is dropped without a final flush, so deletions after the last flush
+ * only survive through the tombstone log.
+ */
+class FullTextIndexTest {
+
+    private static final String[] WORDS = { "sunny", "garden", "flat", "house", "quiet", "river", "view", "modern", "loft", "terrace" };
+    private static final String[] CITIES = { "Lisbon", "Porto", "Faro" };
+    private static final Map<Integer, String> AMENITY_NAMES = Map.of(0, "pool", 1, "garage", 2, "garden");
+
+    @TempDir
+    Path indexDir;
+
+    @Test
+    void matchesBruteForceAcrossFlushesAndMerges() {
+        Random random = new Random(51);
+        Database database = new Database();
+        for (long id = 1; id <= 300; id++) { database.save(randomProperty(random, id), LocalDateTime.now().minusDays(1)); }
+        FullTextIndex index = open(database);
+        assertMatchesBruteForce(index, database, random);
+        for (int step = 0; step < 600; step++) {
+            change(index, database, random, LocalDateTime.now().minusDays(1));
+            if (step % 7 == 6) { index.flush(); } // Many small segments: merged once there are more than MAX_SEGMENTS
+            if (step % 50 == 49) { assertMatchesBruteForce(index, database, random); }
+        }
+        assertTrue(segmentFiles() <= 9, "Segments were not merged: " + segmentFiles());
+        index.shutdown();
+    }
+
+    @Test
+    void restartReadsSegmentsAndReplaysDeletions() {
+        Random random = new Random(52);
+        Database database = new Database();
+        for (long id = 1; id <= 300; id++) { database.save(randomProperty(random, id), LocalDateTime.now().minusDays(1)); }
+        FullTextIndex index = open(database);
+        for (int step = 0; step < 300; step++) {
+            change(index, database, random, LocalDateTime.now().minusDays(1)); // Before the watermark: only in segments
+            if (step % 11 == 10) { index.flush(); }
+        }
+        index.flush();
+
+        for (int restart = 0; restart < 3; restart++) {
+            database.changedAt.replaceAll((id, at) -> LocalDateTime.now().minusDays(1)); // All flushed long ago
+            // After the last flush: saves are found again by the catch-up query, deletions only in the tombstone log
+            Set<Long> savedSinceFlush = new HashSet<>();
+            for (int step = 0; step < 60; step++) {
+                Long saved = change(index, database, random, LocalDateTime.now());
+                if (saved != null) { savedSinceFlush.add(saved); } else { savedSinceFlush.retainAll(database.rows.keySet()); }
+            }
+            crash(index);
+
+            database.loaded.clear();
+            index = open(database);
+            assertEquals(savedSinceFlush, database.loaded, "Only the properties changed since the watermark are re-indexed");
+            assertMatchesBruteForce(index, database, random);
+        }
+        index.shutdown();
+    }
+
+    @Test
+    void formatChangeRebuildsFromTheDatabase() throws IOException {
+        Random random = new Random(53);
+        Database database = new Database();
+        for (long id = 1; id <= 200; id++) { database.save(randomProperty(random, id), LocalDateTime.now().minusDays(1)); }
+        FullTextIndex index = open(database);
+        for (int step = 0; step < 50; step++) { change(index, database, random, LocalDateTime.now().minusDays(1)); }
+        index.shutdown();
+
+        Path manifestFile = indexDir.resolve("manifest.properties");
+        Properties manifest = new Properties();
+        try (InputStream in = Files.newInputStream(manifestFile)) { manifest.load(in); }
+        manifest.setProperty("formatVersion", String.valueOf(FullTextIndex.FORMAT_VERSION - 1));
+        try (OutputStream out = Files.newOutputStream(manifestFile)) { manifest.store(out, null); }
+
+        database.loaded.clear();
+        index = open(database);
+        assertEquals(database.rows.keySet(), database.loaded);
+        assertMatchesBruteForce(index, database, random);
+        index.shutdown();
+    }
+
+    // --- Harness ---
+
+    /** The properties table: rows with the time they were last created or updated. */
+    private static final class Database {
+        final Map<Long, Property> rows = new TreeMap<>();
+        final Map<Long, LocalDateTime> changedAt = new HashMap<>();
+        final Set<Long> loaded = new TreeSet<>(); // Ids returned by findAllWithAmenitiesByIdIn
+
+        void save(Property property, LocalDateTime at) {
+            rows.put(property.getId(), property);
+            changedAt.put(property.getId(), at);
+        }
+
+        PropertyRepository repository() {
+            return (PropertyRepository) Proxy.newProxyInstance(FullTextIndexTest.class.getClassLoader(),
+                    new Class<?>[] { PropertyRepository.class }, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "findIdsChangedSince": {
+                                LocalDateTime since = (LocalDateTime) args[0];
+                                return rows.keySet().stream()
+                                        .filter(id -> id > (Long) args[1] && (since == null || !changedAt.get(id).isBefore(since)))
+                                        .limit(((Pageable) args[2]).getPageSize()).collect(Collectors.toList());
+                            }
+                            case "findAllWithAmenitiesByIdIn": {
+                                List<Property> found = new ArrayList<>();
+                                for (Object id : (Collection<?>) args[0]) {
+                                    if (rows.containsKey(id)) { found.add(rows.get(id)); }
+                                }
+                                found.forEach(property -> loaded.add(property.getId()));
+                                return found;
+                            }
+                            default: throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+    }
+
+    private FullTextIndex open(Database database) {
+        FullTextIndex index = new FullTextIndex();
+        ReflectionTestUtils.setField(index, "indexDir", indexDir.toString());
+        ReflectionTestUtils.setField(index, "flushDocs", Integer.MAX_VALUE); // Flushed by the test only
+        ReflectionTestUtils.setField(index, "flushIntervalSeconds", 3_600L);
+        ReflectionTestUtils.setField(index, "propertyRepository", database.repository());
+        ReflectionTestUtils.setField(index, "amenityDictionary", new AmenityDictionary(null) {
+            @Override
+            public Set<String> namesOf(Collection<Integer> ids) {
+                return ids.stream().map(AMENITY_NAMES::get).collect(Collectors.toCollection(TreeSet::new));
+            }
+        });
+        index.load();
+        assertTrue(index.isReady());
+        return index;
+    }
+
+    // Stops the background flusher without the final flush that shutdown() does
+    private static void crash(FullTextIndex index) {
+        ((ExecutorService) ReflectionTestUtils.getField(index, "flusher")).shutdownNow();
+    }
+
+    /** Saves or deletes a random property in both the database and the index; returns the id saved, or null. */
+    private static Long change(FullTextIndex index, Database database, Random random, LocalDateTime at) {
+        long id = 1 + random.nextInt(400);
+        if (random.nextInt(3) == 0) {
+            database.rows.remove(id);
+            database.changedAt.remove(id);
+            index.onPropertyChanged(PropertyChangedEvent.deleted(id)); // Present or not
+            return null;
+        }
+        Property property = randomProperty(random, id);
+        database.save(property, at);
+        index.onPropertyChanged(PropertyChangedEvent.saved(property));
+        return id;
+    }
+
+    private long segmentFiles() {
+        try (Stream<Path> files = Files.list(indexDir)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("segment-")).count();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Property randomProperty(Random random, long id) {
+        Property property = new Property();
+        property.setId(id);
+        StringBuilder description = new StringBuilder();
+        for (int i = 1 + random.nextInt(12); i > 0; i--) { description.append(WORDS[random.nextInt(WORDS.length)]).append(' '); }
+        property.setDescription(description.toString());
+        property.setAddress(random.nextInt(100) + " " + WORDS[random.nextInt(WORDS.length)] + " Road");
+        property.setCity(CITIES[random.nextInt(CITIES.length)]);
+        Set<Integer> amenities = new HashSet<>();
+        for (int amenity : AMENITY_NAMES.keySet()) {
+            if (random.nextBoolean()) { amenities.add(amenity); }
+        }
+        property.setAmenityIds(amenities);
+        return property;
+    }
+
+    // --- Reference ---
+
+    private static void assertMatchesBruteForce(FullTextIndex index, Database database, Random random) {
+        Map<Long, Map<String, Integer>> documents = new HashMap<>();
+        long totalLength = 0;
+        for (Property property : database.rows.values()) {
+            StringBuilder text = new StringBuilder(property.getDescription()).append(' ').append(property.getAddress())
+                    .append(' ').append(property.getCity());
+            for (int amenity : property.getAmenityIds()) { text.append(' ').append(AMENITY_NAMES.get(amenity)); }
+            Map<String, Integer> terms = new HashMap<>();
+            for (String term : TextAnalyzer.analyze(text.toString())) { terms.merge(term, 1, Integer::sum); }
+            documents.put(property.getId(), terms);
+            totalLength += terms.values().stream().mapToInt(Integer::intValue).sum();
+        }
+        double avgLength = Math.max(1.0, (double) totalLength / Math.max(1, documents.size()));
+
+        for (int q = 0; q < 20; q++) {
+            String query = WORDS[random.nextInt(WORDS.length)] + " " + (random.nextBoolean() ? CITIES[random.nextInt(CITIES.length)] : "pool");
+            Map<Long, Double> expected = new HashMap<>();
+            for (String term : new LinkedHashSet<>(TextAnalyzer.analyze(query))) {
+                long df = documents.values().stream().filter(terms -> terms.containsKey(term)).count();
+                double idf = Math.log(1 + (documents.size() - df + 0.5) / (df + 0.5));
+                documents.forEach((id, terms) -> {
+                    Integer tf = terms.get(term);
+                    if (tf == null) { return; }
+                    int length = terms.values().stream().mapToInt(Integer::intValue).sum();
+                    expected.merge(id, idf * tf * 2.2 / (tf + 1.2 * (0.25 + 0.75 * length / avgLength)), Double::sum);
+                });
+            }
+            RankedMatches actual = index.search(query);
+            assertEquals(expected.size(), actual.size(), query);
+            for (int i = 0; i < actual.size(); i++) {
+                Double score = expected.get(actual.id(i));
+                assertTrue(score != null, query + ": unexpected match " + actual.id(i));
+                assertEquals(score, actual.key(i), 1e-9, query + ": score of " + actual.id(i));
+                if (i > 0) { assertTrue(actual.key(i) <= actual.key(i - 1), query + ": not ranked"); }
+            }
+        }
+    }
+}
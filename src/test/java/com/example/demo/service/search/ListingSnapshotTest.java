@@ -0,0 +1,280 @@
+package com.example.demo.service.search;
+
+import com.example.demo.model.enums.PropertyStatus;
+import com.example.demo.model.enums.PropertyType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Checks the bitset search, copy-on-write updates and facet counts of {@link ListingSnapshot} against
+ * a linear scan of the same rows (see {@link TestListings}).
+ */
+class ListingSnapshotTest {
+
+    private static final List<BigDecimal> PRICE_BREAKS = List.of(
+            new BigDecimal("1000.005"), new BigDecimal("50000"), new BigDecimal("100000"), new BigDecimal("150000"),
+            new BigDecimal("1000000"));
+
+    @Test
+    void searchMatchesLinearScan() {
+        Random random = new Random(1);
+        List<ListingRow> rows = TestListings.randomRows(random, 3_000);
+        ListingSnapshot snapshot = ListingSnapshot.build(rows);
+        for (int i = 0; i < 500; i++) {
+            PropertySearchCriteria criteria = TestListings.randomCriteria(random);
+            assertArrayEquals(TestListings.search(rows, criteria), snapshot.search(criteria, ParallelScan.SEQUENTIAL), criteria.toString());
+        }
+    }
+
+    @Test
+    void buildKeepsTheLastRowOfADuplicateId() {
+        Random random = new Random(2);
+        List<ListingRow> rows = TestListings.randomRows(random, 500);
+        Map<Long, ListingRow> latest = new TreeMap<>();
+        for (ListingRow row : rows) { latest.put(row.getId(), row); }
+        for (int i = 0; i < 200; i++) {
+            ListingRow replacement = TestListings.randomRow(random, rows.get(random.nextInt(rows.size())).getId());
+            rows.add(replacement);
+            latest.put(replacement.getId(), replacement);
+        }
+        ListingSnapshot snapshot = ListingSnapshot.build(rows);
+        for (int i = 0; i < 200; i++) {
+            PropertySearchCriteria criteria = TestListings.randomCriteria(random);
+            assertArrayEquals(TestListings.search(latest.values(), criteria), snapshot.search(criteria, ParallelScan.SEQUENTIAL), criteria.toString());
+        }
+    }
+
+    @Test
+    void retainMatchingKeepsCandidateOrder() {
+        Random random = new Random(3);
+        List<ListingRow> rows = TestListings.randomRows(random, 2_000);
+        Map<Long, ListingRow> byId = new HashMap<>();
+        for (ListingRow row : rows) { byId.put(row.getId(), row); }
+        ListingSnapshot snapshot = ListingSnapshot.build(rows);
+        for (int i = 0; i < 200; i++) {
+            PropertySearchCriteria criteria = TestListings.randomCriteria(random);
+            List<Long> candidates = new ArrayList<>();
+            for (int j = 0; j < 300; j++) { candidates.add(1L + random.nextInt(5_000)); } // Some unknown to the snapshot
+            Collections.shuffle(candidates, random);
+            long[] expected = candidates.stream()
+                    .filter(id -> byId.containsKey(id) && TestListings.matches(byId.get(id), criteria))
+                    .mapToLong(Long::longValue).toArray();
+            long[] actual = snapshot.retainMatching(candidates.stream().mapToLong(Long::longValue).toArray(), criteria);
+            assertArrayEquals(expected, actual, criteria.toString());
+        }
+    }
+
+    @Test
+    void upsertsAndRemovesMatchLinearScan() {
+        Random random = new Random(4);
+        Map<Long, ListingRow> reference = new TreeMap<>();
+        for (ListingRow row : TestListings.randomRows(random, 300)) { reference.put(row.getId(), row); }
+        ListingSnapshot snapshot = ListingSnapshot.build(new ArrayList<>(reference.values()));
+        List<PropertySearchCriteria> probes = new ArrayList<>();
+        for (int i = 0; i < 20; i++) { probes.add(TestListings.randomCriteria(random)); }
+        probes.add(PropertySearchCriteria.builder().city("lyon").build().withAmenityIds(new int[0]));
+        // The grid: a radius over a few cells, a box, and a radius that only the rows of one cell can meet
+        probes.add(PropertySearchCriteria.builder().geo(GeoFilter.of(49.0, 2.4, 8.0, null)).build().withAmenityIds(new int[0]));
+        probes.add(PropertySearchCriteria.builder().geo(GeoFilter.of(null, null, null, "2.25,48.85,2.45,49.15")).build().withAmenityIds(new int[0]));
+        probes.add(PropertySearchCriteria.builder().geo(GeoFilter.of(48.95, 2.35, 0.5, null)).build().withAmenityIds(new int[0]));
+
+        for (int step = 0; step < 2_000; step++) {
+            ListingSnapshot before = snapshot;
+            List<long[]> resultsBefore = new ArrayList<>();
+            for (PropertySearchCriteria criteria : probes) { resultsBefore.add(before.search(criteria, ParallelScan.SEQUENTIAL)); }
+
+            long id = 1 + random.nextInt(1_000);
+            int operation = random.nextInt(4);
+            if (operation == 0) {
+                snapshot = snapshot.without(id); // Present or not
+                reference.remove(id);
+            } else {
+                // Now and then a city the snapshot has never seen, which extends its dictionary
+                ListingRow row = operation == 1
+                        ? TestListings.randomRow(random, id, "Lyon " + step)
+                        : TestListings.randomRow(random, id);
+                snapshot = snapshot.withUpsert(row);
+                reference.put(id, row);
+            }
+
+            for (int i = 0; i < probes.size(); i++) {
+                PropertySearchCriteria criteria = probes.get(i);
+                assertArrayEquals(TestListings.search(reference.values(), criteria), snapshot.search(criteria, ParallelScan.SEQUENTIAL),
+                        "step " + step + ": " + criteria);
+                assertArrayEquals(resultsBefore.get(i), before.search(criteria, ParallelScan.SEQUENTIAL), "Earlier snapshot changed");
+            }
+        }
+        assertMasksShared(snapshot);
+    }
+
+    @Test
+    void upsertSharesWhatItDoesNotChange() {
+        Random random = new Random(7);
+        List<ListingRow> rows = TestListings.randomRows(random, 500);
+        ListingSnapshot snapshot = ListingSnapshot.build(rows);
+        ListingRow row = rows.get(100);
+        ListingRow repriced = new ListingRow(row.getId(), row.getPrice().add(BigDecimal.ONE), row.getBedrooms(), row.getBathrooms(),
+                row.getType(), row.getStatus(), row.getCity(), row.getLatitude(), row.getLongitude(), row.getCreatedAt());
+        repriced.withAmenityIds(idsOf(row.getAmenityMask()));
+        ListingSnapshot updated = snapshot.withUpsert(repriced);
+        assertShared(snapshot, updated, "repriced row");
+        assertSame(snapshot.amenityMasks[100], updated.amenityMasks[100], "An equal mask is interned, not kept as a new array");
+
+        // A new listing gets the highest id: no row is renumbered
+        ListingRow appended = TestListings.randomRow(random, rows.get(rows.size() - 1).getId() + 1);
+        ListingSnapshot after = snapshot.withUpsert(appended);
+        for (int type = 0; type < PropertyType.values().length; type++) {
+            if (appended.getType() == null || appended.getType().ordinal() != type) {
+                assertSame(snapshot.typeBits[type], after.typeBits[type], "type " + type);
+            }
+        }
+        assertMasksShared(after);
+    }
+
+    // Rows with the same amenities share one mask array, after edits as after the build
+    private static void assertMasksShared(ListingSnapshot snapshot) {
+        Map<List<Integer>, long[]> seen = new HashMap<>();
+        for (int row = 0; row < snapshot.size; row++) {
+            long[] mask = snapshot.amenityMasks[row];
+            assertSame(seen.computeIfAbsent(idsOf(mask), ids -> mask), mask, "mask of row " + row);
+        }
+    }
+
+    private static void assertShared(ListingSnapshot before, ListingSnapshot after, String message) {
+        for (int i = 0; i < before.typeBits.length; i++) { assertSame(before.typeBits[i], after.typeBits[i], message); }
+        for (int i = 0; i < before.statusBits.length; i++) { assertSame(before.statusBits[i], after.statusBits[i], message); }
+        for (int i = 0; i < before.cityRows.length; i++) { assertSame(before.cityRows[i], after.cityRows[i], message); }
+        for (int i = 0; i < before.amenityBits.length; i++) { assertSame(before.amenityBits[i], after.amenityBits[i], message); }
+        assertSame(before.cityTrigrams, after.cityTrigrams, message);
+    }
+
+    private static List<Integer> idsOf(long[] mask) {
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 0; id < mask.length << 6; id++) {
+            if ((mask[id >>> 6] & (1L << id)) != 0) { ids.add(id); }
+        }
+        return ids;
+    }
+
+    @Test
+    void facetsCountRowsFailingAtMostTheirOwnFilter() {
+        Random random = new Random(5);
+        List<ListingRow> rows = TestListings.randomRows(random, 3_000);
+        ListingSnapshot snapshot = ListingSnapshot.build(rows);
+        for (int i = 0; i < 300; i++) {
+            PropertySearchCriteria criteria = TestListings.randomCriteria(random);
+            int cityLimit = 1 + random.nextInt(8);
+            assertFacets(naiveFacets(rows, criteria, null, cityLimit),
+                    snapshot.facets(criteria, null, PRICE_BREAKS, cityLimit, ParallelScan.SEQUENTIAL), criteria.toString());
+        }
+    }
+
+    @Test
+    void facetsAreRestrictedToTextMatches() {
+        Random random = new Random(6);
+        List<ListingRow> rows = TestListings.randomRows(random, 2_000);
+        ListingSnapshot snapshot = ListingSnapshot.build(rows).without(rows.get(0).getId());
+        List<ListingRow> remaining = rows.subList(1, rows.size());
+        for (int i = 0; i < 100; i++) {
+            PropertySearchCriteria criteria = TestListings.randomCriteria(random);
+            Set<Long> textMatches = new HashSet<>();
+            textMatches.add(rows.get(0).getId()); // Deleted from the snapshot, must not be counted
+            for (int j = 0; j < 500; j++) { textMatches.add(1L + random.nextInt(6_000)); }
+            long[] textMatchIds = textMatches.stream().mapToLong(Long::longValue).toArray();
+            assertFacets(naiveFacets(remaining, criteria, textMatches, 5),
+                    snapshot.facets(criteria, textMatchIds, PRICE_BREAKS, 5, ParallelScan.SEQUENTIAL), criteria.toString());
+        }
+    }
+
+    // --- Reference ---
+
+    private static final int TYPE = 0;
+    private static final int CITY = 1;
+    private static final int PRICE = 2;
+    private static final int BEDROOMS = 3;
+    private static final int BATHROOMS = 4;
+
+    /** Each facet counted over the rows that pass every other filter, computed one facet at a time. */
+    private static PropertyFacets naiveFacets(Collection<ListingRow> rows, PropertySearchCriteria criteria, Set<Long> textMatches,
+                                              int cityLimit) {
+        long total = 0;
+        Map<PropertyType, Long> types = new EnumMap<>(PropertyType.class);
+        for (PropertyType type : PropertyType.values()) { types.put(type, 0L); }
+        SortedMap<Integer, Long> bedrooms = new TreeMap<>();
+        SortedMap<Integer, Long> bathrooms = new TreeMap<>();
+        long[] prices = new long[PRICE_BREAKS.size() + 1];
+        Map<String, Long> cities = new HashMap<>();
+        for (ListingRow row : rows) {
+            if (row.getStatus() != PropertyStatus.AVAILABLE || !TestListings.hasAmenities(row, criteria)) { continue; }
+            if (textMatches != null && !textMatches.contains(row.getId())) { continue; }
+            boolean[] ok = {
+                    TestListings.typeOk(row, criteria), TestListings.cityOk(row, criteria), TestListings.priceOk(row, criteria),
+                    TestListings.bedroomsOk(row, criteria), TestListings.bathroomsOk(row, criteria) };
+            if (allExcept(ok, -1)) { total++; }
+            if (allExcept(ok, TYPE) && row.getType() != null) { types.merge(row.getType(), 1L, Long::sum); }
+            if (allExcept(ok, CITY)) { cities.merge(row.getCity(), 1L, Long::sum); }
+            if (allExcept(ok, PRICE)) {
+                int bucket = 0;
+                while (bucket < PRICE_BREAKS.size() && row.getPrice().compareTo(PRICE_BREAKS.get(bucket)) >= 0) { bucket++; }
+                prices[bucket]++;
+            }
+            if (allExcept(ok, BEDROOMS)) { bedrooms.merge(row.getBedrooms(), 1L, Long::sum); }
+            if (allExcept(ok, BATHROOMS)) { bathrooms.merge(row.getBathrooms(), 1L, Long::sum); }
+        }
+        List<PropertyFacets.PriceBucket> priceBuckets = new ArrayList<>();
+        for (int b = 0; b < prices.length; b++) {
+            priceBuckets.add(new PropertyFacets.PriceBucket(b == 0 ? null : PRICE_BREAKS.get(b - 1),
+                    b == PRICE_BREAKS.size() ? null : PRICE_BREAKS.get(b), prices[b]));
+        }
+        List<PropertyFacets.CityCount> cityCounts = new ArrayList<>();
+        cities.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(cityLimit)
+                .forEach(entry -> cityCounts.add(new PropertyFacets.CityCount(entry.getKey(), entry.getValue())));
+        return new PropertyFacets(total, types, bedrooms, bathrooms, priceBuckets, cityCounts);
+    }
+
+    private static boolean allExcept(boolean[] ok, int ignored) {
+        for (int i = 0; i < ok.length; i++) {
+            if (i != ignored && !ok[i]) { return false; }
+        }
+        return true;
+    }
+
+    static void assertFacets(PropertyFacets expected, PropertyFacets actual, String message) {
+        assertEquals(expected.getTotal(), actual.getTotal(), message);
+        assertEquals(expected.getTypes(), actual.getTypes(), message);
+        assertEquals(expected.getBedrooms(), actual.getBedrooms(), message);
+        assertEquals(expected.getBathrooms(), actual.getBathrooms(), message);
+        assertEquals(expected.getPriceBuckets().size(), actual.getPriceBuckets().size(), message);
+        for (int b = 0; b < expected.getPriceBuckets().size(); b++) {
+            PropertyFacets.PriceBucket want = expected.getPriceBuckets().get(b);
+            PropertyFacets.PriceBucket got = actual.getPriceBuckets().get(b);
+            assertEquals(want.getMin(), got.getMin(), message);
+            assertEquals(want.getMax(), got.getMax(), message);
+            assertEquals(want.getCount(), got.getCount(), message + ", price bucket " + b);
+        }
+        assertEquals(expected.getCities().size(), actual.getCities().size(), message);
+        for (int c = 0; c < expected.getCities().size(); c++) {
+            assertEquals(expected.getCities().get(c).getCity(), actual.getCities().get(c).getCity(), message);
+            assertEquals(expected.getCities().get(c).getCount(), actual.getCities().get(c).getCount(), message);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.demo.service.search;
+
+import com.example.demo.model.enums.PropertyStatus;
+import com.example.demo.model.enums.PropertyType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listing scans (id search, top-K by price, facet counts) over a broad filter, on the request thread
+ * ({@code threads = 1}) vs. partitioned across a ForkJoinPool of the given size. The speedup is bounded
+ * by the cores of the machine running it.
+ * <p>
+ * Run with: {@code java -cp <test classpath> org.openjdk.jmh.Main ParallelScanBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelScanBenchmark {
+
+    @Param({ "1000000" })
+    public int listings;
+
+    @Param({ "1", "4", "16", "32" })
+    public int threads;
+
+    private ListingSnapshot snapshot;
+    private ForkJoinPool pool;
+    private ParallelScan scan;
+    private PropertySearchCriteria criteria;
+    private PropertySort sort;
+    private List<BigDecimal> priceBreaks;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        List<ListingRow> rows = new ArrayList<>(listings);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < listings; i++) {
+            rows.add(new ListingRow((long) i + 1, BigDecimal.valueOf(10_000 + random.nextInt(2_000_000)), 1 + random.nextInt(5),
+                    1 + random.nextInt(3), random.nextBoolean() ? PropertyType.SALE : PropertyType.RENT,
+                    random.nextInt(10) == 0 ? PropertyStatus.SOLD : PropertyStatus.AVAILABLE, "City " + random.nextInt(2000),
+                    8 + random.nextDouble() * 20, 70 + random.nextDouble() * 20, start.plusMinutes(random.nextInt(1_000_000))));
+        }
+        snapshot = ListingSnapshot.build(rows);
+        pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        scan = pool != null ? new ParallelScan(pool, 0) : ParallelScan.SEQUENTIAL;
+        criteria = PropertySearchCriteria.builder().minBedrooms(2).maxPrice(BigDecimal.valueOf(1_500_000)).build()
+                .withAmenityIds(new int[0]);
+        sort = PropertySort.parse("price");
+        priceBreaks = List.of(BigDecimal.valueOf(100_000), BigDecimal.valueOf(500_000), BigDecimal.valueOf(1_000_000));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (pool != null) { pool.shutdown(); }
+    }
+
+    @Benchmark
+    public long[] search() {
+        return snapshot.search(criteria, scan);
+    }
+
+    @Benchmark
+    public long[] topK() {
+        return snapshot.topK(criteria, sort, null, 0L, 21, scan);
+    }
+
+    @Benchmark
+    public PropertyFacets facets() {
+        return snapshot.facets(criteria, null, priceBreaks, 10, scan);
+    }
+}
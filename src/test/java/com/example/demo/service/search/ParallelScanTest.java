@@ -0,0 +1,99 @@
+package com.example.demo.service.search;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a partitioned scan covers every word exactly once and merges partial results in row order,
+ * so that searches, top-K pages and facet counts come out the same as from a single sequential pass.
+ */
+class ParallelScanTest {
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void partitionsCoverEveryWordOnceInOrder() {
+        ParallelScan scan = new ParallelScan(pool, 0);
+        for (int words : new int[] { 0, 1, 255, 256, 257, 1_000, 4_097, 100_000 }) {
+            List<int[]> ranges = scan.scan(words, (from, to) -> {
+                List<int[]> single = new ArrayList<>();
+                single.add(new int[] { from, to });
+                return single;
+            }, (left, right) -> {
+                left.addAll(right);
+                return left;
+            });
+            int next = 0;
+            for (int[] range : ranges) {
+                assertEquals(next, range[0], words + " words");
+                assertTrue(range[1] > range[0] || words == 0, words + " words");
+                next = range[1];
+            }
+            assertEquals(words, next, words + " words");
+            if (words >= 100_000) { assertTrue(ranges.size() > 1, "Expected the scan to be split"); }
+        }
+    }
+
+    @Test
+    void smallScansStayOnTheCallingThread() {
+        Thread caller = Thread.currentThread();
+        ForkJoinPool singleThread = new ForkJoinPool(1);
+        try {
+            for (ParallelScan scan : new ParallelScan[] { ParallelScan.SEQUENTIAL, new ParallelScan(pool, 1_000_000),
+                    new ParallelScan(singleThread, 0) }) {
+                int[] calls = new int[1];
+                scan.scan(10_000, (from, to) -> {
+                    assertEquals(caller, Thread.currentThread());
+                    assertEquals(0, from);
+                    assertEquals(10_000, to);
+                    return ++calls[0];
+                }, Integer::sum);
+                assertEquals(1, calls[0]);
+            }
+        } finally {
+            singleThread.shutdown();
+        }
+    }
+
+    @Test
+    void partitionedSearchMatchesSequentialScan() {
+        Random random = new Random(31);
+        List<ListingRow> rows = TestListings.randomRows(random, 60_000); // ~940 words: several chunks
+        ListingSnapshot snapshot = ListingSnapshot.build(rows);
+        ParallelScan parallel = new ParallelScan(pool, 0);
+        for (int i = 0; i < 40; i++) {
+            PropertySearchCriteria criteria = TestListings.randomCriteria(random);
+            long[] expected = TestListings.search(rows, criteria);
+            assertArrayEquals(expected, snapshot.search(criteria, parallel), criteria.toString());
+            assertArrayEquals(expected, snapshot.search(criteria, ParallelScan.SEQUENTIAL), criteria.toString());
+
+            PropertySort sort = PropertySort.parse(random.nextBoolean() ? "price" : "bedrooms,desc");
+            assertArrayEquals(snapshot.topK(criteria, sort, null, 0L, 50, ParallelScan.SEQUENTIAL),
+                    snapshot.topK(criteria, sort, null, 0L, 50, parallel), sort + ": " + criteria);
+
+            ListingSnapshotTest.assertFacets(
+                    snapshot.facets(criteria, null, PropertyFacets.DEFAULT_PRICE_BREAKS, 5, ParallelScan.SEQUENTIAL),
+                    snapshot.facets(criteria, null, PropertyFacets.DEFAULT_PRICE_BREAKS, 5, parallel), criteria.toString());
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.demo.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Round-trips cursors through their opaque form and pages through the listing index with them,
+ * checking every page against a full sort of the matching rows. Sort keys repeat a lot
+ * (bedrooms, round prices, a few hundred timestamps), so most page boundaries fall inside a run of equal keys.
+ */
+class PropertyCursorTest {
+
+    private static final List<String> SORTS = List.of(
+            "price", "price,desc", "createdAt", "createdAt,desc", "bedrooms", "bedrooms,desc");
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        assertRoundTrip("price", new BigDecimal("1234.50"), 7);
+        assertRoundTrip("price,desc", new BigDecimal("1E+3"), 8);
+        assertRoundTrip("createdAt,desc", LocalDateTime.of(2024, 2, 29, 23, 59, 59, 123_456_000), 9);
+        assertRoundTrip("bedrooms", 3, Long.MAX_VALUE);
+        assertRoundTrip("distance", 12.5, 1);
+        PropertyCursor relevance = PropertyCursor.decode(PropertyCursor.encode(PropertySort.RELEVANCE, 0.75, 2), PropertySort.RELEVANCE);
+        assertEquals(0.75, relevance.getAfterKey());
+    }
+
+    @Test
+    void decodeRejectsForeignAndMalformedCursors() {
+        PropertySort price = PropertySort.parse("price");
+        assertNull(PropertyCursor.decode(null, price));
+        assertNull(PropertyCursor.decode("  ", price));
+        String descending = PropertyCursor.encode(PropertySort.parse("price,desc"), new BigDecimal("10"), 1);
+        assertThrows(IllegalArgumentException.class, () -> PropertyCursor.decode(descending, price));
+        assertThrows(IllegalArgumentException.class, () -> PropertyCursor.decode("not base64!", price));
+        for (String raw : new String[] { "price,asc", "price,asc|10", "price,asc|ten|1", "price,asc|10|one", "price,asc|10|" }) {
+            String cursor = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+            assertThrows(IllegalArgumentException.class, () -> PropertyCursor.decode(cursor, price), raw);
+        }
+    }
+
+    @Test
+    void pagesConcatenateToTheFullOrder() {
+        Random random = new Random(11);
+        List<ListingRow> rows = TestListings.randomRows(random, 1_500);
+        Map<Long, ListingRow> byId = byId(rows);
+        ListingSnapshot snapshot = ListingSnapshot.build(rows);
+        for (String value : SORTS) {
+            PropertySort sort = PropertySort.parse(value);
+            for (int i = 0; i < 30; i++) {
+                PropertySearchCriteria criteria = TestListings.randomCriteria(random);
+                int pageSize = 1 + random.nextInt(40);
+                long[] all = new long[0];
+                PropertyCursor cursor = null;
+                while (true) {
+                    long[] page = snapshot.topK(criteria, sort, cursor != null ? cursor.getAfterKey() : null,
+                            cursor != null ? cursor.getAfterId() : 0L, pageSize, ParallelScan.SEQUENTIAL);
+                    all = LongStream.concat(Arrays.stream(all), Arrays.stream(page)).toArray();
+                    if (page.length < pageSize) { break; }
+                    ListingRow last = byId.get(page[page.length - 1]);
+                    String opaque = PropertyCursor.encode(sort, TestListings.keyOf(last, sort.getField()), last.getId());
+                    cursor = PropertyCursor.decode(opaque, sort);
+                }
+                assertArrayEquals(TestListings.sorted(rows, criteria, sort), all, value + " by " + pageSize + ": " + criteria);
+            }
+        }
+    }
+
+    @Test
+    void seekStartsRightAfterTheCursor() {
+        Random random = new Random(12);
+        List<ListingRow> rows = TestListings.randomRows(random, 1_000);
+        Map<Long, ListingRow> byId = byId(rows);
+        ListingSnapshot snapshot = ListingSnapshot.build(rows);
+        PropertySearchCriteria everything = PropertySearchCriteria.builder().build().withAmenityIds(new int[0]);
+        for (String value : SORTS) {
+            PropertySort sort = PropertySort.parse(value);
+            long[] expected = TestListings.sorted(rows, everything, sort);
+            for (int i = 0; i < expected.length; i += 1 + random.nextInt(20)) {
+                ListingRow at = byId.get(expected[i]);
+                Object key = TestListings.keyOf(at, sort.getField());
+                // The cursor row itself, and ids just beside it that share its key but are not rows
+                assertArrayEquals(Arrays.copyOfRange(expected, i + 1, Math.min(expected.length, i + 11)),
+                        snapshot.topK(everything, sort, key, at.getId(), 10, ParallelScan.SEQUENTIAL), value + " after row " + at.getId());
+                for (long id : new long[] { at.getId() - 1, at.getId() + 1 }) {
+                    long[] after = Arrays.stream(expected)
+                            .filter(candidate -> isAfter(byId.get(candidate), sort, key, id)).limit(10).toArray();
+                    assertArrayEquals(after, snapshot.topK(everything, sort, key, id, 10, ParallelScan.SEQUENTIAL),
+                            value + " after " + key + "/" + id);
+                }
+            }
+            // Past the last row there is nothing; before the first row there is everything
+            ListingRow last = byId.get(expected[expected.length - 1]);
+            assertEquals(0, snapshot.topK(everything, sort, TestListings.keyOf(last, sort.getField()), last.getId(), 10,
+                    ParallelScan.SEQUENTIAL).length, value);
+            ListingRow first = byId.get(expected[0]);
+            long beforeFirst = sort.isDescending() ? first.getId() + 1 : first.getId() - 1;
+            assertArrayEquals(Arrays.copyOf(expected, 10), snapshot.topK(everything, sort, TestListings.keyOf(first, sort.getField()),
+                    beforeFirst, 10, ParallelScan.SEQUENTIAL), value);
+        }
+    }
+
+    private static void assertRoundTrip(String sortValue, Object key, long id) {
+        PropertySort sort = PropertySort.parse(sortValue);
+        PropertyCursor cursor = PropertyCursor.decode(PropertyCursor.encode(sort, key, id), sort);
+        if (key instanceof BigDecimal) { // Written in plain notation, so only the value survives
+            assertEquals(0, ((BigDecimal) key).compareTo((BigDecimal) cursor.getAfterKey()), sortValue);
+        } else {
+            assertEquals(key, cursor.getAfterKey(), sortValue);
+        }
+        assertEquals(id, cursor.getAfterId(), sortValue);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static boolean isAfter(ListingRow row, PropertySort sort, Object afterKey, long afterId) {
+        int order = ((Comparable) TestListings.keyOf(row, sort.getField())).compareTo(afterKey);
+        if (order == 0) { order = Long.compare(row.getId(), afterId); }
+        return sort.isDescending() ? order < 0 : order > 0;
+    }
+
+    private static Map<Long, ListingRow> byId(List<ListingRow> rows) {
+        Map<Long, ListingRow> byId = new HashMap<>();
+        for (ListingRow row : rows) { byId.put(row.getId(), row); }
+        return byId;
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.demo.service.search;
+
+import com.example.demo.dto.PropertyDTO;
+import com.example.demo.model.Property;
+import com.example.demo.model.enums.PropertyStatus;
+import com.example.demo.model.enums.PropertyType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks which search pages {@link SearchResultCache} keeps: a page is dropped when a change touches a
+ * property it lists or one its filters match, and a page loaded while any property changed is never stored.
+ */
+class SearchResultCacheTest {
+
+    private static final String[] CITIES = { "Paris", "Berlin", "York", "New York" };
+
+    @Test
+    void pageLoadedDuringAChangeIsNotStored() {
+        SearchResultCache cache = new SearchResultCache(100, 3_600);
+        PropertySearchCriteria criteria = PropertySearchCriteria.builder().city("paris").build();
+        Loader loader = new Loader(1L);
+        // An unrelated property changes while the page is being read: the page may predate the change
+        PropertySearchPage first = cache.get(criteria, PropertySort.DEFAULT, null, 20, () -> {
+            cache.onPropertyChanged(PropertyChangedEvent.deleted(999L));
+            return loader.get();
+        });
+        assertSame(first, loader.last, "The loaded page is still returned");
+        cache.get(criteria, PropertySort.DEFAULT, null, 20, loader);
+        assertEquals(2, loader.calls, "The raced page was stored");
+        cache.get(criteria, PropertySort.DEFAULT, null, 20, loader);
+        assertEquals(2, loader.calls, "A load without a change in between is stored");
+    }
+
+    @Test
+    void changeOnAnotherThreadDuringTheLoadPreventsTheStore() throws Exception {
+        SearchResultCache cache = new SearchResultCache(100, 3_600);
+        PropertySearchCriteria criteria = PropertySearchCriteria.builder().build();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch changed = new CountDownLatch(1);
+        Loader loader = new Loader(1L);
+        CompletableFuture<PropertySearchPage> search = CompletableFuture.supplyAsync(() ->
+                cache.get(criteria, PropertySort.DEFAULT, null, 20, () -> {
+                    loading.countDown();
+                    await(changed);
+                    return loader.get();
+                }));
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+        cache.onPropertyChanged(PropertyChangedEvent.deleted(2L)); // Commits while the search reads
+        changed.countDown();
+        search.get(10, TimeUnit.SECONDS);
+        assertEquals(0L, cache.getStats().get("size"));
+    }
+
+    @Test
+    void changeDropsPagesListingTheProperty() {
+        SearchResultCache cache = new SearchResultCache(100, 3_600);
+        PropertySearchCriteria sold = PropertySearchCriteria.builder().type(PropertyType.SALE).build();
+        PropertySearchCriteria rent = PropertySearchCriteria.builder().type(PropertyType.RENT).build();
+        cache.get(sold, PropertySort.DEFAULT, null, 20, new Loader(1L, 2L, 3L));
+        cache.get(rent, PropertySort.DEFAULT, null, 20, new Loader(4L));
+
+        cache.onPropertyChanged(PropertyChangedEvent.deleted(7L)); // Listed nowhere
+        assertEquals(2L, cache.getStats().get("size"));
+        cache.onPropertyChanged(PropertyChangedEvent.deleted(2L));
+        assertEquals(1L, cache.getStats().get("size"));
+        Loader reload = new Loader(1L, 3L);
+        cache.get(sold, PropertySort.DEFAULT, null, 20, reload);
+        assertEquals(1, reload.calls);
+
+        // A listed property that now fails the filters still drops the page: it must disappear from it
+        cache.onPropertyChanged(PropertyChangedEvent.saved(property(4L, PropertyStatus.SOLD, PropertyType.RENT, "Paris", 1, 1)));
+        Loader rentReload = new Loader();
+        cache.get(rent, PropertySort.DEFAULT, null, 20, rentReload);
+        assertEquals(1, rentReload.calls);
+        assertEquals(2L, cache.getStats().get("invalidations")); // One page per change
+    }
+
+    @Test
+    void changeDropsPagesWhoseFiltersTheSavedPropertyMatches() {
+        SearchResultCache cache = new SearchResultCache(100, 3_600);
+        PropertySearchCriteria paris = PropertySearchCriteria.builder().city("PARIS").build();
+        PropertySearchCriteria bigParis = PropertySearchCriteria.builder().city("paris").minBedrooms(3).build();
+        cache.get(paris, PropertySort.DEFAULT, null, 20, new Loader(1L));
+        cache.get(bigParis, PropertySort.DEFAULT, null, 20, new Loader());
+
+        cache.onPropertyChanged(PropertyChangedEvent.saved(property(50L, PropertyStatus.AVAILABLE, PropertyType.SALE, "Berlin", 5, 1)));
+        cache.onPropertyChanged(PropertyChangedEvent.saved(property(51L, PropertyStatus.SOLD, PropertyType.SALE, "Paris", 5, 1)));
+        assertEquals(2L, cache.getStats().get("size"), "Neither matches the filters");
+
+        cache.onPropertyChanged(PropertyChangedEvent.saved(property(52L, PropertyStatus.AVAILABLE, PropertyType.SALE, "Paris Nord", 1, 1)));
+        assertEquals(1L, cache.getStats().get("size"), "A new match for the city-only page");
+        cache.onPropertyChanged(PropertyChangedEvent.saved(property(52L, PropertyStatus.AVAILABLE, PropertyType.SALE, "paris", 4, 1)));
+        assertEquals(0L, cache.getStats().get("size"));
+    }
+
+    /** Random pages and changes against a map of the pages that should still be cached. */
+    @Test
+    void keepsExactlyThePagesNoChangeAffected() {
+        Random random = new Random(71);
+        SearchResultCache cache = new SearchResultCache(10_000, 3_600);
+        Map<String, PropertySearchCriteria> distinct = new HashMap<>(); // Equal filters share one entry
+        for (int i = 0; i < 60; i++) {
+            PropertySearchCriteria criteria = randomCriteria(random);
+            distinct.putIfAbsent(SearchResultCache.keyOf(criteria, PropertySort.DEFAULT, null, 20), criteria);
+        }
+        List<PropertySearchCriteria> criteriaList = new ArrayList<>(distinct.values());
+        Map<Integer, Set<Long>> cached = new HashMap<>(); // criteria index -> ids on its page
+        for (int step = 0; step < 5_000; step++) {
+            if (random.nextInt(3) == 0) {
+                long id = 1 + random.nextInt(100);
+                Property property = random.nextInt(4) == 0 ? null : randomProperty(random, id);
+                cache.onPropertyChanged(property == null ? PropertyChangedEvent.deleted(id) : PropertyChangedEvent.saved(property));
+                cached.values().removeIf(ids -> ids.contains(id));
+                if (property != null) { cached.keySet().removeIf(index -> criteriaList.get(index).matches(property)); }
+            } else {
+                int index = random.nextInt(criteriaList.size());
+                Long[] ids = new Long[random.nextInt(5)];
+                for (int i = 0; i < ids.length; i++) { ids[i] = 1L + random.nextInt(100); }
+                Loader loader = new Loader(ids);
+                cache.get(criteriaList.get(index), PropertySort.DEFAULT, null, 20, loader);
+                assertEquals(cached.containsKey(index) ? 0 : 1, loader.calls, "step " + step + ": " + criteriaList.get(index));
+                if (loader.calls == 1) { cached.put(index, new TreeSet<>(List.of(ids))); }
+            }
+            assertEquals(cached.size(), cache.getStats().get("size"), "step " + step);
+        }
+    }
+
+    // --- Harness ---
+
+    /** Returns a page of the given ids and counts its calls. */
+    private static final class Loader implements Supplier<PropertySearchPage> {
+        private final Long[] ids;
+        int calls;
+        PropertySearchPage last;
+
+        Loader(Long... ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public PropertySearchPage get() {
+            calls++;
+            List<PropertyDTO> items = new ArrayList<>();
+            for (Long id : ids) {
+                PropertyDTO dto = new PropertyDTO();
+                dto.setId(id);
+                items.add(dto);
+            }
+            last = new PropertySearchPage(items, null);
+            return last;
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) { throw new IllegalStateException("Timed out"); }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static PropertySearchCriteria randomCriteria(Random random) {
+        PropertySearchCriteria.Builder builder = PropertySearchCriteria.builder();
+        if (random.nextBoolean()) { builder.type(PropertyType.values()[random.nextInt(PropertyType.values().length)]); }
+        if (random.nextBoolean()) { builder.city(CITIES[random.nextInt(CITIES.length)].toLowerCase(Locale.ROOT)); }
+        if (random.nextInt(3) == 0) { builder.maxPrice(BigDecimal.valueOf(100_000L * (1 + random.nextInt(5)))); }
+        if (random.nextInt(3) == 0) { builder.minBedrooms(random.nextInt(5)); }
+        return builder.build();
+    }
+
+    private static Property randomProperty(Random random, long id) {
+        Property property = property(id, random.nextInt(3) == 0 ? PropertyStatus.SOLD : PropertyStatus.AVAILABLE,
+                PropertyType.values()[random.nextInt(PropertyType.values().length)], CITIES[random.nextInt(CITIES.length)],
+                random.nextInt(5), random.nextInt(3));
+        property.setPrice(BigDecimal.valueOf(50_000L * (1 + random.nextInt(10))));
+        return property;
+    }
+
+    private static Property property(long id, PropertyStatus status, PropertyType type, String city, int bedrooms, int bathrooms) {
+        Property property = new Property();
+        property.setId(id);
+        property.setStatus(status);
+        property.setType(type);
+        property.setCity(city);
+        property.setBedrooms(bedrooms);
+        property.setBathrooms(bathrooms);
+        property.setPrice(BigDecimal.valueOf(200_000));
+        return property;
+    }
+}
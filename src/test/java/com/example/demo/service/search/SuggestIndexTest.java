@@ -0,0 +1,166 @@
+package com.example.demo.service.search;
+
+import com.example.demo.model.Property;
+import com.example.demo.model.enums.PropertyStatus;
+import com.example.demo.repository.PropertyRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks suggestions against a brute-force prefix filter: every term starting with the prefix, sorted by
+ * listing count and then key. Keys come from a small alphabet so that many prefixes span more than
+ * {@link SuggestSnapshot#SCAN_LIMIT} terms and are answered from the precomputed tables.
+ */
+class SuggestIndexTest {
+
+    private static final String ALPHABET = "ab c1";
+    private static final int MAX_RESULTS = 8;
+
+    @Test
+    void snapshotMatchesBruteForce() {
+        Random random = new Random(41);
+        Map<String, SuggestSnapshot.Term> terms = new HashMap<>();
+        for (int i = 0; i < 3_000; i++) {
+            Suggestion.Type type = Suggestion.Type.values()[random.nextInt(Suggestion.Type.values().length)];
+            String key = SuggestSnapshot.normalize(randomText(random));
+            if (key.isEmpty()) { continue; }
+            SuggestSnapshot.Term term = terms.computeIfAbsent(type + ":" + key, k -> new SuggestSnapshot.Term(type, key, key.toUpperCase(Locale.ROOT)));
+            term.count = random.nextInt(12); // Zero counts must not be suggested; equal counts are common
+        }
+        SuggestSnapshot snapshot = SuggestSnapshot.build(terms.values(), MAX_RESULTS);
+        assertEquals(terms.values().stream().filter(term -> term.count > 0).count(), snapshot.size());
+
+        Set<String> prefixes = new HashSet<>(List.of("z", "a a a a a a a"));
+        for (SuggestSnapshot.Term term : terms.values()) {
+            for (int length = 1; length <= term.key.length(); length++) { prefixes.add(term.key.substring(0, length)); }
+        }
+        for (String prefix : prefixes) {
+            int limit = 1 + random.nextInt(MAX_RESULTS + 4);
+            assertSuggestions(bruteForce(terms.values(), prefix, Math.min(limit, MAX_RESULTS)), snapshot.suggest(prefix, limit), prefix);
+        }
+    }
+
+    @Test
+    void indexTracksPropertyChanges() {
+        Random random = new Random(42);
+        Map<Long, Property> properties = new HashMap<>();
+        for (long id = 1; id <= 1_500; id++) { properties.put(id, randomProperty(random, id)); }
+        List<Object[]> rows = new ArrayList<>();
+        for (Property property : properties.values()) {
+            rows.add(new Object[] { property.getId(), property.getStatus(), property.getCity(), property.getPostalCode(), property.getAddress() });
+        }
+        SuggestIndex index = new SuggestIndex(MAX_RESULTS, 60_000);
+        ReflectionTestUtils.setField(index, "propertyRepository", Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { PropertyRepository.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("findAllSuggestRows")) { return rows; }
+                    throw new UnsupportedOperationException(method.getName());
+                }));
+        try {
+            index.rebuild();
+            assertMatchesBruteForce(index, properties, random);
+            for (int step = 0; step < 1_000; step++) {
+                long id = 1 + random.nextInt(2_000);
+                if (random.nextInt(4) == 0) {
+                    properties.remove(id);
+                    index.onPropertyChanged(PropertyChangedEvent.deleted(id)); // Present or not
+                } else {
+                    Property property = randomProperty(random, id);
+                    properties.put(id, property);
+                    index.onPropertyChanged(PropertyChangedEvent.saved(property));
+                }
+                if (step % 100 == 99) {
+                    ReflectionTestUtils.invokeMethod(index, "refresh"); // What the scheduled rebuild runs
+                    assertMatchesBruteForce(index, properties, random);
+                }
+            }
+        } finally {
+            index.shutdown();
+        }
+    }
+
+    @Test
+    void streetOfDropsHouseNumbers() {
+        assertEquals("Baker Street", SuggestIndex.streetOf("12B Baker Street, Marylebone"));
+        assertEquals("2nd Cross", SuggestIndex.streetOf("#4, 2nd Cross"));
+        assertEquals("Main St", SuggestIndex.streetOf("  Main   St "));
+        assertNull(SuggestIndex.streetOf("12, 34"));
+        assertNull(SuggestIndex.streetOf(null));
+    }
+
+    private static void assertMatchesBruteForce(SuggestIndex index, Map<Long, Property> properties, Random random) {
+        Map<String, SuggestSnapshot.Term> terms = new HashMap<>();
+        for (Property property : properties.values()) {
+            if (property.getStatus() != PropertyStatus.AVAILABLE) { continue; }
+            countTerm(terms, Suggestion.Type.CITY, property.getCity());
+            countTerm(terms, Suggestion.Type.POSTAL_CODE, property.getPostalCode());
+            countTerm(terms, Suggestion.Type.STREET, SuggestIndex.streetOf(property.getAddress()));
+        }
+        Set<String> prefixes = new HashSet<>(List.of("s", "sa", "san", "9", "94", "m", "q"));
+        for (SuggestSnapshot.Term term : terms.values()) { prefixes.add(term.key.substring(0, 1 + random.nextInt(term.key.length()))); }
+        for (String prefix : prefixes) {
+            String typed = random.nextBoolean() ? " " + prefix.toUpperCase(Locale.ROOT) : prefix; // Normalized by the index
+            String key = SuggestSnapshot.normalize(typed);
+            List<SuggestSnapshot.Term> expected = key.isEmpty() ? List.of() : bruteForce(terms.values(), key, MAX_RESULTS);
+            assertSuggestions(expected, index.suggest(typed, MAX_RESULTS), typed);
+        }
+    }
+
+    private static void countTerm(Map<String, SuggestSnapshot.Term> terms, Suggestion.Type type, String text) {
+        if (text == null || text.isBlank()) { return; }
+        String key = SuggestSnapshot.normalize(text);
+        terms.computeIfAbsent(type + ":" + key, k -> new SuggestSnapshot.Term(type, key, text)).count++;
+    }
+
+    private static List<SuggestSnapshot.Term> bruteForce(Iterable<SuggestSnapshot.Term> terms, String prefix, int limit) {
+        List<SuggestSnapshot.Term> matches = new ArrayList<>();
+        for (SuggestSnapshot.Term term : terms) {
+            if (term.count > 0 && term.key.startsWith(prefix)) { matches.add(term); }
+        }
+        matches.sort(Comparator.<SuggestSnapshot.Term>comparingInt(term -> -term.count)
+                .thenComparing(term -> term.key).thenComparing(term -> term.type));
+        return matches.subList(0, Math.min(limit, matches.size()));
+    }
+
+    // The display spelling depends on which listing was seen first, so compare normalized keys
+    private static void assertSuggestions(List<SuggestSnapshot.Term> expected, List<Suggestion> actual, String prefix) {
+        assertEquals(expected.size(), actual.size(), prefix);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).key, SuggestSnapshot.normalize(actual.get(i).getText()), prefix + " #" + i);
+            assertEquals(expected.get(i).type, actual.get(i).getType(), prefix + " #" + i);
+            assertEquals(expected.get(i).count, actual.get(i).getCount(), prefix + " #" + i);
+        }
+    }
+
+    private static String randomText(Random random) {
+        StringBuilder text = new StringBuilder();
+        int length = 1 + random.nextInt(7);
+        for (int i = 0; i < length; i++) { text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length()))); }
+        return text.toString();
+    }
+
+    private static Property randomProperty(Random random, long id) {
+        String[] cities = { "San Jose", "san  jose", "Santa Clara", "Sao Paulo", "Salem", "Mumbai", " ", null };
+        Property property = new Property();
+        property.setId(id);
+        property.setStatus(random.nextInt(4) == 0 ? PropertyStatus.SOLD : PropertyStatus.AVAILABLE);
+        property.setCity(random.nextBoolean() ? cities[random.nextInt(cities.length)] : "Sa" + (char) ('a' + random.nextInt(26)) + random.nextInt(20));
+        property.setPostalCode(random.nextInt(10) == 0 ? null : "9" + (4000 + random.nextInt(400)));
+        property.setAddress(random.nextInt(10) == 0 ? null
+                : (1 + random.nextInt(99)) + " " + (random.nextBoolean() ? "Main" : "Market") + " St " + random.nextInt(40) + ", Unit 2");
+        return property;
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.demo.service.search;
+
+import com.example.demo.model.enums.PropertyStatus;
+import com.example.demo.model.enums.PropertyType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Random listing rows for the search index tests, and the naive reference they are checked against:
+ * each filter evaluated on one row at a time, straight from the row's fields.
+ * Values are drawn from small ranges so that rows share sort keys, cities and amenity sets.
+ */
+final class TestListings {
+
+    static final String[] CITIES = { "Paris", "Paris Nord", "New York", "York", "Berlin", "BERLIN", "Ås", "" };
+    static final String[] CITY_NEEDLES = { "par", "york", "BER", "s", "ork", "new york", "pa", "ås", "lyon", "zzz" };
+    static final int AMENITIES = 70; // Spans two mask words
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private TestListings() {}
+
+    static ListingRow randomRow(Random random, long id) {
+        return randomRow(random, id, CITIES[random.nextInt(CITIES.length)]);
+    }
+
+    static ListingRow randomRow(Random random, long id, String city) {
+        BigDecimal price = random.nextInt(4) == 0
+                ? roundPrice(random)
+                : BigDecimal.valueOf(random.nextInt(200_000_000), 2); // Up to 2,000,000.00
+        PropertyType type = random.nextInt(20) == 0 ? null : PropertyType.values()[random.nextInt(PropertyType.values().length)];
+        PropertyStatus status = random.nextInt(3) == 0
+                ? PropertyStatus.values()[random.nextInt(PropertyStatus.values().length)] : PropertyStatus.AVAILABLE;
+        List<Integer> amenityIds = new ArrayList<>();
+        for (int amenity = 0; amenity < AMENITIES; amenity++) {
+            if (random.nextInt(amenity % 8 == 0 ? 2 : 12) == 0) { amenityIds.add(amenity); }
+        }
+        LocalDateTime createdAt = START.plusHours(random.nextInt(50)).plusNanos(random.nextInt(3) * 1_000L);
+        // A few grid cells around one point, some rows without coordinates
+        Double latitude = random.nextInt(4) == 0 ? null : 48.8 + random.nextInt(500) / 1_000.0;
+        Double longitude = latitude == null ? null : 2.2 + random.nextInt(500) / 1_000.0;
+        return new ListingRow(id, price, random.nextInt(6), random.nextInt(4), type, status, city, latitude, longitude, createdAt)
+                .withAmenityIds(amenityIds);
+    }
+
+    static List<ListingRow> randomRows(Random random, int count) {
+        List<ListingRow> rows = new ArrayList<>(count);
+        long id = 0;
+        for (int i = 0; i < count; i++) {
+            id += 1 + random.nextInt(3); // Gaps, as left by deletes
+            rows.add(randomRow(random, id));
+        }
+        return rows;
+    }
+
+    /** Criteria with a random subset of the filters, amenities already resolved to ids. */
+    static PropertySearchCriteria randomCriteria(Random random) {
+        PropertySearchCriteria.Builder builder = PropertySearchCriteria.builder();
+        if (random.nextBoolean()) { builder.type(PropertyType.values()[random.nextInt(PropertyType.values().length)]); }
+        if (random.nextInt(3) == 0) { builder.city(CITY_NEEDLES[random.nextInt(CITY_NEEDLES.length)]); }
+        // Bounds equal to the repeated prices test inclusiveness; a third decimal place, the rounding to cents
+        if (random.nextInt(3) == 0) {
+            builder.minPrice(random.nextBoolean() ? roundPrice(random) : BigDecimal.valueOf(random.nextInt(150_000_000), 3));
+        }
+        if (random.nextInt(3) == 0) {
+            builder.maxPrice(random.nextBoolean() ? roundPrice(random) : BigDecimal.valueOf(random.nextInt(2_000_000_000), 3));
+        }
+        if (random.nextInt(3) == 0) { builder.minBedrooms(random.nextInt(6)); }
+        if (random.nextInt(3) == 0) { builder.minBathrooms(random.nextInt(4)); }
+        int[] amenityIds = new int[random.nextInt(4) == 0 ? 1 + random.nextInt(2) : 0];
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < amenityIds.length; i++) {
+            amenityIds[i] = random.nextInt(20) == 0 ? -1 : 8 * random.nextInt(AMENITIES / 8 + 1); // The common ones
+            names.add("amenity-" + i);
+        }
+        return builder.amenities(names).build().withAmenityIds(amenityIds);
+    }
+
+    /** One of a few prices that many rows share. */
+    static BigDecimal roundPrice(Random random) {
+        return BigDecimal.valueOf(50_000L * (1 + random.nextInt(4)));
+    }
+
+    // --- Reference ---
+
+    static boolean matches(ListingRow row, PropertySearchCriteria criteria) {
+        return row.getStatus() == PropertyStatus.AVAILABLE && hasAmenities(row, criteria)
+                && typeOk(row, criteria) && cityOk(row, criteria) && priceOk(row, criteria)
+                && bedroomsOk(row, criteria) && bathroomsOk(row, criteria) && geoOk(row, criteria);
+    }
+
+    static boolean geoOk(ListingRow row, PropertySearchCriteria criteria) {
+        return criteria.getGeo() == null || criteria.getGeo().matches(row.getLatitude(), row.getLongitude());
+    }
+
+    static boolean typeOk(ListingRow row, PropertySearchCriteria criteria) {
+        return criteria.getType() == null || row.getType() == criteria.getType();
+    }
+
+    static boolean cityOk(ListingRow row, PropertySearchCriteria criteria) {
+        return criteria.getCity() == null
+                || row.getCity().toLowerCase(Locale.ROOT).contains(criteria.getCity().toLowerCase(Locale.ROOT));
+    }
+
+    static boolean priceOk(ListingRow row, PropertySearchCriteria criteria) {
+        return (criteria.getMinPrice() == null || row.getPrice().compareTo(criteria.getMinPrice()) >= 0)
+                && (criteria.getMaxPrice() == null || row.getPrice().compareTo(criteria.getMaxPrice()) <= 0);
+    }
+
+    static boolean bedroomsOk(ListingRow row, PropertySearchCriteria criteria) {
+        return criteria.getMinBedrooms() == null || row.getBedrooms() >= criteria.getMinBedrooms();
+    }
+
+    static boolean bathroomsOk(ListingRow row, PropertySearchCriteria criteria) {
+        return criteria.getMinBathrooms() == null || row.getBathrooms() >= criteria.getMinBathrooms();
+    }
+
+    static boolean hasAmenities(ListingRow row, PropertySearchCriteria criteria) {
+        long[] mask = row.getAmenityMask();
+        for (int id : criteria.getAmenityIds()) {
+            if (id < 0 || (id >>> 6) >= mask.length || (mask[id >>> 6] & (1L << id)) == 0) { return false; }
+        }
+        return true;
+    }
+
+    /** Ids of the matching rows, ascending. */
+    static long[] search(Collection<ListingRow> rows, PropertySearchCriteria criteria) {
+        return rows.stream().filter(row -> matches(row, criteria)).mapToLong(ListingRow::getId).sorted().toArray();
+    }
+
+    /** The value of the sort column on the row, as a cursor would carry it. */
+    static Comparable<?> keyOf(ListingRow row, PropertySort.Field field) {
+        switch (field) {
+            case PRICE: return row.getPrice();
+            case CREATED_AT: return row.getCreatedAt();
+            case BEDROOMS: return row.getBedrooms();
+            default: throw new IllegalArgumentException("Sort " + field + " is not a listing column");
+        }
+    }
+
+    /** Ids of the matching rows in sort order, ties broken by id in the same direction. */
+    static long[] sorted(Collection<ListingRow> rows, PropertySearchCriteria criteria, PropertySort sort) {
+        return rows.stream().filter(row -> matches(row, criteria)).sorted(order(sort)).mapToLong(ListingRow::getId).toArray();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static Comparator<ListingRow> order(PropertySort sort) {
+        Comparator<ListingRow> ascending = (a, b) -> {
+            int order = ((Comparable) keyOf(a, sort.getField())).compareTo(keyOf(b, sort.getField()));
+            return order != 0 ? order : Long.compare(a.getId(), b.getId());
+        };
+        return sort.isDescending() ? ascending.reversed() : ascending;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.demo.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks {@link TopKHeap}, alone and merged from partial heaps, against sorting every pair offered,
+ * and the top-K selection of the listing index against a full sort of the matching rows.
+ */
+class TopKHeapTest {
+
+    @Test
+    void keepsTheKSmallestPairs() {
+        Random random = new Random(21);
+        for (int round = 0; round < 500; round++) {
+            int k = random.nextInt(30);
+            List<long[]> pairs = randomPairs(random, random.nextInt(200));
+            TopKHeap heap = new TopKHeap(k);
+            for (long[] pair : pairs) { heap.offer(pair[0], pair[1]); }
+            assertArrayEquals(smallest(pairs, k), heap.drainAscending(), "k = " + k);
+            assertEquals(0, heap.drainAscending().length, "Draining empties the heap");
+        }
+    }
+
+    @Test
+    void mergedPartialHeapsKeepTheKSmallestPairs() {
+        Random random = new Random(22);
+        for (int round = 0; round < 500; round++) {
+            int k = 1 + random.nextInt(30);
+            List<long[]> pairs = randomPairs(random, random.nextInt(300));
+            TopKHeap[] partials = new TopKHeap[1 + random.nextInt(6)];
+            for (int i = 0; i < partials.length; i++) { partials[i] = new TopKHeap(k); }
+            for (long[] pair : pairs) { partials[random.nextInt(partials.length)].offer(pair[0], pair[1]); }
+            TopKHeap merged = partials[0];
+            for (int i = 1; i < partials.length; i++) { merged = merged.merge(partials[i]); }
+            assertArrayEquals(smallest(pairs, k), merged.drainAscending(), "k = " + k + ", " + partials.length + " partials");
+        }
+    }
+
+    @Test
+    void topKMatchesFullSort() {
+        Random random = new Random(23);
+        List<ListingRow> rows = TestListings.randomRows(random, 3_000);
+        ListingSnapshot snapshot = ListingSnapshot.build(rows);
+        for (String value : new String[] { "price", "price,desc", "createdAt", "createdAt,desc", "bedrooms", "bedrooms,desc" }) {
+            PropertySort sort = PropertySort.parse(value);
+            for (int i = 0; i < 50; i++) {
+                PropertySearchCriteria criteria = TestListings.randomCriteria(random);
+                int k = 1 + random.nextInt(100);
+                long[] expected = TestListings.sorted(rows, criteria, sort);
+                assertArrayEquals(Arrays.copyOf(expected, Math.min(k, expected.length)),
+                        snapshot.topK(criteria, sort, null, 0L, k, ParallelScan.SEQUENTIAL), value + " top " + k + ": " + criteria);
+            }
+        }
+    }
+
+    @Test
+    void cursorKeysBeyondAnyStoredValueKeepTheirPlace() {
+        List<ListingRow> rows = TestListings.randomRows(new Random(24), 200);
+        ListingSnapshot snapshot = ListingSnapshot.build(rows);
+        PropertySearchCriteria everything = PropertySearchCriteria.builder().build().withAmenityIds(new int[0]);
+        int all = TestListings.search(rows, everything).length;
+        Object[][] cases = {
+                // sort, cursor key, rows after it
+                { "price", new BigDecimal("-1E+30"), all }, { "price", new BigDecimal("1E+30"), 0 },
+                { "price,desc", new BigDecimal("1E+30"), all }, { "price,desc", new BigDecimal("-1E+30"), 0 },
+                { "createdAt", LocalDateTime.MIN, all }, { "createdAt", LocalDateTime.MAX, 0 },
+                { "createdAt,desc", LocalDateTime.MAX, all }, { "createdAt,desc", LocalDateTime.MIN, 0 },
+                { "bedrooms", Integer.MIN_VALUE, all }, { "bedrooms,desc", Integer.MIN_VALUE, 0 },
+        };
+        for (Object[] c : cases) {
+            PropertySort sort = PropertySort.parse((String) c[0]);
+            assertEquals(c[2], snapshot.topK(everything, sort, c[1], 0L, all + 1, ParallelScan.SEQUENTIAL).length, c[0] + " after " + c[1]);
+        }
+    }
+
+    private static List<long[]> randomPairs(Random random, int count) {
+        List<long[]> pairs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long key = random.nextInt(10) == 0 ? (random.nextBoolean() ? Long.MIN_VALUE : Long.MAX_VALUE) : random.nextInt(8) - 4;
+            pairs.add(new long[] { key, random.nextInt(50) - 25 }); // Repeated keys, negative ids (descending sorts negate them)
+        }
+        return pairs;
+    }
+
+    private static long[] smallest(List<long[]> pairs, int k) {
+        return pairs.stream()
+                .sorted(Comparator.<long[]>comparingLong(pair -> pair[0]).thenComparingLong(pair -> pair[1]))
+                .limit(k).mapToLong(pair -> pair[1]).toArray();
+    }
+}